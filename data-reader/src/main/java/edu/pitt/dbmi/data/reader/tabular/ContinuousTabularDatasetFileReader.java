@@ -37,11 +37,13 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
 
     private boolean hasHeader;
     private char quoteChar;
+    private int numberOfThreads;
 
     public ContinuousTabularDatasetFileReader(Path dataFile, Delimiter delimiter) {
         super(dataFile, delimiter);
         this.hasHeader = this.hasHeader = true;
         this.quoteChar = '"';
+        this.numberOfThreads = 1;
     }
 
     @Override
@@ -64,6 +66,7 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         dataReader.setCommentMarker(this.commentMarker);
         dataReader.setQuoteCharacter(this.quoteChar);
         dataReader.setMissingDataMarker(this.missingDataMarker);
+        dataReader.setNumberOfThreads(this.numberOfThreads);
 
         return dataReader.read(dataColumns, this.hasHeader);
     }
@@ -83,6 +86,7 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         dataReader.setCommentMarker(this.commentMarker);
         dataReader.setQuoteCharacter(this.quoteChar);
         dataReader.setMissingDataMarker(this.missingDataMarker);
+        dataReader.setNumberOfThreads(this.numberOfThreads);
 
         return dataReader.read(dataColumns, this.hasHeader);
     }
@@ -92,6 +96,11 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         this.hasHeader = hasHeader;
     }
 
+    @Override
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     @Override
     public void setQuoteCharacter(char quoteCharacter) {
         this.quoteChar = quoteCharacter;
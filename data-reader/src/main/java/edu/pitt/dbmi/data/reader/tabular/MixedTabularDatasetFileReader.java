@@ -36,12 +36,14 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
     private final int numberOfDiscreteCategories;
     private boolean hasHeader;
     private char quoteChar;
+    private int numberOfThreads;
 
     public MixedTabularDatasetFileReader(Path dataFile, Delimiter delimiter, int numberOfDiscreteCategories) {
         super(dataFile, delimiter);
         this.numberOfDiscreteCategories = numberOfDiscreteCategories;
         this.hasHeader = true;
         this.quoteChar = '"';
+        this.numberOfThreads = 1;
     }
 
     @Override
@@ -64,6 +66,7 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         dataReader.setCommentMarker(this.commentMarker);
         dataReader.setQuoteCharacter(this.quoteChar);
         dataReader.setMissingDataMarker(this.missingDataMarker);
+        dataReader.setNumberOfThreads(this.numberOfThreads);
 
         dataReader.determineDiscreteDataColumns(dataColumns, this.numberOfDiscreteCategories, this.hasHeader);
 
@@ -85,6 +88,7 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         dataReader.setCommentMarker(this.commentMarker);
         dataReader.setQuoteCharacter(this.quoteChar);
         dataReader.setMissingDataMarker(this.missingDataMarker);
+        dataReader.setNumberOfThreads(this.numberOfThreads);
 
         dataReader.determineDiscreteDataColumns(dataColumns, this.numberOfDiscreteCategories, this.hasHeader);
 
@@ -146,6 +150,11 @@ public class MixedTabularDatasetFileReader extends DatasetFileReader implements
         this.hasHeader = hasHeader;
     }
 
+    @Override
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     @Override
     public void setQuoteCharacter(char quoteCharacter) {
         this.quoteChar = quoteCharacter;
@@ -24,12 +24,15 @@ import edu.pitt.dbmi.data.reader.metadata.Metadata;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
 
 /**
  * Nov 15, 2018 5:22:50 PM
@@ -40,10 +43,43 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 
 //    private static final Logger LOGGER = LoggerFactory.getLogger(TabularDataFileReader.class);
 
+    // The number of threads used to parse the data; 1 parses the file sequentially.
+    private int numberOfThreads = 1;
+
+    // The smallest chunk, in bytes, the file is split into when parsing in parallel.
+    private long minimumChunkSize = DataFileReader.BUFFER_SIZE;
+
     public TabularDataFileReader(Path dataFile, Delimiter delimiter) {
         super(dataFile, delimiter);
     }
 
+    /**
+     * Sets the number of threads used by read(DataColumn[], boolean). With
+     * more than one thread the file is split at line boundaries into chunks
+     * that are parsed concurrently into column buffers of their own, which
+     * are then concatenated; the file is read once, rather than once to count
+     * the lines and once more (or twice more, for discrete columns) to parse
+     * them. Validation, error messages and missing-value handling are those of
+     * the sequential reader, except that quote characters are expected to be
+     * balanced on each line. Memory use is about twice the size of the
+     * parsed data while the chunks are concatenated.
+     *
+     * @param numberOfThreads the number of threads; 1, the default, reads the
+     *                        file sequentially
+     */
+    @Override
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1: " + numberOfThreads);
+        }
+
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    void setMinimumChunkSize(long minimumChunkSize) {
+        this.minimumChunkSize = minimumChunkSize;
+    }
+
     @Override
     public void determineDiscreteDataColumns(DataColumn[] dataColumns, int numberOfCategories, boolean hasHeader) throws IOException {
         int numOfColsInDataFile = 0;
@@ -302,7 +338,9 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
             }
         }
 
-        if (isDiscrete && isContinuous) {
+        if ((isDiscrete || isContinuous) && this.numberOfThreads > 1) {
+            return readInChunks(dataColumns, hasHeader, numOfColsInDataFile, isDiscrete, isContinuous);
+        } else if (isDiscrete && isContinuous) {
             return readInMixedData(dataColumns, hasHeader, numOfColsInDataFile);
         } else if (isContinuous) {
             return readInContinuousData(dataColumns, hasHeader, numOfColsInDataFile);
@@ -419,6 +457,26 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
         return data;
     }
 
+    @Override
+    public void readRows(DataColumn[] dataColumns, boolean hasHeader, ContinuousDataRowHandler handler) throws IOException {
+        if (dataColumns == null) {
+            return;
+        }
+
+        int numOfColsInDataFile = 0;
+        for (DataColumn dataColumn : dataColumns) {
+            if (dataColumn.isDiscrete()) {
+                throw new DataReaderException(String.format("Column %s is not continuous.", dataColumn.getName()));
+            }
+
+            if (!dataColumn.isGenerated()) {
+                numOfColsInDataFile++;
+            }
+        }
+
+        readInContinuousData(dataColumns, hasHeader, numOfColsInDataFile, handler);
+    }
+
     private Data readInMixedData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile) throws IOException {
         int numOfCols = dataColumns.length;
         int numOfRows = hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
@@ -719,6 +777,17 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
         int numOfRows = hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
         double[][] data = new double[numOfRows][numOfCols];
 
+        int[] row = {0};
+        readInContinuousData(dataColumns, hasHeader, numOfColsInDataFile,
+                values -> System.arraycopy(values, 0, data[row[0]++], 0, numOfCols));
+
+        return new ContinuousTabularData(dataColumns, data);
+    }
+
+    private void readInContinuousData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile, ContinuousDataRowHandler handler) throws IOException {
+        int numOfCols = dataColumns.length;
+        double[] values = new double[numOfCols];
+
         try (InputStream in = Files.newInputStream(this.dataFile, StandardOpenOption.READ)) {
             boolean skipHeader = hasHeader;
             boolean skip = false;
@@ -737,7 +806,6 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 
             int columnIndex = 0;
 
-            int row = 0;  // array row number
             int col = 0;  // array column number
 
             StringBuilder dataBuilder = new StringBuilder();
@@ -815,10 +883,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                             if (dataColumn.getColumnNumber() == colNum) {
                                 String value = dataBuilder.toString().trim();
                                 if (value.isEmpty() || value.equals(this.missingDataMarker)) {
-                                    data[row][col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
+                                    values[col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
                                 } else {
                                     try {
-                                        data[row][col++] = Double.parseDouble(value);
+                                        values[col++] = Double.parseDouble(value);
                                     } catch (NumberFormatException exception) {
                                         String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
 //                                        TabularDataFileReader.LOGGER.error(errMsg, exception);
@@ -836,7 +904,7 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                                 throw new DataReaderException(errMsg);
                             }
 
-                            row++;
+                            handler.handle(values);
                         }
 
                         lineNum++;
@@ -896,10 +964,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                                     if (dataColumn.getColumnNumber() == colNum) {
                                         String value = dataBuilder.toString().trim();
                                         if (value.isEmpty() || value.equals(this.missingDataMarker)) {
-                                            data[row][col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
+                                            values[col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
                                         } else {
                                             try {
-                                                data[row][col++] = Double.parseDouble(value);
+                                                values[col++] = Double.parseDouble(value);
                                             } catch (NumberFormatException exception) {
                                                 String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
 //                                                TabularDataFileReader.LOGGER.error(errMsg, exception);
@@ -909,7 +977,7 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 
                                         columnIndex++;
                                         if (columnIndex == numOfCols) {
-                                            row++;
+                                            handler.handle(values);
                                             skip = true;
                                         }
                                     }
@@ -934,10 +1002,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                 if (dataColumn.getColumnNumber() == colNum) {
                     String value = dataBuilder.toString().trim();
                     if (value.isEmpty() || value.equals(this.missingDataMarker)) {
-                        data[row][col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
+                        values[col++] = DatasetReader.CONTINUOUS_MISSING_VALUE;
                     } else {
                         try {
-                            data[row][col++] = Double.parseDouble(value);
+                            values[col++] = Double.parseDouble(value);
                         } catch (NumberFormatException exception) {
                             String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
 //                            TabularDataFileReader.LOGGER.error(errMsg, exception);
@@ -954,10 +1022,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 //                    TabularDataFileReader.LOGGER.error(errMsg);
                     throw new DataReaderException(errMsg);
                 }
+
+                handler.handle(values);
             }
         }
-
-        return new ContinuousTabularData(dataColumns, data);
     }
 
     private Data readInDiscreteData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile) throws IOException {
@@ -1431,4 +1499,565 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
         }
     }
 
+    private Data readInChunks(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile, boolean isDiscrete, boolean isContinuous) throws IOException {
+        long[] dataStart = locateData(hasHeader);
+        long[] boundaries = splitIntoChunks(dataStart[0]);
+        boolean continuousOnly = !isDiscrete;
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            chunks.add(new Chunk(dataColumns, boundaries[i], boundaries[i + 1]));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.numberOfThreads, chunks.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    parseChunk(chunk, dataColumns, numOfColsInDataFile, continuousOnly);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + this.dataFile);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // report the first error in the file, numbering lines as the sequential reader does
+        int lineNum = (int) dataStart[1];
+        int numOfRows = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.error != null) {
+                throw new DataReaderException(chunk.error.apply(lineNum + chunk.numOfLineBreaks));
+            }
+
+            lineNum += chunk.numOfLineBreaks;
+            numOfRows += chunk.numOfRows;
+        }
+
+        int numOfCols = dataColumns.length;
+
+        if (continuousOnly) {
+            double[][] data = new double[numOfRows][numOfCols];
+            int row = 0;
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.numOfRows; i++, row++) {
+                    for (int col = 0; col < numOfCols; col++) {
+                        if (chunk.continuousData[col] != null) {
+                            data[row][col] = chunk.continuousData[col][i];
+                        }
+                    }
+                }
+            }
+
+            return new ContinuousTabularData(dataColumns, data);
+        }
+
+        DiscreteDataColumn[] discreteDataColumns = new DiscreteDataColumn[numOfCols];
+        double[][] continuousData = new double[numOfCols][];
+        int[][] discreteData = new int[numOfCols][];
+        for (int col = 0; col < numOfCols; col++) {
+            DataColumn dataColumn = dataColumns[col];
+            DiscreteDataColumn discreteDataColumn = isContinuous
+                    ? new MixedTabularDataColumn(dataColumn)
+                    : new DiscreteTabularDataColumn(dataColumn);
+            discreteDataColumns[col] = discreteDataColumn;
+
+            if (!dataColumn.isDiscrete()) {
+                continuousData[col] = new double[numOfRows];
+                int row = 0;
+                for (Chunk chunk : chunks) {
+                    if (chunk.continuousData[col] != null) {
+                        System.arraycopy(chunk.continuousData[col], 0, continuousData[col], row, chunk.numOfRows);
+                    }
+
+                    row += chunk.numOfRows;
+                }
+
+                continue;
+            }
+
+            // recategorize values
+            for (Chunk chunk : chunks) {
+                if (chunk.categories[col] != null) {
+                    chunk.categories[col].forEach(discreteDataColumn::setValue);
+                }
+            }
+
+            if (dataColumn.isGenerated()) {
+                discreteDataColumn.setValue("0");
+                discreteDataColumn.setValue("1");
+            }
+
+            discreteDataColumn.recategorize();
+
+            // translate the codes of each chunk to those of the recategorized values
+            discreteData[col] = new int[numOfRows];
+            int row = 0;
+            for (Chunk chunk : chunks) {
+                if (chunk.discreteData[col] != null) {
+                    List<String> categories = chunk.categories[col];
+                    int[] encoding = new int[categories.size()];
+                    for (int i = 0; i < encoding.length; i++) {
+                        encoding[i] = discreteDataColumn.getEncodeValue(categories.get(i));
+                    }
+
+                    int[] codes = chunk.discreteData[col];
+                    for (int i = 0; i < chunk.numOfRows; i++) {
+                        int code = codes[i];
+                        discreteData[col][row + i] = (code == DatasetReader.DISCRETE_MISSING_VALUE) ? code : encoding[code];
+                    }
+                }
+
+                row += chunk.numOfRows;
+            }
+        }
+
+        return isContinuous
+                ? new MixedTabularData(numOfRows, discreteDataColumns, continuousData, discreteData)
+                : new VerticalDiscreteTabularData(discreteDataColumns, discreteData);
+    }
+
+    private void parseChunk(Chunk chunk, DataColumn[] dataColumns, int numOfColsInDataFile, boolean continuousOnly) throws IOException {
+        int numOfCols = dataColumns.length;
+        String numberErrMsg = continuousOnly
+                ? "Non-continuous number %s on line %d at column %d."
+                : "Invalid number %s on line %d at column %d.";
+
+        try (FileChannel channel = FileChannel.open(this.dataFile, StandardOpenOption.READ)) {
+            boolean skip = false;
+            boolean hasSeenNonblankChar = false;
+            boolean hasQuoteChar = false;
+
+            byte delimChar = this.delimiter.getByteValue();
+
+            // comment marker check
+            byte[] comment = this.commentMarker.getBytes();
+            int cmntIndex = 0;
+            boolean checkForComment = comment.length > 0;
+
+            int colNum = 0;
+
+            int columnIndex = 0;
+
+            StringBuilder dataBuilder = new StringBuilder();
+            byte prevChar = -1;
+            ByteBuffer byteBuffer = ByteBuffer.allocate((int) Math.max(1, Math.min(DataFileReader.BUFFER_SIZE, chunk.end - chunk.start)));
+            byte[] buffer = byteBuffer.array();
+            long position = chunk.start;
+            while (position < chunk.end && !Thread.currentThread().isInterrupted()) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, chunk.end - position));
+                int len = channel.read(byteBuffer, position);
+                if (len == -1) {
+                    break;
+                }
+
+                position += len;
+
+                for (int i = 0; i < len && !Thread.currentThread().isInterrupted(); i++) {
+                    byte currChar = buffer[i];
+
+                    if (currChar == DataFileReader.CARRIAGE_RETURN || currChar == DataFileReader.LINE_FEED) {
+                        if (currChar == DataFileReader.LINE_FEED && prevChar == DataFileReader.CARRIAGE_RETURN) {
+                            prevChar = DataFileReader.LINE_FEED;
+                            continue;
+                        }
+
+                        if (hasSeenNonblankChar && !skip) {
+                            colNum++;
+
+                            DataColumn dataColumn = dataColumns[columnIndex];
+                            if (dataColumn.getColumnNumber() == colNum) {
+                                String value = dataBuilder.toString().trim();
+                                if (!storeValue(chunk, columnIndex, dataColumn, value)) {
+                                    int column = colNum;
+                                    chunk.error = lineNum -> String.format(numberErrMsg, value, lineNum, column);
+                                    return;
+                                }
+
+                                columnIndex++;
+                            }
+
+                            // ensure we have enough data
+                            if (columnIndex < numOfColsInDataFile) {
+                                int extracted = columnIndex;
+                                chunk.error = lineNum -> String.format("Insufficient data on line %d.  Extracted %d value(s) but expected %d.", lineNum, extracted, numOfColsInDataFile);
+                                return;
+                            }
+
+                            chunk.numOfRows++;
+                        }
+
+                        chunk.numOfLineBreaks++;
+
+                        // clear data
+                        dataBuilder.delete(0, dataBuilder.length());
+
+                        // reset states
+                        skip = false;
+                        hasSeenNonblankChar = false;
+                        cmntIndex = 0;
+                        checkForComment = comment.length > 0;
+                        columnIndex = 0;
+                        colNum = 0;
+                    } else if (!skip) {
+                        if (currChar > DataFileReader.SPACE_CHAR) {
+                            hasSeenNonblankChar = true;
+                        }
+
+                        // skip blank chars at the begining of the line
+                        if (currChar <= DataFileReader.SPACE_CHAR && !hasSeenNonblankChar) {
+                            continue;
+                        }
+
+                        // check for comment marker to skip line
+                        if (checkForComment) {
+                            if (currChar == comment[cmntIndex]) {
+                                cmntIndex++;
+                                if (cmntIndex == comment.length) {
+                                    skip = true;
+                                    prevChar = currChar;
+                                    continue;
+                                }
+                            } else {
+                                checkForComment = false;
+                            }
+                        }
+
+                        if (currChar == this.quoteCharacter) {
+                            hasQuoteChar = !hasQuoteChar;
+                        } else {
+                            if (hasQuoteChar) {
+                                dataBuilder.append((char) currChar);
+                            } else {
+                                boolean isDelimiter;
+                                if (this.delimiter == Delimiter.WHITESPACE) {
+                                    isDelimiter = (currChar <= DataFileReader.SPACE_CHAR) && (prevChar > DataFileReader.SPACE_CHAR);
+                                } else {
+                                    isDelimiter = (currChar == delimChar);
+                                }
+
+                                if (isDelimiter) {
+                                    colNum++;
+
+                                    DataColumn dataColumn = dataColumns[columnIndex];
+                                    if (dataColumn.getColumnNumber() == colNum) {
+                                        String value = dataBuilder.toString().trim();
+                                        if (!storeValue(chunk, columnIndex, dataColumn, value)) {
+                                            int column = colNum;
+                                            chunk.error = lineNum -> String.format(numberErrMsg, value, lineNum, column);
+                                            return;
+                                        }
+
+                                        columnIndex++;
+                                        if (columnIndex == numOfCols) {
+                                            chunk.numOfRows++;
+                                            skip = true;
+                                        }
+                                    }
+
+                                    // clear data
+                                    dataBuilder.delete(0, dataBuilder.length());
+                                } else {
+                                    dataBuilder.append((char) currChar);
+                                }
+                            }
+                        }
+                    }
+
+                    prevChar = currChar;
+                }
+            }
+
+            // case when no newline char at end of file
+            if (hasSeenNonblankChar && !skip) {
+                colNum++;
+
+                DataColumn dataColumn = dataColumns[columnIndex];
+                if (dataColumn.getColumnNumber() == colNum) {
+                    String value = dataBuilder.toString().trim();
+                    if (!storeValue(chunk, columnIndex, dataColumn, value)) {
+                        int column = colNum;
+                        chunk.error = lineNum -> String.format(numberErrMsg, value, lineNum, column);
+                        return;
+                    }
+
+                    columnIndex++;
+                }
+
+                // ensure we have enough data
+                if (columnIndex < numOfColsInDataFile) {
+                    int extracted = columnIndex;
+                    chunk.error = lineNum -> String.format("Insufficient data on line %d.  Extracted %d value(s) but expected %d.", lineNum, extracted, numOfColsInDataFile);
+                    return;
+                }
+
+                chunk.numOfRows++;
+            }
+        }
+    }
+
+    /**
+     * Stores a value of the chunk's current row. Returns false if the value
+     * should be a number but is not.
+     */
+    private boolean storeValue(Chunk chunk, int col, DataColumn dataColumn, String value) {
+        chunk.ensureCapacity();
+
+        boolean isMissing = value.isEmpty() || value.equals(this.missingDataMarker);
+        if (dataColumn.isDiscrete()) {
+            chunk.discreteData[col][chunk.numOfRows] = isMissing
+                    ? DatasetReader.DISCRETE_MISSING_VALUE
+                    : chunk.encode(col, value);
+        } else if (isMissing) {
+            chunk.continuousData[col][chunk.numOfRows] = DatasetReader.CONTINUOUS_MISSING_VALUE;
+        } else {
+            try {
+                chunk.continuousData[col][chunk.numOfRows] = Double.parseDouble(value);
+            } catch (NumberFormatException exception) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the first line of data, following the header if there is one.
+     *
+     * @return the position of the line in the file and its line number
+     */
+    private long[] locateData(boolean hasHeader) throws IOException {
+        if (!hasHeader) {
+            return new long[]{0, 1};
+        }
+
+        try (InputStream in = Files.newInputStream(this.dataFile, StandardOpenOption.READ)) {
+            boolean skip = false;
+            boolean hasSeenNonblankChar = false;
+            boolean finished = false;
+
+            // comment marker check
+            byte[] comment = this.commentMarker.getBytes();
+            int cmntIndex = 0;
+            boolean checkForComment = comment.length > 0;
+
+            int lineNum = 1;
+            long position = 0;
+
+            byte prevChar = -1;
+            byte[] buffer = new byte[DataFileReader.BUFFER_SIZE];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                for (int i = 0; i < len; i++, position++) {
+                    byte currChar = buffer[i];
+
+                    if (finished) {
+                        return (currChar == DataFileReader.LINE_FEED && prevChar == DataFileReader.CARRIAGE_RETURN)
+                                ? new long[]{position + 1, lineNum}
+                                : new long[]{position, lineNum};
+                    }
+
+                    if (currChar == DataFileReader.CARRIAGE_RETURN || currChar == DataFileReader.LINE_FEED) {
+                        if (currChar == DataFileReader.LINE_FEED && prevChar == DataFileReader.CARRIAGE_RETURN) {
+                            prevChar = DataFileReader.LINE_FEED;
+                            continue;
+                        }
+
+                        finished = hasSeenNonblankChar && !skip;
+
+                        lineNum++;
+
+                        // reset states
+                        skip = false;
+                        hasSeenNonblankChar = false;
+                        cmntIndex = 0;
+                        checkForComment = comment.length > 0;
+                    } else if (!skip) {
+                        if (currChar > DataFileReader.SPACE_CHAR) {
+                            hasSeenNonblankChar = true;
+                        }
+
+                        // skip blank chars at the begining of the line
+                        if (currChar <= DataFileReader.SPACE_CHAR && !hasSeenNonblankChar) {
+                            continue;
+                        }
+
+                        // check for comment marker to skip line
+                        if (checkForComment) {
+                            if (currChar == comment[cmntIndex]) {
+                                cmntIndex++;
+                                if (cmntIndex == comment.length) {
+                                    skip = true;
+                                    prevChar = currChar;
+                                    continue;
+                                }
+                            } else {
+                                checkForComment = false;
+                            }
+                        }
+                    }
+
+                    prevChar = currChar;
+                }
+            }
+
+            return new long[]{position, lineNum};
+        }
+    }
+
+    /**
+     * Splits the file, from the given position to the end, into chunks of
+     * about equal size that each start on a new line.
+     *
+     * @return the boundaries of the chunks, the first being the given position
+     * and the last the size of the file
+     */
+    private long[] splitIntoChunks(long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(this.dataFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long numOfChunks = Math.max(1, Math.min(4L * this.numberOfThreads, (size - start) / Math.max(1, this.minimumChunkSize)));
+
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(start);
+
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            for (long i = 1; i < numOfChunks; i++) {
+                long previous = boundaries.get(boundaries.size() - 1);
+                long boundary = nextLine(channel, Math.max(previous, start + (size - start) * i / numOfChunks), buffer);
+                if (boundary >= size) {
+                    break;
+                } else if (boundary > previous) {
+                    boundaries.add(boundary);
+                }
+            }
+
+            boundaries.add(size);
+
+            return boundaries.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * Returns the position just after the first line break at or after the
+     * given position, taking a carriage return and line feed together, or the
+     * size of the file if there is none.
+     */
+    private static long nextLine(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        boolean hasCarriageReturn = false;
+        while (true) {
+            buffer.clear();
+            int len = channel.read(buffer, position);
+            if (len <= 0) {
+                return position;
+            }
+
+            for (int i = 0; i < len; i++, position++) {
+                byte currChar = buffer.get(i);
+                if (hasCarriageReturn) {
+                    return (currChar == DataFileReader.LINE_FEED) ? position + 1 : position;
+                } else if (currChar == DataFileReader.LINE_FEED) {
+                    return position + 1;
+                } else if (currChar == DataFileReader.CARRIAGE_RETURN) {
+                    hasCarriageReturn = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * A part of the file, starting and ending at line boundaries, and the
+     * values parsed from it, by column. Discrete values are coded in the order
+     * they are first seen in the chunk; the codes are translated once the
+     * categories of all chunks are known.
+     */
+    private static final class Chunk {
+
+        private final long start;
+        private final long end;
+
+        private final double[][] continuousData;
+        private final int[][] discreteData;
+        private final List<String>[] categories;
+        private final Map<String, Integer>[] codes;
+        private int capacity;
+
+        private int numOfRows;
+        private int numOfLineBreaks;
+
+        // the message for the first error in the chunk, given its line number
+        private IntFunction<String> error;
+
+        @SuppressWarnings("unchecked")
+        private Chunk(DataColumn[] dataColumns, long start, long end) {
+            this.start = start;
+            this.end = end;
+
+            int numOfCols = dataColumns.length;
+            this.continuousData = new double[numOfCols][];
+            this.discreteData = new int[numOfCols][];
+            this.categories = new List[numOfCols];
+            this.codes = new Map[numOfCols];
+            this.capacity = 1024;
+
+            for (int i = 0; i < numOfCols; i++) {
+                DataColumn dataColumn = dataColumns[i];
+                if (dataColumn.isGenerated()) {
+                    continue;
+                }
+
+                if (dataColumn.isDiscrete()) {
+                    this.discreteData[i] = new int[this.capacity];
+                    this.categories[i] = new ArrayList<>();
+                    this.codes[i] = new HashMap<>();
+                } else {
+                    this.continuousData[i] = new double[this.capacity];
+                }
+            }
+        }
+
+        private void ensureCapacity() {
+            if (this.numOfRows < this.capacity) {
+                return;
+            }
+
+            this.capacity *= 2;
+            for (int i = 0; i < this.continuousData.length; i++) {
+                if (this.continuousData[i] != null) {
+                    this.continuousData[i] = Arrays.copyOf(this.continuousData[i], this.capacity);
+                } else if (this.discreteData[i] != null) {
+                    this.discreteData[i] = Arrays.copyOf(this.discreteData[i], this.capacity);
+                }
+            }
+        }
+
+        private int encode(int col, String value) {
+            Integer code = this.codes[col].get(value);
+            if (code == null) {
+                code = this.categories[col].size();
+                this.codes[col].put(value, code);
+                this.categories[col].add(value);
+            }
+
+            return code;
+        }
+
+    }
+
 }
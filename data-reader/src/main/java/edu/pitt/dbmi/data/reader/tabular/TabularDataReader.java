@@ -18,8 +18,10 @@
  */
 package edu.pitt.dbmi.data.reader.tabular;
 
+import edu.pitt.dbmi.data.reader.ContinuousData;
 import edu.pitt.dbmi.data.reader.Data;
 import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
 import edu.pitt.dbmi.data.reader.DatasetReader;
 import edu.pitt.dbmi.data.reader.metadata.Metadata;
 
@@ -51,4 +53,37 @@ public interface TabularDataReader extends DatasetReader {
 
     Data read(DataColumn[] dataColumns, boolean hasHeader, Metadata metadata) throws IOException;
 
+    /**
+     * Reads continuous data one row at a time, passing each row to the given
+     * handler instead of building the full data array. This default reads all
+     * the data in and then passes its rows to the handler; readers that can
+     * should override it to avoid holding the data in memory.
+     *
+     * @param dataColumns the columns to read; all must be continuous
+     * @param hasHeader
+     * @param handler     receives each row, in file order
+     * @throws IOException
+     */
+    default void readRows(DataColumn[] dataColumns, boolean hasHeader, ContinuousDataRowHandler handler) throws IOException {
+        Data data = read(dataColumns, hasHeader);
+
+        if (!(data instanceof ContinuousData)) {
+            throw new DataReaderException("Rows can only be passed to a handler for continuous data.");
+        }
+
+        for (double[] row : ((ContinuousData) data).getData()) {
+            handler.handle(row);
+        }
+    }
+
+    /**
+     * Set the number of threads used to parse the data when reading it all
+     * in. Rows passed to a row handler are always read sequentially. Readers
+     * that do not parse in parallel ignore this.
+     *
+     * @param numberOfThreads
+     */
+    default void setNumberOfThreads(int numberOfThreads) {
+    }
+
 }
@@ -39,4 +39,13 @@ public interface TabularDatasetReader extends DatasetReader {
 
     void setHasHeader(boolean hasHeader);
 
+    /**
+     * Set the number of threads used to parse the data. Readers that do not
+     * parse in parallel ignore this.
+     *
+     * @param numberOfThreads
+     */
+    default void setNumberOfThreads(int numberOfThreads) {
+    }
+
 }
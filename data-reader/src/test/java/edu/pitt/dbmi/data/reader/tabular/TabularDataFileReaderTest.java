@@ -25,8 +25,10 @@ import edu.pitt.dbmi.data.reader.metadata.MetadataReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
@@ -783,4 +785,76 @@ public class TabularDataFileReaderTest {
         }
     }
 
+    /**
+     * Test of read method with a row handler, of class TabularDataFileReader.
+     * The rows passed to the handler should be the rows of the data array.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInContinuousDataByRow() throws IOException {
+        for (Path dataFile : this.continuousDataFiles) {
+            TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, this.delimiter);
+            columnReader.setCommentMarker(this.commentMarker);
+            columnReader.setQuoteCharacter(this.quoteCharacter);
+
+            int[] columnsToExclude = {8, 2, 4, 11, 9};
+            DataColumn[] dataColumns = columnReader.readInDataColumns(columnsToExclude, false);
+
+            TabularDataReader dataReader = new TabularDataFileReader(dataFile, this.delimiter);
+            dataReader.setCommentMarker(this.commentMarker);
+            dataReader.setQuoteCharacter(this.quoteCharacter);
+            dataReader.setMissingDataMarker(this.missingValueMarker);
+
+            double[][] data = ((ContinuousData) dataReader.read(dataColumns, this.hasHeader)).getData();
+
+            List<double[]> rows = new ArrayList<>();
+            dataReader.readRows(dataColumns, this.hasHeader, row -> rows.add(row.clone()));
+
+            Assert.assertEquals(data.length, rows.size());
+            for (int i = 0; i < data.length; i++) {
+                Assert.assertArrayEquals(data[i], rows.get(i), 0);
+            }
+        }
+    }
+
+    /**
+     * Test of read method, of class TabularDataFileReader, with the data
+     * parsed in chunks of a few bytes on several threads.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInDataInParallel() throws IOException {
+        int[] columnsToExclude = {8, 2, 4, 11, 9};
+        for (Path dataFile : this.mixedDataFiles) {
+            TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, this.delimiter);
+            columnReader.setCommentMarker(this.commentMarker);
+            columnReader.setQuoteCharacter(this.quoteCharacter);
+
+            DataColumn[] dataColumns = columnReader.readInDataColumns(columnsToExclude, false);
+
+            TabularDataFileReader dataReader = new TabularDataFileReader(dataFile, this.delimiter);
+            dataReader.setCommentMarker(this.commentMarker);
+            dataReader.setQuoteCharacter(this.quoteCharacter);
+            dataReader.setMissingDataMarker(this.missingValueMarker);
+            dataReader.determineDiscreteDataColumns(dataColumns, 4, this.hasHeader);
+
+            MixedTabularData expected = (MixedTabularData) dataReader.read(dataColumns, this.hasHeader);
+
+            dataReader.setNumberOfThreads(3);
+            dataReader.setMinimumChunkSize(16);
+            MixedTabularData actual = (MixedTabularData) dataReader.read(dataColumns, this.hasHeader);
+
+            Assert.assertEquals(expected.getNumOfRows(), actual.getNumOfRows());
+            for (int i = 0; i < dataColumns.length; i++) {
+                Assert.assertEquals(expected.getDataColumns()[i].getCategories(), actual.getDataColumns()[i].getCategories());
+                Assert.assertArrayEquals(expected.getDiscreteData()[i], actual.getDiscreteData()[i]);
+                if (expected.getContinuousData()[i] != null) {
+                    Assert.assertArrayEquals(expected.getContinuousData()[i], actual.getContinuousData()[i], 0);
+                }
+            }
+        }
+    }
+
 }
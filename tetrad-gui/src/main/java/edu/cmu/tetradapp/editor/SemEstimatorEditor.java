@@ -104,6 +104,7 @@ public final class SemEstimatorEditor extends JPanel {
         optimizerCombo.addItem("Regression");
         optimizerCombo.addItem("EM");
         optimizerCombo.addItem("Powell");
+        optimizerCombo.addItem("L-BFGS");
         optimizerCombo.addItem("Random Search");
         optimizerCombo.addItem("RICF");
 
@@ -319,6 +320,9 @@ public final class SemEstimatorEditor extends JPanel {
             case "Powell":
                 optimizer = new SemOptimizerPowell();
                 break;
+            case "L-BFGS":
+                optimizer = new SemOptimizerLbfgs();
+                break;
             case "Random Search":
                 optimizer = new SemOptimizerScattershot();
                 break;
@@ -225,6 +225,8 @@ public class SemEstimatorWrapper implements SessionModel {;//}, Unmarshallable {
             optimizer = new SemOptimizerEm();
         } else if ("Powell".equals(type)) {
             optimizer = new SemOptimizerPowell();
+        } else if ("L-BFGS".equals(type)) {
+            optimizer = new SemOptimizerLbfgs();
         } else if ("Random Search".equals(type)) {
             optimizer = new SemOptimizerScattershot();
         } else if ("RICF".equals(type)) {
@@ -255,6 +257,8 @@ public class SemEstimatorWrapper implements SessionModel {;//}, Unmarshallable {
             _type = "EM";
         } else if (optimizer instanceof SemOptimizerPowell) {
             _type = "Powell";
+        } else if (optimizer instanceof SemOptimizerLbfgs) {
+            _type = "L-BFGS";
         } else if (optimizer instanceof SemOptimizerScattershot) {
             _type = "Random Search";
         } else if (optimizer instanceof SemOptimizerRicf) {
@@ -52,8 +52,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
 
 /**
  * Script to do a comparison of a list of algorithms using a list of statistics and a list of parameters and their
@@ -918,10 +916,7 @@ public class Comparison {
         }
 
         if (parallelized) {
-//            int parallelism = new ForkJoinPool(Runtime.getRuntime().availableProcessors() * 10);
-            ForkJoinPool pool = (ForkJoinPool) Executors.newWorkStealingPool(Runtime.getRuntime().availableProcessors());
-            pool.invokeAll(tasks);
-            pool.shutdown();
+            ForkJoinPoolInstance.getInstance().invokeAll(tasks);
         } else {
             for (Callable<Boolean> task : tasks) {
                 task.call();
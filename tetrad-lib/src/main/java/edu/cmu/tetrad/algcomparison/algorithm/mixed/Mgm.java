@@ -85,6 +85,7 @@ public class Mgm implements Algorithm {
             };
 
             edu.pitt.csb.mgm.Mgm m = new edu.pitt.csb.mgm.Mgm(_ds, lambda);
+            m.setParallelized(true);
 
             return m.search();
         } else {
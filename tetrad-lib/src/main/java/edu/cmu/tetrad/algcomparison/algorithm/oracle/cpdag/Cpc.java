@@ -107,6 +107,9 @@ public class Cpc implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
             search.setVerbose(parameters.getBoolean(Params.VERBOSE));
             search.setKnowledge(knowledge);
             search.setConflictRule(conflictRule);
+            search.setStable(parameters.getBoolean(Params.STABLE_FAS));
+            search.setParallelized(parameters.getBoolean(Params.PARALLELIZED));
+            if (parameters.getInt(Params.NUM_THREADS) > 0) search.setNumThreads(parameters.getInt(Params.NUM_THREADS));
             return search.search();
         } else {
             Cpc pcAll = new Cpc(this.test);
@@ -142,6 +145,8 @@ public class Cpc implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
     public List<String> getParameters() {
         List<String> parameters = new ArrayList<>();
         parameters.add(Params.STABLE_FAS);
+        parameters.add(Params.PARALLELIZED);
+        parameters.add(Params.NUM_THREADS);
         parameters.add(Params.CONFLICT_RULE);
         parameters.add(Params.MEEK_PREVENT_CYCLES);
 //        parameters.add(Params.PC_HEURISTIC);
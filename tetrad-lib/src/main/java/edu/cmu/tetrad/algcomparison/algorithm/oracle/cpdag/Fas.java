@@ -73,6 +73,8 @@ public class Fas implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
 
             edu.cmu.tetrad.search.Fas search = new edu.cmu.tetrad.search.Fas(this.test.getTest(dataSet, parameters));
             search.setStable(parameters.getBoolean(Params.STABLE_FAS));
+            search.setParallelized(parameters.getBoolean(Params.PARALLELIZED));
+            if (parameters.getInt(Params.NUM_THREADS) > 0) search.setNumThreads(parameters.getInt(Params.NUM_THREADS));
 //            search.setPcHeuristicType(pcHeuristicType);
             search.setDepth(parameters.getInt(Params.DEPTH));
             search.setKnowledge(this.knowledge);
@@ -121,6 +123,8 @@ public class Fas implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
         parameters.add(Params.DEPTH);
 //        parameters.add(Params.PC_HEURISTIC);
         parameters.add(Params.STABLE_FAS);
+        parameters.add(Params.PARALLELIZED);
+        parameters.add(Params.NUM_THREADS);
         parameters.add(Params.VERBOSE);
         return parameters;
     }
@@ -105,6 +105,8 @@ public class Pc implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
             search.setVerbose(parameters.getBoolean(Params.VERBOSE));
             search.setKnowledge(this.knowledge);
             search.setStable(parameters.getBoolean(Params.STABLE_FAS));
+            search.setParallelized(parameters.getBoolean(Params.PARALLELIZED));
+            if (parameters.getInt(Params.NUM_THREADS) > 0) search.setNumThreads(parameters.getInt(Params.NUM_THREADS));
             search.setConflictRule(conflictRule);
             return search.search();
         } else {
@@ -141,6 +143,8 @@ public class Pc implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
     public List<String> getParameters() {
         List<String> parameters = new ArrayList<>();
         parameters.add(Params.STABLE_FAS);
+        parameters.add(Params.PARALLELIZED);
+        parameters.add(Params.NUM_THREADS);
         parameters.add(Params.USE_MAX_P_HEURISTIC);
         parameters.add(Params.CONFLICT_RULE);
         parameters.add(Params.MEEK_PREVENT_CYCLES);
@@ -92,6 +92,8 @@ public class Fci implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
             search.setVerbose(parameters.getBoolean(Params.VERBOSE));
 //            search.setPcHeuristicType(pcHeuristicType);
             search.setStable(parameters.getBoolean(Params.STABLE_FAS));
+            search.setParallelized(parameters.getBoolean(Params.PARALLELIZED));
+            if (parameters.getInt(Params.NUM_THREADS) > 0) search.setNumThreads(parameters.getInt(Params.NUM_THREADS));
 
             return search.search();
         } else {
@@ -128,6 +130,8 @@ public class Fci implements Algorithm, HasKnowledge, TakesIndependenceWrapper,
         List<String> parameters = new ArrayList<>();
         parameters.add(Params.DEPTH);
         parameters.add(Params.STABLE_FAS);
+        parameters.add(Params.PARALLELIZED);
+        parameters.add(Params.NUM_THREADS);
         parameters.add(Params.MAX_PATH_LENGTH);
         parameters.add(Params.POSSIBLE_MSEP_DONE);
         parameters.add(Params.DO_DISCRIMINATING_PATH_RULE);
@@ -54,7 +54,8 @@ public class DegenerateGaussianBicScore implements ScoreWrapper {
     public Score getScore(DataModel dataSet, Parameters parameters) {
         this.dataSet = dataSet;
 //        DegenerateGaussianScoreOld degenerateGaussianScore = new DegenerateGaussianScoreOld(DataUtils.getMixedDataSet(dataSet));
-        DegenerateGaussianScore degenerateGaussianScore = new DegenerateGaussianScore(SimpleDataLoader.getMixedDataSet(dataSet));
+        DegenerateGaussianScore degenerateGaussianScore = new DegenerateGaussianScore(SimpleDataLoader.getMixedDataSet(dataSet),
+                parameters.getBoolean(Params.DG_USE_SUFFICIENT_STATISTICS));
         degenerateGaussianScore.setPenaltyDiscount(parameters.getDouble("penaltyDiscount"));
         degenerateGaussianScore.setStructurePrior(parameters.getDouble("structurePrior"));
         return degenerateGaussianScore;
@@ -75,6 +76,7 @@ public class DegenerateGaussianBicScore implements ScoreWrapper {
         List<String> parameters = new ArrayList<>();
         parameters.add(Params.PENALTY_DISCOUNT);
         parameters.add(Params.STRUCTURE_PRIOR);
+        parameters.add(Params.DG_USE_SUFFICIENT_STATISTICS);
         return parameters;
     }
 
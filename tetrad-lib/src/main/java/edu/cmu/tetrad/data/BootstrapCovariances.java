@@ -0,0 +1,291 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calculates covariance matrices of resamples of a continuous data set from the number of times each row is drawn,
+ * without copying the rows. The columns of the data set are read in place if it stores them as a
+ * VerticalDoubleDataBox and are otherwise copied once, when this object is made; each covariance matrix after that
+ * takes memory for the row counts and the matrix only. Resamples can be given as row counts, as row indices, or as
+ * data sets made by DataUtils.getBootstrapSample or getResamplingDataset, which view the rows of the original.
+ * <p>
+ * The cross-products are taken about the means of the full data and corrected for the difference between those and
+ * the means of the resample, which keeps the sums accurate without centering the data again for each resample.
+ *
+ * @see RowIndexDataBox
+ * @see CovarianceAccumulator
+ */
+public final class BootstrapCovariances {
+
+    // The variables, in order.
+    private final List<Node> variables;
+
+    // The data, by column.
+    private final double[][] columns;
+
+    // The means of the columns over all rows.
+    private final double[] means;
+
+    // The number of rows.
+    private final int numRows;
+
+    /**
+     * Constructs a calculator for resamples of the given data set.
+     *
+     * @param dataSet The data set, which must be continuous.
+     */
+    public BootstrapCovariances(DataSet dataSet) {
+        if (!dataSet.isContinuous()) {
+            throw new IllegalArgumentException("Not a continuous data set.");
+        }
+
+        DataBox box = dataSet instanceof BoxDataSet ? ((BoxDataSet) dataSet).getDataBox() : null;
+
+        this.variables = new ArrayList<>(dataSet.getVariables());
+        this.columns = box instanceof VerticalDoubleDataBox
+                ? columns((VerticalDoubleDataBox) box)
+                : dataSet.getDoubleData().transpose().toArray();
+        this.numRows = dataSet.getNumRows();
+
+        if (box instanceof VerticalDoubleDataBox) {
+            this.means = ((VerticalDoubleDataBox) box).getMeans();
+        } else {
+            this.means = new double[this.columns.length];
+
+            for (int j = 0; j < this.columns.length; j++) {
+                double sum = 0.0;
+                for (int r = 0; r < this.numRows; r++) sum += this.columns[j][r];
+                this.means[j] = sum / this.numRows;
+            }
+        }
+    }
+
+    /**
+     * Returns the bias-corrected covariance matrix of the given resample, if it is a data set whose rows are a view of
+     * the rows of a VerticalDoubleDataBox, as made by DataUtils.getBootstrapSample; otherwise returns null. This
+     * avoids copying the rows of the resample; the means of the full data are computed once for each data box and
+     * kept by it.
+     *
+     * @param sample         The resample.
+     * @param biasCorrected True if the sums should be divided by N - 1 rather than N.
+     * @return The covariance matrix, or null.
+     */
+    public static CovarianceMatrix fromView(DataSet sample, boolean biasCorrected) {
+        if (!(sample instanceof BoxDataSet) || !sample.isContinuous()) return null;
+        DataBox box = ((BoxDataSet) sample).getDataBox();
+        if (!(box instanceof RowIndexDataBox)) return null;
+
+        RowIndexDataBox view = (RowIndexDataBox) box;
+        DataBox data = view.getData();
+        int[] rows = view.getRows();
+        if (rows == null || !(data instanceof VerticalDoubleDataBox)) return null;
+
+        BootstrapCovariances covariances = new BootstrapCovariances(new BoxDataSet(data, sample.getVariables()));
+        return covariances.getCovarianceMatrix(BootstrapCovariances.rowCounts(rows, data.numRows()), biasCorrected);
+    }
+
+    /**
+     * Returns the number of times each row is listed in the given row indices.
+     *
+     * @param rows    The row indices, as for a bootstrap sample.
+     * @param numRows The number of rows of the data.
+     * @return The count for each row.
+     */
+    public static int[] rowCounts(int[] rows, int numRows) {
+        int[] counts = new int[numRows];
+        for (int row : rows) counts[row]++;
+        return counts;
+    }
+
+    /**
+     * Returns the bias-corrected covariance matrix of the resample with the given rows.
+     *
+     * @param rows The row indices; a row may be listed more than once.
+     * @return The covariance matrix.
+     */
+    public CovarianceMatrix getCovarianceMatrixForRows(int[] rows) {
+        return getCovarianceMatrix(BootstrapCovariances.rowCounts(rows, this.numRows), true);
+    }
+
+    /**
+     * Returns the bias-corrected covariance matrix of the resample in which each row is drawn the given number of
+     * times.
+     *
+     * @param counts The number of times each row is drawn.
+     * @return The covariance matrix.
+     */
+    public CovarianceMatrix getCovarianceMatrix(int[] counts) {
+        return getCovarianceMatrix(counts, true);
+    }
+
+    /**
+     * Returns the covariance matrix of the resample in which each row is drawn the given number of times.
+     *
+     * @param counts        The number of times each row is drawn.
+     * @param biasCorrected True if the sums should be divided by N - 1 rather than N, as in CovarianceMatrix(DataSet,
+     *                      boolean).
+     * @return The covariance matrix.
+     */
+    public CovarianceMatrix getCovarianceMatrix(int[] counts, boolean biasCorrected) {
+        if (counts.length != this.numRows) {
+            throw new IllegalArgumentException("Expecting a count for each of the " + this.numRows + " rows.");
+        }
+
+        int numDrawn = 0;
+        long sampleSize = 0;
+
+        for (int count : counts) {
+            if (count < 0) throw new IllegalArgumentException("Row counts must be nonnegative.");
+            if (count > 0) numDrawn++;
+            sampleSize += count;
+        }
+
+        if (sampleSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sample size too large for a covariance matrix: " + sampleSize);
+        }
+
+        if (sampleSize < (biasCorrected ? 2 : 1)) {
+            throw new IllegalArgumentException("Not enough rows to calculate covariances: " + sampleSize);
+        }
+
+        // The rows drawn and their weights.
+        int[] drawn = new int[numDrawn];
+        double[] weights = new double[numDrawn];
+
+        for (int r = 0, k = 0; r < counts.length; r++) {
+            if (counts[r] > 0) {
+                drawn[k] = r;
+                weights[k++] = counts[r];
+            }
+        }
+
+        // The differences between the means of the resample and the means of all rows.
+        int numVars = this.columns.length;
+        double[] shift = new double[numVars];
+
+        for (int j = 0; j < numVars; j++) {
+            double[] column = this.columns[j];
+            double mean = this.means[j];
+            double sum = 0.0;
+            for (int k = 0; k < numDrawn; k++) sum += weights[k] * (column[drawn[k]] - mean);
+            shift[j] = sum / sampleSize;
+        }
+
+        double[][] cov = new double[numVars][numVars];
+        double divisor = biasCorrected ? sampleSize - 1 : sampleSize;
+        int chunk = Math.max(1, numVars / (4 * ForkJoinPoolInstance.getInstance().getParallelism()));
+
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new CrossProductAction(0, numVars, chunk, drawn, weights,
+                shift, sampleSize, divisor, cov));
+
+        return new CovarianceMatrix(this.variables, cov, (int) sampleSize);
+    }
+
+    private static double[][] columns(VerticalDoubleDataBox box) {
+        double[][] columns = box.getVariableVectors();
+        if (columns.length == box.numCols()) return columns;
+
+        // The box gives no columns when it has no rows, so they are copied out of it instead.
+        columns = new double[box.numCols()][box.numRows()];
+
+        for (int j = 0; j < box.numCols(); j++) {
+            for (int i = 0; i < box.numRows(); i++) {
+                columns[j][i] = box.get(i, j).doubleValue();
+            }
+        }
+
+        return columns;
+    }
+
+    // Fills in rows from..to - 1 of the covariance matrix, and the columns they mirror, splitting the range in half
+    // until it is no longer than the chunk.
+    private final class CrossProductAction extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final int[] drawn;
+        private final double[] weights;
+        private final double[] shift;
+        private final long sampleSize;
+        private final double divisor;
+        private final double[][] cov;
+
+        CrossProductAction(int from, int to, int chunk, int[] drawn, double[] weights, double[] shift,
+                           long sampleSize, double divisor, double[][] cov) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.drawn = drawn;
+            this.weights = weights;
+            this.shift = shift;
+            this.sampleSize = sampleSize;
+            this.divisor = divisor;
+            this.cov = cov;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > this.chunk) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new CrossProductAction(this.from, mid, this.chunk, this.drawn, this.weights, this.shift,
+                                this.sampleSize, this.divisor, this.cov),
+                        new CrossProductAction(mid, this.to, this.chunk, this.drawn, this.weights, this.shift,
+                                this.sampleSize, this.divisor, this.cov));
+                return;
+            }
+
+            int numDrawn = this.drawn.length;
+            int numVars = BootstrapCovariances.this.columns.length;
+            double[] weighted = new double[numDrawn];
+
+            for (int i = this.from; i < this.to; i++) {
+                double[] column = BootstrapCovariances.this.columns[i];
+                double mean = BootstrapCovariances.this.means[i];
+
+                for (int k = 0; k < numDrawn; k++) {
+                    weighted[k] = this.weights[k] * (column[this.drawn[k]] - mean);
+                }
+
+                for (int j = i; j < numVars; j++) {
+                    double[] other = BootstrapCovariances.this.columns[j];
+                    double otherMean = BootstrapCovariances.this.means[j];
+                    double sum = 0.0;
+
+                    for (int k = 0; k < numDrawn; k++) {
+                        sum += weighted[k] * (other[this.drawn[k]] - otherMean);
+                    }
+
+                    double c = (sum - this.sampleSize * this.shift[i] * this.shift[j]) / this.divisor;
+                    this.cov[i][j] = c;
+                    this.cov[j][i] = c;
+                }
+            }
+        }
+    }
+}
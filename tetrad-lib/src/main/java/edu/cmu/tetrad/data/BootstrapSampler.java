@@ -68,9 +68,8 @@ public final class BootstrapSampler {
         //   this.logger.log("sampleSize", String.valueOf(newSampleSize));
         //Number of samples in input dataset
         int oldSampleSize = dataSet.getNumRows();
-        int ncols = dataSet.getNumColumns();
 
-        DataSet newDataSet = new BoxDataSet(new VerticalDoubleDataBox(newSampleSize, dataSet.getVariables().size()), dataSet.getVariables());
+        int[] rows = new int[newSampleSize];
         Set<Integer> oldCases = new HashSet<>();
 
         // (not keeping order)
@@ -85,11 +84,12 @@ public final class BootstrapSampler {
                 oldCases.add(oldCase);
             }
 
-            for (int col = 0; col < ncols; col++) {
-                newDataSet.setObject(row, col, dataSet.getObject(oldCase, col));
-            }
+            rows[row] = oldCase;
         }
 
+        // Continuous data are viewed rather than copied.
+        DataSet newDataSet = DataUtils.selectRows(dataSet, rows);
+
         newDataSet.setKnowledge(dataSet.getKnowledge().copy());
 
         return newDataSet;
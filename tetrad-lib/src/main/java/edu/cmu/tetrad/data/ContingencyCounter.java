@@ -0,0 +1,369 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the cells of contingency tables for sets of discrete variables in a data set, for use by the discrete scores
+ * and tests. The data are stored by column, one byte per value when every variable has at most 127 categories, so
+ * that a count streams through only the columns involved. Each row is given a mixed-radix key for the variables
+ * counted, built one column at a time, and the keys are tallied into a count buffer that is reused from call to call.
+ * <p>
+ * For variables v1, ..., vk with c1, ..., ck categories, the cell for values (x1, ..., xk) is ((x1 * c2 + x2) * c3 +
+ * x3) ..., so the first variable varies slowest. In particular, counting the parents of a node followed by the node
+ * gives, for each parent configuration j, the counts for the node's categories in cells j * c through j * c + c - 1.
+ * Rows with a missing value (DiscreteVariable.MISSING_VALUE) for any of the variables are skipped.
+ * <p>
+ * The counter may be used from several threads at once. The table returned by count() belongs to the calling thread
+ * and is overwritten by that thread's next call.
+ *
+ * @see CellTable
+ */
+public final class ContingencyCounter {
+
+    // The variables of the data set.
+    private final List<Node> variables;
+
+    // The number of categories of each variable, or 0 if the variable is not discrete.
+    private final int[] dims;
+
+    // The number of rows in the data.
+    private final int numRows;
+
+    // The data by column, with missing values stored as -1, if every variable has at most 127 categories; else null.
+    private final byte[][] packed;
+
+    // The data by column, with missing values stored as -1, if some variable has more than 127 categories; else null.
+    private final int[][] wide;
+
+    // Per-thread row keys and count buffers.
+    private final ThreadLocal<Table> tables;
+
+    /**
+     * Constructs a counter for the discrete columns of the given data set. Columns for variables that are not discrete
+     * are ignored.
+     *
+     * @param dataSet The data set.
+     */
+    public ContingencyCounter(DataSet dataSet) {
+        if (dataSet == null) {
+            throw new NullPointerException("Data was not provided.");
+        }
+
+        this.variables = dataSet.getVariables();
+        this.numRows = dataSet.getNumRows();
+        this.dims = new int[this.variables.size()];
+
+        int maxCategories = 0;
+
+        for (int j = 0; j < this.variables.size(); j++) {
+            Node node = this.variables.get(j);
+
+            if (node instanceof DiscreteVariable) {
+                this.dims[j] = ((DiscreteVariable) node).getNumCategories();
+                maxCategories = Math.max(maxCategories, this.dims[j]);
+            }
+        }
+
+        int[][] columns = null;
+
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox) {
+            columns = ((VerticalIntDataBox) ((BoxDataSet) dataSet).getDataBox()).getVariableVectors();
+        }
+
+        if (maxCategories <= Byte.MAX_VALUE) {
+            this.packed = new byte[this.dims.length][];
+            this.wide = null;
+        } else {
+            this.packed = null;
+            this.wide = new int[this.dims.length][];
+        }
+
+        for (int j = 0; j < this.dims.length; j++) {
+            if (this.dims[j] == 0) continue;
+
+            if (this.packed != null) {
+                byte[] col = new byte[this.numRows];
+
+                for (int i = 0; i < this.numRows; i++) {
+                    int value = columns != null ? columns[j][i] : dataSet.getInt(i, j);
+                    col[i] = (byte) (value == DiscreteVariable.MISSING_VALUE ? -1 : value);
+                }
+
+                this.packed[j] = col;
+            } else {
+                int[] col = new int[this.numRows];
+
+                for (int i = 0; i < this.numRows; i++) {
+                    int value = columns != null ? columns[j][i] : dataSet.getInt(i, j);
+                    col[i] = value == DiscreteVariable.MISSING_VALUE ? -1 : value;
+                }
+
+                this.wide[j] = col;
+            }
+        }
+
+        this.tables = ThreadLocal.withInitial(() -> new Table(this.numRows));
+    }
+
+    /**
+     * Counts the rows of the data in each cell of the contingency table for the given variables.
+     *
+     * @param vars The column indices of the variables, in the order described in the class comment. May be empty, in
+     *             which case there is one cell.
+     * @return The table of counts. This belongs to the calling thread and is overwritten by its next call to count().
+     * @throws IllegalArgumentException If one of the variables is not discrete or the table has too many cells.
+     */
+    public Table count(int[] vars) {
+        Table table = this.tables.get();
+        int[] keys = table.keys;
+
+        long numCells = 1;
+
+        for (int v : vars) {
+            if (this.dims[v] == 0) {
+                throw new IllegalArgumentException("Not discrete: " + this.variables.get(v));
+            }
+
+            numCells *= this.dims[v];
+
+            if (numCells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many cells in the contingency table for " + vars.length
+                        + " variables.");
+            }
+        }
+
+        int[] counts = table.reset(vars, this.dims, (int) numCells);
+
+        if (vars.length == 0) {
+            counts[0] = this.numRows;
+            table.total = this.numRows;
+            return table;
+        }
+
+        // Fold all but the last column into the row keys; the last is folded in as the cells are tallied.
+        for (int t = 0; t < vars.length - 1; t++) {
+            if (this.packed != null) {
+                addColumn(keys, this.packed[vars[t]], this.dims[vars[t]], t == 0);
+            } else {
+                addColumn(keys, this.wide[vars[t]], this.dims[vars[t]], t == 0);
+            }
+        }
+
+        int last = vars[vars.length - 1];
+        int total;
+
+        if (this.packed != null) {
+            total = tally(keys, this.packed[last], this.dims[last], vars.length == 1, counts);
+        } else {
+            total = tally(keys, this.wide[last], this.dims[last], vars.length == 1, counts);
+        }
+
+        table.total = total;
+        return table;
+    }
+
+    /**
+     * Returns the number of rows in the data.
+     *
+     * @return This number.
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * Returns the number of categories of the variable at the given column.
+     *
+     * @param var The column index of the variable.
+     * @return This number, or 0 if the variable is not discrete.
+     */
+    public int getNumCategories(int var) {
+        return this.dims[var];
+    }
+
+    /**
+     * Returns the variables of the data set.
+     *
+     * @return This list.
+     */
+    public List<Node> getVariables() {
+        return this.variables;
+    }
+
+    // Folds the given column into the row keys, marking rows with a missing value with -1.
+    private static void addColumn(int[] keys, byte[] col, int dim, boolean first) {
+        if (first) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = col[i];
+            }
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                int value = col[i];
+                keys[i] = key < 0 || value < 0 ? -1 : key * dim + value;
+            }
+        }
+    }
+
+    // Folds the given column into the row keys, marking rows with a missing value with -1.
+    private static void addColumn(int[] keys, int[] col, int dim, boolean first) {
+        if (first) {
+            System.arraycopy(col, 0, keys, 0, keys.length);
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                int key = keys[i];
+                int value = col[i];
+                keys[i] = key < 0 || value < 0 ? -1 : key * dim + value;
+            }
+        }
+    }
+
+    // Counts the rows in each cell, given the keys for all but the last column and the last column itself, and
+    // returns the number of rows counted.
+    private static int tally(int[] keys, byte[] col, int dim, boolean only, int[] counts) {
+        int total = 0;
+
+        for (int i = 0; i < col.length; i++) {
+            int key = only ? 0 : keys[i];
+            int value = col[i];
+
+            if (key >= 0 && value >= 0) {
+                counts[key * dim + value]++;
+                total++;
+            }
+        }
+
+        return total;
+    }
+
+    // Counts the rows in each cell, given the keys for all but the last column and the last column itself, and
+    // returns the number of rows counted.
+    private static int tally(int[] keys, int[] col, int dim, boolean only, int[] counts) {
+        int total = 0;
+
+        for (int i = 0; i < col.length; i++) {
+            int key = only ? 0 : keys[i];
+            int value = col[i];
+
+            if (key >= 0 && value >= 0) {
+                counts[key * dim + value]++;
+                total++;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * The counts for one contingency table, as returned by count().
+     */
+    public static final class Table {
+
+        // The row keys for the last count.
+        private final int[] keys;
+
+        // The counts; only the first numCells entries are in use.
+        private int[] counts = new int[0];
+
+        // The numbers of categories of the variables counted.
+        private int[] dims = new int[0];
+
+        // The number of cells in the table.
+        private int numCells;
+
+        // The number of rows counted, i.e., without missing values.
+        private int total;
+
+        private Table(int numRows) {
+            this.keys = new int[numRows];
+        }
+
+        // Sets up the table for the given variables, with all counts zero.
+        private int[] reset(int[] vars, int[] allDims, int numCells) {
+            if (this.counts.length < numCells) {
+                this.counts = new int[Math.max(numCells, Math.min(Integer.MAX_VALUE - 8, 2 * this.counts.length))];
+            } else {
+                Arrays.fill(this.counts, 0, numCells, 0);
+            }
+
+            this.dims = new int[vars.length];
+
+            for (int t = 0; t < vars.length; t++) {
+                this.dims[t] = allDims[vars[t]];
+            }
+
+            this.numCells = numCells;
+            return this.counts;
+        }
+
+        /**
+         * Returns the count for the given cell.
+         *
+         * @param cell The cell index, from 0 to getNumCells() - 1.
+         * @return The number of rows in the cell.
+         */
+        public int getCount(int cell) {
+            return this.counts[cell];
+        }
+
+        /**
+         * Returns the count array. Only the first getNumCells() entries belong to this table.
+         *
+         * @return This array.
+         */
+        public int[] getCounts() {
+            return this.counts;
+        }
+
+        /**
+         * Returns the number of cells in the table, the product of the numbers of categories of the variables.
+         *
+         * @return This number.
+         */
+        public int getNumCells() {
+            return this.numCells;
+        }
+
+        /**
+         * Returns the number of categories of each variable counted, in order.
+         *
+         * @return These numbers.
+         */
+        public int[] getDims() {
+            return this.dims;
+        }
+
+        /**
+         * Returns the number of rows counted, which is the number of rows with no missing values for the variables.
+         *
+         * @return This number.
+         */
+        public int getTotal() {
+            return this.total;
+        }
+    }
+}
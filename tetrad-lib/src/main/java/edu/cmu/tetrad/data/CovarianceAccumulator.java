@@ -0,0 +1,322 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousDataRowHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds a covariance matrix in one pass over a stream of rows, without ever holding the data set in memory. Rows are
+ * buffered into blocks; each full block is centered at its own means and its sums of cross-products are folded into
+ * the running totals using the pairwise update of Chan, Golub and LeVeque, which is the blocked form of Welford's
+ * algorithm and is numerically stable for data with large means. The cross-products for a block are computed in
+ * parallel over column ranges.
+ * <p>
+ * Memory use is the p x p matrix of sums plus one block of rows, so this is suitable for data sets with many more rows
+ * than fit comfortably in memory. Rows may be passed in directly using addRow, or the accumulator may be handed to
+ * the data-reader tabular readers as a row handler--see SimpleDataLoader.loadContinuousCovarianceMatrix. The result is
+ * a CovarianceMatrix that can be used wherever an ICovarianceMatrix is expected, e.g., by SemBicScore or
+ * IndTestFisherZ.
+ * <p>
+ * As with CovarianceMatrix(DataSet), missing values are not handled specially; a row with a missing (NaN) value makes
+ * the covariances that involve that column NaN.
+ */
+public final class CovarianceAccumulator implements ContinuousDataRowHandler {
+
+    // The budget, in doubles, for the buffered block of rows.
+    private static final int BLOCK_BUDGET = 1 << 22;
+
+    // The variables, in column order.
+    private final List<Node> variables;
+
+    // The number of variables.
+    private final int numVars;
+
+    // The buffered rows, stored by column so that cross-products are dot products of contiguous arrays.
+    private final double[][] block;
+
+    // The number of rows currently buffered in the block.
+    private int blockCount;
+
+    // The running means of the columns over all rows folded in so far.
+    private final double[] means;
+
+    // The running centered sums of cross-products, upper triangle only; sums[i][j - i] is for columns i and j.
+    private final double[][] sums;
+
+    // The number of rows folded in so far.
+    private long sampleSize;
+
+    /**
+     * Constructs an accumulator for the given variables, with a block size chosen from the number of variables.
+     *
+     * @param variables The continuous variables, in the order their values appear in each row.
+     */
+    public CovarianceAccumulator(List<Node> variables) {
+        this(variables, Math.max(64, Math.min(4096, CovarianceAccumulator.BLOCK_BUDGET / Math.max(1, variables.size()))));
+    }
+
+    /**
+     * Constructs an accumulator for the given variables.
+     *
+     * @param variables The continuous variables, in the order their values appear in each row.
+     * @param blockSize The number of rows to buffer before folding them into the running sums.
+     */
+    public CovarianceAccumulator(List<Node> variables, int blockSize) {
+        if (variables == null) throw new NullPointerException("Variables must not be null.");
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+
+        for (Node node : variables) {
+            if (!(node instanceof ContinuousVariable)) {
+                throw new IllegalArgumentException("Not a continuous variable: " + node);
+            }
+        }
+
+        this.variables = new ArrayList<>(variables);
+        this.numVars = variables.size();
+        this.block = new double[this.numVars][blockSize];
+        this.means = new double[this.numVars];
+        this.sums = new double[this.numVars][];
+
+        for (int i = 0; i < this.numVars; i++) {
+            this.sums[i] = new double[this.numVars - i];
+        }
+    }
+
+    /**
+     * Adds one row of data. The values are copied, so the array may be reused by the caller.
+     *
+     * @param row The values of the row, one for each variable.
+     */
+    public void addRow(double[] row) {
+        if (row.length != this.numVars) {
+            throw new IllegalArgumentException("Expecting " + this.numVars + " values in the row, got " + row.length);
+        }
+
+        for (int j = 0; j < this.numVars; j++) {
+            this.block[j][this.blockCount] = row[j];
+        }
+
+        if (++this.blockCount == this.block[0].length) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds one row of data read by a data-reader tabular reader.
+     *
+     * @param row The values of the row, one for each variable.
+     */
+    @Override
+    public void handle(double[] row) {
+        addRow(row);
+    }
+
+    /**
+     * Returns the number of rows added so far.
+     *
+     * @return This number.
+     */
+    public long getSampleSize() {
+        return this.sampleSize + this.blockCount;
+    }
+
+    /**
+     * Returns the bias-corrected covariance matrix of the rows added so far. More rows may be added afterward.
+     *
+     * @return This matrix.
+     */
+    public CovarianceMatrix getCovarianceMatrix() {
+        return getCovarianceMatrix(true);
+    }
+
+    /**
+     * Returns the covariance matrix of the rows added so far. More rows may be added afterward.
+     *
+     * @param biasCorrected True if the sums should be divided by N - 1 rather than N, as in CovarianceMatrix(DataSet,
+     *                      boolean).
+     * @return This matrix.
+     */
+    public CovarianceMatrix getCovarianceMatrix(boolean biasCorrected) {
+        flush();
+
+        if (this.sampleSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sample size too large for a covariance matrix: " + this.sampleSize);
+        }
+
+        if (this.sampleSize < (biasCorrected ? 2 : 1)) {
+            throw new IllegalStateException("Not enough rows to calculate covariances: " + this.sampleSize);
+        }
+
+        double divisor = biasCorrected ? this.sampleSize - 1 : this.sampleSize;
+        double[][] cov = new double[this.numVars][this.numVars];
+
+        for (int i = 0; i < this.numVars; i++) {
+            for (int j = i; j < this.numVars; j++) {
+                double c = this.sums[i][j - i] / divisor;
+                cov[i][j] = c;
+                cov[j][i] = c;
+            }
+        }
+
+        return new CovarianceMatrix(this.variables, cov, (int) this.sampleSize);
+    }
+
+    /**
+     * Returns the means of the columns of the rows added so far.
+     *
+     * @return A copy of these means.
+     */
+    public double[] getMeans() {
+        flush();
+        return this.means.clone();
+    }
+
+    // Folds the buffered block into the running means and sums and empties the block.
+    private void flush() {
+        int m = this.blockCount;
+        if (m == 0) return;
+
+        long n = this.sampleSize;
+        long total = n + m;
+        double[] delta = new double[this.numVars];
+
+        for (int j = 0; j < this.numVars; j++) {
+            double[] col = this.block[j];
+            double sum = 0.0;
+
+            for (int r = 0; r < m; r++) {
+                sum += col[r];
+            }
+
+            double mean = sum / m;
+
+            for (int r = 0; r < m; r++) {
+                col[r] -= mean;
+            }
+
+            delta[j] = mean - this.means[j];
+            this.means[j] += delta[j] * m / total;
+        }
+
+        double weight = (double) n * m / total;
+        int chunk = Math.max(4, this.numVars / (8 * ForkJoinPoolInstance.getInstance().getParallelism()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new CrossProductAction(0, this.numVars, chunk, m, delta, weight));
+
+        this.sampleSize = total;
+        this.blockCount = 0;
+    }
+
+    // Adds the centered cross-products of the block, plus the correction for the shift in means, to rows
+    // [from, to) of the running sums.
+    private class CrossProductAction extends RecursiveAction {
+        private static final long serialVersionUID = 23L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final int m;
+        private final double[] delta;
+        private final double weight;
+
+        CrossProductAction(int from, int to, int chunk, int m, double[] delta, double weight) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.m = m;
+            this.delta = delta;
+            this.weight = weight;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.chunk) {
+                int i = this.from;
+
+                for (; i + 3 < this.to; i += 4) {
+                    addFourRows(i);
+                }
+
+                for (; i < this.to; i++) {
+                    addRow(i);
+                }
+            } else {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new CrossProductAction(this.from, mid, this.chunk, this.m, this.delta, this.weight),
+                        new CrossProductAction(mid, this.to, this.chunk, this.m, this.delta, this.weight));
+            }
+        }
+
+        // Adds row i of the cross-products.
+        private void addRow(int i) {
+            double[][] block = CovarianceAccumulator.this.block;
+            double[] x = block[i];
+            double[] s = CovarianceAccumulator.this.sums[i];
+            double wd = this.weight * this.delta[i];
+
+            for (int j = i; j < block.length; j++) {
+                double[] y = block[j];
+                double dot = 0.0;
+
+                for (int r = 0; r < this.m; r++) {
+                    dot += x[r] * y[r];
+                }
+
+                s[j - i] += dot + wd * this.delta[j];
+            }
+        }
+
+        // Adds rows i through i + 3 of the cross-products, reading each column j once for all four rows, which
+        // matters because the block is generally larger than the cache.
+        private void addFourRows(int i) {
+            double[][] block = CovarianceAccumulator.this.block;
+            double[][] sums = CovarianceAccumulator.this.sums;
+            double[] x0 = block[i], x1 = block[i + 1], x2 = block[i + 2], x3 = block[i + 3];
+            double wd0 = this.weight * this.delta[i], wd1 = this.weight * this.delta[i + 1],
+                    wd2 = this.weight * this.delta[i + 2], wd3 = this.weight * this.delta[i + 3];
+
+            for (int j = i; j < block.length; j++) {
+                double[] y = block[j];
+                double d0 = 0.0, d1 = 0.0, d2 = 0.0, d3 = 0.0;
+
+                for (int r = 0; r < this.m; r++) {
+                    double v = y[r];
+                    d0 += x0[r] * v;
+                    d1 += x1[r] * v;
+                    d2 += x2[r] * v;
+                    d3 += x3[r] * v;
+                }
+
+                double dj = this.delta[j];
+                sums[i][j - i] += d0 + wd0 * dj;
+                if (j >= i + 1) sums[i + 1][j - i - 1] += d1 + wd1 * dj;
+                if (j >= i + 2) sums[i + 2][j - i - 2] += d2 + wd2 * dj;
+                if (j >= i + 3) sums[i + 3][j - i - 3] += d3 + wd3 * dj;
+            }
+        }
+    }
+}
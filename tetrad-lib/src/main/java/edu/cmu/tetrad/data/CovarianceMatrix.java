@@ -97,6 +97,16 @@ public class CovarianceMatrix implements ICovarianceMatrix {
             throw new IllegalArgumentException("Not a continuous data set.");
         }
 
+        // Resamples that view the rows of another data set are calculated from row counts, without copying the rows.
+        CovarianceMatrix resampled = BootstrapCovariances.fromView(dataSet, biasCorrected);
+
+        if (resampled != null) {
+            this.variables = Collections.unmodifiableList(dataSet.getVariables());
+            this.sampleSize = resampled.sampleSize;
+            this._covariancesMatrix = resampled._covariancesMatrix;
+            return;
+        }
+
         CovariancesDoubleForkJoin covariances = new CovariancesDoubleForkJoin(dataSet.getDoubleData().toArray(), biasCorrected);
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
@@ -1050,10 +1050,7 @@ public final class DataUtils {
             availRows.remove(index);
         }
 
-        int[] cols = new int[data.getNumColumns()];
-        for (int i = 0; i < cols.length; i++) cols[i] = i;
-
-        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()), data.getVariables());
+        return DataUtils.selectRows(data, rows);
     }
 
     /**
@@ -1092,12 +1089,7 @@ public final class DataUtils {
             availRows.remove(index);
         }
 
-        int[] cols = new int[data.getNumColumns()];
-        for (int i = 0; i < cols.length; i++) {
-            cols[i] = i;
-        }
-
-        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()), data.getVariables());
+        return DataUtils.selectRows(data, rows);
     }
 
     /**
@@ -1112,11 +1104,7 @@ public final class DataUtils {
             rows[i] = RandomUtil.getInstance().nextInt(actualSampleSize);
         }
 
-        int[] cols = new int[data.getNumColumns()];
-        for (int i = 0; i < cols.length; i++) cols[i] = i;
-
-        BoxDataSet boxDataSet = new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()),
-                data.getVariables());
+        DataSet boxDataSet = DataUtils.selectRows(data, rows);
         boxDataSet.setKnowledge(data.getKnowledge());
         return boxDataSet;
     }
@@ -1136,19 +1124,38 @@ public final class DataUtils {
             rows[i] = randomGenerator.nextInt(actualSampleSize);
         }
 
-        int[] cols = new int[data.getNumColumns()];
-        for (int i = 0; i < cols.length; i++) {
-            cols[i] = i;
-        }
-
-        BoxDataSet boxDataSet = new BoxDataSet(new VerticalDoubleDataBox(
-                data.getDoubleData().getSelection(rows, cols).transpose().toArray()),
-                data.getVariables());
+        DataSet boxDataSet = DataUtils.selectRows(data, rows);
         boxDataSet.setKnowledge(data.getKnowledge());
 
         return boxDataSet;
     }
 
+    /**
+     * Returns a data set with the given rows of the given data set, in order; a row may be listed more than once. If
+     * the data are stored as a VerticalDoubleDataBox, the result is a view of its rows, which is copied only if a
+     * value is set in it, and whose covariance matrix is calculated from row counts; see BootstrapCovariances.
+     * Otherwise the rows are copied into a VerticalDoubleDataBox.
+     *
+     * @param data The data set.
+     * @param rows The rows.
+     * @return The data set with the given rows.
+     */
+    public static DataSet selectRows(DataSet data, int[] rows) {
+        if (data instanceof BoxDataSet) {
+            DataBox box = ((BoxDataSet) data).getDataBox();
+
+            if (box instanceof VerticalDoubleDataBox || box instanceof RowIndexDataBox
+                    && ((RowIndexDataBox) box).getData() instanceof VerticalDoubleDataBox) {
+                return new BoxDataSet(new RowIndexDataBox(box, rows), data.getVariables());
+            }
+        }
+
+        int[] cols = new int[data.getNumColumns()];
+        for (int i = 0; i < cols.length; i++) cols[i] = i;
+
+        return new BoxDataSet(new VerticalDoubleDataBox(data.getDoubleData().getSelection(rows, cols).transpose().toArray()), data.getVariables());
+    }
+
     public static List<DataSet> split(DataSet data, double percentTest) {
         if (percentTest <= 0 || percentTest >= 1) throw new IllegalArgumentException();
 
@@ -24,9 +24,14 @@ package edu.cmu.tetrad.data;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.text.NumberFormat;
 import java.util.Iterator;
 import java.util.List;
@@ -103,6 +108,74 @@ public final class DataWriter {
     }
 
 
+    /**
+     * Writes a dataset to file in Tetrad's binary columnar format, which MappedDataBox maps into memory without
+     * parsing. The dataset may have continuous and/or discrete columns. Continuous values are stored as doubles and
+     * discrete values as category indices, column by column, with a bitmap of the missing values of each column; see
+     * MappedDataBox for the layout. The rows are written as they are read from the dataset, so the file may be larger
+     * than memory if the dataset is.
+     *
+     * @param dataSet The data set to save.
+     * @param file    The file to write to. It is replaced if it exists.
+     * @throws IOException If there is some problem writing the file.
+     * @see MappedDataBox
+     */
+    public static void writeColumnarData(DataSet dataSet, File file) throws IOException {
+        int numCols = dataSet.getNumColumns();
+        int numRows = dataSet.getNumRows();
+        boolean[] continuous = new boolean[numCols];
+
+        for (int col = 0; col < numCols; col++) {
+            continuous[col] = dataSet.getVariable(col) instanceof ContinuousVariable;
+        }
+
+        ByteBuffer header = MappedDataBox.header(dataSet.getVariables(), numRows);
+        long headerLength = header.limit();
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+            DataWriter.writeFully(channel, header);
+            DataWriter.pad(channel, buffer, headerLength);
+
+            for (int col = 0; col < numCols; col++) {
+                for (int row = 0; row < numRows; row++) {
+                    if (buffer.remaining() < 8) DataWriter.drain(channel, buffer);
+
+                    if (continuous[col]) {
+                        buffer.putDouble(dataSet.getDouble(row, col));
+                    } else {
+                        buffer.putInt(dataSet.getInt(row, col));
+                    }
+                }
+
+                DataWriter.drain(channel, buffer);
+                DataWriter.pad(channel, buffer, channel.position());
+
+                // The missing-value bitmap, one long for every 64 rows.
+                long word = 0L;
+
+                for (int row = 0; row < numRows; row++) {
+                    boolean missing = continuous[col]
+                            ? Double.isNaN(dataSet.getDouble(row, col))
+                            : dataSet.getInt(row, col) == DiscreteVariable.MISSING_VALUE;
+
+                    if (missing) word |= 1L << (row & 63);
+
+                    if ((row & 63) == 63 || row == numRows - 1) {
+                        if (buffer.remaining() < 8) DataWriter.drain(channel, buffer);
+                        buffer.putLong(word);
+                        word = 0L;
+                    }
+                }
+
+                DataWriter.drain(channel, buffer);
+            }
+        }
+    }
+
     /**
      * Writes the lower triangle of a covariance matrix to file.  Note that
      * <code>out</code> is not closed by this method, so the close method on
@@ -193,9 +266,24 @@ public final class DataWriter {
         out.write(buf.toString());
         out.flush();
     }
-}
-
-
 
+    // Writes the buffer's contents to the channel and clears it.
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        DataWriter.writeFully(channel, buffer);
+        buffer.clear();
+    }
 
+    // Writes zeros to the channel, after its given position, up to the next multiple of 8 bytes.
+    private static void pad(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int padding = (int) (MappedDataBox.align(position) - position);
+        for (int i = 0; i < padding; i++) buffer.put((byte) 0);
+        DataWriter.drain(channel, buffer);
+    }
 
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -43,6 +43,11 @@ import java.util.stream.Collectors;
  * In place of variable names, wildcard expressions containing the wildcard '*' may be substituted. These will be
  * matched to as many myNodes as possible. The '*' wildcard matches any string of consecutive characters up until the
  * following character is encountered. Thus, "X*a" will match "X123a" and "X45a".
+ * <p>
+ * Searches ask whether edges are forbidden or required once per candidate edge, so the rules are compiled on first
+ * use into a snapshot indexed by variable, with the tiers of each variable and bit matrices of the forbidden and
+ * required edges, which answers these questions in constant time. The snapshot is discarded whenever the knowledge is
+ * edited. As with the rest of this class, editing the knowledge while another thread is querying it is not supported.
  *
  * @author josephramsey
  * @author Kevin V. Bui (kvb2@pitt.edu)
@@ -62,6 +67,8 @@ public final class Knowledge implements TetradSerializable {
     private final List<KnowledgeGroup> knowledgeGroups;
     private final Map<KnowledgeGroup, OrderedPair<Set<String>>> knowledgeGroupRules;
     private boolean defaultToKnowledgeLayout;
+    // The compiled rules, or null if the knowledge has been edited since they were last compiled.
+    private transient volatile CompiledKnowledge compiled;
 
     public Knowledge() {
         this.variables = new HashSet<>();
@@ -158,6 +165,10 @@ public final class Knowledge implements TetradSerializable {
     }
 
     private void ensureTiers(int tier) {
+        if (tier >= this.tierSpecs.size()) {
+            invalidate();
+        }
+
         for (int i = this.tierSpecs.size(); i <= tier; i++) {
             this.tierSpecs.add(new LinkedHashSet<>());
 
@@ -226,6 +237,8 @@ public final class Knowledge implements TetradSerializable {
                     this.variables.add(e);
                     this.tierSpecs.get(tier).add(e);
                 });
+
+        invalidate();
     }
 
     /**
@@ -248,6 +261,8 @@ public final class Knowledge implements TetradSerializable {
                 addToTier(Integer.parseInt(e.substring(index + 2)), e);
             }
         });
+
+        invalidate();
     }
 
     /**
@@ -265,10 +280,13 @@ public final class Knowledge implements TetradSerializable {
         } else if (group.getType() == KnowledgeGroup.REQUIRED) {
             this.requiredRulesSpecs.add(o);
         }
+
+        invalidate();
     }
 
     public void addVariable(String varName) {
         this.variables.add(varName);
+        invalidate();
     }
 
     /**
@@ -279,6 +297,7 @@ public final class Knowledge implements TetradSerializable {
         this.forbiddenRulesSpecs.clear();
         this.requiredRulesSpecs.clear();
         this.tierSpecs.clear();
+        invalidate();
     }
 
     /**
@@ -358,69 +377,39 @@ public final class Knowledge implements TetradSerializable {
         this.defaultToKnowledgeLayout = defaultToKnowledgeLayout;
     }
 
-    private boolean isForbiddenByRules(String var1, String var2) {
-        return this.forbiddenRulesSpecs.stream()
-                .anyMatch(rule -> !var1.equals(var2)
-                        && rule.getFirst().contains(var1)
-                        && rule.getSecond().contains(var2));
-    }
-
     /**
      * Determines whether the edge var1 --&gt; var2 is forbidden.
      */
     public boolean isForbidden(String var1, String var2) {
-        if (isRequired(var1, var2)) {
-            return false;
-        }
-
-        return isForbiddenByRules(var1, var2) || isForbiddenByTiers(var1, var2);
+        return compiled().isForbidden(var1, var2);
     }
 
     /**
      * Legacy.
      */
     public boolean isForbiddenByGroups(String var1, String var2) {
-        Set<OrderedPair<Set<String>>> s = this.knowledgeGroups.stream()
-                .filter(e -> e.getType() == KnowledgeGroup.FORBIDDEN)
-                .map(this::getGroupRule)
-                .collect(Collectors.toSet());
-
-        return s.stream()
-                .anyMatch(rule -> rule.getFirst().contains(var1)
-                        && rule.getSecond().contains(var2));
+        return compiled().isForbiddenByGroups(var1, var2);
     }
 
     /**
      * Determines whether the edge var1 --&gt; var2 is forbidden by the temporal tiers.
      */
     public boolean isForbiddenByTiers(String var1, String var2) {
-        return forbiddenTierRules().stream()
-                .anyMatch(rule -> rule.getFirst().contains(var1)
-                        && rule.getSecond().contains(var2));
+        return compiled().isForbiddenByTiers(var1, var2);
     }
 
     /**
      * Determines whether the edge var1 --&gt; var2 is required.
      */
     public boolean isRequired(String var1, String var2) {
-        return this.requiredRulesSpecs.stream()
-                .anyMatch(rule -> !var1.equals(var2)
-                        && rule.getFirst().contains(var1)
-                        && rule.getSecond().contains(var2));
+        return compiled().isRequired(var1, var2);
     }
 
     /**
      * Legacy.
      */
     public boolean isRequiredByGroups(String var1, String var2) {
-        Set<OrderedPair<Set<String>>> s = this.knowledgeGroups.stream()
-                .filter(e -> e.getType() == KnowledgeGroup.REQUIRED)
-                .map(this::getGroupRule)
-                .collect(Collectors.toSet());
-
-        return s.stream()
-                .anyMatch(rule -> rule.getFirst().contains(var1)
-                        && rule.getSecond().contains(var2));
+        return compiled().isRequiredByGroups(var1, var2);
     }
 
     /**
@@ -475,6 +464,7 @@ public final class Knowledge implements TetradSerializable {
 
         spec = checkSpec(spec);
         getExtent(spec).forEach(s -> this.tierSpecs.forEach(tier -> tier.remove(s)));
+        invalidate();
     }
 
     /**
@@ -487,6 +477,7 @@ public final class Knowledge implements TetradSerializable {
         this.requiredRulesSpecs.remove(old);
 
         this.knowledgeGroups.remove(index);
+        invalidate();
     }
 
     /**
@@ -520,6 +511,7 @@ public final class Knowledge implements TetradSerializable {
         Set<String> f2 = getExtent(var2);
 
         this.forbiddenRulesSpecs.add(new OrderedPair<>(f1, f2));
+        invalidate();
     }
 
     /**
@@ -533,6 +525,7 @@ public final class Knowledge implements TetradSerializable {
         Set<String> f2 = getExtent(var2);
 
         this.forbiddenRulesSpecs.remove(new OrderedPair<>(f1, f2));
+        invalidate();
     }
 
     /**
@@ -560,6 +553,7 @@ public final class Knowledge implements TetradSerializable {
         });
 
         this.requiredRulesSpecs.add(new OrderedPair<>(f1, f2));
+        invalidate();
     }
 
     /**
@@ -573,6 +567,7 @@ public final class Knowledge implements TetradSerializable {
         Set<String> f2 = getExtent(var2);
 
         this.requiredRulesSpecs.remove(new OrderedPair<>(f1, f2));
+        invalidate();
     }
 
     /**
@@ -592,6 +587,7 @@ public final class Knowledge implements TetradSerializable {
         }
 
         this.knowledgeGroups.set(index, group);
+        invalidate();
     }
 
     /**
@@ -605,6 +601,7 @@ public final class Knowledge implements TetradSerializable {
         }
 
         vars.forEach(var -> addToTier(tier, var));
+        invalidate();
     }
 
     /**
@@ -619,6 +616,8 @@ public final class Knowledge implements TetradSerializable {
         } else {
             this.forbiddenRulesSpecs.remove(new OrderedPair<>(varsInTier, varsInTier));
         }
+
+        invalidate();
     }
 
     /**
@@ -646,17 +645,7 @@ public final class Knowledge implements TetradSerializable {
      * Returns the index of the tier of node if it's in a tier, otherwise -1.
      */
     public int isInWhichTier(Node node) {
-        for (int i = 0; i < this.tierSpecs.size(); i++) {
-            Set<String> tier = this.tierSpecs.get(i);
-
-            for (String myNode : tier) {
-                if (myNode.equals(node.getName())) {
-                    return i;
-                }
-            }
-        }
-
-        return -1;
+        return compiled().getTier(node.getName());
     } // added by DMalinsky for tsFCI on 4/20/16
 
     public List<KnowledgeEdge> getListOfRequiredEdges() {
@@ -738,6 +727,8 @@ public final class Knowledge implements TetradSerializable {
                 this.forbiddenRulesSpecs.remove(new OrderedPair<>(varsInTier, varsInTierN));
             }
         }
+
+        invalidate();
     }
 
     /**
@@ -780,4 +771,238 @@ public final class Knowledge implements TetradSerializable {
         }
     }
 
+    // Returns the compiled rules, compiling them if the knowledge has been edited since they were last compiled.
+    private CompiledKnowledge compiled() {
+        CompiledKnowledge compiled = this.compiled;
+
+        if (compiled == null) {
+            compiled = new CompiledKnowledge(this);
+            this.compiled = compiled;
+        }
+
+        return compiled;
+    }
+
+    // Discards the compiled rules; called by every method that edits the knowledge.
+    private void invalidate() {
+        this.compiled = null;
+    }
+
+    /**
+     * A frozen snapshot of the rules of a Knowledge object, indexed by variable. Each variable is given an id; the
+     * tiers are kept as the list of tiers each variable is in, together with whether each tier is forbidden within and
+     * whether it can only cause the next tier, and the explicit forbidden and required rules are expanded into bit
+     * matrices over the ids. The forbidden rules that ensureTiers and the tier settings add are answered from the
+     * tiers and not expanded, so the matrices stay small when all the knowledge is tiered. Every query is then a hash
+     * lookup of the two names plus a few array reads.
+     */
+    private static final class CompiledKnowledge {
+
+        // The ids of the variables, by name.
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        // The tiers each variable is in, in increasing order, by id.
+        private final int[][] tiers;
+
+        // Whether each tier is forbidden within.
+        private final boolean[] forbiddenWithin;
+
+        // Whether each tier can only cause the next tier.
+        private final boolean[] onlyCanCauseNextTier;
+
+        // The edges forbidden by rules not accounted for by the tiers, with the diagonal excluded.
+        private final BitMatrix forbidden;
+
+        // The required edges, with the diagonal excluded.
+        private final BitMatrix required;
+
+        // The edges forbidden by the legacy knowledge groups.
+        private final BitMatrix forbiddenByGroups;
+
+        // The edges required by the legacy knowledge groups.
+        private final BitMatrix requiredByGroups;
+
+        private CompiledKnowledge(Knowledge knowledge) {
+            List<Set<String>> tierSpecs = knowledge.tierSpecs;
+            int numTiers = tierSpecs.size();
+
+            knowledge.variables.forEach(this::id);
+            tierSpecs.forEach(tier -> tier.forEach(this::id));
+            knowledge.forbiddenRulesSpecs.forEach(this::id);
+            knowledge.requiredRulesSpecs.forEach(this::id);
+
+            List<OrderedPair<Set<String>>> forbiddenGroupRules = new ArrayList<>();
+            List<OrderedPair<Set<String>>> requiredGroupRules = new ArrayList<>();
+
+            for (KnowledgeGroup group : knowledge.knowledgeGroups) {
+                if (group.getType() == KnowledgeGroup.FORBIDDEN) {
+                    forbiddenGroupRules.add(knowledge.getGroupRule(group));
+                } else if (group.getType() == KnowledgeGroup.REQUIRED) {
+                    requiredGroupRules.add(knowledge.getGroupRule(group));
+                }
+            }
+
+            forbiddenGroupRules.forEach(this::id);
+            requiredGroupRules.forEach(this::id);
+
+            int numVars = this.ids.size();
+
+            List<List<Integer>> tiersOfVars = new ArrayList<>();
+            for (int i = 0; i < numVars; i++) tiersOfVars.add(new ArrayList<>(1));
+
+            this.forbiddenWithin = new boolean[numTiers];
+            this.onlyCanCauseNextTier = new boolean[numTiers];
+
+            for (int t = 0; t < numTiers; t++) {
+                for (String name : tierSpecs.get(t)) {
+                    tiersOfVars.get(this.ids.get(name)).add(t);
+                }
+
+                this.forbiddenWithin[t] = knowledge.isTierForbiddenWithin(t);
+                this.onlyCanCauseNextTier[t] = knowledge.isOnlyCanCauseNextTier(t);
+            }
+
+            this.tiers = new int[numVars][];
+
+            for (int i = 0; i < numVars; i++) {
+                this.tiers[i] = tiersOfVars.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            // The tiers, by identity, so that rules between tiers can be recognized.
+            Map<Set<String>, Integer> tierIndices = new IdentityHashMap<>();
+            for (int t = 0; t < numTiers; t++) tierIndices.put(tierSpecs.get(t), t);
+
+            this.forbidden = new BitMatrix(numVars);
+
+            for (OrderedPair<Set<String>> rule : knowledge.forbiddenRulesSpecs) {
+                Integer from = tierIndices.get(rule.getFirst());
+                Integer to = tierIndices.get(rule.getSecond());
+
+                if (from == null || to == null || !isForbiddenBetweenTiers(from, to)) {
+                    fill(this.forbidden, rule);
+                }
+            }
+
+            this.forbidden.clearDiagonal();
+
+            this.required = new BitMatrix(numVars);
+            knowledge.requiredRulesSpecs.forEach(rule -> fill(this.required, rule));
+            this.required.clearDiagonal();
+
+            this.forbiddenByGroups = new BitMatrix(numVars);
+            forbiddenGroupRules.forEach(rule -> fill(this.forbiddenByGroups, rule));
+
+            this.requiredByGroups = new BitMatrix(numVars);
+            requiredGroupRules.forEach(rule -> fill(this.requiredByGroups, rule));
+        }
+
+        private boolean isForbidden(String var1, String var2) {
+            Integer i = this.ids.get(var1);
+            Integer j = this.ids.get(var2);
+            if (i == null || j == null) return false;
+            if (this.required.get(i, j)) return false;
+            return this.forbidden.get(i, j) || isForbiddenByTiers(i, j);
+        }
+
+        private boolean isForbiddenByTiers(String var1, String var2) {
+            Integer i = this.ids.get(var1);
+            Integer j = this.ids.get(var2);
+            return i != null && j != null && isForbiddenByTiers(i, j);
+        }
+
+        private boolean isRequired(String var1, String var2) {
+            return get(this.required, var1, var2);
+        }
+
+        private boolean isForbiddenByGroups(String var1, String var2) {
+            return get(this.forbiddenByGroups, var1, var2);
+        }
+
+        private boolean isRequiredByGroups(String var1, String var2) {
+            return get(this.requiredByGroups, var1, var2);
+        }
+
+        // Returns the first tier the variable is in, or -1 if it is in no tier.
+        private int getTier(String var) {
+            Integer i = this.ids.get(var);
+            if (i == null || this.tiers[i].length == 0) return -1;
+            return this.tiers[i][0];
+        }
+
+        private boolean isForbiddenByTiers(int i, int j) {
+            for (int from : this.tiers[i]) {
+                for (int to : this.tiers[j]) {
+                    if (isForbiddenBetweenTiers(from, to)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        // True if edges from tier 'from' to tier 'to' are forbidden; these are the rules of forbiddenTierRules().
+        private boolean isForbiddenBetweenTiers(int from, int to) {
+            if (to < from) return true;
+            if (to == from) return this.forbiddenWithin[from];
+            return to >= from + 2 && this.onlyCanCauseNextTier[from];
+        }
+
+        private boolean get(BitMatrix matrix, String var1, String var2) {
+            Integer i = this.ids.get(var1);
+            Integer j = this.ids.get(var2);
+            return i != null && j != null && matrix.get(i, j);
+        }
+
+        private void fill(BitMatrix matrix, OrderedPair<Set<String>> rule) {
+            if (rule.getFirst().isEmpty() || rule.getSecond().isEmpty()) return;
+
+            long[] mask = new long[matrix.numWords];
+            for (String name : rule.getSecond()) BitMatrix.set(mask, this.ids.get(name));
+            for (String name : rule.getFirst()) matrix.or(this.ids.get(name), mask);
+        }
+
+        private void id(OrderedPair<Set<String>> rule) {
+            rule.getFirst().forEach(this::id);
+            rule.getSecond().forEach(this::id);
+        }
+
+        private void id(String name) {
+            this.ids.putIfAbsent(name, this.ids.size());
+        }
+    }
+
+    /**
+     * A square matrix of bits, stored by row. Rows with no bits set are not allocated.
+     */
+    private static final class BitMatrix {
+        private final long[][] rows;
+        private final int numWords;
+
+        private BitMatrix(int size) {
+            this.rows = new long[size][];
+            this.numWords = (size + 63) >>> 6;
+        }
+
+        private static void set(long[] row, int j) {
+            row[j >>> 6] |= 1L << j;
+        }
+
+        private boolean get(int i, int j) {
+            long[] row = this.rows[i];
+            return row != null && (row[j >>> 6] & (1L << j)) != 0;
+        }
+
+        private void or(int i, long[] mask) {
+            if (this.rows[i] == null) this.rows[i] = new long[this.numWords];
+            long[] row = this.rows[i];
+            for (int w = 0; w < this.numWords; w++) row[w] |= mask[w];
+        }
+
+        private void clearDiagonal() {
+            for (int i = 0; i < this.rows.length; i++) {
+                if (this.rows[i] != null) this.rows[i][i >>> 6] &= ~(1L << i);
+            }
+        }
+    }
 }
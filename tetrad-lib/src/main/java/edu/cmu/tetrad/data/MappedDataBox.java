@@ -0,0 +1,602 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.TetradSerializableExcluded;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A data box backed by a memory-mapped file in Tetrad's binary columnar format, as written by
+ * DataWriter.writeColumnarData. Opening the file reads only the header; the values are paged in by the operating
+ * system as they are read, so data sets larger than memory can be searched without loading them.
+ * <p>
+ * The file holds, in little-endian order: the magic bytes "TETRADCB", a format version, the number of columns and of
+ * rows, and the length of the header; for each variable its type, name and, if discrete, its categories; a table giving the position of each
+ * column and of its missing-value bitmap; and then the columns, continuous ones as 8-byte doubles and discrete ones
+ * as 4-byte category indices, each followed by a bitmap with one bit per row, set where the value is missing.
+ * <p>
+ * The box is read-only unless opened for writing, in which case set() writes through to the file. Serializing the box
+ * saves the path of the file, which is mapped again when the box is read back.
+ *
+ * @see DataWriter#writeColumnarData(DataSet, File)
+ */
+public class MappedDataBox implements DataBox, TetradSerializableExcluded {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The first bytes of a file in this format.
+     */
+    static final byte[] MAGIC = "TETRADCB".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The length of the fixed part of the header: the magic bytes, the version, the number of columns, the number of
+     * rows and the length of the whole header.
+     */
+    static final int START_LENGTH = 32;
+
+    /**
+     * The type code of a continuous column.
+     */
+    static final byte CONTINUOUS = 0;
+
+    /**
+     * The type code of a discrete column.
+     */
+    static final byte DISCRETE = 1;
+
+    /**
+     * The base-2 logarithm of the number of rows in each mapped segment of a column, which keeps every segment under
+     * the 2 GB limit on a single mapping.
+     */
+    private static final int SEGMENT_SHIFT = 27;
+
+    /**
+     * The path of the file.
+     */
+    private final String path;
+
+    /**
+     * True if values may be set, writing through to the file.
+     */
+    private final boolean writable;
+
+    /**
+     * The variables, read from the file.
+     */
+    private transient List<Node> variables;
+
+    /**
+     * The number of rows.
+     */
+    private transient int numRows;
+
+    /**
+     * True for each continuous column; false for each discrete one.
+     */
+    private transient boolean[] continuous;
+
+    /**
+     * The mapped segments of each column.
+     */
+    private transient MappedByteBuffer[][] columns;
+
+    /**
+     * The mapped missing-value bitmap of each column.
+     */
+    private transient MappedByteBuffer[] missing;
+
+    /**
+     * Maps the given file, read-only.
+     *
+     * @param file The file, as written by DataWriter.writeColumnarData.
+     * @throws IOException If the file cannot be read or is not in the expected format.
+     */
+    public MappedDataBox(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Maps the given file.
+     *
+     * @param file     The file, as written by DataWriter.writeColumnarData.
+     * @param writable True if values may be set, in which case they are written to the file.
+     * @throws IOException If the file cannot be read or is not in the expected format.
+     */
+    public MappedDataBox(File file, boolean writable) throws IOException {
+        this.path = file.getAbsolutePath();
+        this.writable = writable;
+        map();
+    }
+
+    /**
+     * Maps the given file, read-only, and returns a data set over it.
+     *
+     * @param file The file, as written by DataWriter.writeColumnarData.
+     * @return The data set.
+     * @throws IOException If the file cannot be read or is not in the expected format.
+     */
+    public static DataSet loadDataSet(File file) throws IOException {
+        MappedDataBox box = new MappedDataBox(file);
+        return new BoxDataSet(box, box.getVariables());
+    }
+
+    /**
+     * Creates a file in this format for the given variables, with every value 0 and none missing, and maps it for
+     * writing. The file is made at its full length without writing the values, so on most file systems it takes no
+     * space until the values are set.
+     *
+     * @param file      The file. It is replaced if it exists.
+     * @param variables The continuous and/or discrete variables, in column order.
+     * @param numRows   The number of rows.
+     * @return The data box, opened for writing.
+     * @throws IOException If the file cannot be written.
+     */
+    public static MappedDataBox create(File file, List<Node> variables, int numRows) throws IOException {
+        ByteBuffer header = MappedDataBox.header(variables, numRows);
+        long length = MappedDataBox.align(header.limit());
+
+        for (Node variable : variables) {
+            length = MappedDataBox.align(length + (long) numRows * (variable instanceof ContinuousVariable ? 8 : 4));
+            length += MappedDataBox.bitmapBytes(numRows);
+        }
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            out.setLength(length);
+        }
+
+        return new MappedDataBox(file, true);
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return this.numRows;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return this.continuous.length;
+    }
+
+    /**
+     * Sets the value at the given row and column, writing it to the file. A null value is recorded as missing.
+     *
+     * @throws UnsupportedOperationException If the box was not opened for writing.
+     */
+    public synchronized void set(int row, int col, Number value) {
+        if (!this.writable) {
+            throw new UnsupportedOperationException("This data box was opened read-only: " + this.path);
+        }
+
+        MappedByteBuffer segment = this.columns[col][row >>> SEGMENT_SHIFT];
+        int index = row & ((1 << SEGMENT_SHIFT) - 1);
+
+        if (this.continuous[col]) {
+            segment.putDouble(index << 3, value == null ? Double.NaN : value.doubleValue());
+        } else {
+            segment.putInt(index << 2, value == null ? DiscreteVariable.MISSING_VALUE : value.intValue());
+        }
+
+        int word = (row >>> 6) << 3;
+        long bits = this.missing[col].getLong(word);
+        long bit = 1L << (row & 63);
+        this.missing[col].putLong(word, value == null ? bits | bit : bits & ~bit);
+    }
+
+    /**
+     * Sets consecutive values of a continuous column, writing them to the file. NaN values are recorded as missing.
+     * Unlike set(), this takes no lock on the box, so several threads may set disjoint ranges of rows at once.
+     *
+     * @param col     The column.
+     * @param fromRow The row of the first value.
+     * @param values  The values; the first count of these are set.
+     * @param count   The number of values to set.
+     * @throws UnsupportedOperationException If the box was not opened for writing.
+     */
+    public void setDoubles(int col, int fromRow, double[] values, int count) {
+        if (!this.writable) {
+            throw new UnsupportedOperationException("This data box was opened read-only: " + this.path);
+        }
+
+        if (!this.continuous[col]) {
+            throw new IllegalArgumentException("Not a continuous column: " + this.variables.get(col));
+        }
+
+        if (fromRow < 0 || count < 0 || fromRow + count > this.numRows) {
+            throw new IndexOutOfBoundsException("Rows " + fromRow + " to " + (fromRow + count) + " are not in the box.");
+        }
+
+        MappedByteBuffer bitmap = this.missing[col];
+        long bits = 0L;
+
+        for (int i = 0; i < count; i++) {
+            int row = fromRow + i;
+            double value = values[i];
+            this.columns[col][row >>> SEGMENT_SHIFT].putDouble((row & ((1 << SEGMENT_SHIFT) - 1)) << 3, value);
+
+            if (Double.isNaN(value)) bits |= 1L << (row & 63);
+
+            // Rows at either end of the range may share their bitmap word with rows set by another thread.
+            if ((row & 63) == 63 || i == count - 1) {
+                int word = (row >>> 6) << 3;
+                long mask = -1L >>> (63 - (row & 63));
+                if (i < (row & 63)) mask &= -1L << (fromRow & 63);
+
+                synchronized (bitmap) {
+                    bitmap.putLong(word, (bitmap.getLong(word) & ~mask) | bits);
+                }
+
+                bits = 0L;
+            }
+        }
+    }
+
+    /**
+     * @return the value at the given row and column, as a Double for continuous columns and an Integer for discrete
+     * ones, or null if it is missing.
+     */
+    public Number get(int row, int col) {
+        if (isMissing(row, col)) {
+            return null;
+        }
+
+        return this.continuous[col] ? (Number) getDouble(row, col) : (Number) getInt(row, col);
+    }
+
+    /**
+     * @return the value at the given row of the given continuous column, NaN if missing.
+     */
+    public double getDouble(int row, int col) {
+        return this.columns[col][row >>> SEGMENT_SHIFT].getDouble((row & ((1 << SEGMENT_SHIFT) - 1)) << 3);
+    }
+
+    /**
+     * @return the value at the given row of the given discrete column, -99 if missing.
+     */
+    public int getInt(int row, int col) {
+        return this.columns[col][row >>> SEGMENT_SHIFT].getInt((row & ((1 << SEGMENT_SHIFT) - 1)) << 2);
+    }
+
+    /**
+     * @return true if the value at the given row and column is missing.
+     */
+    public boolean isMissing(int row, int col) {
+        return (this.missing[col].getLong((row >>> 6) << 3) & (1L << (row & 63))) != 0;
+    }
+
+    /**
+     * @return the variables stored in the file, in column order.
+     */
+    public List<Node> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * @return the path of the file.
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return a copy of this data box in memory: a VerticalDoubleDataBox if all columns are continuous, a
+     * VerticalIntDataBox if all are discrete, and otherwise a MixedDataBox.
+     */
+    public DataBox copy() {
+        int[] rows = new int[this.numRows];
+        int[] cols = new int[numCols()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+        for (int j = 0; j < cols.length; j++) cols[j] = j;
+        return viewSelection(rows, cols);
+    }
+
+    /**
+     * @return a copy in memory of this data box, restricted to the given rows and columns, of the type given for
+     * copy().
+     */
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        boolean allContinuous = true;
+        boolean allDiscrete = true;
+        List<Node> variables = new ArrayList<>();
+
+        for (int col : cols) {
+            allContinuous &= this.continuous[col];
+            allDiscrete &= !this.continuous[col];
+            variables.add(this.variables.get(col));
+        }
+
+        if (cols.length > 0 && rows.length > 0 && allContinuous) {
+            double[][] data = new double[cols.length][rows.length];
+
+            for (int j = 0; j < cols.length; j++) {
+                for (int i = 0; i < rows.length; i++) {
+                    data[j][i] = getDouble(rows[i], cols[j]);
+                }
+            }
+
+            return new VerticalDoubleDataBox(data);
+        } else if (cols.length > 0 && rows.length > 0 && allDiscrete) {
+            int[][] data = new int[cols.length][rows.length];
+
+            for (int j = 0; j < cols.length; j++) {
+                for (int i = 0; i < rows.length; i++) {
+                    data[j][i] = getInt(rows[i], cols[j]);
+                }
+            }
+
+            return new VerticalIntDataBox(data);
+        }
+
+        DataBox box = new MixedDataBox(variables, rows.length);
+
+        for (int j = 0; j < cols.length; j++) {
+            for (int i = 0; i < rows.length; i++) {
+                box.set(i, j, get(rows[i], cols[j]));
+            }
+        }
+
+        return box;
+    }
+
+    /**
+     * @return a copy of this data box in memory; see copy().
+     */
+    public DataBox like() {
+        return copy();
+    }
+
+    // Reads the header and maps the columns.
+    private void map() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(this.path, this.writable ? "rw" : "r")) {
+            FileChannel channel = file.getChannel();
+            FileChannel.MapMode mode = this.writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+            ByteBuffer start = ByteBuffer.allocate(MappedDataBox.START_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, start, 0);
+
+            byte[] magic = new byte[MappedDataBox.MAGIC.length];
+            start.get(magic);
+
+            if (!Arrays.equals(magic, MappedDataBox.MAGIC)) {
+                throw new IOException("Not a Tetrad columnar data file: " + this.path);
+            }
+
+            int version = start.getInt();
+
+            if (version != MappedDataBox.VERSION) {
+                throw new IOException("Unsupported version " + version + " of the columnar data format: " + this.path);
+            }
+
+            int numCols = start.getInt();
+            long numRows = start.getLong();
+            long headerLength = start.getLong();
+
+            if (numCols < 0 || numRows < 0 || numRows > Integer.MAX_VALUE
+                    || headerLength < MappedDataBox.START_LENGTH || headerLength > Integer.MAX_VALUE) {
+                throw new IOException("Bad header in columnar data file: " + this.path);
+            }
+
+            // The variables and the column table.
+            ByteBuffer header = ByteBuffer.allocate((int) headerLength - MappedDataBox.START_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, MappedDataBox.START_LENGTH);
+
+            List<Node> variables = new ArrayList<>();
+            boolean[] continuous = new boolean[numCols];
+
+            for (int j = 0; j < numCols; j++) {
+                byte type = header.get();
+                String name = readString(header);
+
+                if (type == MappedDataBox.CONTINUOUS) {
+                    continuous[j] = true;
+                    variables.add(new ContinuousVariable(name));
+                } else if (type == MappedDataBox.DISCRETE) {
+                    int numCategories = header.getInt();
+                    List<String> categories = new ArrayList<>();
+                    for (int c = 0; c < numCategories; c++) categories.add(readString(header));
+                    variables.add(new DiscreteVariable(name, categories));
+                } else {
+                    throw new IOException("Unknown column type " + type + " in columnar data file: " + this.path);
+                }
+            }
+
+            int table = (int) (MappedDataBox.align(MappedDataBox.START_LENGTH + header.position()) - MappedDataBox.START_LENGTH);
+            header.position(table);
+
+            MappedByteBuffer[][] columns = new MappedByteBuffer[numCols][];
+            MappedByteBuffer[] missing = new MappedByteBuffer[numCols];
+            int segmentRows = 1 << SEGMENT_SHIFT;
+            int numSegments = (int) ((numRows + segmentRows - 1) >>> SEGMENT_SHIFT);
+
+            for (int j = 0; j < numCols; j++) {
+                long dataOffset = header.getLong();
+                long missingOffset = header.getLong();
+                int width = continuous[j] ? 8 : 4;
+
+                columns[j] = new MappedByteBuffer[numSegments];
+
+                for (int s = 0; s < numSegments; s++) {
+                    long rows = Math.min(segmentRows, numRows - (long) s * segmentRows);
+                    columns[j][s] = channel.map(mode, dataOffset + (long) s * segmentRows * width, rows * width);
+                    columns[j][s].order(ByteOrder.LITTLE_ENDIAN);
+                }
+
+                missing[j] = channel.map(mode, missingOffset, MappedDataBox.bitmapBytes(numRows));
+                missing[j].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            this.variables = Collections.unmodifiableList(variables);
+            this.numRows = (int) numRows;
+            this.continuous = continuous;
+            this.columns = columns;
+            this.missing = missing;
+        }
+    }
+
+    /**
+     * @return the header of a file in this format for the given variables and number of rows, ready to be written at
+     * the start of the file. The columns are laid out after the header in order, each aligned to 8 bytes and followed
+     * by its bitmap.
+     */
+    static ByteBuffer header(List<Node> variables, int numRows) {
+        int numCols = variables.size();
+        boolean[] continuous = new boolean[numCols];
+        List<byte[]> names = new ArrayList<>();
+        List<List<byte[]>> categories = new ArrayList<>();
+        long metadataLength = 0;
+
+        for (int col = 0; col < numCols; col++) {
+            Node variable = variables.get(col);
+            byte[] name = variable.getName().getBytes(StandardCharsets.UTF_8);
+            List<byte[]> _categories = new ArrayList<>();
+
+            names.add(name);
+            categories.add(_categories);
+            metadataLength += 1 + 4 + name.length;
+
+            if (variable instanceof ContinuousVariable) {
+                continuous[col] = true;
+            } else if (variable instanceof DiscreteVariable) {
+                metadataLength += 4;
+
+                for (String category : ((DiscreteVariable) variable).getCategories()) {
+                    byte[] _category = category.getBytes(StandardCharsets.UTF_8);
+                    _categories.add(_category);
+                    metadataLength += 4 + _category.length;
+                }
+            } else {
+                throw new IllegalArgumentException("Only continuous and discrete variables can be written: " + variable);
+            }
+        }
+
+        long tableOffset = MappedDataBox.align(MappedDataBox.START_LENGTH + metadataLength);
+        long headerLength = tableOffset + 16L * numCols;
+
+        if (headerLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many variables for the columnar format.");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MappedDataBox.MAGIC);
+        header.putInt(MappedDataBox.VERSION);
+        header.putInt(numCols);
+        header.putLong(numRows);
+        header.putLong(headerLength);
+
+        for (int col = 0; col < numCols; col++) {
+            header.put(continuous[col] ? MappedDataBox.CONTINUOUS : MappedDataBox.DISCRETE);
+            header.putInt(names.get(col).length);
+            header.put(names.get(col));
+
+            if (!continuous[col]) {
+                header.putInt(categories.get(col).size());
+
+                for (byte[] category : categories.get(col)) {
+                    header.putInt(category.length);
+                    header.put(category);
+                }
+            }
+        }
+
+        header.position((int) tableOffset);
+        long position = MappedDataBox.align(headerLength);
+
+        for (int col = 0; col < numCols; col++) {
+            header.putLong(position);
+            position = MappedDataBox.align(position + (long) numRows * (continuous[col] ? 8 : 4));
+            header.putLong(position);
+            position += MappedDataBox.bitmapBytes(numRows);
+        }
+
+        header.flip();
+        return header;
+    }
+
+    /**
+     * @return the number of bytes in a missing-value bitmap for the given number of rows, a whole number of longs.
+     */
+    static long bitmapBytes(long numRows) {
+        return ((numRows + 63) >>> 6) << 3;
+    }
+
+    /**
+     * @return the given position, rounded up to a multiple of 8.
+     */
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of columnar data file.");
+            }
+        }
+
+        buffer.flip();
+    }
+
+    /**
+     * Maps the file again after deserialization.
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        map();
+    }
+}
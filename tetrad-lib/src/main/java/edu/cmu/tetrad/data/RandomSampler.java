@@ -61,20 +61,15 @@ public final class RandomSampler {
 
         RandomUtil.shuffle(indices);
 
-        //Number of samples in input dataset
-        int ncols = dataSet.getNumColumns();
-
-        DataSet newDataSet =
-                new BoxDataSet(new VerticalDoubleDataBox(newSampleSize, dataSet.getVariables().size()), dataSet.getVariables());
+        int[] rows = new int[newSampleSize];
 
         for (int i = 0; i < newSampleSize; i++) {
-            int oldCase = indices.get(i);
-
-            for (int j = 0; j < ncols; j++) {
-                newDataSet.setObject(i, j, dataSet.getObject(oldCase, j));
-            }
+            rows[i] = indices.get(i);
         }
 
+        // Continuous data are viewed rather than copied.
+        DataSet newDataSet = DataUtils.selectRows(dataSet, rows);
+
         return newDataSet;
     }
 }
@@ -0,0 +1,179 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+/**
+ * A view of the rows of another data box, listed by index, as for a bootstrap sample. A row of the other box may be
+ * listed more than once. No values are copied until one is set; the view then makes its own copy of the selected
+ * rows, so the other box is never changed.
+ * <p>
+ * The row indices are never changed once the view is made, so, as with other data boxes, values may be read from any
+ * number of threads at once, but must not be set while other threads are reading.
+ *
+ * @see BootstrapCovariances
+ */
+public class RowIndexDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The data box viewed, or, once a value has been set, the copy of the selected rows.
+     */
+    private DataBox data;
+
+    /**
+     * The rows of the viewed data box, by row of this one; null once a value has been set.
+     */
+    private int[] rows;
+
+    /**
+     * Constructs a view of the given rows of the given data box.
+     *
+     * @param data The data box.
+     * @param rows The row of the data box for each row of the view.
+     */
+    public RowIndexDataBox(DataBox data, int[] rows) {
+        if (data == null) throw new NullPointerException("Data box must not be null.");
+        if (rows == null) throw new NullPointerException("Rows must not be null.");
+
+        for (int row : rows) {
+            if (row < 0 || row >= data.numRows()) {
+                throw new IllegalArgumentException("Row index out of range: " + row);
+            }
+        }
+
+        // Views of views refer to the original box.
+        int[] viewed = data instanceof RowIndexDataBox ? ((RowIndexDataBox) data).getRows() : null;
+
+        if (viewed != null) {
+            int[] _rows = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) _rows[i] = viewed[rows[i]];
+            this.data = ((RowIndexDataBox) data).getData();
+            this.rows = _rows;
+        } else {
+            this.data = data;
+            this.rows = rows.clone();
+        }
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static RowIndexDataBox serializableInstance() {
+        return new RowIndexDataBox(new VerticalDoubleDataBox(4, 4), new int[]{0, 0, 2, 3});
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return this.rows == null ? this.data.numRows() : this.rows.length;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return this.data.numCols();
+    }
+
+    /**
+     * Sets the value at the given row and column. The first call copies the selected rows, so that the viewed data
+     * box is not changed.
+     */
+    public void set(int row, int col, Number value) {
+        if (this.rows != null) {
+            this.data = materialize();
+            this.rows = null;
+        }
+
+        this.data.set(row, col, value);
+    }
+
+    /**
+     * @return the value at the given row and column of this view.
+     */
+    public Number get(int row, int col) {
+        return this.rows == null ? this.data.get(row, col) : this.data.get(this.rows[row], col);
+    }
+
+    /**
+     * @return the viewed data box, which is the box given in the constructor unless a value has been set.
+     */
+    public DataBox getData() {
+        return this.data;
+    }
+
+    /**
+     * @return a copy of the row indices, or null if a value has been set and the view has its own copy of the rows.
+     */
+    public int[] getRows() {
+        return this.rows == null ? null : this.rows.clone();
+    }
+
+    /**
+     * @return a copy of the selected rows, in a data box of the type of the viewed one.
+     */
+    public DataBox copy() {
+        return this.rows == null ? this.data.copy() : materialize();
+    }
+
+    /**
+     * @return a view of the given rows and columns of this view. If all the columns are selected, in order, this is
+     * another view of the viewed data box.
+     */
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        if (this.rows == null) return this.data.viewSelection(rows, cols);
+
+        int[] _rows = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) _rows[i] = this.rows[rows[i]];
+
+        if (isAllColumns(cols)) {
+            return new RowIndexDataBox(this.data, _rows);
+        }
+
+        return this.data.viewSelection(_rows, cols);
+    }
+
+    /**
+     * @return a copy of the selected rows, as for the like() method of the viewed data box.
+     */
+    public DataBox like() {
+        return copy();
+    }
+
+    private DataBox materialize() {
+        int[] cols = new int[this.data.numCols()];
+        for (int j = 0; j < cols.length; j++) cols[j] = j;
+        return this.data.viewSelection(this.rows, cols);
+    }
+
+    private boolean isAllColumns(int[] cols) {
+        if (cols.length != this.data.numCols()) return false;
+
+        for (int j = 0; j < cols.length; j++) {
+            if (cols[j] != j) return false;
+        }
+
+        return true;
+    }
+}
@@ -45,6 +45,50 @@ public class SimpleDataLoader {
         return (DataSet) DataConvertUtils.toContinuousDataModel(data);
     }
 
+    /**
+     * Calculates the covariance matrix of a continuous dataset in a file in one pass over the rows, without loading
+     * the dataset into memory. This is useful for files with many rows; the result is the same as that of loading the
+     * data with loadContinuousData and constructing a CovarianceMatrix from it.
+     *
+     * @param file               The text file to load the data from.
+     * @param commentMarker      The comment marker as a string--e.g., "//".
+     * @param quoteCharacter     The quote character, e.g., '\"'.
+     * @param missingValueMarker The missing value marker as a string--e.g., "NA".
+     * @param hasHeader          True if the first row of the data contains variable names.
+     * @param delimiter          One of the options in the Delimiter enum--e.g., Delimiter.TAB.
+     * @return The bias-corrected covariance matrix of the data.
+     * @throws IOException If an error occurred in reading the file.
+     * @see CovarianceAccumulator
+     */
+    @NotNull
+    public static ICovarianceMatrix loadContinuousCovarianceMatrix(File file, String commentMarker, char quoteCharacter,
+                                                                   String missingValueMarker, boolean hasHeader,
+                                                                   Delimiter delimiter) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(file.toPath(), delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteCharacter);
+
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(new int[0], false)
+                : columnReader.generateColumns(new int[0], false);
+
+        String[] varNames = new String[dataColumns.length];
+
+        for (int i = 0; i < dataColumns.length; i++) {
+            varNames[i] = dataColumns[i].getName();
+        }
+
+        CovarianceAccumulator accumulator = new CovarianceAccumulator(DataUtils.createContinuousVariables(varNames));
+
+        TabularDataReader dataReader = new TabularDataFileReader(file.toPath(), delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+        dataReader.readRows(dataColumns, hasHeader, accumulator);
+
+        return accumulator.getCovarianceMatrix();
+    }
+
     /**
      * Loads a discrete dataset from a file.
      *
@@ -49,6 +49,12 @@ public class VerticalDoubleDataBox implements DataBox {
      */
     private final int numCols;
 
+    /**
+     * The means of the columns, for BootstrapCovariances; null until they are asked for, and again once a value is
+     * set.
+     */
+    private transient volatile double[] means;
+
     /**
      * Constructs an 2D double array consisting entirely of missing values (Double.NaN).
      */
@@ -134,6 +140,8 @@ public class VerticalDoubleDataBox implements DataBox {
                 this.data[col][row] = value.doubleValue();
             }
         }
+
+        this.means = null;
     }
 
     /**
@@ -143,6 +151,28 @@ public class VerticalDoubleDataBox implements DataBox {
         return this.data[col][row];
     }
 
+    /**
+     * @return the means of the columns, which are computed once and kept until a value is set. The array must not be
+     * changed.
+     */
+    double[] getMeans() {
+        double[] means = this.means;
+
+        if (means == null) {
+            means = new double[this.numCols];
+
+            for (int j = 0; j < this.numCols; j++) {
+                double sum = 0.0;
+                for (int i = 0; i < this.numRows; i++) sum += this.data[j][i];
+                means[j] = sum / this.numRows;
+            }
+
+            this.means = means;
+        }
+
+        return means;
+    }
+
     public double[][] getVariableVectors() {
         if (this.numCols == 0 || this.numRows == 0) {
             return new double[0][0];
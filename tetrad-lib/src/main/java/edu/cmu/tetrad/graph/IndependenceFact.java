@@ -48,7 +48,7 @@ public final class IndependenceFact implements Comparable<IndependenceFact>,
 
         this.x = x;
         this.y = y;
-        this._z = z;
+        this._z = new HashSet<>(z);
     }
 
     public IndependenceFact(Node x, Node y, Node... z) {
@@ -86,8 +86,17 @@ public final class IndependenceFact implements Comparable<IndependenceFact>,
         return new HashSet<>(this._z);
     }
 
+    /**
+     * Returns a hash code consistent with equals, symmetric in x and y and independent of the order of z.
+     */
     public int hashCode() {
-        return 1;
+        int hash = this.x.getName().hashCode() + this.y.getName().hashCode();
+
+        for (Node n : this._z) {
+            hash += 31 * n.getName().hashCode();
+        }
+
+        return hash;
     }
 
     public boolean equals(Object obj) {
@@ -0,0 +1,1154 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+package edu.cmu.tetrad.graph;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+
+/**
+ * <p>A compact graph for search internals. Nodes are numbered 0, 1, ..., n - 1 in the order in which they were added;
+ * each node stores the indices of its neighbors in an int array, together with the endpoint marks at both ends of each
+ * adjacency packed as bytes. Queries like isAdjacentTo, getEndpoint, getParents and isDefCollider therefore scan a
+ * short primitive array instead of hashing Edge objects, which is where EdgeListGraph spends most of its time in Meek
+ * and FCI orientation. The Edge objects themselves are kept alongside the marks, so getEdge and getEdges allocate
+ * nothing beyond the returned collection and edge properties are preserved.</p>
+ *
+ * <p>Unlike EdgeListGraph, at most one edge is permitted between any pair of nodes, and edges from a node to itself
+ * are not permitted; this is the case for all graphs produced by the searches, and a graph with more than one edge
+ * between some pair of nodes is rejected with an IllegalArgumentException. Edges held by the graph must not be
+ * modified in place, since the marks would then be out of date; use setEndpoint instead. The copy constructor copies
+ * the edges of the given graph, so that later changes to those edges do not reach this graph. Conversion to and from
+ * EdgeListGraph is by the copy constructors, in time linear in the size of the graph.</p>
+ *
+ * <p>The int-indexed methods (getIndex, isAdjacentTo(int, int), getParentIndices, etc.) avoid even the node lookup
+ * and are intended for inner loops.</p>
+ *
+ * @see EdgeListGraph
+ */
+public class IndexedGraph implements Graph, TripleClassifier {
+    static final long serialVersionUID = 23L;
+
+    // The endpoint types, indexed by the byte marks.
+    private static final Endpoint[] ENDPOINTS = Endpoint.values();
+    private static final byte TAIL = (byte) Endpoint.TAIL.ordinal();
+    private static final byte ARROW = (byte) Endpoint.ARROW.ordinal();
+    private static final byte CIRCLE = (byte) Endpoint.CIRCLE.ordinal();
+
+    // The nodes, by index.
+    private final List<Node> nodes = new ArrayList<>();
+
+    // Map from nodes to their indices.
+    private final Map<Node, Integer> indices = new HashMap<>();
+
+    // Map from node names to nodes.
+    private final Map<String, Node> namesHash = new HashMap<>();
+
+    // For node i and slot k < degrees[i], neighbors[i][k] is the index of the neighbor, near[i][k] the endpoint at i,
+    // far[i][k] the endpoint at the neighbor, and edges[i][k] the edge itself.
+    private int[][] neighbors = new int[0][];
+    private byte[][] near = new byte[0][];
+    private byte[][] far = new byte[0][];
+    private Edge[][] edges = new Edge[0][];
+    private int[] degrees = new int[0];
+
+    // The number of edges in the graph.
+    private int numEdges = 0;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private transient PropertyChangeSupport pcs;
+
+    private Set<Triple> underLineTriples = new HashSet<>();
+    private Set<Triple> dottedUnderLineTriples = new HashSet<>();
+    private Set<Triple> ambiguousTriples = new HashSet<>();
+
+    //==============================CONSTUCTORS===========================//
+
+    /**
+     * Constructs a new (empty) IndexedGraph.
+     */
+    public IndexedGraph() {
+    }
+
+    /**
+     * Constructs a new graph, with no edges, over the given nodes.
+     *
+     * @param nodes The nodes; these are given indices in order.
+     */
+    public IndexedGraph(List<Node> nodes) {
+        if (nodes == null) {
+            throw new NullPointerException();
+        }
+
+        ensureNodeCapacity(nodes.size());
+
+        for (Node node : nodes) {
+            addNode(node);
+        }
+    }
+
+    /**
+     * Constructs an IndexedGraph with the nodes, copies of the edges, attributes and triples of the given graph. The
+     * nodes of the given graph are given indices in the order of graph.getNodes().
+     *
+     * @param graph The graph to copy.
+     * @throws IllegalArgumentException if the graph has more than one edge between some pair of nodes or an edge from
+     *                                  a node to itself.
+     */
+    public IndexedGraph(Graph graph) throws IllegalArgumentException {
+        this(graph.getNodes());
+
+        for (Edge edge : graph.getEdges()) {
+            addEdge(new Edge(edge));
+        }
+
+        transferAttributes(graph);
+        this.underLineTriples = graph.getUnderLines();
+        this.dottedUnderLineTriples = graph.getDottedUnderlines();
+        this.ambiguousTriples = graph.getAmbiguousTriples();
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static IndexedGraph serializableInstance() {
+        return new IndexedGraph();
+    }
+
+    //=============================INDEXED METHODS=========================//
+
+    /**
+     * @return the index of the given node, or -1 if the node is not in the graph.
+     */
+    public int getIndex(Node node) {
+        if (node == null) return -1;
+        Integer index = this.indices.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the node with the given index.
+     */
+    public Node getNode(int index) {
+        return this.nodes.get(index);
+    }
+
+    /**
+     * @return true iff the nodes with indices a and b are adjacent.
+     */
+    public boolean isAdjacentTo(int a, int b) {
+        return slot(a, b) != -1;
+    }
+
+    /**
+     * @return the endpoint at b of the edge between a and b, or null if they are not adjacent.
+     */
+    public Endpoint getEndpoint(int a, int b) {
+        int k = slot(a, b);
+        return k == -1 ? null : ENDPOINTS[this.far[a][k]];
+    }
+
+    /**
+     * @return true iff a --&gt; b is in the graph.
+     */
+    public boolean isParentOf(int a, int b) {
+        int k = slot(a, b);
+        return k != -1 && this.near[a][k] == TAIL && this.far[a][k] == ARROW;
+    }
+
+    /**
+     * @return true iff a *-&gt; b &lt;-* c is in the graph.
+     */
+    public boolean isDefCollider(int a, int b, int c) {
+        int k1 = slot(b, a);
+        if (k1 == -1 || this.near[b][k1] != ARROW) return false;
+        int k2 = slot(b, c);
+        return k2 != -1 && this.near[b][k2] == ARROW;
+    }
+
+    /**
+     * @return the indices of the nodes adjacent to the node with index b.
+     */
+    public int[] getAdjacentIndices(int b) {
+        return Arrays.copyOf(this.neighbors[b], this.degrees[b]);
+    }
+
+    /**
+     * @return the indices of the parents of the node with index b.
+     */
+    public int[] getParentIndices(int b) {
+        return indicesWith(b, ARROW, TAIL);
+    }
+
+    /**
+     * @return the indices of the children of the node with index a.
+     */
+    public int[] getChildIndices(int a) {
+        return indicesWith(a, TAIL, ARROW);
+    }
+
+    //=============================PUBLIC METHODS=========================//
+
+    @Override
+    public boolean addBidirectedEdge(Node node1, Node node2) {
+        if (node1 == null || node2 == null) return false;
+        return addEdge(Edges.bidirectedEdge(node1, node2));
+    }
+
+    @Override
+    public boolean addDirectedEdge(Node node1, Node node2) {
+        if (node1 == null || node2 == null) return false;
+        return addEdge(Edges.directedEdge(node1, node2));
+    }
+
+    @Override
+    public boolean addUndirectedEdge(Node node1, Node node2) {
+        if (node1 == null || node2 == null) return false;
+        return addEdge(Edges.undirectedEdge(node1, node2));
+    }
+
+    @Override
+    public boolean addNondirectedEdge(Node node1, Node node2) {
+        if (node1 == null || node2 == null) return false;
+        return addEdge(Edges.nondirectedEdge(node1, node2));
+    }
+
+    @Override
+    public boolean addPartiallyOrientedEdge(Node node1, Node node2) {
+        if (node1 == null || node2 == null) return false;
+        return addEdge(Edges.partiallyOrientedEdge(node1, node2));
+    }
+
+    /**
+     * Adds an edge to the graph. If an equal edge is already in the graph, nothing is done.
+     *
+     * @param edge the edge to be added
+     * @return true if the edge is in the graph afterward.
+     * @throws IllegalArgumentException if the edge connects a node to itself, if either node is not in the graph, or
+     *                                  if a different edge already connects the two nodes.
+     */
+    @Override
+    public synchronized boolean addEdge(Edge edge) {
+        if (edge == null) {
+            throw new NullPointerException();
+        }
+
+        int a = getIndex(edge.getNode1());
+        int b = getIndex(edge.getNode2());
+
+        if (a == -1 || b == -1) {
+            throw new IllegalArgumentException("Edge " + edge + " has a node that is not in the graph.");
+        }
+
+        if (a == b) {
+            throw new IllegalArgumentException("Edges from a node to itself are not supported: " + edge);
+        }
+
+        int k = slot(a, b);
+
+        if (k != -1) {
+            if (this.edges[a][k].equals(edge)) return true;
+            throw new IllegalArgumentException("There is already an edge between " + edge.getNode1() + " and "
+                    + edge.getNode2() + ": " + this.edges[a][k]);
+        }
+
+        byte e1 = (byte) edge.getEndpoint1().ordinal();
+        byte e2 = (byte) edge.getEndpoint2().ordinal();
+        append(a, b, e1, e2, edge);
+        append(b, a, e2, e1, edge);
+        this.numEdges++;
+
+        if (this.pcs != null) {
+            if (Edges.isDirectedEdge(edge)) {
+                Node node = Edges.getDirectedEdgeTail(edge);
+
+                if (node.getNodeType() == NodeType.ERROR) {
+                    this.pcs.firePropertyChange("nodeAdded", null, node);
+                }
+            }
+
+            this.pcs.firePropertyChange("edgeAdded", null, edge);
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addNode(Node node) {
+        if (node == null) {
+            throw new NullPointerException();
+        }
+
+        if (this.indices.containsKey(node)) {
+            return true;
+        }
+
+        int index = this.nodes.size();
+        ensureNodeCapacity(index + 1);
+        this.neighbors[index] = new int[4];
+        this.near[index] = new byte[4];
+        this.far[index] = new byte[4];
+        this.edges[index] = new Edge[4];
+        this.degrees[index] = 0;
+
+        this.nodes.add(node);
+        this.indices.put(node, index);
+        this.namesHash.put(node.getName(), node);
+
+        if (this.pcs != null && node.getNodeType() != NodeType.ERROR) {
+            this.pcs.firePropertyChange("nodeAdded", null, node);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void addPropertyChangeListener(PropertyChangeListener l) {
+        getPcs().addPropertyChangeListener(l);
+    }
+
+    /**
+     * Removes all nodes (and therefore all edges) from the graph.
+     */
+    @Override
+    public synchronized void clear() {
+        if (this.pcs != null) {
+            for (Edge edge : getEdges()) {
+                this.pcs.firePropertyChange("edgeRemoved", edge, null);
+            }
+
+            for (Node node : this.nodes) {
+                this.pcs.firePropertyChange("nodeRemoved", node, null);
+            }
+        }
+
+        this.nodes.clear();
+        this.indices.clear();
+        this.namesHash.clear();
+        Arrays.fill(this.degrees, 0);
+        this.numEdges = 0;
+    }
+
+    @Override
+    public boolean containsEdge(Edge edge) {
+        if (edge == null) return false;
+        int a = getIndex(edge.getNode1());
+        int k = slot(a, getIndex(edge.getNode2()));
+        return k != -1 && this.edges[a][k].equals(edge);
+    }
+
+    @Override
+    public boolean containsNode(Node node) {
+        return node != null && this.indices.containsKey(node);
+    }
+
+    /**
+     * @return true iff the given object is a graph with the same node names and the same edges as this graph.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Graph)) {
+            return false;
+        }
+
+        Graph graph = (Graph) o;
+        return new HashSet<>(graph.getNodeNames()).equals(new HashSet<>(getNodeNames()))
+                && new HashSet<>(graph.getEdges()).equals(getEdges());
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+
+        for (Edge edge : getEdges()) {
+            hashCode += edge.hashCode();
+        }
+
+        return (new HashSet<>(this.nodes)).hashCode() + hashCode;
+    }
+
+    /**
+     * Resets the graph so that it is fully connects it using #-# edges, where # is the given endpoint.
+     */
+    @Override
+    public synchronized void fullyConnect(Endpoint endpoint) {
+        Arrays.fill(this.degrees, 0);
+        this.numEdges = 0;
+
+        for (int i = 0; i < this.nodes.size(); i++) {
+            for (int j = i + 1; j < this.nodes.size(); j++) {
+                addEdge(new Edge(this.nodes.get(i), this.nodes.get(j), endpoint, endpoint));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void reorientAllWith(Endpoint endpoint) {
+        byte e = (byte) endpoint.ordinal();
+
+        for (int a = 0; a < this.nodes.size(); a++) {
+            for (int k = 0; k < this.degrees[a]; k++) {
+                int b = this.neighbors[a][k];
+                if (b < a) continue;
+
+                Edge edge = new Edge(this.edges[a][k]);
+                edge.setEndpoint1(endpoint);
+                edge.setEndpoint2(endpoint);
+                replace(a, k, b, e, e, edge);
+            }
+        }
+    }
+
+    @Override
+    public List<Node> getAdjacentNodes(Node node) {
+        int b = getIndex(node);
+        if (b == -1) return new ArrayList<>();
+        List<Node> adj = new ArrayList<>(this.degrees[b]);
+
+        for (int k = 0; k < this.degrees[b]; k++) {
+            adj.add(this.nodes.get(this.neighbors[b][k]));
+        }
+
+        return adj;
+    }
+
+    @Override
+    public List<Node> getChildren(Node node) {
+        return nodesWith(getIndex(node), TAIL, ARROW);
+    }
+
+    @Override
+    public List<Node> getParents(Node node) {
+        return nodesWith(getIndex(node), ARROW, TAIL);
+    }
+
+    @Override
+    public int getDegree() {
+        int degree = 0;
+
+        for (int i = 0; i < this.nodes.size(); i++) {
+            degree = Math.max(degree, this.degrees[i]);
+        }
+
+        return degree;
+    }
+
+    @Override
+    public int getDegree(Node node) {
+        return getNumEdges(node);
+    }
+
+    @Override
+    public int getIndegree(Node node) {
+        return countWith(getIndex(node), ARROW, TAIL);
+    }
+
+    @Override
+    public int getOutdegree(Node node) {
+        return countWith(getIndex(node), TAIL, ARROW);
+    }
+
+    /**
+     * @return the edge connecting node1 and node2, or null if they are not adjacent.
+     */
+    @Override
+    public Edge getEdge(Node node1, Node node2) {
+        int a = getIndex(node1);
+        int k = slot(a, getIndex(node2));
+        return k == -1 ? null : this.edges[a][k];
+    }
+
+    @Override
+    public Edge getDirectedEdge(Node node1, Node node2) {
+        int a = getIndex(node1);
+        int k = slot(a, getIndex(node2));
+        if (k == -1 || this.near[a][k] != TAIL || this.far[a][k] != ARROW) return null;
+        return this.edges[a][k];
+    }
+
+    @Override
+    public List<Edge> getEdges(Node node) {
+        int a = getIndex(node);
+        if (a == -1) return new ArrayList<>();
+        return new ArrayList<>(Arrays.asList(this.edges[a]).subList(0, this.degrees[a]));
+    }
+
+    @Override
+    public List<Edge> getEdges(Node node1, Node node2) {
+        List<Edge> edges = new ArrayList<>(1);
+        Edge edge = getEdge(node1, node2);
+        if (edge != null) edges.add(edge);
+        return edges;
+    }
+
+    @Override
+    public Set<Edge> getEdges() {
+        Set<Edge> edges = new HashSet<>();
+
+        for (int a = 0; a < this.nodes.size(); a++) {
+            for (int k = 0; k < this.degrees[a]; k++) {
+                if (this.neighbors[a][k] > a) {
+                    edges.add(this.edges[a][k]);
+                }
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * @return the endpoint along the edge from node1 to node2 at the node2 end, or null if they are not adjacent.
+     */
+    @Override
+    public Endpoint getEndpoint(Node node1, Node node2) {
+        return getEndpoint(getIndex(node1), getIndex(node2));
+    }
+
+    @Override
+    public Node getNode(String name) {
+        return this.namesHash.get(name);
+    }
+
+    @Override
+    public List<Node> getNodes() {
+        return new ArrayList<>(this.nodes);
+    }
+
+    @Override
+    public List<String> getNodeNames() {
+        List<String> names = new ArrayList<>(this.nodes.size());
+
+        for (Node node : this.nodes) {
+            names.add(node.getName());
+        }
+
+        return names;
+    }
+
+    @Override
+    public int getNumEdges() {
+        return this.numEdges;
+    }
+
+    @Override
+    public int getNumEdges(Node node) {
+        int a = getIndex(node);
+        return a == -1 ? 0 : this.degrees[a];
+    }
+
+    @Override
+    public int getNumNodes() {
+        return this.nodes.size();
+    }
+
+    @Override
+    public boolean isAdjacentTo(Node node1, Node node2) {
+        return slot(getIndex(node1), getIndex(node2)) != -1;
+    }
+
+    /**
+     * @return true iff node1 is a child of node2.
+     */
+    @Override
+    public boolean isChildOf(Node node1, Node node2) {
+        return isParentOf(getIndex(node2), getIndex(node1));
+    }
+
+    @Override
+    public boolean isParentOf(Node node1, Node node2) {
+        return isParentOf(getIndex(node1), getIndex(node2));
+    }
+
+    /**
+     * Agrees with EdgeListGraph.isDefNoncollider.
+     */
+    @Override
+    public boolean isDefNoncollider(Node node1, Node node2, Node node3) {
+        int a = getIndex(node1);
+        int b = getIndex(node2);
+        int c = getIndex(node3);
+        if (a == -1 || b == -1 || c == -1) return false;
+
+        int k1 = slot(b, a);
+        int k3 = slot(b, c);
+
+        if (k1 != -1 && pointsAway(b, k1)) return true;
+        return k3 != -1 && pointsAway(b, k3);
+    }
+
+    @Override
+    public boolean isDefCollider(Node node1, Node node2, Node node3) {
+        int a = getIndex(node1);
+        int b = getIndex(node2);
+        int c = getIndex(node3);
+        if (a == -1 || b == -1 || c == -1) return false;
+        return isDefCollider(a, b, c);
+    }
+
+    @Override
+    public boolean isExogenous(Node node) {
+        return getIndegree(node) == 0;
+    }
+
+    @Override
+    public List<Node> getNodesInTo(Node node, Endpoint endpoint) {
+        int b = getIndex(node);
+        List<Node> nodes = new ArrayList<>(4);
+        if (b == -1) return nodes;
+        byte e = (byte) endpoint.ordinal();
+
+        for (int k = 0; k < this.degrees[b]; k++) {
+            if (this.near[b][k] == e) {
+                nodes.add(this.nodes.get(this.neighbors[b][k]));
+            }
+        }
+
+        return nodes;
+    }
+
+    @Override
+    public List<Node> getNodesOutTo(Node node, Endpoint endpoint) {
+        int a = getIndex(node);
+        List<Node> nodes = new ArrayList<>(4);
+        if (a == -1) return nodes;
+        byte e = (byte) endpoint.ordinal();
+
+        for (int k = 0; k < this.degrees[a]; k++) {
+            if (this.far[a][k] == e) {
+                nodes.add(this.nodes.get(this.neighbors[a][k]));
+            }
+        }
+
+        return nodes;
+    }
+
+    @Override
+    public synchronized boolean removeEdge(Edge edge) {
+        if (edge == null) return false;
+        int a = getIndex(edge.getNode1());
+        int b = getIndex(edge.getNode2());
+        int k = slot(a, b);
+
+        if (k == -1 || !this.edges[a][k].equals(edge)) {
+            return false;
+        }
+
+        Edge removed = this.edges[a][k];
+        delete(a, k);
+        delete(b, slot(b, a));
+        this.numEdges--;
+
+        if (this.pcs != null) {
+            this.pcs.firePropertyChange("edgeRemoved", removed, null);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean removeEdge(Node node1, Node node2) {
+        Edge edge = getEdge(node1, node2);
+        boolean removed = edge != null && removeEdge(edge);
+        removeTriplesNotInGraph();
+        return removed;
+    }
+
+    @Override
+    public boolean removeEdges(Node node1, Node node2) {
+        Edge edge = getEdge(node1, node2);
+        return edge != null && removeEdge(edge);
+    }
+
+    @Override
+    public boolean removeEdges(Collection<Edge> edges) {
+        boolean change = false;
+
+        for (Edge edge : edges) {
+            change = removeEdge(edge) || change;
+        }
+
+        return change;
+    }
+
+    /**
+     * Removes a node and its edges from the graph. The nodes after it in order have their indices decremented, so
+     * this takes time linear in the size of the graph.
+     */
+    @Override
+    public synchronized boolean removeNode(Node node) {
+        int r = getIndex(node);
+        if (r == -1) return false;
+
+        for (Edge edge : getEdges(node)) {
+            removeEdge(edge);
+        }
+
+        int n = this.nodes.size();
+        System.arraycopy(this.neighbors, r + 1, this.neighbors, r, n - r - 1);
+        System.arraycopy(this.near, r + 1, this.near, r, n - r - 1);
+        System.arraycopy(this.far, r + 1, this.far, r, n - r - 1);
+        System.arraycopy(this.edges, r + 1, this.edges, r, n - r - 1);
+        System.arraycopy(this.degrees, r + 1, this.degrees, r, n - r - 1);
+        this.neighbors[n - 1] = null;
+        this.near[n - 1] = null;
+        this.far[n - 1] = null;
+        this.edges[n - 1] = null;
+        this.degrees[n - 1] = 0;
+
+        this.nodes.remove(r);
+        this.indices.remove(node);
+        this.namesHash.remove(node.getName());
+
+        for (int i = 0; i < n - 1; i++) {
+            if (i >= r) this.indices.put(this.nodes.get(i), i);
+
+            for (int k = 0; k < this.degrees[i]; k++) {
+                if (this.neighbors[i][k] > r) this.neighbors[i][k]--;
+            }
+        }
+
+        removeTriplesNotInGraph();
+
+        if (this.pcs != null) {
+            this.pcs.firePropertyChange("nodeRemoved", node, null);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean removeNodes(List<Node> nodes) {
+        boolean changed = false;
+
+        for (Node node : nodes) {
+            changed = removeNode(node) || changed;
+        }
+
+        return changed;
+    }
+
+    /**
+     * If there is currently an edge from node1 to node2, sets the endpoint at node2 to the given endpoint.
+     *
+     * @throws IllegalArgumentException if the nodes are not adjacent.
+     */
+    @Override
+    public synchronized boolean setEndpoint(Node from, Node to, Endpoint endPoint) throws IllegalArgumentException {
+        int a = getIndex(from);
+        int b = getIndex(to);
+        int k = slot(a, b);
+        if (k == -1) throw new IllegalArgumentException("Not adjacent");
+
+        Edge before = this.edges[a][k];
+        Edge after = new Edge(from, to, ENDPOINTS[this.near[a][k]], endPoint);
+        replace(a, k, b, this.near[a][k], (byte) endPoint.ordinal(), after);
+
+        if (this.pcs != null) {
+            this.pcs.firePropertyChange("edgeRemoved", before, null);
+            this.pcs.firePropertyChange("edgeAdded", null, after);
+        }
+
+        return true;
+    }
+
+    @Override
+    public Graph subgraph(List<Node> nodes) {
+        IndexedGraph graph = new IndexedGraph(nodes);
+
+        for (Node node : nodes) {
+            int a = getIndex(node);
+            if (a == -1) continue;
+
+            for (int k = 0; k < this.degrees[a]; k++) {
+                int b = this.neighbors[a][k];
+
+                if (b > a && graph.containsNode(this.nodes.get(b))) {
+                    graph.addEdge(this.edges[a][k]);
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return GraphUtils.graphToText(this, false);
+    }
+
+    @Override
+    public void transferNodesAndEdges(Graph graph) throws IllegalArgumentException {
+        if (graph == null) {
+            throw new NullPointerException("No graph was provided.");
+        }
+
+        for (Node node : graph.getNodes()) {
+            addNode(node);
+        }
+
+        for (Edge edge : graph.getEdges()) {
+            addEdge(edge);
+        }
+    }
+
+    @Override
+    public void transferAttributes(Graph graph) throws IllegalArgumentException {
+        if (graph == null) {
+            throw new NullPointerException("No graph was provided.");
+        }
+
+        this.attributes.putAll(graph.getAllAttributes());
+    }
+
+    @Override
+    public Paths paths() {
+        return new Paths(this);
+    }
+
+    @Override
+    public boolean isParameterizable(Node node) {
+        return true;
+    }
+
+    @Override
+    public boolean isTimeLagModel() {
+        return false;
+    }
+
+    @Override
+    public TimeLagGraph getTimeLagGraph() {
+        return null;
+    }
+
+    @Override
+    public Set<Node> getSepset(Node n1, Node n2) {
+        return new Paths(this).getSepset(n1, n2);
+    }
+
+    /**
+     * Replaces the nodes of the graph, by index, with the given nodes, which must be equal in number.
+     */
+    @Override
+    public synchronized void setNodes(List<Node> nodes) {
+        if (nodes.size() != this.nodes.size()) {
+            throw new IllegalArgumentException("Sorry, there is a mismatch in the number of variables "
+                    + "you are trying to set.");
+        }
+
+        this.nodes.clear();
+        this.nodes.addAll(nodes);
+        this.indices.clear();
+        this.namesHash.clear();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            this.indices.put(nodes.get(i), i);
+            this.namesHash.put(nodes.get(i).getName(), nodes.get(i));
+        }
+
+        for (int a = 0; a < nodes.size(); a++) {
+            for (int k = 0; k < this.degrees[a]; k++) {
+                int b = this.neighbors[a][k];
+                if (b < a) continue;
+                Edge edge = new Edge(nodes.get(a), nodes.get(b), ENDPOINTS[this.near[a][k]],
+                        ENDPOINTS[this.far[a][k]]);
+                replace(a, k, b, this.near[a][k], this.far[a][k], edge);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAllAttributes() {
+        return this.attributes;
+    }
+
+    @Override
+    public Object getAttribute(String key) {
+        return this.attributes.get(key);
+    }
+
+    @Override
+    public void removeAttribute(String key) {
+        this.attributes.remove(key);
+    }
+
+    @Override
+    public void addAttribute(String key, Object value) {
+        this.attributes.put(key, value);
+    }
+
+    @Override
+    public Set<Triple> getUnderLines() {
+        return new HashSet<>(this.underLineTriples);
+    }
+
+    @Override
+    public Set<Triple> getDottedUnderlines() {
+        return new HashSet<>(this.dottedUnderLineTriples);
+    }
+
+    @Override
+    public Set<Triple> getAmbiguousTriples() {
+        return new HashSet<>(this.ambiguousTriples);
+    }
+
+    @Override
+    public boolean isAmbiguousTriple(Node x, Node y, Node z) {
+        return this.ambiguousTriples.contains(new Triple(x, y, z));
+    }
+
+    @Override
+    public boolean isUnderlineTriple(Node x, Node y, Node z) {
+        return this.underLineTriples.contains(new Triple(x, y, z));
+    }
+
+    @Override
+    public void addAmbiguousTriple(Node x, Node y, Node z) {
+        this.ambiguousTriples.add(new Triple(x, y, z));
+    }
+
+    @Override
+    public void addUnderlineTriple(Node x, Node y, Node z) {
+        Triple triple = new Triple(x, y, z);
+
+        if (!triple.alongPathIn(this)) {
+            return;
+        }
+
+        this.underLineTriples.add(triple);
+    }
+
+    @Override
+    public void addDottedUnderlineTriple(Node x, Node y, Node z) {
+        Triple triple = new Triple(x, y, z);
+
+        if (!triple.alongPathIn(this)) {
+            return;
+        }
+
+        this.dottedUnderLineTriples.add(triple);
+    }
+
+    @Override
+    public void removeAmbiguousTriple(Node x, Node y, Node z) {
+        this.ambiguousTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void removeUnderlineTriple(Node x, Node y, Node z) {
+        this.underLineTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void removeDottedUnderlineTriple(Node x, Node y, Node z) {
+        this.dottedUnderLineTriples.remove(new Triple(x, y, z));
+    }
+
+    @Override
+    public void setUnderLineTriples(Set<Triple> triples) {
+        this.underLineTriples.clear();
+
+        for (Triple triple : triples) {
+            addUnderlineTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public void setDottedUnderLineTriples(Set<Triple> triples) {
+        this.dottedUnderLineTriples.clear();
+
+        for (Triple triple : triples) {
+            addDottedUnderlineTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public void setAmbiguousTriples(Set<Triple> triples) {
+        this.ambiguousTriples.clear();
+
+        for (Triple triple : triples) {
+            addAmbiguousTriple(triple.getX(), triple.getY(), triple.getZ());
+        }
+    }
+
+    @Override
+    public void removeTriplesNotInGraph() {
+        if (this.ambiguousTriples.isEmpty() && this.underLineTriples.isEmpty()
+                && this.dottedUnderLineTriples.isEmpty()) {
+            return;
+        }
+
+        this.ambiguousTriples.removeIf(t -> !isAdjacentTo(t.getX(), t.getY()) || !isAdjacentTo(t.getY(), t.getZ()));
+        this.underLineTriples.removeIf(t -> !isAdjacentTo(t.getX(), t.getY()) || !isAdjacentTo(t.getY(), t.getZ()));
+        this.dottedUnderLineTriples.removeIf(t -> !isAdjacentTo(t.getX(), t.getY())
+                || !isAdjacentTo(t.getY(), t.getZ()));
+    }
+
+    @Override
+    public List<String> getTriplesClassificationTypes() {
+        List<String> names = new ArrayList<>();
+        names.add("Underlines");
+        names.add("Dotted Underlines");
+        names.add("Ambiguous Triples");
+        return names;
+    }
+
+    @Override
+    public List<List<Triple>> getTriplesLists(Node node) {
+        List<List<Triple>> triplesList = new ArrayList<>();
+        triplesList.add(GraphUtils.getUnderlinedTriplesFromGraph(node, this));
+        triplesList.add(GraphUtils.getDottedUnderlinedTriplesFromGraph(node, this));
+        triplesList.add(GraphUtils.getAmbiguousTriplesFromGraph(node, this));
+        return triplesList;
+    }
+
+    //===============================PRIVATE METHODS======================//
+
+    // The slot of b in a's adjacency arrays, or -1 if a and b are not adjacent (or either is -1).
+    private int slot(int a, int b) {
+        if (a == -1 || b == -1) return -1;
+        int[] adj = this.neighbors[a];
+
+        for (int k = 0; k < this.degrees[a]; k++) {
+            if (adj[k] == b) return k;
+        }
+
+        return -1;
+    }
+
+    // True if the edge in slot k of b is b --> x or b o-> x.
+    private boolean pointsAway(int b, int k) {
+        return this.far[b][k] == ARROW && (this.near[b][k] == TAIL || this.near[b][k] == CIRCLE);
+    }
+
+    private int[] indicesWith(int a, byte nearMark, byte farMark) {
+        int[] result = new int[countWith(a, nearMark, farMark)];
+        int count = 0;
+
+        for (int k = 0; k < this.degrees[a]; k++) {
+            if (this.near[a][k] == nearMark && this.far[a][k] == farMark) {
+                result[count++] = this.neighbors[a][k];
+            }
+        }
+
+        return result;
+    }
+
+    private List<Node> nodesWith(int a, byte nearMark, byte farMark) {
+        List<Node> result = new ArrayList<>();
+        if (a == -1) return result;
+
+        for (int k = 0; k < this.degrees[a]; k++) {
+            if (this.near[a][k] == nearMark && this.far[a][k] == farMark) {
+                result.add(this.nodes.get(this.neighbors[a][k]));
+            }
+        }
+
+        return result;
+    }
+
+    private int countWith(int a, byte nearMark, byte farMark) {
+        if (a == -1) return 0;
+        int count = 0;
+
+        for (int k = 0; k < this.degrees[a]; k++) {
+            if (this.near[a][k] == nearMark && this.far[a][k] == farMark) count++;
+        }
+
+        return count;
+    }
+
+    private void append(int a, int b, byte nearMark, byte farMark, Edge edge) {
+        int d = this.degrees[a];
+
+        if (d == this.neighbors[a].length) {
+            int capacity = 2 * d;
+            this.neighbors[a] = Arrays.copyOf(this.neighbors[a], capacity);
+            this.near[a] = Arrays.copyOf(this.near[a], capacity);
+            this.far[a] = Arrays.copyOf(this.far[a], capacity);
+            this.edges[a] = Arrays.copyOf(this.edges[a], capacity);
+        }
+
+        this.neighbors[a][d] = b;
+        this.near[a][d] = nearMark;
+        this.far[a][d] = farMark;
+        this.edges[a][d] = edge;
+        this.degrees[a] = d + 1;
+    }
+
+    // Removes slot k of a by moving the last slot into it.
+    private void delete(int a, int k) {
+        int last = --this.degrees[a];
+        this.neighbors[a][k] = this.neighbors[a][last];
+        this.near[a][k] = this.near[a][last];
+        this.far[a][k] = this.far[a][last];
+        this.edges[a][k] = this.edges[a][last];
+        this.edges[a][last] = null;
+    }
+
+    // Replaces the edge in slot k of a, whose neighbor is b, with the given marks (at a and at b) and edge.
+    private void replace(int a, int k, int b, byte markA, byte markB, Edge edge) {
+        this.near[a][k] = markA;
+        this.far[a][k] = markB;
+        this.edges[a][k] = edge;
+
+        int j = slot(b, a);
+        this.near[b][j] = markB;
+        this.far[b][j] = markA;
+        this.edges[b][j] = edge;
+    }
+
+    private void ensureNodeCapacity(int n) {
+        if (n <= this.degrees.length) return;
+        int capacity = Math.max(n, 2 * this.degrees.length);
+        this.neighbors = Arrays.copyOf(this.neighbors, capacity);
+        this.near = Arrays.copyOf(this.near, capacity);
+        this.far = Arrays.copyOf(this.far, capacity);
+        this.edges = Arrays.copyOf(this.edges, capacity);
+        this.degrees = Arrays.copyOf(this.degrees, capacity);
+    }
+
+    private PropertyChangeSupport getPcs() {
+        if (this.pcs == null) {
+            this.pcs = new PropertyChangeSupport(this);
+        }
+        return this.pcs;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method must have the standard signature for a
+     * readObject method, and the body of the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from version to version. A readObject method of
+     * this form may be added to any class, even if Tetrad sessions were previously saved out using a version of the
+     * class that didn't include it. (That's what the "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for
+     * help.)
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (this.neighbors == null || this.near == null || this.far == null || this.edges == null
+                || this.degrees == null) {
+            throw new NullPointerException();
+        }
+    }
+}
@@ -0,0 +1,481 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.graph;
+
+import java.util.*;
+
+/**
+ * <p>Answers m-separation and ancestry queries against a fixed graph. The graph is compiled once into int arrays: for
+ * each node, the neighbor index, the endpoint at the node, and the position of the same edge in the neighbor's list,
+ * for each of its edges. Ancestor sets are compiled into bitsets (for graphs of up to ANCESTOR_BITSET_LIMIT nodes;
+ * beyond that they are found per query by a backward search). The Bayes-ball search over (edge, direction) states
+ * then runs on an int queue with visited marks stamped into a reused int array, so that a query allocates nothing
+ * proportional to the size of the graph.</p>
+ *
+ * <p>The rules are those of Paths.isMConnectedTo(Node, Node, Set): a path is m-connecting given Z if each collider on
+ * it is an ancestor of some member of Z and each noncollider (or underlined collider) is not in Z. Edits to the graph
+ * after construction are not seen; construct a new engine instead.</p>
+ *
+ * <p>The engine is safe to use from several threads at once; scratch space is kept per thread. The batch method
+ * isMSeparated(List) groups the facts by (x, Z) and answers each group with one search.</p>
+ *
+ * @see Paths#isMConnectedTo(Node, Node, Set)
+ * @see edu.cmu.tetrad.search.test.MsepTest
+ */
+public final class MsepEngine {
+
+    /**
+     * The largest number of nodes for which ancestor sets are precomputed as bitsets; these take n^2 / 8 bytes.
+     */
+    public static final int ANCESTOR_BITSET_LIMIT = 10000;
+
+    // The nodes, by index, and the map back.
+    private final List<Node> nodes;
+    private final Map<Node, Integer> indices;
+
+    // For node b and slot k, neighbors[b][k] is the other node of b's k'th edge, arrowAt[b][k] is true iff that
+    // edge has an arrowhead at b, and mirror[b][k] is the slot of the same edge in the neighbor's lists.
+    private final int[][] neighbors;
+    private final boolean[][] arrowAt;
+    private final int[][] mirror;
+
+    // offsets[b] + k numbers the state "arrived at b along b's k'th edge"; stateNodes maps each state back to b.
+    private final int[] offsets;
+    private final int[] stateNodes;
+
+    // The parents of each node.
+    private final int[][] parents;
+
+    // ancestors[v] is a bitset of the ancestors of v, including v; null if there are too many nodes.
+    private final long[][] ancestors;
+
+    // Underlined triples a-b-c, encoded by key(a, b, c), in both directions.
+    private final Set<Long> underlines;
+
+    // Per-thread scratch space.
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Compiles the given graph.
+     *
+     * @param graph The graph, which may be a DAG, CPDAG, MAG or PAG.
+     */
+    public MsepEngine(Graph graph) {
+        if (graph == null) throw new NullPointerException("Null graph");
+
+        this.nodes = new ArrayList<>(graph.getNodes());
+        int n = this.nodes.size();
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            this.indices.put(this.nodes.get(i), i);
+        }
+
+        this.neighbors = new int[n][];
+        this.arrowAt = new boolean[n][];
+        this.mirror = new int[n][];
+        this.offsets = new int[n + 1];
+        this.parents = new int[n][];
+
+        List<List<Edge>> incident = new ArrayList<>(n);
+
+        for (int b = 0; b < n; b++) {
+            List<Edge> edges = graph.getEdges(this.nodes.get(b));
+            incident.add(edges);
+            Node _b = this.nodes.get(b);
+            int d = edges.size();
+            this.neighbors[b] = new int[d];
+            this.arrowAt[b] = new boolean[d];
+            this.mirror[b] = new int[d];
+            int numParents = 0;
+
+            for (int k = 0; k < d; k++) {
+                Edge edge = edges.get(k);
+                this.neighbors[b][k] = this.indices.get(edge.getDistalNode(_b));
+                this.arrowAt[b][k] = edge.getProximalEndpoint(_b) == Endpoint.ARROW;
+                if (this.arrowAt[b][k] && edge.getDistalEndpoint(_b) == Endpoint.TAIL) numParents++;
+            }
+
+            this.parents[b] = new int[numParents];
+            int p = 0;
+
+            for (int k = 0; k < d; k++) {
+                if (this.arrowAt[b][k] && edges.get(k).getDistalEndpoint(_b) == Endpoint.TAIL) {
+                    this.parents[b][p++] = this.neighbors[b][k];
+                }
+            }
+
+            this.offsets[b + 1] = this.offsets[b] + d;
+        }
+
+        this.stateNodes = new int[this.offsets[n]];
+
+        for (int b = 0; b < n; b++) {
+            Arrays.fill(this.stateNodes, this.offsets[b], this.offsets[b + 1], b);
+        }
+
+        for (int b = 0; b < n; b++) {
+            for (int k = 0; k < this.neighbors[b].length; k++) {
+                int c = this.neighbors[b][k];
+                this.mirror[b][k] = incident.get(c).indexOf(incident.get(b).get(k));
+            }
+        }
+
+        this.underlines = new HashSet<>();
+
+        for (Triple triple : graph.getUnderLines()) {
+            Integer a = this.indices.get(triple.getX());
+            Integer b = this.indices.get(triple.getY());
+            Integer c = this.indices.get(triple.getZ());
+            if (a == null || b == null || c == null) continue;
+            this.underlines.add(key(a, b, c));
+            this.underlines.add(key(c, b, a));
+        }
+
+        this.ancestors = n <= ANCESTOR_BITSET_LIMIT ? ancestorBitsets() : null;
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    /**
+     * @return the nodes of the graph, in index order.
+     */
+    public List<Node> getNodes() {
+        return new ArrayList<>(this.nodes);
+    }
+
+    /**
+     * @return the index of the given node, or -1 if it is not in the graph.
+     */
+    public int getIndex(Node node) {
+        Integer index = this.indices.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return true iff x and y are m-connected given z.
+     */
+    public boolean isMConnectedTo(Node x, Node y, Set<Node> z) {
+        return isMConnectedTo(index(x), index(y), indices(z));
+    }
+
+    /**
+     * @return true iff x and y are m-separated given z.
+     */
+    public boolean isMSeparated(Node x, Node y, Set<Node> z) {
+        return !isMConnectedTo(x, y, z);
+    }
+
+    /**
+     * @return true iff the nodes with indices x and y are m-connected given the nodes with indices z.
+     */
+    public boolean isMConnectedTo(int x, int y, int[] z) {
+        if (x == y) return true;
+        Scratch s = this.scratch.get();
+        s.prepare(z);
+        return search(s, x, y);
+    }
+
+    /**
+     * Decides a list of m-separation facts. Facts with the same x and Z are answered by a single search from x.
+     *
+     * @param facts The facts.
+     * @return An array whose i'th entry is true iff the i'th fact holds, i.e., x and y are m-separated given Z.
+     */
+    public boolean[] isMSeparated(List<IndependenceFact> facts) {
+        boolean[] separated = new boolean[facts.size()];
+        Map<List<Integer>, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < facts.size(); i++) {
+            IndependenceFact fact = facts.get(i);
+            int[] z = indices(fact.getZ());
+            Arrays.sort(z);
+            List<Integer> key = new ArrayList<>(z.length + 1);
+            key.add(index(fact.getX()));
+            for (int _z : z) key.add(_z);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        Scratch s = this.scratch.get();
+
+        for (Map.Entry<List<Integer>, List<Integer>> group : groups.entrySet()) {
+            List<Integer> key = group.getKey();
+            int x = key.get(0);
+            int[] z = new int[key.size() - 1];
+            for (int j = 0; j < z.length; j++) z[j] = key.get(j + 1);
+
+            s.prepare(z);
+            search(s, x, -1);
+
+            for (int i : group.getValue()) {
+                int y = index(facts.get(i).getY());
+                separated[i] = y != x && s.reached[y] != s.stamp;
+            }
+        }
+
+        return separated;
+    }
+
+    /**
+     * @return the nodes m-connected to x given z (which, as for Paths.getMConnectedVars, may include x itself).
+     */
+    public Set<Node> getMConnectedVars(Node x, Set<Node> z) {
+        Scratch s = this.scratch.get();
+        s.prepare(indices(z));
+        search(s, index(x), -1);
+        Set<Node> connected = new HashSet<>();
+
+        for (int v = 0; v < this.nodes.size(); v++) {
+            if (s.reached[v] == s.stamp) connected.add(this.nodes.get(v));
+        }
+
+        return connected;
+    }
+
+    /**
+     * @return true iff a is an ancestor of b; every node is an ancestor of itself.
+     */
+    public boolean isAncestorOf(Node a, Node b) {
+        return isAncestorOf(index(a), index(b));
+    }
+
+    /**
+     * @return true iff the node with index a is an ancestor of the node with index b.
+     */
+    public boolean isAncestorOf(int a, int b) {
+        if (this.ancestors != null) {
+            return (this.ancestors[b][a >>> 6] & (1L << a)) != 0L;
+        }
+
+        Scratch s = this.scratch.get();
+        s.prepare(new int[]{b});
+        return (s.zAncestors[a >>> 6] & (1L << a)) != 0L;
+    }
+
+    //===============================PRIVATE METHODS======================//
+
+    // Bayes-ball search from x over (edge, direction) states. Returns true as soon as y is reached; if y is -1,
+    // searches exhaustively, marking the nodes reached in s.reached. s must have been prepared.
+    private boolean search(Scratch s, int x, int y) {
+        int head = 0;
+        int tail = 0;
+
+        for (int k = 0; k < this.neighbors[x].length; k++) {
+            int b = this.neighbors[x][k];
+            if (b == y) return true;
+            s.reached[b] = s.stamp;
+            int state = this.offsets[b] + this.mirror[x][k];
+
+            if (s.visited[state] != s.stamp) {
+                s.visited[state] = s.stamp;
+                s.queue[tail++] = state;
+            }
+        }
+
+        while (head < tail) {
+            int state = s.queue[head++];
+            int b = this.stateNodes[state];
+            int k1 = state - this.offsets[b];
+            int a = this.neighbors[b][k1];
+            boolean arrow1 = this.arrowAt[b][k1];
+            boolean inZ = s.inZ[b] == s.stamp;
+            boolean ancestorOfZ = (s.zAncestors[b >>> 6] & (1L << b)) != 0L;
+
+            for (int k2 = 0; k2 < this.neighbors[b].length; k2++) {
+                int c = this.neighbors[b][k2];
+                if (c == a) continue;
+
+                boolean collider = arrow1 && this.arrowAt[b][k2];
+                boolean pass = ((!collider || isUnderline(a, b, c)) && !inZ) || (collider && ancestorOfZ);
+                if (!pass) continue;
+
+                if (c == y) return true;
+                s.reached[c] = s.stamp;
+                int next = this.offsets[c] + this.mirror[b][k2];
+
+                if (s.visited[next] != s.stamp) {
+                    s.visited[next] = s.stamp;
+                    s.queue[tail++] = next;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isUnderline(int a, int b, int c) {
+        return !this.underlines.isEmpty() && this.underlines.contains(key(a, b, c));
+    }
+
+    private long key(int a, int b, int c) {
+        long n = this.nodes.size();
+        return (a * n + b) * n + c;
+    }
+
+    // Ancestor bitsets, built in topological order if the directed part of the graph is acyclic and by a backward
+    // search from each node otherwise.
+    private long[][] ancestorBitsets() {
+        int n = this.nodes.size();
+        int words = (n + 63) >>> 6;
+        long[][] ancestors = new long[n][words];
+        int[] order = topologicalOrder();
+
+        if (order != null) {
+            for (int v : order) {
+                ancestors[v][v >>> 6] |= 1L << v;
+
+                for (int p : this.parents[v]) {
+                    for (int w = 0; w < words; w++) ancestors[v][w] |= ancestors[p][w];
+                }
+            }
+        } else {
+            int[] queue = new int[n];
+
+            for (int v = 0; v < n; v++) {
+                int head = 0;
+                int tail = 0;
+                ancestors[v][v >>> 6] |= 1L << v;
+                queue[tail++] = v;
+
+                while (head < tail) {
+                    int t = queue[head++];
+
+                    for (int p : this.parents[t]) {
+                        if ((ancestors[v][p >>> 6] & (1L << p)) == 0L) {
+                            ancestors[v][p >>> 6] |= 1L << p;
+                            queue[tail++] = p;
+                        }
+                    }
+                }
+            }
+        }
+
+        return ancestors;
+    }
+
+    // A topological order of the directed edges, parents first, or null if there is a directed cycle.
+    private int[] topologicalOrder() {
+        int n = this.nodes.size();
+        int[] numChildren = new int[n];
+        int[] inDegree = new int[n];
+        int[][] children = new int[n][];
+
+        for (int v = 0; v < n; v++) {
+            for (int p : this.parents[v]) numChildren[p]++;
+            inDegree[v] = this.parents[v].length;
+        }
+
+        for (int v = 0; v < n; v++) {
+            children[v] = new int[numChildren[v]];
+            numChildren[v] = 0;
+        }
+
+        for (int v = 0; v < n; v++) {
+            for (int p : this.parents[v]) children[p][numChildren[p]++] = v;
+        }
+
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) order[tail++] = v;
+        }
+
+        while (head < tail) {
+            int v = order[head++];
+
+            for (int c : children[v]) {
+                if (--inDegree[c] == 0) order[tail++] = c;
+            }
+        }
+
+        return tail == n ? order : null;
+    }
+
+    private int index(Node node) {
+        Integer index = this.indices.get(node);
+        if (index == null) throw new IllegalArgumentException("Node not in graph: " + node);
+        return index;
+    }
+
+    private int[] indices(Set<Node> z) {
+        int[] _z = new int[z.size()];
+        int i = 0;
+        for (Node node : z) _z[i++] = index(node);
+        return _z;
+    }
+
+    // Reused per-thread arrays. Marks are valid iff equal to stamp, so that nothing needs clearing between queries.
+    private final class Scratch {
+        private final int[] queue = new int[stateNodes.length];
+        private final int[] visited = new int[stateNodes.length];
+        private final int[] reached = new int[nodes.size()];
+        private final int[] inZ = new int[nodes.size()];
+        private final int[] ancestorQueue = new int[nodes.size()];
+        private final long[] zAncestors = new long[(nodes.size() + 63) >>> 6];
+        private int stamp = 0;
+
+        // Starts a new query with conditioning set z, computing the ancestors of z.
+        private void prepare(int[] z) {
+            if (++this.stamp == Integer.MAX_VALUE) {
+                Arrays.fill(this.visited, 0);
+                Arrays.fill(this.reached, 0);
+                Arrays.fill(this.inZ, 0);
+                this.stamp = 1;
+            }
+
+            Arrays.fill(this.zAncestors, 0L);
+
+            for (int _z : z) {
+                this.inZ[_z] = this.stamp;
+            }
+
+            if (ancestors != null) {
+                for (int _z : z) {
+                    long[] a = ancestors[_z];
+                    for (int w = 0; w < a.length; w++) this.zAncestors[w] |= a[w];
+                }
+            } else {
+                int head = 0;
+                int tail = 0;
+
+                for (int _z : z) {
+                    if ((this.zAncestors[_z >>> 6] & (1L << _z)) == 0L) {
+                        this.zAncestors[_z >>> 6] |= 1L << _z;
+                        this.ancestorQueue[tail++] = _z;
+                    }
+                }
+
+                while (head < tail) {
+                    int t = this.ancestorQueue[head++];
+
+                    for (int p : parents[t]) {
+                        if ((this.zAncestors[p >>> 6] & (1L << p)) == 0L) {
+                            this.zAncestors[p >>> 6] |= 1L << p;
+                            this.ancestorQueue[tail++] = p;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
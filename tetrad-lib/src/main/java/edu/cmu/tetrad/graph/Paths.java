@@ -902,15 +902,17 @@ public class Paths implements TetradSerializable {
      */
     public Map<Node, Set<Node>> getAncestorMap() {
         Map<Node, Set<Node>> ancestorsMap = new HashMap<>();
+        MsepEngine engine = new MsepEngine(graph);
+        List<Node> nodes = engine.getNodes();
 
-        for (Node node : graph.getNodes()) {
+        for (Node node : nodes) {
             ancestorsMap.put(node, new HashSet<>());
         }
 
-        for (Node n1 : graph.getNodes()) {
-            for (Node n2 : graph.getNodes()) {
-                if (isAncestor(n1, Collections.singleton(n2))) {
-                    ancestorsMap.get(n1).add(n2);
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = 0; j < nodes.size(); j++) {
+                if (engine.isAncestorOf(i, j)) {
+                    ancestorsMap.get(nodes.get(i)).add(nodes.get(j));
                 }
             }
         }
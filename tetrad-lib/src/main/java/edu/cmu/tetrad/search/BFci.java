@@ -140,7 +140,7 @@ public final class BFci implements IGraphSearch {
         this.graph = alg.search();
 
         Knowledge knowledge2 = new Knowledge(knowledge);
-        Graph referenceDag = new EdgeListGraph(this.graph);
+        Graph referenceDag = new IndexedGraph(this.graph);
         SepsetProducer sepsets = new SepsetsGreedy(this.graph, this.independenceTest, null, this.depth);
 
         // FCI extra edge removal step
@@ -159,7 +159,7 @@ public final class BFci implements IGraphSearch {
 
         GraphUtils.replaceNodes(this.graph, this.independenceTest.getVariables());
 
-        return this.graph;
+        return new EdgeListGraph(this.graph);
     }
 
     /**
@@ -216,7 +216,7 @@ public final class BFci implements IGraphSearch {
 
     // Due to Spirtes.
     private void modifiedR0(Graph fgesGraph, SepsetProducer sepsets) {
-        this.graph = new EdgeListGraph(graph);
+        this.graph = new IndexedGraph(graph);
         this.graph.reorientAllWith(Endpoint.CIRCLE);
         fciOrientbk(this.knowledge, this.graph, this.graph.getNodes());
 
@@ -6,8 +6,13 @@ import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.score.Score;
 import edu.cmu.tetrad.search.utils.BesPermutation;
 import edu.cmu.tetrad.search.utils.GrowShrinkTree;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static edu.cmu.tetrad.util.RandomUtil.shuffle;
 
@@ -77,6 +82,7 @@ public class Boss implements SuborderSearch {
     private Knowledge knowledge = new Knowledge();
     private BesPermutation bes = null;
     private int numStarts = 1;
+    private boolean parallelized = false;
 
     /**
      * This algorithm will work with an arbitrary BIC score.
@@ -97,37 +103,68 @@ public class Boss implements SuborderSearch {
         assert this.numStarts > 0;
         this.gsts = gsts;
 
-        List<Node> bestSuborder = null;
-        double score, bestScore = Double.NEGATIVE_INFINITY;
-        boolean improved;
+        // The initial orders are drawn up front so that each start sees the same permutation however the starts
+        // are scheduled.
+        List<List<Node>> orders = new ArrayList<>();
 
         for (int i = 0; i < this.numStarts; i++) {
             shuffle(suborder);
-            makeValidKnowledgeOrder(suborder);
+            List<Node> order = new ArrayList<>(suborder);
+            makeValidKnowledgeOrder(order);
+            orders.add(order);
+        }
 
-            do {
-                improved = false;
-                for (Node x : new ArrayList<>(suborder)) {
-                    if (betterMutation(prefix, suborder, x)) improved = true;
-                }
-            } while (improved);
+        Set<List<Node>> visited = ConcurrentHashMap.newKeySet();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        double[] scores = new double[this.numStarts];
+
+        if (this.parallelized && this.numStarts > 1) {
+            List<Future<Double>> futures = new ArrayList<>();
 
-            if (this.bes != null) bes(prefix, suborder);
+            for (List<Node> order : orders) {
+                futures.add(ForkJoinPoolInstance.getInstance().getPool().submit(() -> runStart(prefix, order, visited, cancelled)));
+            }
 
-            score = update(prefix, suborder);
-            if (score > bestScore) {
-                bestSuborder = new ArrayList<>(suborder);
-                bestScore = score;
+            try {
+                for (int i = 0; i < this.numStarts; i++) {
+                    scores[i] = futures.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                cancelled.set(true);
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        } else {
+            for (int i = 0; i < this.numStarts; i++) {
+                if (Thread.currentThread().isInterrupted()) cancelled.set(true);
+                scores[i] = runStart(prefix, orders.get(i), visited, cancelled);
             }
         }
 
-        suborder.clear();
+        // Which of two starts that meet is abandoned depends on timing, so ties are broken on the orders themselves
+        // rather than on the start numbers.
+        List<Node> bestSuborder = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < this.numStarts; i++) {
+            if (scores[i] == Double.NEGATIVE_INFINITY) continue;
+
+            if (bestSuborder == null || scores[i] > bestScore
+                || (scores[i] == bestScore && compareOrders(orders.get(i), bestSuborder) < 0)) {
+                bestSuborder = orders.get(i);
+                bestScore = scores[i];
+            }
+        }
 
         if (bestSuborder != null) {
+            suborder.clear();
             suborder.addAll(bestSuborder);
         }
 
-        update(prefix, suborder);
+        update(prefix, suborder, this.parents);
     }
 
     /**
@@ -162,6 +199,17 @@ public class Boss implements SuborderSearch {
         this.numStarts = numStarts;
     }
 
+    /**
+     * Sets whether the random starts should be run concurrently. Each start keeps its own order and parents, but the
+     * grow-shrink trees, and so the local scores, are shared among them. The score must be safe to call from more
+     * than one thread. Default is false.
+     *
+     * @param parallelized True if so.
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+
     @Override
     public List<Node> getVariables() {
         return this.variables;
@@ -177,6 +225,40 @@ public class Boss implements SuborderSearch {
         return this.score;
     }
 
+    /**
+     * Runs one start from the given order, leaving the final order in it. A start is abandoned as soon as it reaches
+     * an order some other start has already reached, since from there on it would repeat that start's work.
+     *
+     * @return The score of the final order, or negative infinity if the start was abandoned.
+     */
+    private double runStart(List<Node> prefix, List<Node> order, Set<List<Node>> visited, AtomicBoolean cancelled) {
+        if (!visited.add(new ArrayList<>(order))) return Double.NEGATIVE_INFINITY;
+        boolean improved;
+
+        do {
+            improved = false;
+            for (Node x : new ArrayList<>(order)) {
+                if (betterMutation(prefix, order, x)) improved = true;
+            }
+
+            if (cancelled.get()) return Double.NEGATIVE_INFINITY;
+            if (improved && !visited.add(new ArrayList<>(order))) return Double.NEGATIVE_INFINITY;
+        } while (improved);
+
+        // The parents of the prefix were settled by earlier suborders; the rest are filled in for this start.
+        Map<Node, Set<Node>> parents = new HashMap<>();
+        for (Node x : this.variables) {
+            parents.put(x, new HashSet<>(this.parents.get(x)));
+        }
+
+        if (this.bes != null) {
+            update(prefix, order, parents);
+            bes(prefix, order, parents);
+        }
+
+        return update(prefix, order, parents);
+    }
+
     private boolean betterMutation(List<Node> prefix, List<Node> suborder, Node x) {
         Set<Node> all = new HashSet<>(suborder);
         all.addAll(prefix);
@@ -231,16 +313,16 @@ public class Boss implements SuborderSearch {
         return true;
     }
 
-    private void bes(List<Node> prefix, List<Node> suborder) {
+    private void bes(List<Node> prefix, List<Node> suborder, Map<Node, Set<Node>> parents) {
         List<Node> all = new ArrayList<>(prefix);
         all.addAll(suborder);
 
-        Graph graph = PermutationSearch.getGraph(all, this.parents, this.knowledge, true);
+        Graph graph = PermutationSearch.getGraph(all, parents, this.knowledge, true);
         this.bes.bes(graph, all, suborder);
         graph.paths().makeValidOrder(suborder);
     }
 
-    private double update(List<Node> prefix, List<Node> suborder) {
+    private double update(List<Node> prefix, List<Node> suborder, Map<Node, Set<Node>> parents) {
         double score = 0;
         Set<Node> all = new HashSet<>(suborder);
         all.addAll(prefix);
@@ -248,15 +330,24 @@ public class Boss implements SuborderSearch {
         Set<Node> Z = new HashSet<>(prefix);
 
         for (Node x : suborder) {
-            Set<Node> parents = this.parents.get(x);
-            parents.clear();
-            score += this.gsts.get(x).trace(Z, all, parents);
+            Set<Node> _parents = parents.get(x);
+            _parents.clear();
+            score += this.gsts.get(x).trace(Z, all, _parents);
             Z.add(x);
         }
 
         return score;
     }
 
+    private static int compareOrders(List<Node> order1, List<Node> order2) {
+        for (int i = 0; i < order1.size(); i++) {
+            int c = order1.get(i).getName().compareTo(order2.get(i).getName());
+            if (c != 0) return c;
+        }
+
+        return 0;
+    }
+
     private void makeValidKnowledgeOrder(List<Node> order) {
         if (!this.knowledge.isEmpty()) {
             order.sort((a, b) -> {
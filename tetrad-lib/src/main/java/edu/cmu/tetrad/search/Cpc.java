@@ -27,6 +27,7 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Triple;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.search.utils.FasParallelism;
 import edu.cmu.tetrad.search.utils.PcCommon;
 import edu.cmu.tetrad.search.utils.SepsetMap;
 import edu.cmu.tetrad.util.MillisecondTimes;
@@ -76,11 +77,12 @@ public final class Cpc implements IGraphSearch {
     private final TetradLogger logger = TetradLogger.getInstance();
     private SepsetMap sepsets;
     private int depth = 1000;
-    private boolean stable = true;
+    private boolean stable = false;
     private boolean meekPreventCycles = true;
     private PcCommon.ConflictRule conflictRule = PcCommon.ConflictRule.PRIORITIZE_EXISTING;
     private boolean verbose = false;
     private PcCommon.PcHeuristicType pcHeuristicType = PcCommon.PcHeuristicType.NONE;
+    private final FasParallelism fasParallelism = new FasParallelism();
 
     //=============================CONSTRUCTORS==========================//
 
@@ -120,6 +122,7 @@ public final class Cpc implements IGraphSearch {
         fas.setKnowledge(getKnowledge());
         fas.setDepth(getDepth());
         fas.setVerbose(this.verbose);
+        this.fasParallelism.configure(fas);
 
         // Note that we are ignoring the sepset map returned by this method
         // on purpose; it is not used in this search.
@@ -142,6 +145,8 @@ public final class Cpc implements IGraphSearch {
         search.setColliderDiscovery(PcCommon.ColliderDiscovery.CONSERVATIVE);
         search.setConflictRule(conflictRule);
         search.setVerbose(verbose);
+        search.setParallelized(this.fasParallelism.isParallelized());
+        search.setNumThreads(this.fasParallelism.getNumThreads());
 
         this.graph = search.search();
         this.sepsets = fas.getSepsets();
@@ -285,7 +290,7 @@ public final class Cpc implements IGraphSearch {
     }
 
     /**
-     * <p>Sets whether the stable adjacency search should be used. Default is false. Default is false. See the
+     * <p>Sets whether the stable adjacency search should be used. Default is false. See the
      * following reference for this:</p>
      *
      * <p>Colombo, D., & Maathuis, M. H. (2014). Order-independent constraint-based causal structure learning. J. Mach.
@@ -297,6 +302,27 @@ public final class Cpc implements IGraphSearch {
         this.stable = stable;
     }
 
+    /**
+     * Sets whether the edges at each depth of the adjacency search should be tested in parallel. This gives the
+     * same result as the stable adjacency search. Default is false.
+     *
+     * @param parallelized True iff the case.
+     * @see Fas#setParallelized(boolean)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.fasParallelism.setParallelized(parallelized);
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel adjacency search.
+     *
+     * @param numThreads This number; must be at least 1.
+     * @see Fas#setNumThreads(int)
+     */
+    public void setNumThreads(int numThreads) {
+        this.fasParallelism.setNumThreads(numThreads);
+    }
+
     /**
      * Sets which conflict rule to use for resolving collider orientation conflicts.
      *
@@ -781,16 +781,8 @@ public class Cstar {
                 }
             }
         } else {
-            ForkJoinPool executorService = ForkJoinPool.commonPool();
-
-            try {
-                List<Future<double[][]>> futures = executorService.invokeAll(tasks);
-
-                for (Future<double[][]> future : futures) {
-                    results.add(future.get());
-                }
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+            for (double[][] result : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+                results.add(result);
             }
         }
 
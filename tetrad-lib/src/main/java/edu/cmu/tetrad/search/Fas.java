@@ -25,15 +25,19 @@ import edu.cmu.tetrad.data.Knowledge;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.test.IndependenceResult;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.search.utils.FasParallelism;
 import edu.cmu.tetrad.search.utils.PcCommon;
 import edu.cmu.tetrad.search.utils.SepsetMap;
 import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.LogUtils;
 import edu.cmu.tetrad.util.MillisecondTimes;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Implements the Fast Adjacency Search (FAS), which is the adjacency search of the PC algorithm (see). This is a
@@ -69,14 +73,15 @@ public class Fas implements IFas {
     private final IndependenceTest test;
     private final TetradLogger logger = TetradLogger.getInstance();
     private Knowledge knowledge = new Knowledge();
-    private int numIndependenceTests;
+    private final AtomicInteger numIndependenceTests = new AtomicInteger();
     private SepsetMap sepset = new SepsetMap();
     private PcCommon.PcHeuristicType heuristic = PcCommon.PcHeuristicType.NONE;
     private int depth = 1000;
-    private boolean stable = true;
+    private boolean stable = false;
     private long elapsedTime = 0L;
     private PrintStream out = System.out;
     private boolean verbose = false;
+    private final FasParallelism parallelism = new FasParallelism();
 
     //==========================CONSTRUCTORS=============================//
 
@@ -155,6 +160,9 @@ public class Fas implements IFas {
         }
 
         Map<Node, Set<Node>> adjacencies = new HashMap<>();
+        ForkJoinPoolInstance.Scope scope = this.parallelism.isParallelized()
+                ? ForkJoinPoolInstance.getInstance().withParallelism(this.parallelism.getNumThreads()) : null;
+        ForkJoinPool pool = scope != null ? scope.getPool() : null;
 
         for (Node node : nodes) {
             Set<Node> set = new LinkedHashSet<>();
@@ -178,26 +186,30 @@ public class Fas implements IFas {
             }
         }
 
-        for (int d = 0; d <= _depth; d++) {
-            System.out.println("Depth: " + d);
+        try {
+            for (int d = 0; d <= _depth; d++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
 
-            boolean more;
+                if (verbose) {
+                    this.logger.forceLogMessage("Depth: " + d);
+                }
 
-//            if (this.stable) {
-//                Map<Node, Set<Node>> adjacenciesCopy = new HashMap<>();
-//
-//                for (Node node : adjacencies.keySet()) {
-//                    adjacenciesCopy.put(node, new LinkedHashSet<>(adjacencies.get(node)));
-//                }
-//
-//                adjacencies = adjacenciesCopy;
-//            }
+                boolean more;
 
-            more = searchAtDepth(scores, edges, this.test, adjacencies, d);
+                if (pool != null) {
+                    more = searchAtDepthParallel(scores, edges, this.test, adjacencies, d, pool);
+                } else {
+                    more = searchAtDepth(scores, edges, this.test, adjacencies, d);
+                }
 
-            if (!more) {
-                break;
+                if (!more) {
+                    break;
+                }
             }
+        } finally {
+            if (scope != null) scope.close();
         }
 
         // The search graph. It is assumed going in that all the true adjacencies of x are in this graph for every node
@@ -255,7 +267,7 @@ public class Fas implements IFas {
      * @return This number.
      */
     public int getNumIndependenceTests() {
-        return this.numIndependenceTests;
+        return this.numIndependenceTests.get();
     }
 
     /**
@@ -325,7 +337,7 @@ public class Fas implements IFas {
     }
 
     /**
-     * <p>Sets whether the stable adjacency search should be used. Default is false. Default is false. See the
+     * <p>Sets whether the stable adjacency search should be used. Default is false. See the
      * following reference for this:</p>
      *
      * <p>Colombo, D., & Maathuis, M. H. (2014). Order-independent constraint-based causal structure learning. J. Mach.
@@ -337,6 +349,30 @@ public class Fas implements IFas {
         this.stable = stable;
     }
 
+    /**
+     * Sets whether the edges at each depth should be tested in parallel. The parallel search is the stable search
+     * (see setStable), with all edges at a given depth tested concurrently against the adjacencies as they were at
+     * the start of that depth; removals and sepsets are then recorded in edge order once all tests at that depth
+     * are done, so the result is the same as for the sequential stable search, whatever the number of threads. The
+     * independence test must be safe to call from more than one thread. Default is false.
+     *
+     * @param parallelized True iff the case.
+     * @see #setNumThreads(int)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelism.setParallelized(parallelized);
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel search. Default is the number of available processors.
+     *
+     * @param numThreads This number; must be at least 1.
+     * @see #setParallelized(boolean)
+     */
+    public void setNumThreads(int numThreads) {
+        this.parallelism.setNumThreads(numThreads);
+    }
+
     //==============================PRIVATE METHODS======================/
 
     private int freeDegree(Map<Node, Set<Node>> adjacencies) {
@@ -360,6 +396,10 @@ public class Fas implements IFas {
 
     private boolean searchAtDepth(Map<Edge, Double> scores, List<Edge> edges, IndependenceTest test, Map<Node, Set<Node>> adjacencies, int depth) {
 
+        // For the stable search, conditioning sets are drawn from the adjacencies as they were at the start of
+        // this depth.
+        Map<Node, Set<Node>> adjacenciesAtDepth = this.stable ? copy(adjacencies) : adjacencies;
+
         for (Edge edge : edges) {
             Node x = edge.getNode1();
             Node y = edge.getNode2();
@@ -368,16 +408,58 @@ public class Fas implements IFas {
                 break;
             }
 
-            boolean b = checkSide(scores, test, adjacencies, depth, x, y);
-            if (!b) checkSide(scores, test, adjacencies, depth, y, x);
+            if (!adjacencies.get(x).contains(y)) continue;
+
+            Set<Node> sepset = findSepset(scores, test, adjacenciesAtDepth, depth, x, y);
+            if (sepset != null) removeEdge(adjacencies, x, y, sepset);
         }
 
         return freeDegree(adjacencies) > depth;
     }
 
-    private boolean checkSide(Map<Edge, Double> scores, IndependenceTest test, Map<Node, Set<Node>> adjacencies, int depth, Node x, Node y) {
-        if (!adjacencies.get(x).contains(y)) return false;
+    private boolean searchAtDepthParallel(Map<Edge, Double> scores, List<Edge> edges, IndependenceTest test,
+                                          Map<Node, Set<Node>> adjacencies, int depth, ForkJoinPool pool) {
+        Map<Node, Set<Node>> adjacenciesAtDepth = copy(adjacencies);
+        List<Edge> toTest = new ArrayList<>();
+        List<Future<Set<Node>>> futures = new ArrayList<>();
+
+        for (Edge edge : edges) {
+            Node x = edge.getNode1();
+            Node y = edge.getNode2();
+
+            if (!adjacencies.get(x).contains(y)) continue;
 
+            toTest.add(edge);
+            futures.add(pool.submit(() -> findSepset(scores, test, adjacenciesAtDepth, depth, x, y)));
+        }
+
+        try {
+            for (int i = 0; i < toTest.size(); i++) {
+                Set<Node> sepset = futures.get(i).get();
+                Edge edge = toTest.get(i);
+                if (sepset != null) removeEdge(adjacencies, edge.getNode1(), edge.getNode2(), sepset);
+            }
+        } catch (InterruptedException e) {
+            for (Future<Set<Node>> future : futures) future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            for (Future<Set<Node>> future : futures) future.cancel(true);
+            throw new RuntimeException(e.getCause());
+        }
+
+        return freeDegree(adjacencies) > depth;
+    }
+
+    // Returns a sepset of the given size for x and y from among the adjacencies of x, or failing that of y, or
+    // null if there is none.
+    private Set<Node> findSepset(Map<Edge, Double> scores, IndependenceTest test, Map<Node, Set<Node>> adjacencies,
+                                 int depth, Node x, Node y) {
+        Set<Node> sepset = checkSide(scores, test, adjacencies, depth, x, y);
+        if (sepset == null) sepset = checkSide(scores, test, adjacencies, depth, y, x);
+        return sepset;
+    }
+
+    private Set<Node> checkSide(Map<Edge, Double> scores, IndependenceTest test, Map<Node, Set<Node>> adjacencies, int depth, Node x, Node y) {
         List<Node> _adjx = new ArrayList<>(adjacencies.get(x));
         _adjx.remove(y);
 
@@ -399,8 +481,6 @@ public class Fas implements IFas {
             Collections.reverse(ppx);
         }
 
-        Graph g0 = new EdgeListGraph(getNodes());
-
         if (ppx.size() >= depth) {
             ChoiceGenerator cg = new ChoiceGenerator(ppx.size(), depth);
             int[] choice;
@@ -412,14 +492,7 @@ public class Fas implements IFas {
 
                 Set<Node> Z = GraphUtils.asSet(choice, ppx);
 
-                this.numIndependenceTests++;
-
-//                System.out.println("Checking independence of " + x.getName() + " and " + y.getName() + " given " + Z);
-
-                if (x.getName().equals("X2") && y.getName().equals("X3") && Z.contains(g0.getNode("X1"))) {
-                    System.out.println("here");
-                    test.checkIndependence(x, y, Z).isIndependent();
-                }
+                this.numIndependenceTests.incrementAndGet();
 
                 boolean independent = test.checkIndependence(x, y, Z).isIndependent();
 
@@ -427,18 +500,30 @@ public class Fas implements IFas {
                         this.knowledge.noEdgeRequired(x.getName(), y.getName());
 
                 if (independent && noEdgeRequired) {
-                    adjacencies.get(x).remove(y);
-                    adjacencies.get(y).remove(x);
-
-                    getSepsets().set(x, y, Z);
-
-                    return true;
+                    return Z;
                 }
 
             }
         }
 
-        return false;
+        return null;
+    }
+
+    private void removeEdge(Map<Node, Set<Node>> adjacencies, Node x, Node y, Set<Node> sepset) {
+        adjacencies.get(x).remove(y);
+        adjacencies.get(y).remove(x);
+
+        getSepsets().set(x, y, sepset);
+    }
+
+    private static Map<Node, Set<Node>> copy(Map<Node, Set<Node>> adjacencies) {
+        Map<Node, Set<Node>> copy = new HashMap<>();
+
+        for (Node node : adjacencies.keySet()) {
+            copy.put(node, new LinkedHashSet<>(adjacencies.get(node)));
+        }
+
+        return copy;
     }
 
     private List<Node> possibleParents(Node x, List<Node> adjx,
@@ -22,11 +22,14 @@
 package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.Knowledge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.IndexedGraph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.test.IndependenceTest;
 import edu.cmu.tetrad.search.utils.FciOrient;
+import edu.cmu.tetrad.search.utils.FasParallelism;
 import edu.cmu.tetrad.search.utils.PcCommon;
 import edu.cmu.tetrad.search.utils.SepsetMap;
 import edu.cmu.tetrad.search.utils.SepsetsSet;
@@ -85,7 +88,8 @@ public final class Fci implements IGraphSearch {
     private final TetradLogger logger = TetradLogger.getInstance();
     private boolean verbose;
     private PcCommon.PcHeuristicType heuristic = PcCommon.PcHeuristicType.NONE;
-    private boolean stable = true;
+    private boolean stable = false;
+    private final FasParallelism fasParallelism = new FasParallelism();
     private boolean doDiscriminatingPathRule = true;
 
     //============================CONSTRUCTORS============================//
@@ -152,9 +156,10 @@ public final class Fci implements IGraphSearch {
         fas.setPcHeuristicType(this.heuristic);
         fas.setVerbose(this.verbose);
         fas.setStable(this.stable);
+        this.fasParallelism.configure(fas);
 
         //The PAG being constructed.
-        Graph graph = fas.search();
+        Graph graph = new IndexedGraph(fas.search());
         this.sepsets = fas.getSepsets();
 
         graph.reorientAllWith(Endpoint.CIRCLE);
@@ -190,7 +195,7 @@ public final class Fci implements IGraphSearch {
 
         this.elapsedTime = stop - start;
 
-        return graph;
+        return new EdgeListGraph(graph);
     }
 
     /**
@@ -309,7 +314,7 @@ public final class Fci implements IGraphSearch {
     }
 
     /**
-     * Sets whether the stable options hould be used in the initial adjacency search.
+     * Sets whether the stable option should be used in the initial adjacency search. Default is false.
      *
      * @param stable True if so.
      * @see Pc
@@ -318,6 +323,27 @@ public final class Fci implements IGraphSearch {
         this.stable = stable;
     }
 
+    /**
+     * Sets whether the edges at each depth of the adjacency search should be tested in parallel. This gives the
+     * same result as the stable adjacency search. Default is false.
+     *
+     * @param parallelized True iff the case.
+     * @see Fas#setParallelized(boolean)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.fasParallelism.setParallelized(parallelized);
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel adjacency search.
+     *
+     * @param numThreads This number; must be at least 1.
+     * @see Fas#setNumThreads(int)
+     */
+    public void setNumThreads(int numThreads) {
+        this.fasParallelism.setNumThreads(numThreads);
+    }
+
     /**
      * Sets whether the discriminating path rule should be used.
      *
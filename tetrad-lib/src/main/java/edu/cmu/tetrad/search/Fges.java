@@ -30,6 +30,7 @@ import edu.cmu.tetrad.search.utils.Bes;
 import edu.cmu.tetrad.search.utils.DagScorer;
 import edu.cmu.tetrad.search.utils.GraphSearchUtils;
 import edu.cmu.tetrad.search.utils.MeekRules;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.MillisecondTimes;
 import edu.cmu.tetrad.util.SublistGenerator;
 import edu.cmu.tetrad.util.TetradLogger;
@@ -141,7 +142,8 @@ public final class Fges implements IGraphSearch, DagScorer {
     // Where printed output is sent.
     private PrintStream out = System.out;
 
-    // The graph being constructed.
+    // The graph being constructed. This is an IndexedGraph, since the adjacency and endpoint queries made in the
+    // forward and backward steps and by the Meek rules are much faster there; an EdgeListGraph is returned.
     private Graph graph;
 
     // Arrows with the same totalScore are stored in this list to distinguish their order in sortedArrows.
@@ -178,7 +180,7 @@ public final class Fges implements IGraphSearch, DagScorer {
         }
 
         setScore(score);
-        this.graph = new EdgeListGraph(getVariables());
+        this.graph = new IndexedGraph(getVariables());
     }
 
     //==========================PUBLIC METHODS==========================//
@@ -193,15 +195,14 @@ public final class Fges implements IGraphSearch, DagScorer {
         long start = MillisecondTimes.timeMillis();
         topGraphs.clear();
 
-        graph = new EdgeListGraph(getVariables());
+        graph = new IndexedGraph(getVariables());
 
         if (boundGraph != null) {
             boundGraph = GraphUtils.replaceNodes(boundGraph, getVariables());
         }
 
         if (initialGraph != null) {
-            graph = new EdgeListGraph(initialGraph);
-            graph = GraphUtils.replaceNodes(graph, getVariables());
+            graph = new IndexedGraph(GraphUtils.replaceNodes(initialGraph, getVariables()));
         }
 
         addRequiredEdges(graph);
@@ -231,7 +232,7 @@ public final class Fges implements IGraphSearch, DagScorer {
 
         this.modelScore = scoreDag(GraphSearchUtils.dagFromCPDAG(graph), true);
 
-        return graph;
+        return new EdgeListGraph(graph);
     }
 
     /**
@@ -452,23 +453,38 @@ public final class Fges implements IGraphSearch, DagScorer {
         long start = MillisecondTimes.timeMillis();
         this.effectEdgesGraph = new EdgeListGraph(nodes);
 
-        List<Callable<Boolean>> tasks = new ArrayList<>();
+        List<NodeTaskEmptyGraph> tasks = new ArrayList<>();
 
         int chunkSize = getChunkSize(nodes.size());
 
         for (int i = 0; i < nodes.size() && !Thread.currentThread().isInterrupted(); i += chunkSize) {
-            NodeTaskEmptyGraph task = new NodeTaskEmptyGraph(i, min(nodes.size(), i + chunkSize),
-                    nodes, emptySet);
+            tasks.add(new NodeTaskEmptyGraph(i, min(nodes.size(), i + chunkSize), nodes, emptySet));
+        }
 
-            if (!parallelized) {
-                task.call();
-            } else {
-                tasks.add(task);
+        List<EffectEdges> batches = new ArrayList<>();
+
+        if (parallelized) {
+            for (EffectEdges batch : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+                batches.add(batch);
+            }
+        } else {
+            for (NodeTaskEmptyGraph task : tasks) {
+                batches.add(task.call());
             }
         }
 
-        if (parallelized) {
-            ForkJoinPool.commonPool().invokeAll(tasks);
+        // The edges and arrows are recorded here, in task order, rather than by the tasks themselves, so that the
+        // graph is only modified by one thread and the arrow indices do not depend on the scheduling of the tasks.
+        for (EffectEdges batch : batches) {
+            for (int k = 0; k < batch.size; k++) {
+                Node x = nodes.get(batch.x[k]);
+                Node y = nodes.get(batch.y[k]);
+                double bump = batch.bump[k];
+
+                effectEdgesGraph.addEdge(Edges.undirectedEdge(x, y));
+                addArrowForward(x, y, emptySet, emptySet, emptySet, emptySet, bump);
+                addArrowForward(y, x, emptySet, emptySet, emptySet, emptySet, bump);
+            }
         }
 
         long stop = MillisecondTimes.timeMillis();
@@ -620,7 +636,7 @@ public final class Fges implements IGraphSearch, DagScorer {
         }
 
         if (this.parallelized) {
-            ForkJoinPool.commonPool().invokeAll(tasks);
+            ForkJoinPoolInstance.getInstance().invokeAll(tasks);
         }
     }
 
@@ -718,17 +734,10 @@ public final class Fges implements IGraphSearch, DagScorer {
         }
 
         if (this.parallelized) {
-            List<Future<EvalPair>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
-
-            for (Future<EvalPair> future : futures) {
-                try {
-                    EvalPair pair = future.get();
-                    if (pair.bump > maxBump) {
-                        maxT = pair.T;
-                        maxBump = pair.bump;
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
+            for (EvalPair pair : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+                if (pair.bump > maxBump) {
+                    maxT = pair.T;
+                    maxBump = pair.bump;
                 }
             }
         }
@@ -1286,7 +1295,31 @@ public final class Fges implements IGraphSearch, DagScorer {
         double bump;
     }
 
-    class NodeTaskEmptyGraph implements Callable<Boolean> {
+    // The effect edges found by one NodeTaskEmptyGraph, as parallel arrays of the indices in the node list of x
+    // and y and the bump for adding the edge.
+    private static class EffectEdges {
+        int[] x = new int[16];
+        int[] y = new int[16];
+        double[] bump = new double[16];
+        int size = 0;
+
+        void add(int x, int y, double bump) {
+            if (this.size == this.x.length) {
+                this.x = Arrays.copyOf(this.x, 2 * this.size);
+                this.y = Arrays.copyOf(this.y, 2 * this.size);
+                this.bump = Arrays.copyOf(this.bump, 2 * this.size);
+            }
+
+            this.x[this.size] = x;
+            this.y[this.size] = y;
+            this.bump[this.size] = bump;
+            this.size++;
+        }
+    }
+
+    // Scores the edges from each node in a range of the node list to every later node, all candidate parents of a
+    // node at once, and returns those whose bump is positive.
+    class NodeTaskEmptyGraph implements Callable<EffectEdges> {
 
         private final int from;
         private final int to;
@@ -1301,7 +1334,11 @@ public final class Fges implements IGraphSearch, DagScorer {
         }
 
         @Override
-        public Boolean call() {
+        public EffectEdges call() {
+            EffectEdges edges = new EffectEdges();
+            int[] candidates = new int[nodes.size()];
+            int[] parents = new int[nodes.size()];
+
             for (int i = from; i < to; i++) {
                 if (Thread.interrupted()) break;
                 if ((i + 1) % 1000 == 0) {
@@ -1311,45 +1348,50 @@ public final class Fges implements IGraphSearch, DagScorer {
 
                 Node y = nodes.get(i);
 
-                for (int j = i + 1; j < nodes.size() && !Thread.currentThread().isInterrupted(); j++) {
+                if (existsKnowledge() && invalidSetByKnowledge(y, emptySet)) {
+                    continue;
+                }
+
+                int numCandidates = 0;
+
+                for (int j = i + 1; j < nodes.size(); j++) {
                     Node x = nodes.get(j);
 
                     if (existsKnowledge()) {
                         if (getKnowledge().isForbidden(x.getName(), y.getName()) && getKnowledge().isForbidden(y.getName(), x.getName())) {
                             continue;
                         }
-
-                        if (invalidSetByKnowledge(y, emptySet)) {
-                            continue;
-                        }
                     }
 
                     if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
                         continue;
                     }
 
-                    int child = hashIndices.get(y);
-                    int parent = hashIndices.get(x);
-                    double bump = score.localScoreDiff(parent, child);
+                    candidates[numCandidates] = j;
+                    parents[numCandidates] = hashIndices.get(x);
+                    numCandidates++;
+                }
+
+                if (numCandidates == 0) continue;
+
+                int child = hashIndices.get(y);
+                double[] bumps = score.localScoreDiffs(Arrays.copyOf(parents, numCandidates), child);
+
+                for (int k = 0; k < numCandidates; k++) {
+                    double bump = bumps[k];
 
                     if (symmetricFirstStep) {
-                        double bump2 = score.localScoreDiff(child, parent);
+                        double bump2 = score.localScoreDiff(child, parents[k]);
                         bump = max(bump, bump2);
                     }
 
-                    if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
-                        continue;
-                    }
-
                     if (bump > 0) {
-                        effectEdgesGraph.addEdge(Edges.undirectedEdge(x, y));
-                        addArrowForward(x, y, emptySet, emptySet, emptySet, emptySet, bump);
-                        addArrowForward(y, x, emptySet, emptySet, emptySet, emptySet, bump);
+                        edges.add(candidates[k], i, bump);
                     }
                 }
             }
 
-            return true;
+            return edges;
         }
     }
 }
@@ -26,6 +26,7 @@ import edu.cmu.tetrad.search.score.Score;
 import edu.cmu.tetrad.search.score.ScoredGraph;
 import edu.cmu.tetrad.search.utils.MeekRules;
 import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.MillisecondTimes;
 import edu.cmu.tetrad.util.TaskManager;
 import edu.cmu.tetrad.util.TetradLogger;
@@ -65,8 +66,6 @@ public final class FgesMb {
      * The top n graphs found by the algorithm, where n is numCPDAGsToStore.
      */
     private final LinkedList<ScoredGraph> topGraphs = new LinkedList<>();
-    // The static ForkJoinPool instance.
-    private final ForkJoinPool pool = ForkJoinPool.commonPool();
     // Arrows with the same totalScore are stored in this list to distinguish their order in sortedArrows.
     // The ordering doesn't matter; it just have to be transitive.
     int arrowIndex;
@@ -514,7 +513,7 @@ public final class FgesMb {
                         }
                     }
 
-                    this.pool.invoke(new MbAboutNodeTask());
+                    ForkJoinPoolInstance.getInstance().getPool().invoke(new MbAboutNodeTask());
                 }
             }
         }
@@ -691,7 +690,7 @@ public final class FgesMb {
             }
         }
 
-        this.pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void fes() {
@@ -965,7 +964,7 @@ public final class FgesMb {
         }
 
         AdjTask task = new AdjTask(getMinChunk(nodes.size()), new ArrayList<>(nodes), 0, nodes.size());
-        this.pool.invoke(task);
+        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1116,7 +1115,7 @@ public final class FgesMb {
         for (Node r : toProcess) {
             this.neighbors.put(r, getNeighbors(r));
             List<Node> adjacentNodes = new ArrayList<>(this.graph.getAdjacentNodes(r));
-            this.pool.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
+            ForkJoinPoolInstance.getInstance().getPool().invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
                     adjacentNodes.size(), this.hashIndices));
         }
     }
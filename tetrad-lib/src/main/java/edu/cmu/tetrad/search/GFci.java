@@ -128,7 +128,7 @@ public final class GFci implements IGraphSearch {
         fges.setOut(this.out);
         this.graph = fges.search();
 
-        Graph fgesGraph = new EdgeListGraph(this.graph);
+        Graph fgesGraph = new IndexedGraph(this.graph);
 
         SepsetProducer sepsets = new SepsetsGreedy(this.graph, this.independenceTest, null, this.depth);
         gfciExtraEdgeRemovalStep(this.graph, fgesGraph, nodes, sepsets);
@@ -152,7 +152,7 @@ public final class GFci implements IGraphSearch {
 
         GraphUtils.replaceNodes(this.graph, this.independenceTest.getVariables());
 
-        return this.graph;
+        return new EdgeListGraph(this.graph);
     }
 
     /**
@@ -282,7 +282,7 @@ public final class GFci implements IGraphSearch {
 
     // Due to Spirtes.
     private void modifiedR0(Graph fgesGraph, SepsetProducer sepsets) {
-        this.graph = new EdgeListGraph(graph);
+        this.graph = new IndexedGraph(graph);
         this.graph.reorientAllWith(Endpoint.CIRCLE);
         fciOrientbk(this.knowledge, this.graph, this.graph.getNodes());
 
@@ -6,17 +6,23 @@ import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.score.GraphScore;
 import edu.cmu.tetrad.search.score.Score;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.search.utils.GrowShrinkTreeStore;
 import edu.cmu.tetrad.search.utils.TeyssierScorer;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.MillisecondTimes;
 import edu.cmu.tetrad.util.NumberFormatUtil;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradLogger;
 import org.jetbrains.annotations.NotNull;
 
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.Double.NEGATIVE_INFINITY;
-import static java.util.Collections.shuffle;
+import static edu.cmu.tetrad.util.RandomUtil.shuffle;
 
 
 /**
@@ -73,6 +79,9 @@ public class Grasp {
     private boolean useDataOrder = true;
     private int depth = 3;
     private int numStarts = 1;
+    private boolean parallelized = false;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private GrowShrinkTreeStore store = null;
 
     /**
      * Constructor for a score.
@@ -119,7 +128,7 @@ public class Grasp {
         long start = MillisecondTimes.timeMillis();
         order = new ArrayList<>(order);
 
-        this.scorer = new TeyssierScorer(this.test, this.score);
+        this.scorer = new TeyssierScorer(this.test, this.score, this.store);
         this.scorer.setUseRaskuttiUhler(this.useRaskuttiUhler);
         this.scorer.setKnowledge(knowledge);
 
@@ -132,34 +141,81 @@ public class Grasp {
 
         this.scorer.clearBookmarks();
 
-        List<Node> bestPerm = null;
-        double best = NEGATIVE_INFINITY;
-
-        this.scorer.score(order);
+        // The initial permutations and the seeds for the random choices made along the way are drawn up front, and
+        // each start makes its choices from its own Random, so that each start does the same thing however the
+        // starts are scheduled.
+        List<List<Node>> orders = new ArrayList<>();
+        long[] seeds = new long[this.numStarts];
 
         for (int r = 0; r < this.numStarts; r++) {
-            if (Thread.interrupted()) break;
-
             if ((r == 0 && !this.useDataOrder) || r > 0) {
                 shuffle(order);
             }
 
-            this.start = MillisecondTimes.timeMillis();
+            List<Node> _order = new ArrayList<>(order);
+            makeValidKnowledgeOrder(_order);
+            orders.add(_order);
+            seeds[r] = RandomUtil.getInstance().nextLong();
+        }
+
+        List<List<Node>> perms = new ArrayList<>(Collections.nCopies(this.numStarts, null));
+        double[] scores = new double[this.numStarts];
+        Arrays.fill(scores, NEGATIVE_INFINITY);
 
-            makeValidKnowledgeOrder(order);
+        this.cancelled.set(false);
+        this.start = MillisecondTimes.timeMillis();
 
-            this.scorer.score(order);
+        if (this.parallelized && this.numStarts > 1 && this.useScore && !this.useRaskuttiUhler
+            && !(this.score instanceof GraphScore)) {
+            List<Future<?>> futures = new ArrayList<>();
 
-            List<Node> perm = grasp(this.scorer);
+            for (int r = 0; r < this.numStarts; r++) {
+                int _r = r;
+
+                futures.add(ForkJoinPoolInstance.getInstance().getPool().submit(() -> {
+                    TeyssierScorer scorer = new TeyssierScorer(this.scorer);
+                    scorer.score(orders.get(_r));
+                    List<Node> perm = grasp(scorer, new Random(seeds[_r]));
+                    perms.set(_r, perm);
+                    scores[_r] = scorer.score(perm);
+                }));
+            }
 
-            this.scorer.score(perm);
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                this.cancelled.set(true);
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        } else {
+            for (int r = 0; r < this.numStarts; r++) {
+                if (Thread.interrupted()) break;
 
-            if (this.scorer.score() > best) {
-                best = this.scorer.score();
-                bestPerm = perm;
+                this.scorer.score(orders.get(r));
+                List<Node> perm = grasp(this.scorer, new Random(seeds[r]));
+                perms.set(r, perm);
+                scores[r] = this.scorer.score(perm);
             }
         }
 
+        // Ties go to the lowest numbered start, so the result does not depend on the order in which starts finish.
+        List<Node> bestPerm = null;
+        double best = NEGATIVE_INFINITY;
+
+        for (int r = 0; r < this.numStarts; r++) {
+            if (perms.get(r) != null && (bestPerm == null || scores[r] > best)) {
+                best = scores[r];
+                bestPerm = perms.get(r);
+            }
+        }
+
+        if (bestPerm == null) bestPerm = order;
+
         this.scorer.score(bestPerm);
 
         long stop = MillisecondTimes.timeMillis();
@@ -210,6 +266,30 @@ public class Grasp {
         this.numStarts = numStarts;
     }
 
+    /**
+     * Sets whether the starts should be run concurrently when a score is used. Each start gets its own scorer, but
+     * the scorers share their grow-shrink trees, and so their local scores. The best scoring permutation is reported
+     * whether or not this is set, ties going to the earliest start. The score must be safe to call from more than one
+     * thread. Default is false.
+     *
+     * @param parallelized True if so.
+     * @see #setNumStarts(int)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+
+    /**
+     * Sets the store of grow-shrink trees to score with, so that local scores can be reused across runs on the same
+     * score. By default, each run makes its own.
+     *
+     * @param store The store, constructed for the score given to this search, or null.
+     * @see GrowShrinkTreeStore
+     */
+    public void setGrowShrinkTreeStore(GrowShrinkTreeStore store) {
+        this.store = store;
+    }
+
     /**
      * True if the order of the variables in the data should be used for an initial best-order search, false if a random
      * permutation should be used. (Subsequence automatic best order runs will use random permutations.) This is
@@ -331,7 +411,7 @@ public class Grasp {
         return false;
     }
 
-    private List<Node> grasp(@NotNull TeyssierScorer scorer) {
+    private List<Node> grasp(@NotNull TeyssierScorer scorer, Random random) {
         scorer.clearBookmarks();
         List<int[]> depths = new ArrayList<>();
 
@@ -357,9 +437,9 @@ public class Grasp {
         for (int[] depth : depths) {
             do {
                 sOld = sNew;
-                graspDfs(scorer, sOld, depth, 1, new HashSet<>(), new HashSet<>());
+                graspDfs(scorer, sOld, depth, 1, new HashSet<>(), new HashSet<>(), random);
                 sNew = scorer.score();
-            } while (sNew > sOld);
+            } while (sNew > sOld && !this.cancelled.get());
         }
 
         if (this.verbose) {
@@ -385,11 +465,14 @@ public class Grasp {
 
 
     private void graspDfs(@NotNull TeyssierScorer scorer, double sOld, int[] depth, int currentDepth,
-                          Set<Set<Node>> tucks, Set<Set<Set<Node>>> dfsHistory) {
-        for (Node y : scorer.getShuffledVariables()) {
+                          Set<Set<Node>> tucks, Set<Set<Set<Node>>> dfsHistory, Random random) {
+        List<Node> variables = scorer.getPi();
+        Collections.shuffle(variables, random);
+
+        for (Node y : variables) {
             Set<Node> ancestors = scorer.getAncestors(y);
             List<Node> parents = new ArrayList<>(scorer.getParents(y));
-            shuffle(parents);
+            Collections.shuffle(parents, random);
             for (Node x : parents) {
 
                 boolean covered = scorer.coveredEdge(x, y);
@@ -449,10 +532,10 @@ public class Grasp {
                     if (currentDepth > depth[1]) {
                         if (!dfsHistory.contains(tucks)) {
                             dfsHistory.add(new HashSet<>(tucks));
-                            graspDfs(scorer, sOld, depth, currentDepth + 1, tucks, dfsHistory);
+                            graspDfs(scorer, sOld, depth, currentDepth + 1, tucks, dfsHistory, random);
                         }
                     } else {
-                        graspDfs(scorer, sOld, depth, currentDepth + 1, tucks, dfsHistory);
+                        graspDfs(scorer, sOld, depth, currentDepth + 1, tucks, dfsHistory, random);
                     }
                     tucks.remove(tuck);
                 }
@@ -7,18 +7,15 @@ import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.test.MsepTest;
 import edu.cmu.tetrad.search.test.IndependenceResult;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.NumberFormatUtil;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.UniformityTest;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
 import org.apache.commons.math3.util.FastMath;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.Future;
 
 import static org.apache.commons.math3.util.FastMath.min;
 
@@ -33,6 +30,15 @@ public class MarkovCheck {
     private double fractionDependentDep = Double.NaN;
     private double ksPValueIndep = Double.NaN;
     private double ksPValueDep = Double.NaN;
+    // The number of facts each task checks in generateResultsStreaming.
+    private static final int STREAMING_CHUNK = 64;
+    // The running statistics from generateResultsStreaming, or null if it has not been run.
+    private PValueAccumulator accumulatorIndep = null;
+    private PValueAccumulator accumulatorDep = null;
+    // The confidence parameter for early stopping, or 0 if checking should not stop early.
+    private double stoppingDelta = 0.0;
+    // The distance from uniformity within which p-values are taken to be uniform for early stopping.
+    private double stoppingTolerance = 0.05;
 
     public MarkovCheck(Graph graph, IndependenceTest independenceTest) {
         this.graph = GraphUtils.replaceNodes(graph, independenceTest.getVariables());
@@ -73,6 +79,144 @@ public class MarkovCheck {
         calcStats(false);
     }
 
+    /**
+     * Checks the same facts as generateResults, but without listing them first or keeping the results, so that it can
+     * be used for large graphs. The nodes are visited in random order; for each, the facts x _||_ y | parents(x) are
+     * classified as implied or not implied by the graph and checked in bounded batches of tasks, in parallel if this
+     * check is parallelized, and each p-value is added to a running histogram for its kind of fact. The fraction
+     * dependent and the Kolmogorov-Smirnov p-value for uniformity of the p-values are then available as usual, along
+     * with the histograms, but getResults returns empty lists.
+     * <p>
+     * If early stopping is set, checking for a kind of fact stops as soon as the verdict on the uniformity of its
+     * p-values is settled, and checking stops altogether once it is settled for both kinds.
+     *
+     * @see #setEarlyStopping(double, double)
+     * @see #getPValueCounts(boolean, int)
+     */
+    public void generateResultsStreaming() {
+        resultsIndep.clear();
+        resultsDep.clear();
+
+        this.accumulatorIndep = new PValueAccumulator();
+        this.accumulatorDep = new PValueAccumulator();
+
+        List<Node> nodes = new ArrayList<>(independenceTest.getVariables());
+        Collections.shuffle(nodes, new Random(RandomUtil.getInstance().nextLong()));
+
+        int batchSize = parallelized ? 2 * ForkJoinPoolInstance.getInstance().getParallelism() : 1;
+        List<Callable<List<List<IndependenceResult>>>> batch = new ArrayList<>();
+        int looks = 0;
+
+        boolean verbose = independenceTest.isVerbose();
+        independenceTest.setVerbose(false);
+
+        try {
+            NODES:
+            for (Node x : nodes) {
+                Set<Node> z = new HashSet<>(graph.getParents(x));
+
+                List<Node> other = graph.getNodes();
+                other.removeAll(z);
+                other.remove(x);
+
+                for (int i = 0; i < other.size(); i += STREAMING_CHUNK) {
+                    batch.add(new StreamingTask(x, z, other.subList(i, min(other.size(), i + STREAMING_CHUNK))));
+
+                    if (batch.size() == batchSize) {
+                        runBatch(batch);
+                        batch.clear();
+
+                        if (Thread.currentThread().isInterrupted() || isSettled(++looks)) {
+                            break NODES;
+                        }
+                    }
+                }
+            }
+
+            if (!batch.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                runBatch(batch);
+            }
+        } finally {
+            independenceTest.setVerbose(verbose);
+        }
+
+        fractionDependentIndep = accumulatorIndep.getFractionDependent();
+        fractionDependentDep = accumulatorDep.getFractionDependent();
+        ksPValueIndep = accumulatorIndep.getKsPValue();
+        ksPValueDep = accumulatorDep.getKsPValue();
+
+        printStats(true);
+        printStats(false);
+    }
+
+    /**
+     * Sets whether and when generateResultsStreaming should stop early. After each batch, with n p-values of a kind
+     * checked so far and D their Kolmogorov-Smirnov distance from the uniform distribution, the
+     * Dvoretzky-Kiefer-Wolfowitz inequality gives a band of half-width eps = sqrt(ln(2 / delta_k) / (2n)) that holds
+     * the distribution of the p-values with probability at least 1 - delta_k, where delta_k = delta / (k (k + 1)) for
+     * the k'th batch, so that the bands hold at every batch with probability at least 1 - delta. Checking for that kind
+     * stops once D &gt; eps, so that the p-values are not uniform, or D + eps &lt; tolerance, so that they are within
+     * the tolerance of uniform. This treats the facts checked so far as a random sample of all the facts, which is why
+     * the nodes are visited in random order.
+     *
+     * @param delta     The confidence parameter, in (0, 1), or 0 if checking should not stop early, the default.
+     * @param tolerance The distance from uniformity within which p-values are taken to be uniform, in (0, 1).
+     */
+    public void setEarlyStopping(double delta, double tolerance) {
+        if (delta < 0 || delta >= 1) throw new IllegalArgumentException("Delta should be in [0, 1): " + delta);
+        if (tolerance <= 0 || tolerance >= 1) throw new IllegalArgumentException("Tolerance should be in (0, 1): " + tolerance);
+        this.stoppingDelta = delta;
+        this.stoppingTolerance = tolerance;
+    }
+
+    /**
+     * Returns the number of facts of the given kind with p-values checked by the last run of
+     * generateResultsStreaming.
+     *
+     * @param indep True for facts implied by the graph, false for the others.
+     * @return This number, or 0 if generateResultsStreaming has not been run.
+     */
+    public long getNumChecked(boolean indep) {
+        PValueAccumulator accumulator = indep ? accumulatorIndep : accumulatorDep;
+        return accumulator == null ? 0 : accumulator.n;
+    }
+
+    /**
+     * Returns whether the last run of generateResultsStreaming stopped checking facts of the given kind early.
+     *
+     * @param indep True for facts implied by the graph, false for the others.
+     * @return True if so.
+     */
+    public boolean isStoppedEarly(boolean indep) {
+        PValueAccumulator accumulator = indep ? accumulatorIndep : accumulatorDep;
+        return accumulator != null && accumulator.settled;
+    }
+
+    /**
+     * Returns a histogram of the p-values of the given kind checked by the last run of generateResultsStreaming.
+     *
+     * @param indep   True for facts implied by the graph, false for the others.
+     * @param numBins The number of equal bins over [0, 1], which should divide 10,000.
+     * @return The counts in the bins, all zero if generateResultsStreaming has not been run.
+     */
+    public long[] getPValueCounts(boolean indep, int numBins) {
+        if (numBins < 1 || PValueAccumulator.NUM_BINS % numBins != 0) {
+            throw new IllegalArgumentException("The number of bins should divide " + PValueAccumulator.NUM_BINS + ": " + numBins);
+        }
+
+        long[] counts = new long[numBins];
+        PValueAccumulator accumulator = indep ? accumulatorIndep : accumulatorDep;
+        if (accumulator == null) return counts;
+
+        int width = PValueAccumulator.NUM_BINS / numBins;
+
+        for (int b = 0; b < PValueAccumulator.NUM_BINS; b++) {
+            counts[b / width] += accumulator.counts[b];
+        }
+
+        return counts;
+    }
+
     public void setParallelized(boolean parallelized) {
         this.parallelized = parallelized;
     }
@@ -199,14 +343,8 @@ public class MarkovCheck {
         }
 
         if (parallelized) {
-            List<Future<List<IndependenceResult>>> theseResults = ForkJoinPool.commonPool().invokeAll(tasks);
-
-            for (Future<List<IndependenceResult>> future : theseResults) {
-                try {
-                    getResults(indep).addAll(future.get());
-                } catch (InterruptedException | ExecutionException e) {
-                    throw new RuntimeException(e);
-                }
+            for (List<IndependenceResult> _results : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+                getResults(indep).addAll(_results);
             }
         }
     }
@@ -242,6 +380,10 @@ public class MarkovCheck {
             }
         }
 
+        printStats(indep);
+    }
+
+    private void printStats(boolean indep) {
         if (indep) {
             System.out.println("P-value of Kolmogorov-Smirnov Uniformity Test = "
                     + ((Double.isNaN(ksPValueIndep)
@@ -268,4 +410,159 @@ public class MarkovCheck {
         if (chunk < 1) chunk = 1;
         return chunk;
     }
+
+    // Checks the facts of a batch of tasks and adds their p-values to the running statistics.
+    private void runBatch(List<Callable<List<List<IndependenceResult>>>> batch) {
+        List<List<List<IndependenceResult>>> results;
+
+        if (parallelized) {
+            results = ForkJoinPoolInstance.getInstance().invokeAll(batch);
+        } else {
+            results = new ArrayList<>();
+
+            for (Callable<List<List<IndependenceResult>>> task : batch) {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        for (List<List<IndependenceResult>> _results : results) {
+            for (IndependenceResult result : _results.get(0)) accumulatorIndep.add(result);
+            for (IndependenceResult result : _results.get(1)) accumulatorDep.add(result);
+        }
+    }
+
+    // Checks, after the given number of batches, whether the verdicts are settled, marking the kinds of fact for
+    // which they are.
+    private boolean isSettled(int look) {
+        if (stoppingDelta <= 0) return false;
+
+        double delta = stoppingDelta / (look * (look + 1.0));
+
+        for (PValueAccumulator accumulator : Arrays.asList(accumulatorIndep, accumulatorDep)) {
+            if (accumulator.settled || accumulator.n < 2) continue;
+
+            double eps = FastMath.sqrt(FastMath.log(2 / delta) / (2.0 * accumulator.n));
+
+            if (accumulator.getKsStatistic() > eps || accumulator.getKsStatisticUpperBound() + eps < stoppingTolerance) {
+                accumulator.settled = true;
+            }
+        }
+
+        return accumulatorIndep.settled && accumulatorDep.settled;
+    }
+
+    // Checks the facts x _||_ y | z for the given y's, skipping kinds of fact whose verdicts are settled. Returns
+    // the results for the facts implied by the graph and for the others.
+    private class StreamingTask implements Callable<List<List<IndependenceResult>>> {
+        private final Node x;
+        private final Set<Node> z;
+        private final List<Node> ys;
+
+        StreamingTask(Node x, Set<Node> z, List<Node> ys) {
+            this.x = x;
+            this.z = z;
+            this.ys = ys;
+        }
+
+        @Override
+        public List<List<IndependenceResult>> call() {
+            List<IndependenceResult> indep = new ArrayList<>();
+            List<IndependenceResult> dep = new ArrayList<>();
+
+            for (Node y : ys) {
+                if (Thread.currentThread().isInterrupted()) break;
+
+                boolean implied = msep.isMSeparated(x, y, z);
+                if ((implied ? accumulatorIndep : accumulatorDep).settled) continue;
+
+                IndependenceFact fact = new IndependenceFact(x, y, z);
+                IndependenceResult result = independenceTest.checkIndependence(x, y, z);
+                double pValue = result.getPValue();
+
+                if (!Double.isNaN(pValue)) {
+                    (implied ? indep : dep).add(new IndependenceResult(fact, result.isIndependent(), pValue, Double.NaN));
+                }
+            }
+
+            return Arrays.asList(indep, dep);
+        }
+    }
+
+    // Running statistics for the p-values of one kind of fact: a histogram of the p-values in NUM_BINS equal bins
+    // over [0, 1] and the number of dependent judgments.
+    private static final class PValueAccumulator {
+        private static final int NUM_BINS = 10000;
+
+        private final long[] counts = new long[NUM_BINS];
+        private long n = 0;
+        private long dependent = 0;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private volatile boolean settled = false;
+
+        private void add(IndependenceResult result) {
+            double pValue = result.getPValue();
+            int bin = (int) (pValue * NUM_BINS);
+            counts[FastMath.max(0, FastMath.min(NUM_BINS - 1, bin))]++;
+            min = FastMath.min(min, pValue);
+            max = FastMath.max(max, pValue);
+            n++;
+            if (result.isDependent()) dependent++;
+        }
+
+        private double getFractionDependent() {
+            return dependent / (double) n;
+        }
+
+        // The largest distance between the empirical distribution of the p-values and the uniform distribution at
+        // the bin edges, which is at most the Kolmogorov-Smirnov statistic.
+        private double getKsStatistic() {
+            double d = 0.0;
+            long cumulative = 0;
+
+            for (int b = 0; b < NUM_BINS; b++) {
+                cumulative += counts[b];
+                d = FastMath.max(d, FastMath.abs(cumulative / (double) n - (b + 1) / (double) NUM_BINS));
+            }
+
+            return d;
+        }
+
+        // An upper bound on the Kolmogorov-Smirnov statistic, allowing for the p-values to be anywhere in their bins.
+        private double getKsStatisticUpperBound() {
+            double d = 0.0;
+            long cumulative = 0;
+
+            for (int b = 0; b < NUM_BINS; b++) {
+                double below = cumulative / (double) n;
+                cumulative += counts[b];
+                double above = cumulative / (double) n;
+                d = FastMath.max(d, FastMath.max(above - b / (double) NUM_BINS, (b + 1) / (double) NUM_BINS - below));
+            }
+
+            return d;
+        }
+
+        // The p-value of the Kolmogorov-Smirnov test of the uniformity of the p-values between the smallest and the
+        // largest of them, as in UniformityTest, taking the statistic at the bin edges.
+        private double getKsPValue() {
+            if (n < 2 || !(max > min)) return Double.NaN;
+
+            double d = 0.0;
+            long cumulative = 0;
+
+            for (int b = 0; b < NUM_BINS; b++) {
+                cumulative += counts[b];
+                double uniform = FastMath.max(0.0, FastMath.min(1.0, ((b + 1) / (double) NUM_BINS - min) / (max - min)));
+                d = FastMath.max(d, FastMath.abs(cumulative / (double) n - uniform));
+            }
+
+            int _n = (int) FastMath.min(n, Integer.MAX_VALUE);
+            return 1.0 - new KolmogorovSmirnovTest().cdf(d, _n, false);
+        }
+    }
 }
@@ -27,6 +27,7 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.search.utils.FasParallelism;
 import edu.cmu.tetrad.search.utils.PcCommon;
 import edu.cmu.tetrad.search.utils.SepsetMap;
 import edu.cmu.tetrad.util.MillisecondTimes;
@@ -77,10 +78,11 @@ public class Pc implements IGraphSearch {
     private int numIndependenceTests;
     private boolean verbose = false;
     private PcCommon.ConflictRule conflictRule = PcCommon.ConflictRule.PRIORITIZE_EXISTING;
-    private boolean stable = true;
+    private boolean stable = false;
     private boolean meekPreventCycles = true;
     private boolean useMaxPHeuristic = false;
     private PcCommon.PcHeuristicType pcHeuristicType = PcCommon.PcHeuristicType.NONE;
+    private final FasParallelism fasParallelism = new FasParallelism();
 
     //=============================CONSTRUCTORS==========================//
 
@@ -185,6 +187,8 @@ public class Pc implements IGraphSearch {
         search.setConflictRule(conflictRule);
         search.setPcHeuristicType(pcHeuristicType);
         search.setVerbose(verbose);
+        search.setParallelized(this.fasParallelism.isParallelized());
+        search.setNumThreads(this.fasParallelism.getNumThreads());
 
         this.graph = search.search();
         this.sepsets = fas.getSepsets();
@@ -331,7 +335,7 @@ public class Pc implements IGraphSearch {
     }
 
     /**
-     * <p>Sets whether the stable adjacency search should be used. Default is false. Default is false. See the
+     * <p>Sets whether the stable adjacency search should be used. Default is false. See the
      * following reference for this:</p>
      *
      * <p>Colombo, D., & Maathuis, M. H. (2014). Order-independent constraint-based causal structure learning. J. Mach.
@@ -343,6 +347,27 @@ public class Pc implements IGraphSearch {
         this.stable = stable;
     }
 
+    /**
+     * Sets whether the edges at each depth of the adjacency search should be tested in parallel. This gives the
+     * same result as the stable adjacency search. Default is false.
+     *
+     * @param parallelized True iff the case.
+     * @see Fas#setParallelized(boolean)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.fasParallelism.setParallelized(parallelized);
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel adjacency search.
+     *
+     * @param numThreads This number; must be at least 1.
+     * @see Fas#setNumThreads(int)
+     */
+    public void setNumThreads(int numThreads) {
+        this.fasParallelism.setNumThreads(numThreads);
+    }
+
     /**
      * Sets which conflict rule to use for resolving collider orientation conflicts. Default is
      * ConflictRule.PRIORITIZE_EXISTING.
@@ -3,9 +3,11 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.Knowledge;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.IndexedGraph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.score.Score;
 import edu.cmu.tetrad.search.utils.GrowShrinkTree;
+import edu.cmu.tetrad.search.utils.GrowShrinkTreeStore;
 import edu.cmu.tetrad.search.utils.MeekRules;
 
 import java.util.*;
@@ -32,7 +34,8 @@ public class PermutationSearch {
     private final SuborderSearch suborderSearch;
     private final List<Node> variables;
     private final List<Node> order;
-    private final Map<Node, GrowShrinkTree> gsts;
+    private final GrowShrinkTreeStore store;
+    private Map<Node, GrowShrinkTree> gsts;
     private final Map<String, Node> nodeMap;
     private Knowledge knowledge = new Knowledge();
     private boolean verbose = false;
@@ -44,18 +47,32 @@ public class PermutationSearch {
      * @see SuborderSearch
      */
     public PermutationSearch(SuborderSearch suborderSearch) {
+        this(suborderSearch, new GrowShrinkTreeStore(suborderSearch.getScore()));
+    }
+
+    /**
+     * Constructs a new PermutationSearch using the given SuborderSearch and the grow-shrink trees in the given store,
+     * which may be shared with other searches using the same score.
+     *
+     * @param suborderSearch The SuborderSearch (see).
+     * @param store          The store of grow-shrink trees; it must have been constructed for the score of the
+     *                       SuborderSearch.
+     * @see SuborderSearch
+     * @see GrowShrinkTreeStore
+     */
+    public PermutationSearch(SuborderSearch suborderSearch, GrowShrinkTreeStore store) {
+        if (store.getScore() != suborderSearch.getScore()) {
+            throw new IllegalArgumentException("The grow-shrink tree store was constructed for a different score.");
+        }
+
         this.suborderSearch = suborderSearch;
         this.variables = suborderSearch.getVariables();
         this.order = new ArrayList<>();
-        this.gsts = new HashMap<>();
+        this.store = store;
+        this.gsts = store.getTrees();
         this.nodeMap = new HashMap<>();
 
-        int i = 0;
-        Score score = suborderSearch.getScore();
-        Map<Node, Integer> index = new HashMap<>();
         for (Node node : this.variables) {
-            index.put(node, i++);
-            this.gsts.put(node, new GrowShrinkTree(score, index, node));
             this.nodeMap.put(node.getName(), node);
         }
     }
@@ -119,7 +136,7 @@ public class PermutationSearch {
      * @return The construted graph.
      */
     public static Graph getGraph(List<Node> nodes, Map<Node, Set<Node>> parents, Knowledge knowledge, boolean cpDag) {
-        Graph graph = new EdgeListGraph(nodes);
+        Graph graph = new IndexedGraph(nodes);
 
         for (Node a : nodes) {
             for (Node b : parents.get(a)) {
@@ -133,7 +150,7 @@ public class PermutationSearch {
             rules.orientImplied(graph);
         }
 
-        return graph;
+        return new EdgeListGraph(graph);
     }
 
     /**
@@ -162,16 +179,6 @@ public class PermutationSearch {
     public void setKnowledge(Knowledge knowledge) {
         this.knowledge = knowledge;
         this.suborderSearch.setKnowledge(knowledge);
-
-        for (Node node : this.variables) {
-            List<Node> required = new ArrayList<>();
-            List<Node> forbidden = new ArrayList<>();
-            for (Node parent : this.variables) {
-                if (knowledge.isRequired(parent.getName(), node.getName())) required.add(parent);
-                if (knowledge.isForbidden(parent.getName(), node.getName())) forbidden.add(parent);
-            }
-            if (required.isEmpty() && forbidden.isEmpty()) continue;
-            this.gsts.get(node).setKnowledge(required, forbidden);
-        }
+        this.gsts = this.store.getTrees(knowledge);
     }
 }
\ No newline at end of file
@@ -133,9 +133,6 @@ public final class SvarFges implements IGraphSearch, DagScorer {
     // Map from variables to their column indices in the data set.
     private ConcurrentMap<Node, Integer> hashIndices;
 
-    // The static ForkJoinPool instance.
-    private final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
-
     // A running tally of the total BIC totalScore.
     private double totalScore;
 
@@ -577,7 +574,7 @@ public final class SvarFges implements IGraphSearch, DagScorer {
             }
         }
 
-        this.pool.invoke(new InitializeFromEmptyGraphTask());
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new InitializeFromEmptyGraphTask());
 
         long stop = MillisecondTimes.timeMillis();
 
@@ -686,7 +683,7 @@ public final class SvarFges implements IGraphSearch, DagScorer {
             }
         }
 
-        this.pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void initializeForwardEdgesFromExistingGraph(List<Node> nodes) {
@@ -777,7 +774,7 @@ public final class SvarFges implements IGraphSearch, DagScorer {
             }
         }
 
-        this.pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
     private void fes() {
@@ -1041,7 +1038,7 @@ public final class SvarFges implements IGraphSearch, DagScorer {
         }
 
         AdjTask task = new AdjTask(getMinChunk(nodes.size()), new ArrayList<>(nodes), 0, nodes.size());
-        this.pool.invoke(task);
+        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1179,7 +1176,7 @@ public final class SvarFges implements IGraphSearch, DagScorer {
         for (Node r : toProcess) {
             this.neighbors.put(r, getNeighbors(r));
             List<Node> adjacentNodes = new ArrayList<>(this.graph.getAdjacentNodes(r));
-            this.pool.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
+            ForkJoinPoolInstance.getInstance().getPool().invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
                     adjacentNodes.size(), this.hashIndices));
         }
     }
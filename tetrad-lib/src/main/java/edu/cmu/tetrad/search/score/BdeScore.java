@@ -21,6 +21,7 @@
 
 package edu.cmu.tetrad.search.score;
 
+import edu.cmu.tetrad.data.ContingencyCounter;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
@@ -44,6 +45,7 @@ import java.util.List;
  */
 public class BdeScore implements DiscreteScore {
     private final DataSet dataSet;
+    private final ContingencyCounter counter;
 
     /**
      * Constructs a BDe score for the given dataset.
@@ -60,6 +62,7 @@ public class BdeScore implements DiscreteScore {
         }
 
         this.dataSet = dataSet;
+        this.counter = new ContingencyCounter(dataSet);
     }
 
     /**
@@ -88,43 +91,20 @@ public class BdeScore implements DiscreteScore {
             q *= dims[p];
         }
 
-        // Conditional cell coefs of data for i given parents(i).
-        int[][] n_ijk = new int[q][r];
+        // Conditional cell coefs of data for i given parents(i); the counts for parent state j are at j * r
+        // through j * r + r - 1.
+        ContingencyCounter.Table table = this.counter.count(append(parents, i));
+        int[] n_ijk = table.getCounts();
         int[] n_ij = new int[q];
 
-        int[] values = new int[parents.length];
-
-        for (int n = 0; n < sampleSize(); n++) {
-            for (int p = 0; p < parents.length; p++) {
-                int parentValue = dataSet().getInt(n, parents[p]);
-
-                if (parentValue == -99) {
-                    throw new IllegalStateException("Please remove or impute " +
-                            "missing values.");
-                }
-
-                values[p] = parentValue;
-            }
-
-            int childValue = dataSet().getInt(n, i);
-
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + n + " column " + i + ")");
-
-            }
-
-            int rowIndex = getRowIndex(dims, values);
-
-//            for (int m = 0; m < dataSet().getMultiplier(n); m++) {
-            n_ijk[rowIndex][childValue]++;
-//            }
+        if (table.getTotal() < sampleSize()) {
+            throw new IllegalStateException("Please remove or impute missing values.");
         }
 
         // Row sums.
         for (int j = 0; j < q; j++) {
             for (int k = 0; k < r; k++) {
-                n_ij[j] += n_ijk[j][k];
+                n_ij[j] += n_ijk[j * r + k];
             }
         }
 
@@ -134,7 +114,7 @@ public class BdeScore implements DiscreteScore {
         for (int j = 0; j < q; j++) {
             for (int k = 0; k < r; k++) {
                 double nPrimeijk = 1. / (r * q);
-                score += Gamma.logGamma(n_ijk[j][k] + nPrimeijk);
+                score += Gamma.logGamma(n_ijk[j * r + k] + nPrimeijk);
                 score -= Gamma.logGamma(nPrimeijk);
             }
 
@@ -175,15 +155,6 @@ public class BdeScore implements DiscreteScore {
         return this.dataSet;
     }
 
-    private int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     /**
      * BDe does not use a structure prior.
      *
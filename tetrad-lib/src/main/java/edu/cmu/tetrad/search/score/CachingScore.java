@@ -0,0 +1,255 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.score;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.PackedIntKey;
+import edu.cmu.tetrad.util.StripedLruCache;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Wraps a score and caches its local scores, so that repeated requests for the same (node, parent set) pair
+ * are answered without recomputing the score. Searches such as FGES, BOSS, GRaSP and BES ask for the same local
+ * scores many times over, so for expensive scores this can save a great deal of time.</p>
+ *
+ * <p>Local scores are keyed by the node together with the sorted parent set, packed into a single int array, so
+ * the order in which parents are given does not matter. The cache is divided into a number of stripes, each
+ * guarded by its own lock and each holding a bounded least-recently-used map, so that the cache can be shared
+ * by many threads and will not grow without bound. Hit, miss and eviction counts are kept for tuning.</p>
+ *
+ * <p>Score differences are calculated from the cached local scores when the wrapped score's differences are
+ * differences of local scores (see Score.isDifferenceOfLocalScores), as for the standard scores; otherwise, as for
+ * SEM BIC with the Nandy rule, they are passed on to the wrapped score.</p>
+ *
+ * <p>Batch score differences and incremental local scores are passed on to the wrapped score, so that its fast
+ * paths for these are still used.</p>
+ *
+ * @see Score
+ * @see StripedLruCache
+ */
+public class CachingScore implements Score {
+
+    // The wrapped score.
+    private final Score score;
+    // The cache of local scores.
+    private final StripedLruCache<PackedIntKey, Double> cache;
+
+    /**
+     * Constructs a caching score with a default capacity of one million local scores and 64 stripes.
+     *
+     * @param score The score to wrap.
+     */
+    public CachingScore(Score score) {
+        this(score, 1_000_000, 64);
+    }
+
+    /**
+     * Constructs a caching score.
+     *
+     * @param score      The score to wrap.
+     * @param maxSize    The maximum number of local scores to keep in the cache.
+     * @param numStripes The number of independently locked stripes to divide the cache into; rounded up to a
+     *                   power of two.
+     */
+    public CachingScore(Score score, int maxSize, int numStripes) {
+        if (score == null) throw new NullPointerException("Score must not be null.");
+        this.score = score;
+        this.cache = new StripedLruCache<>(maxSize, numStripes);
+    }
+
+    /**
+     * Returns the local score of the given node given the given parents, from the cache if possible.
+     *
+     * @param node    The node.
+     * @param parents The parents.
+     * @return The score.
+     */
+    @Override
+    public double localScore(int node, int... parents) {
+        PackedIntKey key = key(node, parents);
+        Double cached = this.cache.get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        // If two threads calculate the same score at once, they will both put the same value.
+        double _score = this.score.localScore(node, parents);
+        this.cache.put(key, _score);
+        return _score;
+    }
+
+    /**
+     * Returns the difference in local score for y between parents z + x and parents z, using cached local scores if
+     * the wrapped score's differences are differences of local scores.
+     */
+    @Override
+    public double localScoreDiff(int x, int y, int[] z) {
+        if (!this.score.isDifferenceOfLocalScores()) {
+            return this.score.localScoreDiff(x, y, z);
+        }
+
+        return localScore(y, append(z, x)) - localScore(y, z);
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y) {
+        if (!this.score.isDifferenceOfLocalScores()) {
+            return this.score.localScoreDiff(x, y);
+        }
+
+        return localScore(y, x) - localScore(y);
+    }
+
+    @Override
+    public boolean isDifferenceOfLocalScores() {
+        return this.score.isDifferenceOfLocalScores();
+    }
+
+    /**
+     * Returns the wrapped score's localScoreDiffs, so that any batch method it has is used. These differences are not
+     * cached.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y) {
+        return this.score.localScoreDiffs(xs, y);
+    }
+
+    @Override
+    public boolean supportsIncrementalLocalScore() {
+        return this.score.supportsIncrementalLocalScore();
+    }
+
+    /**
+     * Returns the wrapped score's incremental local score. Scores obtained this way are not cached.
+     */
+    @Override
+    public IncrementalLocalScore incrementalLocalScore(int node, int... parents) {
+        return this.score.incrementalLocalScore(node, parents);
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return this.score.getVariables();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return this.score.getSampleSize();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return this.score.isEffectEdge(bump);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return this.score.getMaxDegree();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return this.score.determines(z, y);
+    }
+
+    /**
+     * Returns the wrapped score.
+     *
+     * @return This score.
+     */
+    public Score getScore() {
+        return this.score;
+    }
+
+    /**
+     * Returns the number of local scores answered from the cache.
+     *
+     * @return This number.
+     */
+    public long getHits() {
+        return this.cache.getHits();
+    }
+
+    /**
+     * Returns the number of local scores that had to be calculated.
+     *
+     * @return This number.
+     */
+    public long getMisses() {
+        return this.cache.getMisses();
+    }
+
+    /**
+     * Returns the number of local scores evicted from the cache to keep it within its maximum size.
+     *
+     * @return This number.
+     */
+    public long getEvictions() {
+        return this.cache.getEvictions();
+    }
+
+    /**
+     * Returns the fraction of local score requests answered from the cache, or 0 if there have been none.
+     *
+     * @return This fraction.
+     */
+    public double getHitRate() {
+        return this.cache.getHitRate();
+    }
+
+    /**
+     * Returns the number of local scores currently in the cache.
+     *
+     * @return This number.
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Empties the cache and resets the counts.
+     */
+    public void clearCache() {
+        this.cache.clear();
+    }
+
+    /**
+     * Returns a string representation of this score.
+     *
+     * @return This string.
+     */
+    public String toString() {
+        return "Caching " + this.score.toString();
+    }
+
+    // Returns the key for the node with the given parents: the node followed by its sorted parents.
+    private static PackedIntKey key(int node, int[] parents) {
+        int[] packed = new int[parents.length + 1];
+        packed[0] = node;
+        System.arraycopy(parents, 0, packed, 1, parents.length);
+        Arrays.sort(packed, 1, packed.length);
+        return new PackedIntKey(packed);
+    }
+}
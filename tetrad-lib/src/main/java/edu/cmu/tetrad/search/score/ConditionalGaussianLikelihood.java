@@ -25,13 +25,10 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.data.Discretizer.Discretization;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.Matrix;
-import org.apache.commons.math3.stat.correlation.Covariance;
 import org.apache.commons.math3.util.FastMath;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 import static edu.cmu.tetrad.data.Discretizer.discretize;
@@ -49,6 +46,14 @@ import static org.apache.commons.math3.util.FastMath.log;
  * <p>As for all scores in Tetrad, higher scores mean more dependence, and negative
  * scores indicate independence.</p>
  *
+ * <p>The partition of the rows into cells by the values of a set of discrete variables is cached, keyed by the set of
+ * discrete variables, along with the per-cell means and centered cross-products of the continuous variables, which are
+ * the sufficient statistics for the Gaussian part of the likelihood. These are computed once over the data and reused
+ * by later calls, so scoring or testing does not scan the raw data again. Only partitions of all the rows are cached;
+ * when the rows have been restricted using setRows, for instance to drop rows with missing values, partitions are
+ * computed afresh. The row indices, means and cross-products of the cached partitions together are kept within a
+ * fixed budget of values, dropping the least recently used partitions first.</p>
+ *
  * @author bryanandrews
  * @author josephramsey
  */
@@ -78,14 +83,37 @@ public class ConditionalGaussianLikelihood {
     // "Cell" consisting of all rows.
     private List<Integer> rows;
 
+    // True if the rows are all the rows of the data, in order, so that cached partitions can be used.
+    private boolean allRows = true;
+
     // Discretize the parents
     private boolean discretize;
 
+    // The discrete data, with continuous variables replaced by their discretized versions, by column.
+    private final int[][] discreteData;
+
+    // The cached partitions of all rows, by the sorted columns of the discrete variables, least recently used first.
+    private final Map<List<Integer>, Partition> partitions =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true));
+
+    // The number of values held by the cached partitions; guarded by the partitions.
+    private long cacheSize = 0;
+
     // A constant.
     private static final double LOG2PI = log(2.0 * FastMath.PI);
 
+    // The budget, in row indices, means and cross-products, for the cached partitions.
+    private static final int PARTITION_CACHE_BUDGET = 1 << 24;
+
     public void setRows(List<Integer> rows) {
+        boolean allRows = rows.size() == this.dataSet.getNumRows();
+
+        for (int i = 0; allRows && i < rows.size(); i++) {
+            if (rows.get(i) != i) allRows = false;
+        }
+
         this.rows = rows;
+        this.allRows = allRows;
     }
 
     /**
@@ -150,6 +178,14 @@ public class ConditionalGaussianLikelihood {
 
         this.dataSet = useErsatzVariables();
 
+        this.discreteData = new int[this.dataSet.getNumColumns()][this.dataSet.getNumRows()];
+
+        for (int j = 0; j < this.dataSet.getNumColumns(); j++) {
+            for (int i = 0; i < this.dataSet.getNumRows(); i++) {
+                this.discreteData[j][i] = this.dataSet.getInt(i, j);
+            }
+        }
+
         this.rows = new ArrayList<>();
         for (int i = 0; i < dataSet.getNumRows(); i++) this.rows.add(i);
     }
@@ -187,8 +223,12 @@ public class ConditionalGaussianLikelihood {
             APlus.add((DiscreteVariable) target);
         }
 
-        Ret ret1 = likelihoodJoint(XPlus, APlus, target, this.rows);
-        Ret ret2 = likelihoodJoint(X, A, target, this.rows);
+        List<Integer> _rows = this.rows;
+        int[] rows = new int[_rows.size()];
+        for (int r = 0; r < rows.length; r++) rows[r] = _rows.get(r);
+
+        Ret ret1 = likelihoodJoint(XPlus, APlus, target, rows);
+        Ret ret2 = likelihoodJoint(X, A, target, rows);
 
         return new Ret(ret1.getLik() - ret2.getLik(), ret1.getDof() - ret2.getDof());
     }
@@ -266,7 +306,7 @@ public class ConditionalGaussianLikelihood {
 
     // The likelihood of the joint over all of these mixedVariables, assuming conditional Gaussian,
     // continuous and discrete.
-    private Ret likelihoodJoint(List<ContinuousVariable> X, List<DiscreteVariable> A, Node target, List<Integer> rows) {
+    private Ret likelihoodJoint(List<ContinuousVariable> X, List<DiscreteVariable> A, Node target, int[] rows) {
 
         A = new ArrayList<>(A);
         X = new ArrayList<>(X);
@@ -291,22 +331,38 @@ public class ConditionalGaussianLikelihood {
 
         double c1 = 0, c2 = 0;
 
-        List<List<Integer>> cells = partition(A, rows);
+        Partition partition = partition(A, rows);
+        double[][][] crossProducts = new double[k][k][];
+
+        for (int j1 = 0; j1 < k; j1++) {
+            for (int j2 = j1; j2 < k; j2++) {
+                crossProducts[j1][j2] = partition.getCrossProducts(continuousCols[j1], continuousCols[j2]);
+                crossProducts[j2][j1] = crossProducts[j1][j2];
+            }
+        }
 
-        for (List<Integer> cell : cells) {
-            int a = cell.size();
+        for (int c = 0; c < partition.cells.length; c++) {
+            int a = partition.cells[c].length;
 
             if (a == 0) continue;
 
             if (A.size() > 0) {
-                c1 += a * multinomialLikelihood(a, rows.size());
+                c1 += a * multinomialLikelihood(a, rows.length);
             }
 
-            if (X.size() > 0) {
+            // A covariance matrix needs at least two rows.
+            if (X.size() > 0 && a > 1) {
                 try {
+                    Matrix cov = new Matrix(k, k);
+
+                    for (int j1 = 0; j1 < k; j1++) {
+                        for (int j2 = 0; j2 < k; j2++) {
+                            cov.set(j1, j2, crossProducts[j1][j2][c] / (a - 1));
+                        }
+                    }
 
                     // Determinant will be zero if data are linearly dependent.
-                    double gl = gaussianLikelihood(k, cov(getSubsample(continuousCols, cell)));
+                    double gl = gaussianLikelihood(k, cov);
 
                     if (!Double.isNaN(gl)) {
                         c2 += a * gl;
@@ -333,23 +389,6 @@ public class ConditionalGaussianLikelihood {
         return -0.5 * log(sigma.det()) - 0.5 * k * (1 + ConditionalGaussianLikelihood.LOG2PI);
     }
 
-    private Matrix cov(Matrix x) {
-        return new Matrix(new Covariance(x.toArray(), true).getCovarianceMatrix().getData());
-    }
-
-    // Subsample of the continuous mixedVariables conditioning on the given cell.
-    private Matrix getSubsample(int[] continuousCols, List<Integer> cell) {
-        Matrix subset = new Matrix(cell.size(), continuousCols.length);
-
-        for (int i = 0; i < cell.size(); i++) {
-            for (int j = 0; j < continuousCols.length; j++) {
-                subset.set(i, j, this.continuousData[continuousCols[j]][cell.get(i)]);
-            }
-        }
-
-        return subset;
-    }
-
     // Degrees of freedom for a discrete distribution is the product of the number of categories for each
     // variable.
     private int f(List<DiscreteVariable> A) {
@@ -369,25 +408,165 @@ public class ConditionalGaussianLikelihood {
         return p * (p + 1) / 2;
     }
 
-    private List<List<Integer>> partition(List<DiscreteVariable> discrete_parents, List<Integer> rows) {
-        List<List<Integer>> cells = new ArrayList<>();
-        HashMap<List<Integer>, Integer> keys = new HashMap<>();
+    // Returns the partition of the given rows into cells by the values of the given discrete variables, from the cache
+    // if the rows are all the rows.
+    private Partition partition(List<DiscreteVariable> discreteParents, int[] rows) {
+        int[] cols = new int[discreteParents.size()];
+
+        for (int j = 0; j < cols.length; j++) {
+            cols[j] = this.dataSet.getColumn(discreteParents.get(j));
+        }
+
+        // The cells do not depend on the order of the variables, so neither does the key.
+        Arrays.sort(cols);
 
-        for (int i : rows) {
-            List<Integer> key = new ArrayList<>();
+        if (!this.allRows || rows.length != this.dataSet.getNumRows()) {
+            return new Partition(cols, rows);
+        }
+
+        List<Integer> key = new ArrayList<>(cols.length);
+        for (int col : cols) key.add(col);
+
+        Partition partition = this.partitions.get(key);
+        if (partition != null) return partition;
+
+        partition = new Partition(cols, rows);
+
+        synchronized (this.partitions) {
+            Partition other = this.partitions.get(key);
+            if (other != null) return other;
+
+            partition.cached = true;
+            this.partitions.put(key, partition);
+            addToCache(partition, rows.length);
+        }
+
+        return partition;
+    }
 
-            for (DiscreteVariable discrete_parent : discrete_parents) {
-                key.add((this.dataSet.getInt(i, this.dataSet.getColumn(discrete_parent))));
+    // Counts the given number of values of the given partition against the cache budget, if the partition is cached,
+    // and drops the least recently used other partitions while the budget is exceeded.
+    private void addToCache(Partition partition, long size) {
+        synchronized (this.partitions) {
+            if (!partition.cached) return;
+
+            partition.size += size;
+            this.cacheSize += size;
+
+            Iterator<Partition> eldest = this.partitions.values().iterator();
+
+            while (this.cacheSize > PARTITION_CACHE_BUDGET && eldest.hasNext()) {
+                Partition other = eldest.next();
+                if (other == partition) continue;
+
+                eldest.remove();
+                other.cached = false;
+                this.cacheSize -= other.size;
+            }
+        }
+    }
+
+    /**
+     * A partition of rows into cells by the values of some discrete variables, with the per-cell means and centered
+     * cross-products of continuous variables, which are computed as they are needed and kept.
+     */
+    private final class Partition {
+
+        // The rows in each cell, with the cells in order of their first rows.
+        private final int[][] cells;
+
+        // The means of the continuous columns in each cell, by column.
+        private final Map<Integer, double[]> means = new ConcurrentHashMap<>();
+
+        // The sums of the centered cross-products of pairs of continuous columns in each cell, by pair.
+        private final Map<Long, double[]> crossProducts = new ConcurrentHashMap<>();
+
+        // Whether the partition is in the cache, and the number of values it holds; guarded by the partitions.
+        private boolean cached = false;
+        private long size = 0;
+
+        // Partitions the rows by refining the partition by one column at a time. A missing or out-of-range value is
+        // put in a category of its own.
+        private Partition(int[] cols, int[] rows) {
+            int[] cellOf = new int[rows.length];
+            int numCells = rows.length == 0 ? 0 : 1;
+
+            for (int col : cols) {
+                int[] data = ConditionalGaussianLikelihood.this.discreteData[col];
+                int numCategories = ((DiscreteVariable) ConditionalGaussianLikelihood.this.dataSet.getVariable(col)).getNumCategories();
+                int radix = numCategories + 1;
+
+                int[] refined = new int[numCells * radix];
+                Arrays.fill(refined, -1);
+                int next = 0;
+
+                for (int r = 0; r < rows.length; r++) {
+                    int value = data[rows[r]];
+                    int key = cellOf[r] * radix + (value >= 0 && value < numCategories ? value : numCategories);
+
+                    if (refined[key] == -1) {
+                        refined[key] = next++;
+                    }
+
+                    cellOf[r] = refined[key];
+                }
+
+                numCells = next;
             }
 
-            if (!keys.containsKey(key)) {
-                keys.put(key, cells.size());
-                cells.add(keys.get(key), new ArrayList<>());
+            int[] sizes = new int[numCells];
+            for (int cell : cellOf) sizes[cell]++;
+
+            this.cells = new int[numCells][];
+            for (int c = 0; c < numCells; c++) this.cells[c] = new int[sizes[c]];
+
+            Arrays.fill(sizes, 0);
+
+            for (int r = 0; r < rows.length; r++) {
+                this.cells[cellOf[r]][sizes[cellOf[r]]++] = rows[r];
             }
+        }
 
-            cells.get(keys.get(key)).add(i);
+        private double[] getMeans(int col) {
+            return this.means.computeIfAbsent(col, j -> {
+                double[] data = ConditionalGaussianLikelihood.this.continuousData[j];
+                double[] means = new double[this.cells.length];
+
+                for (int c = 0; c < this.cells.length; c++) {
+                    double sum = 0.0;
+                    for (int r : this.cells[c]) sum += data[r];
+                    means[c] = sum / this.cells[c].length;
+                }
+
+                addToCache(this, means.length);
+                return means;
+            });
         }
 
-        return cells;
+        private double[] getCrossProducts(int col1, int col2) {
+            int j1 = FastMath.min(col1, col2);
+            int j2 = FastMath.max(col1, col2);
+            double[] means1 = getMeans(j1);
+            double[] means2 = getMeans(j2);
+
+            return this.crossProducts.computeIfAbsent(((long) j1 << 32) | j2, key -> {
+                double[] data1 = ConditionalGaussianLikelihood.this.continuousData[j1];
+                double[] data2 = ConditionalGaussianLikelihood.this.continuousData[j2];
+                double[] sums = new double[this.cells.length];
+
+                for (int c = 0; c < this.cells.length; c++) {
+                    double sum = 0.0;
+
+                    for (int r : this.cells[c]) {
+                        sum += (data1[r] - means1[c]) * (data2[r] - means2[c]);
+                    }
+
+                    sums[c] = sum;
+                }
+
+                addToCache(this, sums.length);
+                return sums;
+            });
+        }
     }
-}
\ No newline at end of file
+}
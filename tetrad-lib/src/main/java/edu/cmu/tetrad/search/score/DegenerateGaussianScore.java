@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search.score;
 
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import org.apache.commons.math3.linear.BlockRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
 
@@ -32,6 +33,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -45,6 +47,15 @@ import java.util.Map;
  * directed acyclic graphs with mixed data-types. In The 2019 ACM SIGKDD Workshop on Causal Discovery (pp. 4-21).
  * PMLR.</p>
  *
+ * <p>The SEM BIC score needs only the covariance matrix of the embedded data. Optionally, this matrix may be
+ * calculated directly from the mixed data, without building the embedded data, which for discrete variables with many
+ * categories is much larger than the mixed data. The covariance of two indicator columns depends only on the counts
+ * of their categories and of the pair of categories, and the covariance of an indicator column with a continuous
+ * column only on the sum of the continuous column over the rows in the category, so each block of the matrix, one
+ * block for each pair of mixed variables, is calculated in one pass over the rows, however many categories the
+ * variables have. The blocks are calculated in parallel. This is not done if there are missing continuous values,
+ * since the SEM BIC score then needs the data.</p>
+ *
  * <p>As for all scores in Tetrad, higher scores mean more dependence, and negative
  * scores indicate independence.</p>
  *
@@ -62,7 +73,29 @@ public class DegenerateGaussianScore implements Score {
 
     private final SemBicScore bic;
 
+    // The number of bytes in the data and covariance matrix the score was built from.
+    private final long memoryUsed;
+
+    /**
+     * Constructs the score, building the embedded data and calculating its covariance matrix from it.
+     *
+     * @param dataSet A dataset with a mixture of continuous and discrete variables. It may be all continuous or all
+     *                discrete.
+     */
     public DegenerateGaussianScore(DataSet dataSet) {
+        this(dataSet, false);
+    }
+
+    /**
+     * Constructs the score.
+     *
+     * @param dataSet                A dataset with a mixture of continuous and discrete variables. It may be all
+     *                               continuous or all discrete.
+     * @param useSufficientStatistics True if the covariance matrix of the embedded data should be calculated directly
+     *                               from the mixed data, without building the embedded data, if there are no missing
+     *                               continuous values. The scores are the same either way, up to rounding.
+     */
+    public DegenerateGaussianScore(DataSet dataSet, boolean useSufficientStatistics) {
         if (dataSet == null) {
             throw new NullPointerException();
         }
@@ -73,7 +106,11 @@ public class DegenerateGaussianScore implements Score {
         this.embedding = new HashMap<>();
 
         List<Node> A = new ArrayList<>();
-        List<double[]> B = new ArrayList<>();
+
+        // For each embedded column, the index of the mixed variable and, for an indicator, its category.
+        List<int[]> sources = new ArrayList<>();
+
+        boolean missingContinuous = false;
 
         int index = 0;
 
@@ -95,29 +132,31 @@ public class DegenerateGaussianScore implements Score {
                         keysReverse.put(i, key);
                         Node v_ = new ContinuousVariable("V__" + ++index);
                         A.add(v_);
-                        B.add(new double[n]);
+                        sources.add(new int[]{i_, key.get(0)});
                         i++;
                     }
-                    B.get(keys.get(key))[j] = 1;
                 }
 
                 // Remove a degenerate dimension.
                 i--;
                 keys.remove(keysReverse.get(i));
                 A.remove(i);
-                B.remove(i);
+                sources.remove(i);
 
                 this.embedding.put(i_, new ArrayList<>(keys.values()));
 
             } else {
 
                 A.add(v);
-                double[] b = new double[n];
+                sources.add(new int[]{i_});
+
                 for (int j = 0; j < n; j++) {
-                    b[j] = dataSet.getDouble(j, i_);
+                    if (Double.isNaN(dataSet.getDouble(j, i_))) {
+                        missingContinuous = true;
+                        break;
+                    }
                 }
 
-                B.add(b);
                 List<Integer> index2 = new ArrayList<>();
                 index2.add(i);
                 this.embedding.put(i_, index2);
@@ -126,15 +165,32 @@ public class DegenerateGaussianScore implements Score {
             }
             i_++;
         }
-        double[][] B_ = new double[n][B.size()];
-        for (int j = 0; j < B.size(); j++) {
-            for (int k = 0; k < n; k++) {
-                B_[k][j] = B.get(j)[k];
+
+        int m = A.size();
+
+        if (useSufficientStatistics && !missingContinuous) {
+            double[][] cov = new EmbeddedCovariances(dataSet, sources).getCovariances();
+            this.bic = new SemBicScore(new CovarianceMatrix(A, cov, n));
+            this.memoryUsed = 8L * m * m;
+        } else {
+            double[][] B_ = new double[n][m];
+            for (int j = 0; j < m; j++) {
+                int[] source = sources.get(j);
+
+                for (int k = 0; k < n; k++) {
+                    if (source.length == 1) {
+                        B_[k][j] = dataSet.getDouble(k, source[0]);
+                    } else if (dataSet.getInt(k, source[0]) == source[1]) {
+                        B_[k][j] = 1;
+                    }
+                }
             }
+
+            RealMatrix D = new BlockRealMatrix(B_);
+            this.bic = new SemBicScore(new BoxDataSet(new DoubleDataBox(D.getData()), A));
+            this.memoryUsed = 8L * n * m + 8L * m * m;
         }
 
-        RealMatrix D = new BlockRealMatrix(B_);
-        this.bic = new SemBicScore(new BoxDataSet(new DoubleDataBox(D.getData()), A));
         this.bic.setStructurePrior(0);
     }
 
@@ -201,6 +257,26 @@ public class DegenerateGaussianScore implements Score {
         return "Degenerate Gaussian Score Penalty " + nf.format(this.bic.getPenaltyDiscount());
     }
 
+    /**
+     * Returns the number of bytes taken by the data and covariance matrix the SEM BIC score is calculated from, which
+     * is the size of the embedded data plus that of its covariance matrix, or just the size of the covariance matrix
+     * if it was calculated from sufficient statistics.
+     *
+     * @return This number of bytes.
+     */
+    public long getMemoryUsed() {
+        return this.memoryUsed;
+    }
+
+    /**
+     * Returns the number of columns of the embedded data.
+     *
+     * @return This number.
+     */
+    public int getNumEmbeddedColumns() {
+        return this.bic.getVariables().size();
+    }
+
     public double getPenaltyDiscount() {
         return this.bic.getPenaltyDiscount();
     }
@@ -217,4 +293,185 @@ public class DegenerateGaussianScore implements Score {
         System.out.println("STRUCTURE PRIOR IS NOT IMPLEMENTED!");
         this.structurePrior = structurePrior;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the covariance matrix of the embedded data from the mixed data. The rows of each continuous variable
+     * are centered, and the rows of each discrete variable are recoded as the index of their indicator column within
+     * the variable, or -1 for the implied category; the block for a pair of mixed variables is then a sum of products
+     * of centered columns, a set of sums of a centered column over categories, or a table of counts of pairs of
+     * categories.
+     */
+    private static final class EmbeddedCovariances {
+
+        // The number of mixed variables.
+        private final int numVars;
+
+        // The centered columns of the continuous variables, or null for discrete variables.
+        private final double[][] centered;
+
+        // The recoded columns of the discrete variables, or null for continuous variables.
+        private final int[][] codes;
+
+        // The counts of the categories of each discrete variable, by indicator column within the variable.
+        private final int[][] counts;
+
+        // The first embedded column of each mixed variable.
+        private final int[] offsets;
+
+        // The number of rows.
+        private final int n;
+
+        // The covariance matrix of the embedded data.
+        private final double[][] cov;
+
+        private EmbeddedCovariances(DataSet dataSet, List<int[]> sources) {
+            this.numVars = dataSet.getNumColumns();
+            this.n = dataSet.getNumRows();
+            this.centered = new double[this.numVars][];
+            this.codes = new int[this.numVars][];
+            this.counts = new int[this.numVars][];
+            this.offsets = new int[this.numVars + 1];
+
+            int[] numColumns = new int[this.numVars];
+            for (int[] source : sources) numColumns[source[0]]++;
+            for (int v = 0; v < this.numVars; v++) this.offsets[v + 1] = this.offsets[v] + numColumns[v];
+
+            for (int v = 0; v < this.numVars; v++) {
+                if (dataSet.getVariable(v) instanceof DiscreteVariable) {
+                    Map<Integer, Integer> columns = new HashMap<>();
+
+                    for (int c = this.offsets[v]; c < this.offsets[v + 1]; c++) {
+                        columns.put(sources.get(c)[1], c - this.offsets[v]);
+                    }
+
+                    int[] code = new int[this.n];
+                    int[] count = new int[numColumns[v]];
+
+                    for (int k = 0; k < this.n; k++) {
+                        code[k] = columns.getOrDefault(dataSet.getInt(k, v), -1);
+                        if (code[k] >= 0) count[code[k]]++;
+                    }
+
+                    this.codes[v] = code;
+                    this.counts[v] = count;
+                } else {
+                    double[] x = new double[this.n];
+                    double sum = 0.0;
+
+                    for (int k = 0; k < this.n; k++) {
+                        x[k] = dataSet.getDouble(k, v);
+                        sum += x[k];
+                    }
+
+                    double mean = sum / this.n;
+                    for (int k = 0; k < this.n; k++) x[k] -= mean;
+
+                    this.centered[v] = x;
+                }
+            }
+
+            int m = this.offsets[this.numVars];
+            this.cov = new double[m][m];
+
+            int chunk = Math.max(1, this.numVars / (8 * ForkJoinPoolInstance.getInstance().getParallelism()));
+            ForkJoinPoolInstance.getInstance().getPool().invoke(new BlockAction(0, this.numVars, chunk));
+        }
+
+        private double[][] getCovariances() {
+            return this.cov;
+        }
+
+        // Fills in the blocks for mixed variables v and w, for w >= v, and their transposes.
+        private void fillBlocks(int v) {
+            double divisor = this.n - 1;
+
+            for (int w = v; w < this.numVars; w++) {
+                int ov = this.offsets[v];
+                int ow = this.offsets[w];
+
+                if (this.centered[v] != null && this.centered[w] != null) {
+                    double[] x = this.centered[v];
+                    double[] y = this.centered[w];
+                    double sum = 0.0;
+                    for (int k = 0; k < this.n; k++) sum += x[k] * y[k];
+                    set(ov, ow, sum / divisor);
+                } else if (this.centered[v] != null || this.centered[w] != null) {
+                    int d = this.centered[v] != null ? w : v;
+                    int c = this.centered[v] != null ? v : w;
+                    double[] x = this.centered[c];
+                    int[] code = this.codes[d];
+                    double[] sums = new double[this.counts[d].length];
+                    double total = 0.0;
+
+                    for (int k = 0; k < this.n; k++) {
+                        total += x[k];
+                        if (code[k] >= 0) sums[code[k]] += x[k];
+                    }
+
+                    // The sum over the rows in the category of (1 - p) x, plus the sum over the rest of -p x.
+                    for (int a = 0; a < sums.length; a++) {
+                        double p = this.counts[d][a] / (double) this.n;
+                        set(this.offsets[d] + a, this.offsets[c], (sums[a] - p * total) / divisor);
+                    }
+                } else if (v == w) {
+                    int[] count = this.counts[v];
+
+                    for (int a = 0; a < count.length; a++) {
+                        for (int b = a; b < count.length; b++) {
+                            double sum = (a == b ? count[a] : 0) - count[a] * (double) count[b] / this.n;
+                            set(ov + a, ov + b, sum / divisor);
+                        }
+                    }
+                } else {
+                    int[] codeV = this.codes[v];
+                    int[] codeW = this.codes[w];
+                    int numW = this.counts[w].length;
+                    int[] table = new int[this.counts[v].length * numW];
+
+                    for (int k = 0; k < this.n; k++) {
+                        if (codeV[k] >= 0 && codeW[k] >= 0) table[codeV[k] * numW + codeW[k]]++;
+                    }
+
+                    for (int a = 0; a < this.counts[v].length; a++) {
+                        for (int b = 0; b < numW; b++) {
+                            double sum = table[a * numW + b] - this.counts[v][a] * (double) this.counts[w][b] / this.n;
+                            set(ov + a, ow + b, sum / divisor);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void set(int r, int c, double value) {
+            this.cov[r][c] = value;
+            this.cov[c][r] = value;
+        }
+
+        // Fills in the blocks for mixed variables [from, to).
+        private class BlockAction extends RecursiveAction {
+            private static final long serialVersionUID = 23L;
+
+            private final int from;
+            private final int to;
+            private final int chunk;
+
+            BlockAction(int from, int to, int chunk) {
+                this.from = from;
+                this.to = to;
+                this.chunk = chunk;
+            }
+
+            @Override
+            protected void compute() {
+                if (this.to - this.from <= this.chunk) {
+                    for (int v = this.from; v < this.to; v++) {
+                        fillBlocks(v);
+                    }
+                } else {
+                    int mid = (this.from + this.to) >>> 1;
+                    invokeAll(new BlockAction(this.from, mid, this.chunk), new BlockAction(mid, this.to, this.chunk));
+                }
+            }
+        }
+    }
+}
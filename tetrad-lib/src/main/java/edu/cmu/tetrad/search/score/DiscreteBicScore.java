@@ -46,7 +46,7 @@ import static org.apache.commons.math3.util.FastMath.log;
 public class DiscreteBicScore implements DiscreteScore {
     private final DataSet dataSet;
     private List<Node> variables;
-    private final int[][] data;
+    private final ContingencyCounter counter;
     private final int sampleSize;
     private double penaltyDiscount = 1;
     private final int[] numCategories;
@@ -64,27 +64,9 @@ public class DiscreteBicScore implements DiscreteScore {
 
         this.dataSet = dataSet;
 
-        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox) {
-            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
-            this.variables = dataSet.getVariables();
-            VerticalIntDataBox box = (VerticalIntDataBox) dataBox;
-
-            this.data = box.getVariableVectors();
-            this.sampleSize = box.numRows();
-        } else {
-            this.data = new int[dataSet.getNumColumns()][];
-            this.variables = dataSet.getVariables();
-
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                this.data[j] = new int[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    this.data[j][i] = dataSet.getInt(i, j);
-                }
-            }
-
-            this.sampleSize = dataSet.getNumRows();
-        }
+        this.variables = dataSet.getVariables();
+        this.counter = new ContingencyCounter(dataSet);
+        this.sampleSize = dataSet.getNumRows();
 
         List<Node> variables = dataSet.getVariables();
         this.numCategories = new int[variables.size()];
@@ -130,47 +112,26 @@ public class DiscreteBicScore implements DiscreteScore {
             r *= dims[p];
         }
 
-        // Conditional cell coefs of data for node given parents(node).
-        int[][] n_jk = new int[r][c];
+        // Conditional cell coefs of data for node given parents(node); the counts for parent state j are at
+        // j * c through j * c + c - 1.
+        ContingencyCounter.Table table = this.counter.count(append(parents, node));
+        int[] n_jk = table.getCounts();
         int[] n_j = new int[r];
 
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = this.data[parents[i]];
-        }
-
-        int[] myChild = this.data[node];
-
-        int N = 0;
-
-        ROW:
-        for (int i = 0; i < this.sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
+        for (int j = 0; j < r; j++) {
+            for (int k = 0; k < c; k++) {
+                n_j[j] += n_jk[j * c + k];
             }
-
-            int childValue = myChild[i];
-
-            if (childValue == -99) {
-                continue;
-            }
-
-            int rowIndex = DiscreteBicScore.getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-            N++;
         }
 
+        int N = table.getTotal();
+
         //Finally, compute the score
         double lik = 0.0;
 
         for (int rowIndex = 0; rowIndex < r; rowIndex++) {
             for (int childValue = 0; childValue < c; childValue++) {
-                int cellCount = n_jk[rowIndex][childValue];
+                int cellCount = n_jk[rowIndex * c + childValue];
                 int rowCount = n_j[rowIndex];
 
                 if (cellCount == 0) continue;
@@ -314,15 +275,6 @@ public class DiscreteBicScore implements DiscreteScore {
         return "BIC Score";
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     private double getPriorForStructure(int parents) {
         if (abs(this.structurePrior) <= 0) {
             return 0;
@@ -155,6 +155,14 @@ public class GraphScore implements Score {
         throw new UnsupportedOperationException("The 'local score' method is not supported here.");
     }
 
+    /**
+     * Returns false, since score differences here come from the locally consistent scoring criterion.
+     */
+    @Override
+    public boolean isDifferenceOfLocalScores() {
+        return false;
+    }
+
     /**
      * Returns a judgment for FGES as to whether a score with the bump is for an effect edge.
      *
@@ -176,6 +176,14 @@ public class ImagesScore implements Score {
         return sum / count;
     }
 
+    /**
+     * Returns false, since score differences are averaged over the data sets apart from the local scores.
+     */
+    @Override
+    public boolean isDifferenceOfLocalScores() {
+        return false;
+    }
+
     @Override
     public boolean isEffectEdge(double bump) {
         return scores.get(0).isEffectEdge(bump);
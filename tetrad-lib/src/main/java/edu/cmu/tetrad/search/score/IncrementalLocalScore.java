@@ -0,0 +1,91 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.score;
+
+/**
+ * <p>A local score for a fixed node whose parent set can be grown and shrunk one parent at a time, more cheaply
+ * than scoring each new parent set from scratch. Grow-shrink style searches score i | P, then i | P + x for
+ * various x, then i | P - y for various y; a score that can update its sufficient statistics for one added or
+ * removed parent lets these searches avoid recomputing everything for each candidate.</p>
+ *
+ * <p>Instances are obtained from {@link Score#incrementalLocalScore(int, int...)} for scores that support
+ * this (see {@link Score#supportsIncrementalLocalScore()}). They hold mutable state and are not thread-safe;
+ * each thread should use its own.</p>
+ *
+ * @see Score
+ * @see SemBicScore
+ */
+public interface IncrementalLocalScore {
+
+    /**
+     * Returns the node being scored.
+     *
+     * @return This node.
+     */
+    int getNode();
+
+    /**
+     * Returns the current parents of the node, in the order they were added.
+     *
+     * @return A copy of these parents.
+     */
+    int[] getParents();
+
+    /**
+     * Returns the local score of the node given its current parents.
+     *
+     * @return This score.
+     */
+    double getScore();
+
+    /**
+     * Returns the local score of the node given its current parents plus x, without changing the current parents.
+     *
+     * @param x The extra parent; must not already be a parent.
+     * @return This score, or NaN if it cannot be calculated.
+     */
+    double scoreWithParent(int x);
+
+    /**
+     * Returns the local score of the node given its current parents minus y, without changing the current parents.
+     *
+     * @param y The parent to remove; must be a current parent.
+     * @return This score, or NaN if it cannot be calculated.
+     */
+    double scoreWithoutParent(int y);
+
+    /**
+     * Adds x to the parents of the node.
+     *
+     * @param x The extra parent; must not already be a parent.
+     * @return True if x was added, false if it could not be because the score given the new parents cannot be
+     * calculated, in which case the parents are left unchanged.
+     */
+    boolean addParent(int x);
+
+    /**
+     * Removes y from the parents of the node.
+     *
+     * @param y The parent to remove; must be a current parent.
+     */
+    void removeParent(int y);
+}
@@ -102,6 +102,14 @@ public class IndTestScore implements Score {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns false, since score differences here are taken from the independence test.
+     */
+    @Override
+    public boolean isDifferenceOfLocalScores() {
+        return false;
+    }
+
     @Override
     public boolean isEffectEdge(double bump) {
         return true;
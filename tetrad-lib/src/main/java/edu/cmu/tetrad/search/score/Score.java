@@ -80,6 +80,24 @@ public interface Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Returns localScoreDiff(x, y) for each x in xs. Scores that can share work across the candidate parents of one
+     * child, such as the residual variance of the child given no parents, may override this.
+     *
+     * @param xs The candidate parents.
+     * @param y  The child.
+     * @return The score differences, in the order of xs.
+     */
+    default double[] localScoreDiffs(int[] xs, int y) {
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = localScoreDiff(xs[i], y);
+        }
+
+        return diffs;
+    }
+
     default double localScore(int node, int parent) {
         return localScore(node, new int[]{parent});
     }
@@ -109,5 +127,38 @@ public interface Score {
     default boolean determines(List<Node> z, Node y) {
         throw new UnsupportedOperationException("Method determines() is not implemented for this score.");
     }
+
+    /**
+     * Returns true if localScoreDiff(x, y, z) is localScore(y, z + x) - localScore(y, z), so that score differences
+     * may be calculated from (possibly cached) local scores. Scores whose differences are calculated some other way
+     * should return false.
+     *
+     * @return True if so.
+     */
+    default boolean isDifferenceOfLocalScores() {
+        return true;
+    }
+
+    /**
+     * Returns true if this score can give incremental local scores; see incrementalLocalScore.
+     *
+     * @return True if so.
+     */
+    default boolean supportsIncrementalLocalScore() {
+        return false;
+    }
+
+    /**
+     * Returns a local score for the given node and initial parents that can be updated one parent at a time.
+     *
+     * @param node    The node.
+     * @param parents The initial parents.
+     * @return This incremental local score.
+     * @throws UnsupportedOperationException If this score does not support incremental local scores.
+     * @see IncrementalLocalScore
+     */
+    default IncrementalLocalScore incrementalLocalScore(int node, int... parents) {
+        throw new UnsupportedOperationException("Incremental local scores are not implemented for this score.");
+    }
 }
 
@@ -77,6 +77,13 @@ public class SemBicScore implements Score {
      */
     public enum RuleType {CHICKERING, NANDY}
 
+    // A pivot of the Cholesky factorization at or below this fraction of the corresponding variance is taken to
+    // mean that the parent covariance matrix is not numerically positive definite.
+    private static final double CHOLESKY_TOLERANCE = 1e-12;
+    // Per-thread scratch arrays for the Cholesky solve in getVarRyCholesky.
+    private static final ThreadLocal<double[][]> SCRATCH
+            = ThreadLocal.withInitial(() -> new double[][]{new double[16 * 16], new double[16]});
+
     // The sample size of the covariance matrix.
     private final int sampleSize;
     // A  map from variable names to their indices.
@@ -155,8 +162,97 @@ public class SemBicScore implements Score {
         return SimpleDataLoader.getCovarianceMatrix(dataSet);
     }
 
+    /**
+     * Returns the variance of the residual of regressing i on its parents. If the covariances can be used directly
+     * (that is, row subsets need not be calculated for missing values), this is done by a Cholesky solve on
+     * reusable scratch arrays; otherwise, or if the parent covariance matrix is not numerically positive definite,
+     * it is done by inverting the parent covariance matrix.
+     *
+     * @param i                   The index of the child.
+     * @param parents             The indices of the parents.
+     * @param data                The data, used if row subsets need to be calculated.
+     * @param covariances         The covariance matrix.
+     * @param calculateRowSubsets True if row subsets should be calculated to deal with missing values.
+     * @return The residual variance.
+     * @throws SingularMatrixException If the parent covariance matrix is singular.
+     */
     public static double getVarRy(int i, int[] parents, Matrix data, ICovarianceMatrix covariances, boolean calculateRowSubsets)
             throws SingularMatrixException {
+        if (!calculateRowSubsets) {
+            double varRy = SemBicScore.getVarRyCholesky(i, parents, covariances);
+            if (!Double.isNaN(varRy)) return varRy;
+        }
+
+        return SemBicScore.getVarRyInverse(i, parents, data, covariances, calculateRowSubsets);
+    }
+
+    /**
+     * Returns the variance of the residual of regressing i on its parents, calculated from a Cholesky factorization
+     * of the parent covariance matrix. The factorization and the forward solve are done in place on thread-local
+     * scratch arrays, so no objects are allocated per call once the arrays are large enough.
+     *
+     * @param i           The index of the child.
+     * @param parents     The indices of the parents.
+     * @param covariances The covariance matrix.
+     * @return The residual variance, or NaN if the parent covariance matrix is not numerically positive definite.
+     */
+    public static double getVarRyCholesky(int i, int[] parents, ICovarianceMatrix covariances) {
+        int k = parents.length;
+        double[][] scratch = SemBicScore.scratch(k);
+        double[] l = scratch[0];
+        double[] w = scratch[1];
+
+        double varRy = covariances.getValue(i, i);
+
+        // Cholesky-Banachiewicz, row by row, with the forward solve L w = cov(parents, i) folded in.
+        for (int r = 0; r < k; r++) {
+            int pr = parents[r];
+
+            for (int c = 0; c <= r; c++) {
+                double sum = covariances.getValue(pr, parents[c]);
+
+                for (int m = 0; m < c; m++) {
+                    sum -= l[r * k + m] * l[c * k + m];
+                }
+
+                if (c < r) {
+                    l[r * k + c] = sum / l[c * k + c];
+                } else {
+                    if (sum <= SemBicScore.CHOLESKY_TOLERANCE * covariances.getValue(pr, pr)) {
+                        return NaN;
+                    }
+
+                    l[r * k + r] = Math.sqrt(sum);
+                }
+            }
+
+            double sum = covariances.getValue(pr, i);
+
+            for (int m = 0; m < r; m++) {
+                sum -= l[r * k + m] * w[m];
+            }
+
+            w[r] = sum / l[r * k + r];
+            varRy -= w[r] * w[r];
+        }
+
+        return varRy;
+    }
+
+    /**
+     * Returns the variance of the residual of regressing i on its parents, calculated by inverting the parent
+     * covariance matrix. This is the general path, used when there are missing values.
+     *
+     * @param i                   The index of the child.
+     * @param parents             The indices of the parents.
+     * @param data                The data, used if row subsets need to be calculated.
+     * @param covariances         The covariance matrix.
+     * @param calculateRowSubsets True if row subsets should be calculated to deal with missing values.
+     * @return The residual variance.
+     * @throws SingularMatrixException If the parent covariance matrix is singular.
+     */
+    public static double getVarRyInverse(int i, int[] parents, Matrix data, ICovarianceMatrix covariances,
+                                         boolean calculateRowSubsets) throws SingularMatrixException {
         int[] all = SemBicScore.concat(i, parents);
         Matrix cov = SemBicScore.getCov(SemBicScore.getRows(i, parents, data, calculateRowSubsets), all, all, data, covariances);
         int[] pp = SemBicScore.indexedParents(parents);
@@ -167,6 +263,20 @@ public class SemBicScore implements Score {
         return (bStar.transpose().times(cov).times(bStar).get(0, 0));
     }
 
+    // Returns scratch arrays for the Cholesky solve for k parents, {L (k x k, row major), w (k)}, growing the
+    // arrays for this thread if need be.
+    private static double[][] scratch(int k) {
+        double[][] scratch = SemBicScore.SCRATCH.get();
+
+        if (scratch[1].length < k) {
+            int size = Math.max(k, 2 * scratch[1].length);
+            scratch[0] = new double[size * size];
+            scratch[1] = new double[size];
+        }
+
+        return scratch;
+    }
+
     @NotNull
     public static Matrix bStar(Matrix b) {
         Matrix byx = new Matrix(b.getNumRows() + 1, 1);
@@ -244,6 +354,14 @@ public class SemBicScore implements Score {
     }
 
 
+    /**
+     * Returns false for the Nandy rule, whose score differences are not differences of local scores.
+     */
+    @Override
+    public boolean isDifferenceOfLocalScores() {
+        return this.ruleType != RuleType.NANDY;
+    }
+
     @Override
     public double localScoreDiff(int x, int y, int[] z) {
         if (this.ruleType == RuleType.NANDY) {
@@ -276,26 +394,95 @@ public class SemBicScore implements Score {
     }
 
 
-//    private final Map<List<Integer>, Double> cache = new ConcurrentHashMap<>();
-
     /**
      * @param i       The index of the node.
      * @param parents The indices of the node's parents.
      * @return The score, or NaN if the score cannot be calculated.
      */
     public double localScore(int i, int... parents) {
-        int k = parents.length;
-        double lik;
+        double varey;
 
         Arrays.sort(parents);
 
         try {
-            double varey = SemBicScore.getVarRy(i, parents, this.data, this.covariances, this.calculateRowSubsets);
-            lik = -(double) (this.sampleSize / 2.0) * log(varey);
+            varey = SemBicScore.getVarRy(i, parents, this.data, this.covariances, this.calculateRowSubsets);
         } catch (SingularMatrixException e) {
-            lik = NaN;
+            varey = NaN;
+        }
+
+        return bic(varey, parents.length);
+    }
+
+    /**
+     * Scores all the candidate parents of y from one incremental score for y with no parents, so that each candidate
+     * costs a few lookups in the covariance matrix rather than a regression of its own. Under the Nandy rule the
+     * differences are on a different scale, so they are taken one at a time from localScoreDiff.
+     *
+     * @param xs The candidate parents.
+     * @param y  The child.
+     * @return The score differences, in the order of xs.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y) {
+        if (!supportsIncrementalLocalScore() || this.ruleType == RuleType.NANDY) {
+            return Score.super.localScoreDiffs(xs, y);
+        }
+
+        IncrementalLocalScore score = incrementalLocalScore(y);
+        double base = score.getScore();
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = score.scoreWithParent(xs[i]) - base;
+        }
+
+        return diffs;
+    }
+
+    /**
+     * Returns true if there are no missing values, so that local scores can be updated incrementally from the
+     * covariance matrix.
+     *
+     * @return True if so.
+     */
+    @Override
+    public boolean supportsIncrementalLocalScore() {
+        return !this.calculateRowSubsets;
+    }
+
+    /**
+     * Returns a local score for node i that maintains a Cholesky factorization of the covariance matrix of the
+     * parents of i, so that adding or removing one parent costs O(k^2) rather than the O(k^3) of scoring the new
+     * parent set from scratch, for k parents.
+     *
+     * @param i       The index of the node.
+     * @param parents The indices of the initial parents.
+     * @return This incremental local score.
+     * @throws UnsupportedOperationException If there are missing values.
+     * @throws IllegalArgumentException      If the covariance matrix of the initial parents is singular.
+     */
+    @Override
+    public IncrementalLocalScore incrementalLocalScore(int i, int... parents) {
+        if (!supportsIncrementalLocalScore()) {
+            throw new UnsupportedOperationException("Incremental local scores are not available when there are " +
+                    "missing values.");
+        }
+
+        IncrementalSemBic score = new IncrementalSemBic(i);
+
+        for (int parent : parents) {
+            if (!score.addParent(parent)) {
+                throw new IllegalArgumentException("The covariance matrix of the parents of "
+                        + this.variables.get(i) + " is singular.");
+            }
         }
 
+        return score;
+    }
+
+    // The BIC score given the residual variance of a node given k parents.
+    private double bic(double varey, int k) {
+        double lik = -(double) (this.sampleSize / 2.0) * log(varey);
 
         double c = getPenaltyDiscount();
 
@@ -435,7 +622,7 @@ public class SemBicScore implements Score {
     }
 
     private List<Integer> getRows(int i, int[] parents) {
-        if (this.dataModel == null) {
+        if (!(this.dataModel instanceof DataSet)) {
             return null;
         }
 
@@ -474,7 +661,7 @@ public class SemBicScore implements Score {
     }
 
     private Matrix getCov(List<Integer> rows, int[] cols) {
-        if (this.dataModel == null) {
+        if (!(this.dataModel instanceof DataSet)) {
             return this.matrix.getSelection(cols, cols);
         }
 
@@ -545,6 +732,200 @@ public class SemBicScore implements Score {
     public String toString() {
         return "SEM BIC Score";
     }
+
+    /**
+     * An incremental local score for one node. Keeps the Cholesky factor L of the parent covariance matrix S_PP
+     * (lower triangular, row major with stride cap) and w = L^-1 S_Pi, so that the residual variance of i given P
+     * is S_ii - w'w. A parent is added by appending a row to L; a parent is removed by deleting its row from L and
+     * restoring triangularity with Givens rotations, which are applied to w as well.
+     */
+    private final class IncrementalSemBic implements IncrementalLocalScore {
+        private final int node;
+        private int[] parents;
+        private int k;
+        private int cap;
+        private double[] l;
+        private double[] w;
+        private double varRy;
+
+        // Scratch space for scoreWithParent and scoreWithoutParent.
+        private double[] row;
+        private double[] m;
+
+        private IncrementalSemBic(int node) {
+            this.node = node;
+            this.varRy = covariances.getValue(node, node);
+            allocate(8);
+        }
+
+        @Override
+        public int getNode() {
+            return this.node;
+        }
+
+        @Override
+        public int[] getParents() {
+            return Arrays.copyOf(this.parents, this.k);
+        }
+
+        @Override
+        public double getScore() {
+            return bic(this.varRy, this.k);
+        }
+
+        @Override
+        public double scoreWithParent(int x) {
+            checkNotParent(x);
+            double d = newRow(x);
+            if (Double.isNaN(d)) return NaN;
+            double wx = newW(x, d);
+            return bic(this.varRy - wx * wx, this.k + 1);
+        }
+
+        @Override
+        public double scoreWithoutParent(int y) {
+            int j = indexOf(y);
+            System.arraycopy(this.l, 0, this.m, 0, this.k * this.cap);
+            System.arraycopy(this.w, 0, this.row, 0, this.k);
+            double last = deleteRow(this.m, this.row, j);
+            return bic(this.varRy + last * last, this.k - 1);
+        }
+
+        @Override
+        public boolean addParent(int x) {
+            checkNotParent(x);
+            if (this.k == this.cap) allocate(2 * this.cap);
+
+            double d = newRow(x);
+            if (Double.isNaN(d)) return false;
+            double wx = newW(x, d);
+
+            System.arraycopy(this.row, 0, this.l, this.k * this.cap, this.k);
+            this.l[this.k * this.cap + this.k] = d;
+            this.w[this.k] = wx;
+            this.parents[this.k] = x;
+            this.varRy -= wx * wx;
+            this.k++;
+            return true;
+        }
+
+        @Override
+        public void removeParent(int y) {
+            int j = indexOf(y);
+            double last = deleteRow(this.l, this.w, j);
+            System.arraycopy(this.parents, j + 1, this.parents, j, this.k - j - 1);
+            this.varRy += last * last;
+            this.k--;
+        }
+
+        // Solves L row = S_Px into this.row and returns the new diagonal entry sqrt(S_xx - row'row), or NaN if
+        // S would no longer be numerically positive definite.
+        private double newRow(int x) {
+            for (int r = 0; r < this.k; r++) {
+                double sum = covariances.getValue(this.parents[r], x);
+
+                for (int c = 0; c < r; c++) {
+                    sum -= this.l[r * this.cap + c] * this.row[c];
+                }
+
+                this.row[r] = sum / this.l[r * this.cap + r];
+            }
+
+            double sxx = covariances.getValue(x, x);
+            double dd = sxx;
+
+            for (int c = 0; c < this.k; c++) {
+                dd -= this.row[c] * this.row[c];
+            }
+
+            if (dd <= SemBicScore.CHOLESKY_TOLERANCE * sxx) return NaN;
+            return Math.sqrt(dd);
+        }
+
+        // The new entry of w for parent x, given its row of L in this.row and its diagonal entry d.
+        private double newW(int x, double d) {
+            double sum = covariances.getValue(x, this.node);
+
+            for (int c = 0; c < this.k; c++) {
+                sum -= this.row[c] * this.w[c];
+            }
+
+            return sum / d;
+        }
+
+        // Deletes row j from the factor a (rows 0..k-1), rotating columns to restore lower triangularity and
+        // applying the same rotations to v. Returns the last entry of v after rotation, which drops out.
+        private double deleteRow(double[] a, double[] v, int j) {
+            int cap = this.cap;
+
+            for (int r = j; r < this.k - 1; r++) {
+                System.arraycopy(a, (r + 1) * cap, a, r * cap, r + 2);
+            }
+
+            for (int c = j; c < this.k - 1; c++) {
+                double x = a[c * cap + c];
+                double y = a[c * cap + c + 1];
+                double h = Math.hypot(x, y);
+                double cs = x / h;
+                double sn = y / h;
+
+                for (int r = c; r < this.k - 1; r++) {
+                    double p = a[r * cap + c];
+                    double q = a[r * cap + c + 1];
+                    a[r * cap + c] = cs * p + sn * q;
+                    a[r * cap + c + 1] = -sn * p + cs * q;
+                }
+
+                double p = v[c];
+                double q = v[c + 1];
+                v[c] = cs * p + sn * q;
+                v[c + 1] = -sn * p + cs * q;
+            }
+
+            double last = v[this.k - 1];
+
+            for (int r = j; r < this.k - 1; r++) {
+                a[r * cap + this.k - 1] = 0.0;
+            }
+
+            return last;
+        }
+
+        private int indexOf(int y) {
+            for (int j = 0; j < this.k; j++) {
+                if (this.parents[j] == y) return j;
+            }
+
+            throw new IllegalArgumentException("Not a parent: " + variables.get(y));
+        }
+
+        private void checkNotParent(int x) {
+            if (x == this.node) {
+                throw new IllegalArgumentException("A node cannot be its own parent: " + variables.get(x));
+            }
+
+            for (int j = 0; j < this.k; j++) {
+                if (this.parents[j] == x) {
+                    throw new IllegalArgumentException("Already a parent: " + variables.get(x));
+                }
+            }
+        }
+
+        private void allocate(int cap) {
+            double[] l = new double[cap * cap];
+
+            for (int r = 0; r < this.k; r++) {
+                System.arraycopy(this.l, r * this.cap, l, r * cap, r + 1);
+            }
+
+            this.l = l;
+            this.w = this.w == null ? new double[cap] : Arrays.copyOf(this.w, cap);
+            this.parents = this.parents == null ? new int[cap] : Arrays.copyOf(this.parents, cap);
+            this.row = new double[cap];
+            this.m = new double[cap * cap];
+            this.cap = cap;
+        }
+    }
 }
 
 
@@ -0,0 +1,270 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.test;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.IndependenceFact;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.PackedIntKey;
+import edu.cmu.tetrad.util.StripedLruCache;
+
+import java.util.*;
+
+/**
+ * <p>Wraps an independence test and remembers its results, so that a fact that is checked more than once is
+ * only tested once. Constraint-based searches check the same facts repeatedly--FCI's possible-m-sep step, the
+ * greedy and conservative sepset producers and the Markov checker all revisit facts already tested in the adjacency
+ * search--so for expensive tests this can save a great deal of time. A single instance may be shared by all of the
+ * steps of a search, and by several threads.</p>
+ *
+ * <p>Results are keyed by the canonical form of the independence fact: x _||_ y | z is the same fact as
+ * y _||_ x | z, whatever the order of z, as for {@link IndependenceFact#equals(Object)}. The key packs the indices
+ * of the variables into an int array, with x and y in index order and z sorted, so that lookups do not have to
+ * compare sets of names. The cache is bounded, evicting its least recently used facts when full, and keeps hit and
+ * miss counts.</p>
+ *
+ * <p>Since results depend on alpha, the cache is cleared when alpha is changed. The wrapped test should be safe to
+ * call from more than one thread if the wrapper is.</p>
+ *
+ * @see IndependenceTest
+ * @see StripedLruCache
+ */
+public class CachingIndependenceTest implements IndependenceTest {
+
+    // The wrapped test.
+    private final IndependenceTest test;
+    // The indices of the variables of the test.
+    private final Map<Node, Integer> indices = new HashMap<>();
+    // The cache of results.
+    private final StripedLruCache<PackedIntKey, IndependenceResult> cache;
+
+    /**
+     * Constructs a caching test with a default capacity of one million facts and 64 stripes.
+     *
+     * @param test The test to wrap.
+     */
+    public CachingIndependenceTest(IndependenceTest test) {
+        this(test, 1_000_000, 64);
+    }
+
+    /**
+     * Constructs a caching test.
+     *
+     * @param test       The test to wrap.
+     * @param maxSize    The maximum number of results to keep in the cache.
+     * @param numStripes The number of independently locked stripes to divide the cache into; rounded up to a power
+     *                   of two.
+     */
+    public CachingIndependenceTest(IndependenceTest test, int maxSize, int numStripes) {
+        if (test == null) throw new NullPointerException("Test must not be null.");
+        this.test = test;
+        this.cache = new StripedLruCache<>(maxSize, numStripes);
+
+        List<Node> variables = test.getVariables();
+
+        for (int i = 0; i < variables.size(); i++) {
+            this.indices.put(variables.get(i), i);
+        }
+    }
+
+    /**
+     * Checks x _||_ y | z, from the cache if possible.
+     *
+     * @param x The first variable.
+     * @param y The second variable.
+     * @param z The conditioning set.
+     * @return The result.
+     */
+    @Override
+    public IndependenceResult checkIndependence(Node x, Node y, Set<Node> z) {
+        PackedIntKey key = key(x, y, z);
+
+        // Facts about variables this test doesn't know about are not cached.
+        if (key == null) {
+            return this.test.checkIndependence(x, y, z);
+        }
+
+        IndependenceResult result = this.cache.get(key);
+
+        if (result == null) {
+            result = this.test.checkIndependence(x, y, z);
+            this.cache.put(key, result);
+            return result;
+        }
+
+        // The cached result may have been recorded as y _||_ x | z.
+        IndependenceFact fact = result.getFact();
+
+        if (fact != null && fact.getX() == x && fact.getY() == y) {
+            return result;
+        }
+
+        return new IndependenceResult(new IndependenceFact(x, y, z), result.isIndependent(), result.getPValue(),
+                result.getScore());
+    }
+
+    /**
+     * Returns the wrapped test.
+     *
+     * @return This test.
+     */
+    public IndependenceTest getTest() {
+        return this.test;
+    }
+
+    /**
+     * Returns the number of facts answered from the cache.
+     *
+     * @return This number.
+     */
+    public long getHits() {
+        return this.cache.getHits();
+    }
+
+    /**
+     * Returns the number of facts that had to be tested.
+     *
+     * @return This number.
+     */
+    public long getMisses() {
+        return this.cache.getMisses();
+    }
+
+    /**
+     * Returns the fraction of facts answered from the cache, or 0 if none have been checked.
+     *
+     * @return This fraction.
+     */
+    public double getHitRate() {
+        return this.cache.getHitRate();
+    }
+
+    /**
+     * Returns the number of results currently in the cache.
+     *
+     * @return This number.
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Empties the cache and resets the counts.
+     */
+    public void clearCache() {
+        this.cache.clear();
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return this.test.getVariables();
+    }
+
+    @Override
+    public DataModel getData() {
+        return this.test.getData();
+    }
+
+    @Override
+    public void setVerbose(boolean verbose) {
+        this.test.setVerbose(verbose);
+    }
+
+    @Override
+    public boolean isVerbose() {
+        return this.test.isVerbose();
+    }
+
+    /**
+     * Returns a test for the given subset of variables. This is the wrapped test's subset test, which is not cached.
+     */
+    @Override
+    public IndependenceTest indTestSubset(List<Node> vars) {
+        return this.test.indTestSubset(vars);
+    }
+
+    @Override
+    public int getSampleSize() {
+        return this.test.getSampleSize();
+    }
+
+    @Override
+    public boolean determines(Set<Node> z, Node y) {
+        return this.test.determines(z, y);
+    }
+
+    @Override
+    public double getAlpha() {
+        return this.test.getAlpha();
+    }
+
+    /**
+     * Sets alpha for the wrapped test and clears the cache, since cached results depend on alpha.
+     */
+    @Override
+    public void setAlpha(double alpha) {
+        this.test.setAlpha(alpha);
+        clearCache();
+    }
+
+    @Override
+    public ICovarianceMatrix getCov() {
+        return this.test.getCov();
+    }
+
+    @Override
+    public List<DataSet> getDataSets() {
+        return this.test.getDataSets();
+    }
+
+    /**
+     * Returns a string representation of this test.
+     *
+     * @return This string.
+     */
+    public String toString() {
+        return "Caching " + this.test.toString();
+    }
+
+    // Returns the canonical key for x _||_ y | z, or null if any of the variables is unknown.
+    private PackedIntKey key(Node x, Node y, Set<Node> z) {
+        Integer _x = this.indices.get(x);
+        Integer _y = this.indices.get(y);
+        if (_x == null || _y == null) return null;
+
+        int[] packed = new int[z.size() + 2];
+        packed[0] = Math.min(_x, _y);
+        packed[1] = Math.max(_x, _y);
+        int i = 2;
+
+        for (Node node : z) {
+            Integer _z = this.indices.get(node);
+            if (_z == null) return null;
+            packed[i++] = _z;
+        }
+
+        Arrays.sort(packed, 2, packed.length);
+        return new PackedIntKey(packed);
+    }
+}
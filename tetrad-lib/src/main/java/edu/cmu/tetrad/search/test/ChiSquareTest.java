@@ -21,10 +21,9 @@
 
 package edu.cmu.tetrad.search.test;
 
-import edu.cmu.tetrad.data.CellTable;
+import edu.cmu.tetrad.data.ContingencyCounter;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
-import edu.cmu.tetrad.util.CombinationIterator;
 import org.apache.commons.math3.distribution.ChiSquaredDistribution;
 import org.apache.commons.math3.util.FastMath;
 
@@ -49,9 +48,9 @@ public class ChiSquareTest {
     private final int[] dims;
 
     /**
-     * Stores the data in the form of a cell table.
+     * Counts the cells of the contingency tables for the tests.
      */
-    private final CellTable cellTable;
+    private final ContingencyCounter counter;
 
     /**
      * The significance level of the test.
@@ -82,8 +81,7 @@ public class ChiSquareTest {
 
         this.dataSet = dataSet;
         this.alpha = alpha;
-        this.cellTable = new CellTable(null);
-        this.getCellTable().setMissingValue(DiscreteVariable.MISSING_VALUE);
+        this.counter = new ContingencyCounter(dataSet);
     }
 
     /**
@@ -97,94 +95,45 @@ public class ChiSquareTest {
      */
     public Result calcChiSquare(int[] testIndices) {
 
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = {0};
-        int[] secondVar = {1};
-        int[] bothVars = {0, 1};
+        // Count the cells for z1, z2, ..., x, y, so that the x-by-y table for
+        // each combination of values of the z's is a contiguous block of
+        // cells, with the combinations in the order of a CombinationIterator.
+        ContingencyCounter.Table table = this.counter.count(conditioningFirst(testIndices, 2));
+        int[] counts = table.getCounts();
 
         double xSquare = 0.0;
         int df = 0;
 
-        int[] condDims = new int[testIndices.length - 2];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 2, condDims, 0,
-                condDims.length);
-
-        int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
+        int numRows = getDims()[testIndices[0]];
+        int numCols = getDims()[testIndices[1]];
+        int blockSize = numRows * numCols;
 
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
+        long[] sumRows = new long[numRows];
+        long[] sumCols = new long[numCols];
 
         // Make a chi square table for each condition combination, strike zero rows and columns and calculate
         // chi square and degrees of freedom for the remaining rows and columns in the table. See Friedman.
-        while (combinationIterator.hasNext()) {
-            boolean[] attestedRows = new boolean[numRows];
-            boolean[] attestedCols = new boolean[numCols];
-
-            Arrays.fill(attestedRows, true);
-            Arrays.fill(attestedCols, true);
-
-            int[] combination = combinationIterator.next();
-
-            System.arraycopy(combination, 0, coords, 2, combination.length);
-
-            long total = getCellTable().calcMargin(coords, bothVars);
+        for (int offset = 0; offset < table.getNumCells(); offset += blockSize) {
+            long total = margins(counts, offset, sumRows, sumCols);
 
             if (total == 0) continue;
 
+            // A table with a row or column of zeros contributes nothing--neither chi square nor degrees of
+            // freedom. (This is how the margins were checked when this test counted cells using a CellTable.)
+            if (numNonzero(sumRows) < numRows || numNonzero(sumCols) < numCols) continue;
+
             double _xSquare = 0.0;
 
             for (int i = 0; i < numRows; i++) {
                 for (int j = 0; j < numCols; j++) {
-                    coords[0] = i;
-                    coords[1] = j;
-
-                    long sumRow = getCellTable().calcMargin(coords, firstVar);
-                    long sumCol = getCellTable().calcMargin(coords, secondVar);
-                    long observed = getCellTable().getValue(coords);
-
-                    if (sumRow == 0L) {
-                        attestedRows[i] = false;
-                        continue;
-                    }
-
-                    if (sumCol == 0L) {
-                        attestedCols[j] = false;
-                        continue;
-                    }
-
-                    double expected = (sumRow * sumCol) / (double) total;
+                    long observed = counts[offset + i * numCols + j];
+                    double expected = (sumCols[j] * sumRows[i]) / (double) total;
                     _xSquare += FastMath.pow(observed - expected, 2.0) / expected;
                 }
             }
 
-            int numAttestedRows = 0;
-            int numAttestedCols = 0;
-
-            for (boolean attestedRow : attestedRows) {
-                if (attestedRow) {
-                    numAttestedRows++;
-                }
-            }
-
-            for (boolean attestedCol : attestedCols) {
-                if (attestedCol) {
-                    numAttestedCols++;
-                }
-            }
-
-            if (numAttestedRows > 0 && numAttestedCols > 0) {
-                df += (numAttestedRows - 1) * (numAttestedCols - 1);
-                xSquare += _xSquare;
-            }
+            df += (numRows - 1) * (numCols - 1);
+            xSquare += _xSquare;
         }
 
         // If df == 0, this is definitely an indepedent table.
@@ -207,31 +156,20 @@ public class ChiSquareTest {
      */
     public boolean isDetermined(int[] testIndices, double p) {
 
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = {0};
-
-        int[] condDims = new int[testIndices.length - 1];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 1, condDims, 0,
-                condDims.length);
-
-        int[] coords = new int[testIndices.length];
-        int numValues = this.getCellTable().getNumValues(0);
+        // Count the cells for the conditioning variables followed by the
+        // child, so that the child's counts for each combination of values of
+        // the conditioning variables are contiguous.
+        ContingencyCounter.Table table = this.counter.count(conditioningFirst(testIndices, 1));
+        int[] counts = table.getCounts();
 
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
+        int numValues = getDims()[testIndices[0]];
 
-        while (combinationIterator.hasNext()) {
-            int[] combination = combinationIterator.next();
-            System.arraycopy(combination, 0, coords, 1, combination.length);
+        for (int offset = 0; offset < table.getNumCells(); offset += numValues) {
+            long total = 0;
 
-            long total = this.getCellTable().calcMargin(coords, firstVar);
+            for (int i = 0; i < numValues; i++) {
+                total += counts[offset + i];
+            }
 
             if (total == 0) {
                 continue;
@@ -240,9 +178,7 @@ public class ChiSquareTest {
             boolean dominates = false;
 
             for (int i = 0; i < numValues; i++) {
-                coords[0] = i;
-
-                long numi = this.getCellTable().getValue(coords);
+                long numi = counts[offset + i];
 
                 if ((double) numi / total >= p) {
                     dominates = true;
@@ -282,14 +218,41 @@ public class ChiSquareTest {
 
     //================================PRIVATE==============================//
 
-    private int[] selectFromArray(int[] arr, int[] indices) {
-        int[] retArr = new int[indices.length];
+    // Moves the first numTested indices after the rest, e.g. x, y, z1, z2 becomes z1, z2, x, y.
+    private static int[] conditioningFirst(int[] testIndices, int numTested) {
+        int[] vars = new int[testIndices.length];
+        int numCond = testIndices.length - numTested;
+        System.arraycopy(testIndices, numTested, vars, 0, numCond);
+        System.arraycopy(testIndices, 0, vars, numCond, numTested);
+        return vars;
+    }
 
-        for (int i = 0; i < indices.length; i++) {
-            retArr[i] = arr[indices[i]];
+    // Fills in the row and column sums of the table starting at the given offset and returns its total.
+    private static long margins(int[] counts, int offset, long[] sumRows, long[] sumCols) {
+        Arrays.fill(sumRows, 0L);
+        Arrays.fill(sumCols, 0L);
+        long total = 0;
+
+        for (int i = 0; i < sumRows.length; i++) {
+            for (int j = 0; j < sumCols.length; j++) {
+                int observed = counts[offset + i * sumCols.length + j];
+                sumRows[i] += observed;
+                sumCols[j] += observed;
+                total += observed;
+            }
+        }
+
+        return total;
+    }
+
+    private static int numNonzero(long[] sums) {
+        int n = 0;
+
+        for (long sum : sums) {
+            if (sum != 0L) n++;
         }
 
-        return retArr;
+        return n;
     }
 
     private DataSet getDataSet() {
@@ -300,10 +263,6 @@ public class ChiSquareTest {
         return this.dims;
     }
 
-    private CellTable getCellTable() {
-        return this.cellTable;
-    }
-
     //===============================CLASSES==============================//
 
     /**
@@ -21,16 +21,13 @@
 
 package edu.cmu.tetrad.search.test;
 
-import edu.cmu.tetrad.data.CellTable;
+import edu.cmu.tetrad.data.ContingencyCounter;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
-import edu.cmu.tetrad.util.CombinationIterator;
 import edu.cmu.tetrad.util.ProbUtils;
 import org.apache.commons.math3.util.FastMath;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * <p>Performs conditional independence tests of discrete data using the G Square method.
@@ -55,9 +52,9 @@ public final class GSquareTest {
     private final int[] dims;
 
     /**
-     * Stores the data in the form of a cell table.
+     * Counts the cells of the contingency tables for the tests.
      */
-    private final CellTable cellTable;
+    private final ContingencyCounter counter;
 
     /**
      * The significance level of the test.
@@ -86,8 +83,7 @@ public final class GSquareTest {
 
         this.dataSet = dataSet;
         this.alpha = alpha;
-        this.cellTable = new CellTable(null);
-        this.getCellTable().setMissingValue(DiscreteVariable.MISSING_VALUE);
+        this.counter = new ContingencyCounter(dataSet);
     }
 
     /**
@@ -100,110 +96,49 @@ public final class GSquareTest {
      * @see Result
      */
     public Result calcGSquare(int[] testIndices) {
-
         if (testIndices.length < 2) throw new IllegalArgumentException("Need at least two variables for G Square test.");
 
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = {0};
-        int[] secondVar = {1};
-        int[] bothVars = {0, 1};
+        // Count the cells for z1, z2, ..., x, y, so that the x-by-y table for
+        // each combination of values of the z's is a contiguous block of
+        // cells, with the combinations in the order of a CombinationIterator.
+        ContingencyCounter.Table table = this.counter.count(conditioningFirst(testIndices, 2));
+        int[] counts = table.getCounts();
 
         double g2 = 0.0;
         int df = 0;
 
-        int[] condDims = new int[testIndices.length - 2];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 2, condDims, 0,
-                condDims.length);
-
-        int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
-
-        boolean[] attestedRows = new boolean[numRows];
-        boolean[] attestedCols = new boolean[numCols];
+        int numRows = getDims()[testIndices[0]];
+        int numCols = getDims()[testIndices[1]];
+        int blockSize = numRows * numCols;
 
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
+        long[] sumRows = new long[numRows];
+        long[] sumCols = new long[numCols];
 
-        while (combinationIterator.hasNext()) {
-            int[] combination = combinationIterator.next();
+        for (int offset = 0; offset < table.getNumCells(); offset += blockSize) {
+            long total = margins(counts, offset, sumRows, sumCols);
 
-            System.arraycopy(combination, 0, coords, 2, combination.length);
-            Arrays.fill(attestedRows, true);
-            Arrays.fill(attestedCols, true);
-
-            long total = this.getCellTable().calcMargin(coords, bothVars);
+            if (total == 0) {
+                continue;
+            }
 
             double _gSquare = 0.0;
 
-            List<Double> e = new ArrayList<>();
-            List<Long> o = new ArrayList<>();
-
             for (int i = 0; i < numRows; i++) {
-                for (int j = 0; j < numCols; j++) {
-                    coords[0] = i;
-                    coords[1] = j;
+                if (sumRows[i] == 0) continue;
 
-                    long sumRow = this.getCellTable().calcMargin(coords, secondVar);
-                    long sumCol = this.getCellTable().calcMargin(coords, firstVar);
-                    long observed = (int) this.getCellTable().getValue(coords);
-
-                    boolean skip = false;
-
-                    if (sumRow == 0) {
-                        attestedRows[i] = false;
-                        skip = true;
-                    }
+                for (int j = 0; j < numCols; j++) {
+                    if (sumCols[j] == 0) continue;
 
-                    if (sumCol == 0) {
-                        attestedCols[j] = false;
-                        skip = true;
-                    }
+                    long observed = counts[offset + i * numCols + j];
 
-                    if (skip) {
-                        continue;
+                    if (observed != 0) {
+                        double expected = ((double) sumCols[j] * sumRows[i]) / (double) total;
+                        _gSquare += 2.0 * observed * FastMath.log(observed / expected);
                     }
-
-                    e.add((double) sumCol * sumRow);
-                    o.add(observed);
-                }
-            }
-
-            for (int i = 0; i < o.size(); i++) {
-                double expected = e.get(i) / (double) total;
-
-                if (o.get(i) != 0) {
-                    _gSquare += 2.0 * o.get(i) * FastMath.log(o.get(i) / expected);
                 }
             }
 
-            if (total == 0) {
-                continue;
-            }
-
-            int numAttestedRows = 0;
-            int numAttestedCols = 0;
-
-            for (boolean attestedRow : attestedRows) {
-                if (attestedRow) {
-                    numAttestedRows++;
-                }
-            }
-
-            for (boolean attestedCol : attestedCols) {
-                if (attestedCol) {
-                    numAttestedCols++;
-                }
-            }
-
-            int _df = (numAttestedRows - 1) * (numAttestedCols - 1);
+            int _df = (numNonzero(sumRows) - 1) * (numNonzero(sumCols) - 1);
 
             if (_df > 0) {
                 df += _df;
@@ -285,16 +220,6 @@ public final class GSquareTest {
         return this.dims;
     }
 
-    /**
-     * Returns the cell table for this test.
-     *
-     * @return This table.
-     * @see CellTable
-     */
-    public CellTable getCellTable() {
-        return this.cellTable;
-    }
-
     /**
      * @return the getModel significance level being used for tests.
      */
@@ -334,31 +259,20 @@ public final class GSquareTest {
      */
     public boolean isDetermined(int[] testIndices, double p) {
 
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = {0};
+        // Count the cells for the conditioning variables followed by the
+        // child, so that the child's counts for each combination of values of
+        // the conditioning variables are contiguous.
+        ContingencyCounter.Table table = this.counter.count(conditioningFirst(testIndices, 1));
+        int[] counts = table.getCounts();
 
-        int[] condDims = new int[testIndices.length - 1];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 1, condDims, 0,
-                condDims.length);
+        int numValues = getDims()[testIndices[0]];
 
-        int[] coords = new int[testIndices.length];
-        int numValues = this.getCellTable().getNumValues(0);
+        for (int offset = 0; offset < table.getNumCells(); offset += numValues) {
+            long total = 0;
 
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
-
-        while (combinationIterator.hasNext()) {
-            int[] combination = combinationIterator.next();
-            System.arraycopy(combination, 0, coords, 1, combination.length);
-
-            long total = this.getCellTable().calcMargin(coords, firstVar);
+            for (int i = 0; i < numValues; i++) {
+                total += counts[offset + i];
+            }
 
             if (total == 0) {
                 continue;
@@ -367,9 +281,7 @@ public final class GSquareTest {
             boolean dominates = false;
 
             for (int i = 0; i < numValues; i++) {
-                coords[0] = i;
-
-                long numi = this.getCellTable().getValue(coords);
+                long numi = counts[offset + i];
 
                 if ((double) numi / total >= p) {
                     dominates = true;
@@ -384,14 +296,41 @@ public final class GSquareTest {
         return true;
     }
 
-    private int[] selectFromArray(int[] arr, int[] indices) {
-        int[] retArr = new int[indices.length];
+    // Moves the first numTested indices after the rest, e.g. x, y, z1, z2 becomes z1, z2, x, y.
+    private static int[] conditioningFirst(int[] testIndices, int numTested) {
+        int[] vars = new int[testIndices.length];
+        int numCond = testIndices.length - numTested;
+        System.arraycopy(testIndices, numTested, vars, 0, numCond);
+        System.arraycopy(testIndices, 0, vars, numCond, numTested);
+        return vars;
+    }
+
+    // Fills in the row and column sums of the table starting at the given offset and returns its total.
+    private static long margins(int[] counts, int offset, long[] sumRows, long[] sumCols) {
+        Arrays.fill(sumRows, 0L);
+        Arrays.fill(sumCols, 0L);
+        long total = 0;
+
+        for (int i = 0; i < sumRows.length; i++) {
+            for (int j = 0; j < sumCols.length; j++) {
+                int observed = counts[offset + i * sumCols.length + j];
+                sumRows[i] += observed;
+                sumCols[j] += observed;
+                total += observed;
+            }
+        }
+
+        return total;
+    }
+
+    private static int numNonzero(long[] sums) {
+        int n = 0;
 
-        for (int i = 0; i < indices.length; i++) {
-            retArr[i] = arr[indices[i]];
+        for (long sum : sums) {
+            if (sum != 0L) n++;
         }
 
-        return retArr;
+        return n;
     }
 }
 
@@ -7,6 +7,7 @@ import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradLogger;
 import edu.cmu.tetrad.util.Vector;
 import edu.pitt.csb.mgm.EigenDecomposition;
@@ -15,7 +16,9 @@ import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.linear.BlockRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
 import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.SynchronizedRandomGenerator;
 import org.apache.commons.math3.random.Well44497b;
 import org.apache.commons.math3.util.FastMath;
@@ -82,6 +85,14 @@ public class Kci implements IndependenceTest {
     // Epsilon for Propositio 5.
     private double epsilon = 0.001;
 
+    // The number of random Fourier features used to approximate each kernel matrix, or 0 if the full kernel
+    // matrices should be used.
+    private int numFeatures = 0;
+
+    // Random source for the random Fourier features, seeded from RandomUtil.
+    private final RandomGenerator featureRandom = new SynchronizedRandomGenerator(
+            new Well44497b(RandomUtil.getInstance().nextLong()));
+
     private boolean verbose;
 //    private IndependenceFact latestFact = null;
 
@@ -183,12 +194,6 @@ public class Kci implements IndependenceTest {
 
             int N = data.getNumRows();
 
-            Matrix ones = new Matrix(N, 1);
-            for (int j = 0; j < N; j++) ones.set(j, 0, 1);
-
-            Matrix I = Matrix.identity(N);
-            Matrix H = I.minus(ones.times(ones.transpose()).scalarMult(1.0 / N));
-
             double[] h = new double[allVars.size()];
             int count = 0;
 
@@ -213,10 +218,24 @@ public class Kci implements IndependenceTest {
             if (this.facts.get(fact) != null) {
                 return new IndependenceResult(fact, result.isIndependent(), result.getPValue(), getAlpha() - result.getPValue());
             } else {
-                if (z.isEmpty()) {
-                    result = isIndependentUnconditional(x, y, fact, _data, h, N, hash);
+                if (this.numFeatures > 0) {
+                    if (z.isEmpty()) {
+                        result = isIndependentUnconditionalLowRank(x, y, fact, _data, h, N, hash);
+                    } else {
+                        result = isIndependentConditionalLowRank(x, y, z, fact, _data, N, h, hash);
+                    }
                 } else {
-                    result = isIndependentConditional(x, y, z, fact, _data, N, H, I, h, hash);
+                    Matrix ones = new Matrix(N, 1);
+                    for (int j = 0; j < N; j++) ones.set(j, 0, 1);
+
+                    Matrix I = Matrix.identity(N);
+                    Matrix H = I.minus(ones.times(ones.transpose()).scalarMult(1.0 / N));
+
+                    if (z.isEmpty()) {
+                        result = isIndependentUnconditional(x, y, fact, _data, h, N, hash);
+                    } else {
+                        result = isIndependentConditional(x, y, z, fact, _data, N, H, I, h, hash);
+                    }
                 }
             }
 
@@ -384,6 +403,28 @@ public class Kci implements IndependenceTest {
         this.epsilon = epsilon;
     }
 
+    /**
+     * <p>Sets the number of random Fourier features used to approximate each kernel matrix. If this is positive, each
+     * N x N kernel matrix K is replaced by F F', where F is an N x numFeatures matrix of random Fourier features
+     * for the Gaussian kernel (Rahimi and Recht, 2007), and all calculations are done with F, so that no N x N matrix
+     * is ever formed; memory is O(N numFeatures) and time O(N numFeatures^2) per test rather than O(N^2) and
+     * O(N^3). The test statistic and the null distribution (the bootstrap of Theorem 4 and Proposition 5 or, if
+     * approximate is set, the Gamma approximation) are calculated from the same low-rank factors. For the conditional
+     * test, the null distribution uses only the numFeatures products of eigen-features of the two residual kernels
+     * with the largest eigenvalues, so its eigenproblem is at most numFeatures x numFeatures whatever N is. The
+     * features are drawn from a generator seeded from RandomUtil. If this is 0, the default, the full kernel matrices
+     * are used.</p>
+     *
+     * <p>Rahimi, A., &amp; Recht, B. (2007). Random features for large-scale kernel machines. Advances in neural
+     * information processing systems, 20.</p>
+     *
+     * @param numFeatures This number; 0 for the full kernel matrices.
+     */
+    public void setNumFeatures(int numFeatures) {
+        if (numFeatures < 0) throw new IllegalArgumentException("Number of features must be >= 0: " + numFeatures);
+        this.numFeatures = numFeatures;
+    }
+
     /**
      * Returns true if verbose output is printed.
      *
@@ -581,6 +622,245 @@ public class Kci implements IndependenceTest {
         }
     }
 
+    /*
+     * Returns the KCI independence result for the unconditional case, using random Fourier features in place of the
+     * kernel matrices.
+     */
+    private IndependenceResult isIndependentUnconditionalLowRank(Node x, Node y, IndependenceFact fact,
+                                                                 double[][] _data, double[] _h, int N,
+                                                                 Map<Node, Integer> hash) {
+        Matrix fx = centeredFeatures(_data, x, null, hash, N, _h);
+        Matrix fy = centeredFeatures(_data, y, null, hash, N, _h);
+
+        // tr(Kx Ky) = ||Fx' Fy||^2.
+        double sta = frobeniusSquared(fx.transpose().times(fy));
+
+        Matrix gx = fx.transpose().times(fx);
+        Matrix gy = fy.transpose().times(fy);
+
+        if (this.approximate) {
+            double mean_appr = gx.trace() * gy.trace() / N;
+            double var_appr = 2 * frobeniusSquared(gx) * frobeniusSquared(gy) / (N * N);
+            return gammaResult(fact, sta, mean_appr, var_appr);
+        } else {
+
+            // The nonzero eigenvalues of Fx Fx' are those of Fx' Fx.
+            List<Double> evx = new Eigendecomposition(gx).invoke().getTopEigenvalues();
+            List<Double> evy = new Eigendecomposition(gy).invoke().getTopEigenvalues();
+
+            int sum = 0;
+
+            for (int j = 0; j < this.numBootstraps; j++) {
+                double tui = 0.0;
+
+                for (double lambdax : evx) {
+                    for (double lambday : evy) {
+                        tui += lambdax * lambday * getChisqSample();
+                    }
+                }
+
+                tui /= N * N;
+
+                if (tui > sta / N) sum++;
+            }
+
+            double p = sum / (double) this.numBootstraps;
+            boolean indep = p > getAlpha();
+            IndependenceResult result = new IndependenceResult(fact, indep, p, getAlpha() - p);
+            this.facts.put(fact, result);
+            return result;
+        }
+    }
+
+    /*
+     * Returns the KCI independence result for the conditional case, using random Fourier features in place of the
+     * kernel matrices. With KZ = Fz Fz', Rz = epsilon (KZ + epsilon I)^-1 = I - Fz (Fz' Fz + epsilon I)^-1 Fz' by
+     * the Woodbury identity, so Rz F can be calculated as the residual of a ridge regression of F on Fz.
+     */
+    private IndependenceResult isIndependentConditionalLowRank(Node x, Node y, Set<Node> _z, IndependenceFact fact,
+                                                               double[][] _data, int N, double[] _h,
+                                                               Map<Node, Integer> hash) {
+        List<Node> z = new ArrayList<>(_z);
+        Collections.sort(z);
+
+        Matrix fxz = centeredFeatures(_data, x, z, hash, N, _h);
+        Matrix fy = centeredFeatures(_data, y, null, hash, N, _h);
+        Matrix fz = centeredFeatures(_data, null, z, hash, N, _h);
+
+        Matrix ridge;
+
+        try {
+            ridge = fz.transpose().times(fz).plus(Matrix.identity(this.numFeatures).scalarMult(this.epsilon))
+                    .inverse();
+        } catch (SingularMatrixException e) {
+            TetradLogger.getInstance().forceLogMessage("Singular feature matrix for " + fact
+                    + "; try a larger epsilon. Judging dependent.");
+            IndependenceResult result = new IndependenceResult(fact, false, 0.0, getAlpha());
+            this.facts.put(fact, result);
+            return result;
+        }
+
+        // kx = A A' and ky = B B'.
+        Matrix a = fxz.minus(fz.times(ridge.times(fz.transpose().times(fxz))));
+        Matrix b = fy.minus(fz.times(ridge.times(fz.transpose().times(fy))));
+
+        double sta = frobeniusSquared(a.transpose().times(b));
+
+        // The eigenvectors of A A' scaled by the square roots of their eigenvalues are A W, where W are the
+        // eigenvectors of A' A.
+        Matrix wx = new Eigendecomposition(a.transpose().times(a)).invoke().getV();
+        Matrix wy = new Eigendecomposition(b.transpose().times(b)).invoke().getV();
+        Matrix vdx = a.times(wx);
+        Matrix vdy = b.times(wy);
+
+        // Only the numFeatures products of eigen-features with the largest eigenvalues are kept.
+        int[][] pairs = leadingPairs(vdx, vdy);
+        Matrix UU = new Matrix(N, pairs.length);
+
+        for (int p = 0; p < pairs.length; p++) {
+            for (int k = 0; k < N; k++) {
+                UU.set(k, p, vdx.get(k, pairs[p][0]) * vdy.get(k, pairs[p][1]));
+            }
+        }
+
+        // UU UU' has the nonzero eigenvalues of UU' UU, which is at most numFeatures x numFeatures.
+        Matrix uuprod = UU.transpose().times(UU);
+
+        if (this.approximate) {
+            return gammaResult(fact, sta, uuprod.trace(), 2.0 * frobeniusSquared(uuprod));
+        } else {
+            List<Double> eigenu = new Eigendecomposition(uuprod).invoke().getTopEigenvalues();
+
+            int sum = 0;
+
+            for (int j = 0; j < this.numBootstraps; j++) {
+                double s = 0.0;
+
+                for (double lambdaStar : eigenu) {
+                    s += lambdaStar * getChisqSample();
+                }
+
+                s *= 1.0 / N;
+
+                if (s > sta / N) sum++;
+            }
+
+            double p = sum / (double) this.numBootstraps;
+            boolean indep = p > getAlpha();
+            IndependenceResult result = new IndependenceResult(fact, indep, p, getAlpha() - p);
+            this.facts.put(fact, result);
+            return result;
+        }
+    }
+
+    /*
+     * Returns the index pairs (i, j) of the columns of vdx and vdy whose product has one of the numFeatures largest
+     * eigenvalues, which for eigen-features is the product of their squared column norms.
+     */
+    private int[][] leadingPairs(Matrix vdx, Matrix vdy) {
+        double[] lx = squaredColumnNorms(vdx);
+        double[] ly = squaredColumnNorms(vdy);
+
+        List<int[]> pairs = new ArrayList<>();
+
+        for (int i = 0; i < lx.length; i++) {
+            for (int j = 0; j < ly.length; j++) {
+                pairs.add(new int[]{i, j});
+            }
+        }
+
+        pairs.sort((p1, p2) -> Double.compare(lx[p2[0]] * ly[p2[1]], lx[p1[0]] * ly[p1[1]]));
+        return pairs.subList(0, FastMath.min(this.numFeatures, pairs.size())).toArray(new int[0][]);
+    }
+
+    private static double[] squaredColumnNorms(Matrix m) {
+        double[] norms = new double[m.getNumColumns()];
+
+        for (int j = 0; j < m.getNumColumns(); j++) {
+            for (int i = 0; i < m.getNumRows(); i++) {
+                norms[j] += m.get(i, j) * m.get(i, j);
+            }
+        }
+
+        return norms;
+    }
+
+    private IndependenceResult gammaResult(IndependenceFact fact, double sta, double mean_appr, double var_appr) {
+        double k_appr = mean_appr * mean_appr / var_appr;
+        double theta_appr = var_appr / mean_appr;
+        double p = 1.0 - new GammaDistribution(k_appr, theta_appr).cumulativeProbability(sta);
+        boolean indep = p > getAlpha();
+        IndependenceResult result = new IndependenceResult(fact, indep, p, getAlpha() - p);
+        this.facts.put(fact, result);
+        return result;
+    }
+
+    /*
+     * Returns the N x numFeatures matrix F of random Fourier features for the kernel used by kernelMatrix, with its
+     * columns centered, so that F F' approximates H K H. For the kernel exp(-||a - b||^2 / w), the frequencies are
+     * drawn from N(0, 2 / w) and the features are sqrt(2 / D) cos(omega'a + b), with b uniform on [0, 2 pi).
+     */
+    private Matrix centeredFeatures(double[][] _data, Node x, List<Node> z, Map<Node, Integer> hash, int N,
+                                    double[] _h) {
+        List<Integer> _z = new ArrayList<>();
+
+        if (x != null) {
+            _z.add(hash.get(x));
+        }
+
+        if (z != null) {
+            for (Node z2 : z) {
+                _z.add(hash.get(z2));
+            }
+        }
+
+        double width = this.widthMultiplier * getH(_z, _h);
+        double sd = sqrt(2.0 / width);
+        int D = this.numFeatures;
+        double scale = sqrt(2.0 / D);
+
+        double[][] f = new double[N][D];
+
+        for (int d = 0; d < D; d++) {
+            double[] omega = new double[_z.size()];
+            for (int c = 0; c < omega.length; c++) omega[c] = sd * this.featureRandom.nextGaussian();
+            double b = 2.0 * PI * this.featureRandom.nextDouble();
+
+            double mean = 0.0;
+
+            for (int i = 0; i < N; i++) {
+                double t = b;
+
+                for (int c = 0; c < omega.length; c++) {
+                    t += omega[c] * _data[_z.get(c)][i];
+                }
+
+                f[i][d] = scale * cos(t);
+                mean += f[i][d];
+            }
+
+            mean /= N;
+
+            for (int i = 0; i < N; i++) {
+                f[i][d] -= mean;
+            }
+        }
+
+        return new Matrix(f);
+    }
+
+    private double frobeniusSquared(Matrix m) {
+        double sum = 0.0;
+
+        for (int i = 0; i < m.getNumRows(); i++) {
+            for (int j = 0; j < m.getNumColumns(); j++) {
+                sum += m.get(i, j) * m.get(i, j);
+            }
+        }
+
+        return sum;
+    }
+
     private List<Integer> series(int size) {
         List<Integer> series = new ArrayList<>();
         for (int i = 0; i < size; i++) series.add(i);
@@ -25,6 +25,7 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.IndependenceFacts;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.IndependenceFact;
+import edu.cmu.tetrad.graph.MsepEngine;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.NodeType;
 import edu.cmu.tetrad.search.utils.LogUtilsSearch;
@@ -42,7 +43,8 @@ import java.util.*;
  */
 public class MsepTest implements IndependenceTest {
 
-    private Map<Node, Set<Node>> ancestorMap;
+    // Answers m-separation queries against the graph, compiled once.
+    private MsepEngine msepEngine;
     private IndependenceFacts independenceFacts;
 
     /**
@@ -105,7 +107,7 @@ public class MsepTest implements IndependenceTest {
 
         this.graph = graph;
 
-        this.ancestorMap = graph.paths().getAncestorMap();
+        this.msepEngine = new MsepEngine(graph);
         this._observedVars = calcVars(graph.getNodes(), keepLatents);
         this.observedVars = new ArrayList<>(_observedVars);
     }
@@ -184,6 +186,53 @@ public class MsepTest implements IndependenceTest {
             throw new NullPointerException();
         }
 
+        checkVariables(x, y, z);
+
+        boolean mSeparated;
+
+        if (graph != null) {
+            mSeparated = msepEngine.isMSeparated(x, y, z);
+        } else {
+            mSeparated = independenceFacts.isIndependent(x, y, z);
+        }
+
+        return result(x, y, z, mSeparated);
+    }
+
+    /**
+     * Checks a list of m-separation facts. For a graph, facts sharing x and the conditioning set are answered by a
+     * single search, which is much faster than checking them one at a time when many facts are needed, as in
+     * oracle-based simulation studies.
+     *
+     * @param facts The facts msep(x, y | z) to check.
+     * @return The results, in the order of the facts.
+     * @see MsepEngine#isMSeparated(List)
+     */
+    public List<IndependenceResult> checkIndependence(List<IndependenceFact> facts) {
+        for (IndependenceFact fact : facts) {
+            checkVariables(fact.getX(), fact.getY(), fact.getZ());
+        }
+
+        List<IndependenceResult> results = new ArrayList<>(facts.size());
+
+        if (graph != null) {
+            boolean[] mSeparated = msepEngine.isMSeparated(facts);
+
+            for (int i = 0; i < facts.size(); i++) {
+                IndependenceFact fact = facts.get(i);
+                results.add(result(fact.getX(), fact.getY(), fact.getZ(), mSeparated[i]));
+            }
+        } else {
+            for (IndependenceFact fact : facts) {
+                boolean mSeparated = independenceFacts.isIndependent(fact.getX(), fact.getY(), fact.getZ());
+                results.add(result(fact.getX(), fact.getY(), fact.getZ(), mSeparated));
+            }
+        }
+
+        return results;
+    }
+
+    private void checkVariables(Node x, Node y, Set<Node> z) {
         for (Node node : z) {
             if (node == null) {
                 throw new NullPointerException();
@@ -203,15 +252,9 @@ public class MsepTest implements IndependenceTest {
                 throw new IllegalArgumentException("Not an observed variable: " + _z);
             }
         }
+    }
 
-        boolean mSeparated;
-
-        if (graph != null) {
-            mSeparated = !getGraph().paths().isMConnectedTo(x, y, z, ancestorMap);
-        } else {
-            mSeparated = independenceFacts.isIndependent(x, y, z);
-        }
-
+    private IndependenceResult result(Node x, Node y, Set<Node> z, boolean mSeparated) {
         if (this.verbose) {
             if (mSeparated) {
                 TetradLogger.getInstance().forceLogMessage(
@@ -0,0 +1,92 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.utils;
+
+import edu.cmu.tetrad.search.Fas;
+
+/**
+ * Holds the parallel settings for the adjacency search (see Fas), so that searches that run a Fas, such as PC and
+ * FCI, can keep these settings in one place and pass them on when the Fas is made.
+ *
+ * @see Fas#setParallelized(boolean)
+ * @see Fas#setNumThreads(int)
+ */
+public final class FasParallelism {
+    private boolean parallelized = false;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs settings for a sequential search that would use all available processors if parallelized.
+     */
+    public FasParallelism() {
+    }
+
+    /**
+     * Returns whether the edges at each depth should be tested in parallel.
+     *
+     * @return True iff the case.
+     */
+    public boolean isParallelized() {
+        return this.parallelized;
+    }
+
+    /**
+     * Sets whether the edges at each depth should be tested in parallel. Default is false.
+     *
+     * @param parallelized True iff the case.
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+
+    /**
+     * Returns the number of threads to use for the parallel search.
+     *
+     * @return This number.
+     */
+    public int getNumThreads() {
+        return this.numThreads;
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel search. Default is the number of available processors.
+     *
+     * @param numThreads This number; must be at least 1.
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + numThreads);
+        }
+
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Passes these settings on to the given adjacency search.
+     *
+     * @param fas The adjacency search.
+     */
+    public void configure(Fas fas) {
+        fas.setParallelized(this.parallelized);
+        fas.setNumThreads(this.numThreads);
+    }
+}
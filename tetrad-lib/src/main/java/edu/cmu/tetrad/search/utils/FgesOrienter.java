@@ -124,9 +124,6 @@ public final class FgesOrienter implements IGraphSearch, DagScorer {
     // Map from variables to their column indices in the data set.
     private ConcurrentMap<Node, Integer> hashIndices;
 
-    // The static ForkJoinPool instance.
-    private final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
-
     // A graph where X--Y means that X and Y have non-zero total effect on one another.
     private Graph effectEdgesGraph;
 
@@ -535,7 +532,7 @@ public final class FgesOrienter implements IGraphSearch, DagScorer {
         }
 
         buildIndexing(nodes);
-        this.pool.invoke(new EffectTask(this.minChunk, 0, nodes.size()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new EffectTask(this.minChunk, 0, nodes.size()));
 
         long stop = MillisecondTimes.timeMillis();
 
@@ -741,7 +738,7 @@ public final class FgesOrienter implements IGraphSearch, DagScorer {
 
         AdjTask task = new AdjTask(pairs, 0, pairs.size());
 
-        this.pool.invoke(task);
+        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
 
     }
 
@@ -852,7 +849,7 @@ public final class FgesOrienter implements IGraphSearch, DagScorer {
         Set<Node> _adj = adjNodes(graph, x, y);
         List<Node> adj = new ArrayList<>(_adj);
 
-        this.pool.invoke(new BackwardTask(adj, this.minChunk, 0, adj.size(), this.hashIndices));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new BackwardTask(adj, this.minChunk, 0, adj.size(), this.hashIndices));
     }
 
     // Calculates the arrows for the removal in the backward direction.
@@ -432,14 +432,15 @@ public final class GraphSearchUtils {
                 }
 
                 if (mag.getEndpoint(y, x) == Endpoint.CIRCLE && mag.getEndpoint(x, y) == Endpoint.CIRCLE) {
-                    pcafci.addEdge(mag.getEdge(x, y));
+                    pcafci.addEdge(new Edge(mag.getEdge(x, y)));
                 }
             }
         }
 
-        for (Edge e : pcafci.getEdges()) {
-            e.setEndpoint1(Endpoint.TAIL);
-            e.setEndpoint2(Endpoint.TAIL);
+        // Replace rather than modify the edges; graphs may index or share them.
+        for (Edge e : new ArrayList<>(pcafci.getEdges())) {
+            pcafci.removeEdge(e);
+            pcafci.addUndirectedEdge(e.getNode1(), e.getNode2());
         }
 
         W:
@@ -465,7 +466,7 @@ public final class GraphSearchUtils {
 
         for (Edge e : pcafci.getEdges()) {
             mag.removeEdge(e.getNode1(), e.getNode2());
-            mag.addEdge(e);
+            mag.addEdge(new Edge(e));
         }
 
         return mag;
@@ -1,35 +1,59 @@
 package edu.cmu.tetrad.search.utils;
 
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.score.IncrementalLocalScore;
 import edu.cmu.tetrad.search.score.Score;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * <p>Caches the grow-shrink searches for the parents of a single node. Each path through the tree is a sequence of
+ * parents added in order of decreasing local score, so tracing a prefix from the root finds the parents the prefix
+ * allows, and the local score with them, while scoring only the branches not seen before.</p>
+ *
+ * <p>Trees may be traced from several threads at once. A node's branches are computed by whichever thread first
+ * reaches it and are published with a compare-and-set, so no locks are taken; a thread that loses the race uses the
+ * winner's branches. If the tree belongs to a GrowShrinkTreeStore, the store counts the nodes of all its trees and
+ * prunes subtrees that have not been used recently when a budget is exceeded.</p>
+ *
+ * @author bryanandrews
+ * @see GrowShrinkTreeStore
+ */
 public class GrowShrinkTree {
     private final Score score;
     private final Map<Node, Integer> index;
     private final Node node;
     private final int nodeIndex;
-    private List<Node> required;
-    private List<Node> forbidden;
-    private GSTNode root;
+    // The store whose budget this tree counts against, or null if the tree is unbounded.
+    private final GrowShrinkTreeStore store;
+    // The number of nodes in the tree, including the root; approximate while the tree is being traced.
+    private final AtomicLong numNodes = new AtomicLong();
+    private volatile List<Node> required;
+    private volatile List<Node> forbidden;
+    private volatile GSTNode root;
 
     public GrowShrinkTree(Score score, Map<Node, Integer> index, Node node) {
+        this(score, index, node, null, new ArrayList<>(), new ArrayList<>());
+    }
+
+    GrowShrinkTree(Score score, Map<Node, Integer> index, Node node, GrowShrinkTreeStore store,
+                   List<Node> required, List<Node> forbidden) {
         this.score = score;
         this.index = index;
         this.node = node;
         this.nodeIndex = index.get(node);
+        this.store = store;
+        this.required = required;
+        this.forbidden = forbidden;
         this.root = new GSTNode(this);
-        this.required = new ArrayList<>();
-        this.forbidden = new ArrayList<>();
+        this.numNodes.set(1);
     }
 
     public double trace(Collection<Node> prefix, Collection<Node> all) {
-        Set<Node> available = new HashSet<>(all);
-        available.remove(this.node);
-        this.forbidden.forEach(available::remove);
-        return this.root.trace(new HashSet<>(prefix), available, new HashSet<>());
+        return trace(prefix, all, new HashSet<>());
     }
 
     public double trace(Collection<Node> prefix, Collection<Node> all, Set<Node> parents) {
@@ -55,6 +79,24 @@ public class GrowShrinkTree {
         return this.score.localScore(this.nodeIndex, X);
     }
 
+    /**
+     * Returns an incremental local score for this tree's node with the given parents, or null if the score does
+     * not support incremental local scores or the parents' covariance matrix is singular.
+     */
+    public IncrementalLocalScore incrementalLocalScore(Collection<Node> parents) {
+        if (!this.score.supportsIncrementalLocalScore()) return null;
+
+        int i = 0;
+        int[] X = new int[parents.size()];
+        for (Node parent : parents) X[i++] = this.index.get(parent);
+
+        try {
+            return this.score.incrementalLocalScore(this.nodeIndex, X);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public boolean isRequired(Node node) {
         return this.required.contains(node);
     }
@@ -75,36 +117,98 @@ public class GrowShrinkTree {
         return this.forbidden;
     }
 
-    public void setKnowledge(List<Node> required, List<Node> forbidden) {
-        this.root = new GSTNode(this);
+    /**
+     * Returns the number of nodes in the tree. This is exact when no thread is tracing the tree.
+     */
+    public long getNumNodes() {
+        return this.numNodes.get();
+    }
+
+    /**
+     * Sets the required and forbidden parents of this tree's node. The tree is cleared unless these are the ones it
+     * already has. A tree that belongs to a GrowShrinkTreeStore may be shared with other searches, so its knowledge
+     * cannot be changed; get the tree for the new knowledge from the store instead.
+     *
+     * @throws IllegalStateException If the tree belongs to a store and the knowledge is not the tree's own.
+     */
+    public synchronized void setKnowledge(List<Node> required, List<Node> forbidden) {
+        if (required.equals(this.required) && forbidden.equals(this.forbidden)) return;
+
+        if (this.store != null) {
+            throw new IllegalStateException("The knowledge of a tree in a GrowShrinkTreeStore cannot be changed; "
+                                            + "get the tree for this knowledge from the store.");
+        }
+
         this.required = required;
         this.forbidden = forbidden;
+        clear();
+    }
+
+    /**
+     * Discards everything below the root.
+     */
+    public synchronized void clear() {
+        this.root = new GSTNode(this);
+        nodesRemoved(this.numNodes.get() - 1);
+    }
+
+    /**
+     * Detaches the branches of every node not traced since the given generation. Returns the number of nodes still
+     * in the tree.
+     */
+    long evict(int generation) {
+        long kept = this.root.evict(generation, true);
+        long removed = this.numNodes.get() - kept;
+        nodesRemoved(removed);
+        return kept;
+    }
+
+    private void nodesAdded(long count) {
+        this.numNodes.addAndGet(count);
+        if (this.store != null) this.store.nodesAdded(count);
+    }
+
+    private void nodesRemoved(long count) {
+        this.numNodes.addAndGet(-count);
+        if (this.store != null) this.store.nodesRemoved(count);
+    }
+
+    private int generation() {
+        return this.store == null ? 0 : this.store.getGeneration();
     }
 
     private static class GSTNode implements Comparable<GSTNode> {
+        private static final AtomicReferenceFieldUpdater<GSTNode, GSTNode[]> BRANCHES =
+                AtomicReferenceFieldUpdater.newUpdater(GSTNode.class, GSTNode[].class, "branches");
+        private static final GSTNode[] EMPTY = new GSTNode[0];
         private final GrowShrinkTree tree;
         private final Node add;
-        private boolean grow;
-        private boolean shrink;
         private final double growScore;
-        private double shrinkScore;
-        private List<GSTNode> branches;
-        private Set<Node> remove;
+        // Null until the node is first grown, and again after it is evicted.
+        private volatile GSTNode[] branches;
+        // Null until the node is first shrunk; the result depends only on the path to the node, so a race to set it
+        // is harmless.
+        private volatile Shrink shrink;
+        // The store generation in which this node was last traced.
+        private volatile int lastUsed;
 
         private GSTNode(GrowShrinkTree tree) {
             this.tree = tree;
             this.add = null;
-            this.grow = false;
-            this.shrink = false;
+            this.lastUsed = tree.generation();
 
             this.growScore = this.tree.localScore();
         }
 
-        private GSTNode(GrowShrinkTree tree, Node add, Set<Node> parents) {
+        private GSTNode(GrowShrinkTree tree, Node add, Set<Node> parents, IncrementalLocalScore incremental) {
             this.tree = tree;
             this.add = add;
-            this.grow = false;
-            this.shrink = false;
+            this.lastUsed = tree.generation();
+
+            if (incremental != null) {
+                this.growScore = incremental.scoreWithParent(this.tree.getIndex(add));
+                return;
+            }
 
             int i = 0;
             int[] X = new int[parents.size() + 1];
@@ -115,23 +219,23 @@ public class GrowShrinkTree {
         }
 
         public double trace(Set<Node> prefix, Set<Node> available, Set<Node> parents) {
+            int generation = this.tree.generation();
+            if (this.lastUsed != generation) this.lastUsed = generation;
 
-            if (!this.grow) {
-                this.grow = true;
-                this.branches = new ArrayList<>();
-                List<GSTNode> required = new ArrayList<>();
+            GSTNode[] branches = this.branches;
 
-                for (Node add : available) {
-                    GSTNode branch = new GSTNode(this.tree, add, parents);
-                    if (this.tree.isRequired(add)) required.add(branch);
-                    else if (branch.getGrowScore() >= this.growScore) this.branches.add(branch);
-                }
+            if (branches == null) {
+                branches = grow(available, parents);
 
-                this.branches.sort(Collections.reverseOrder());
-                this.branches.addAll(0, required);
+                if (BRANCHES.compareAndSet(this, null, branches)) {
+                    this.tree.nodesAdded(branches.length);
+                } else {
+                    GSTNode[] winner = this.branches;
+                    if (winner != null) branches = winner;
+                }
             }
 
-            for (GSTNode branch : this.branches) {
+            for (GSTNode branch : branches) {
                 Node add = branch.getAdd();
                 available.remove(add);
                 if (prefix.contains(add)) {
@@ -141,40 +245,87 @@ public class GrowShrinkTree {
                 }
             }
 
-            if (!this.shrink) {
-                this.shrink = true;
-                this.remove = new HashSet<>();
-                this.shrinkScore = this.growScore;
-                if (parents.isEmpty()) return this.shrinkScore;
+            Shrink shrink = this.shrink;
+
+            if (shrink == null) {
+                shrink = shrink(parents);
+                this.shrink = shrink;
+            }
+
+            parents.removeAll(shrink.remove);
+            return shrink.score;
+        }
+
+        private GSTNode[] grow(Set<Node> available, Set<Node> parents) {
+            List<GSTNode> branches = new ArrayList<>();
+            List<GSTNode> required = new ArrayList<>();
+            IncrementalLocalScore incremental = this.tree.incrementalLocalScore(parents);
+
+            for (Node add : available) {
+                GSTNode branch = new GSTNode(this.tree, add, parents, incremental);
+                if (this.tree.isRequired(add)) required.add(branch);
+                else if (branch.getGrowScore() >= this.growScore) branches.add(branch);
+            }
+
+            branches.sort(Collections.reverseOrder());
+            branches.addAll(0, required);
+            return branches.toArray(EMPTY);
+        }
+
+        private Shrink shrink(Set<Node> parents) {
+            Set<Node> remove = new HashSet<>();
+            double shrinkScore = this.growScore;
+            if (parents.isEmpty()) return new Shrink(shrinkScore, remove);
+
+            IncrementalLocalScore incremental = this.tree.incrementalLocalScore(parents);
+            Node best;
+            do {
+                best = null;
+                int[] X = new int[parents.size() - 1];
 
-                Node best;
-                do {
-                    best = null;
-                    int[] X = new int[parents.size() - 1];
+                for (Node _remove : new HashSet<>(parents)) {
+                    if (this.tree.isRequired(_remove)) continue;
+                    double s;
 
-                    for (Node remove : new HashSet<>(parents)) {
-                        if (this.tree.isRequired(remove)) continue;
+                    if (incremental != null) {
+                        s = incremental.scoreWithoutParent(this.tree.getIndex(_remove));
+                    } else {
                         int i = 0;
-                        parents.remove(remove);
+                        parents.remove(_remove);
                         for (Node parent : parents) X[i++] = this.tree.getIndex(parent);
-                        parents.add(remove);
-
-                        double s = this.tree.localScore(X);
-                        if (s > this.shrinkScore) {
-                            this.shrinkScore = s;
-                            best = remove;
-                        }
+                        parents.add(_remove);
+                        s = this.tree.localScore(X);
                     }
 
-                    if (best != null) {
-                        parents.remove(best);
-                        this.remove.add(best);
+                    if (s > shrinkScore) {
+                        shrinkScore = s;
+                        best = _remove;
                     }
-                } while (best != null);
+                }
+
+                if (best != null) {
+                    parents.remove(best);
+                    remove.add(best);
+                    if (incremental != null) incremental.removeParent(this.tree.getIndex(best));
+                }
+            } while (best != null);
+
+            return new Shrink(shrinkScore, remove);
+        }
+
+        // Returns the number of nodes kept in this subtree, this node included.
+        private long evict(int generation, boolean isRoot) {
+            GSTNode[] branches = this.branches;
+            if (branches == null) return 1;
 
+            if (!isRoot && this.lastUsed < generation) {
+                BRANCHES.compareAndSet(this, branches, null);
+                return 1;
             }
-            parents.removeAll(this.remove);
-            return this.shrinkScore;
+
+            long kept = 1;
+            for (GSTNode branch : branches) kept += branch.evict(generation, false);
+            return kept;
         }
 
         public Node getAdd() {
@@ -190,5 +341,14 @@ public class GrowShrinkTree {
             return Double.compare(this.growScore, branch.getGrowScore());
         }
     }
-}
 
+    private static class Shrink {
+        private final double score;
+        private final Set<Node> remove;
+
+        private Shrink(double score, Set<Node> remove) {
+            this.score = score;
+            this.remove = remove;
+        }
+    }
+}
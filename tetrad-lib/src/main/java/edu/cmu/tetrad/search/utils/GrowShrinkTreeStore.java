@@ -0,0 +1,288 @@
+package edu.cmu.tetrad.search.utils;
+
+import edu.cmu.tetrad.data.Knowledge;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.score.Score;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Holds GrowShrinkTrees for the variables of a score, so that the trees, and the local scores cached in them, can
+ * be shared by the threads, random starts and repeated runs of permutation searches over the same data. Pass the
+ * same store to each PermutationSearch or TeyssierScorer to have them reuse each other's work.</p>
+ *
+ * <p>A tree depends on the required and forbidden parents of its variable, so the store keeps one tree for each
+ * variable and each such pair of lists it has been asked for. Searches with different knowledge therefore get
+ * different trees and do not disturb each other; searches with the same knowledge share them.</p>
+ *
+ * <p>Since the trees may be traced from several threads at once, the score must be safe to call from more than one
+ * thread.</p>
+ *
+ * <p>The store keeps a count of the nodes in all of its trees. If a maximum is given and the count goes over it,
+ * the subtrees that have not been traced since the previous pruning are cut off; the scores in them are recomputed
+ * if they are needed again. Pruning is done by whichever thread goes over the maximum, while the others carry
+ * on.</p>
+ *
+ * @see GrowShrinkTree
+ * @see edu.cmu.tetrad.search.PermutationSearch
+ * @see TeyssierScorer
+ */
+public final class GrowShrinkTreeStore {
+
+    // A rough size in bytes of a tree node, with its slot in its parent's branch array, for 64-bit JVMs with
+    // compressed references.
+    private static final long BYTES_PER_NODE = 56;
+
+    // The score the trees were built for.
+    private final Score score;
+
+    // The variables of the score, and their indices.
+    private final List<Node> variables;
+    private final Map<Node, Integer> index;
+
+    // The trees, by variable and knowledge.
+    private final ConcurrentMap<Key, GrowShrinkTree> trees = new ConcurrentHashMap<>();
+
+    // The maximum number of nodes to keep.
+    private final long maxNodes;
+
+    // The number of nodes in all trees.
+    private final AtomicLong numNodes = new AtomicLong();
+
+    // The number of times the trees have been pruned.
+    private final AtomicLong numEvictions = new AtomicLong();
+
+    // True while some thread is pruning the trees.
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    // Incremented after each pruning; nodes remember the generation in which they were last traced.
+    private volatile int generation = 0;
+
+    /**
+     * Constructs a store with no limit on the number of nodes.
+     *
+     * @param score The score.
+     */
+    public GrowShrinkTreeStore(Score score) {
+        this(score, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a store that keeps at most about the given number of tree nodes.
+     *
+     * @param score    The score; it must be safe to call from more than one thread.
+     * @param maxNodes The maximum number of nodes, over all trees.
+     */
+    public GrowShrinkTreeStore(Score score, long maxNodes) {
+        if (maxNodes < 1) throw new IllegalArgumentException("The maximum number of nodes must be positive.");
+
+        this.score = score;
+        this.maxNodes = maxNodes;
+
+        this.variables = new ArrayList<>(score.getVariables());
+        this.index = new HashMap<>();
+        for (int i = 0; i < this.variables.size(); i++) this.index.put(this.variables.get(i), i);
+    }
+
+    /**
+     * Returns a store whose node limit corresponds roughly to the given number of bytes.
+     *
+     * @param score    The score.
+     * @param maxBytes The approximate maximum memory for the trees, in bytes.
+     * @return The store.
+     */
+    public static GrowShrinkTreeStore withMemoryLimit(Score score, long maxBytes) {
+        return new GrowShrinkTreeStore(score, Math.max(1, maxBytes / BYTES_PER_NODE));
+    }
+
+    /**
+     * Returns the score the trees were built for.
+     *
+     * @return This score.
+     */
+    public Score getScore() {
+        return this.score;
+    }
+
+    /**
+     * Returns the trees, by variable, for searches without knowledge. The map is unmodifiable.
+     *
+     * @return This map.
+     */
+    public Map<Node, GrowShrinkTree> getTrees() {
+        return getTrees(new Knowledge());
+    }
+
+    /**
+     * Returns the trees, by variable, with the required and forbidden parents given by the given knowledge. The map
+     * is unmodifiable.
+     *
+     * @param knowledge The knowledge.
+     * @return This map.
+     */
+    public Map<Node, GrowShrinkTree> getTrees(Knowledge knowledge) {
+        Map<Node, GrowShrinkTree> trees = new HashMap<>();
+
+        for (Node node : this.variables) {
+            List<Node> required = new ArrayList<>();
+            List<Node> forbidden = new ArrayList<>();
+
+            for (Node parent : this.variables) {
+                if (knowledge.isRequired(parent.getName(), node.getName())) required.add(parent);
+                if (knowledge.isForbidden(parent.getName(), node.getName())) forbidden.add(parent);
+            }
+
+            trees.put(node, getTree(node, required, forbidden));
+        }
+
+        return Collections.unmodifiableMap(trees);
+    }
+
+    /**
+     * Returns the tree for the given variable without required or forbidden parents.
+     *
+     * @param node The variable.
+     * @return Its tree.
+     */
+    public GrowShrinkTree getTree(Node node) {
+        return getTree(node, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Returns the tree for the given variable with the given required and forbidden parents, making it if need be.
+     *
+     * @param node      The variable.
+     * @param required  The required parents.
+     * @param forbidden The forbidden parents.
+     * @return Its tree.
+     */
+    public GrowShrinkTree getTree(Node node, List<Node> required, List<Node> forbidden) {
+        if (!this.index.containsKey(node)) {
+            throw new IllegalArgumentException("Not a variable of the score: " + node);
+        }
+
+        Key key = new Key(node, required, forbidden);
+        GrowShrinkTree tree = this.trees.get(key);
+
+        if (tree == null) {
+            GrowShrinkTree _tree = new GrowShrinkTree(this.score, this.index, node, this, key.required,
+                    key.forbidden);
+            tree = this.trees.putIfAbsent(key, _tree);
+
+            if (tree == null) {
+                tree = _tree;
+                nodesAdded(1);
+            }
+        }
+
+        return tree;
+    }
+
+    /**
+     * Returns the number of trees in the store.
+     *
+     * @return This number.
+     */
+    public int getNumTrees() {
+        return this.trees.size();
+    }
+
+    /**
+     * Returns the number of nodes in all trees.
+     *
+     * @return This number.
+     */
+    public long getNumNodes() {
+        return this.numNodes.get();
+    }
+
+    /**
+     * Returns the maximum number of nodes.
+     *
+     * @return This number.
+     */
+    public long getMaxNodes() {
+        return this.maxNodes;
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the trees, in bytes.
+     *
+     * @return This estimate.
+     */
+    public long getMemoryEstimate() {
+        return this.numNodes.get() * BYTES_PER_NODE;
+    }
+
+    /**
+     * Returns the number of times the trees have been pruned.
+     *
+     * @return This number.
+     */
+    public long getNumEvictions() {
+        return this.numEvictions.get();
+    }
+
+    /**
+     * Empties all trees.
+     */
+    public void clear() {
+        for (GrowShrinkTree tree : this.trees.values()) tree.clear();
+    }
+
+    int getGeneration() {
+        return this.generation;
+    }
+
+    void nodesAdded(long count) {
+        if (this.numNodes.addAndGet(count) > this.maxNodes && this.evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                this.evicting.set(false);
+            }
+        }
+    }
+
+    void nodesRemoved(long count) {
+        this.numNodes.addAndGet(-count);
+    }
+
+    private void evict() {
+        int generation = this.generation;
+        for (GrowShrinkTree tree : this.trees.values()) tree.evict(generation);
+        this.generation = generation + 1;
+        this.numEvictions.incrementAndGet();
+    }
+
+    // A variable together with its required and forbidden parents.
+    private static final class Key {
+        private final Node node;
+        private final List<Node> required;
+        private final List<Node> forbidden;
+
+        Key(Node node, List<Node> required, List<Node> forbidden) {
+            this.node = node;
+            this.required = Collections.unmodifiableList(new ArrayList<>(required));
+            this.forbidden = Collections.unmodifiableList(new ArrayList<>(forbidden));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.node, this.required, this.forbidden);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return this.node.equals(key.node) && this.required.equals(key.required)
+                   && this.forbidden.equals(key.forbidden);
+        }
+    }
+}
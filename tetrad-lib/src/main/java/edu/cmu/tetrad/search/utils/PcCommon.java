@@ -105,6 +105,7 @@ public final class PcCommon implements IGraphSearch {
     private ColliderDiscovery colliderDiscovery = ColliderDiscovery.FAS_SEPSETS;
     private ConflictRule conflictRule = ConflictRule.PRIORITIZE_EXISTING;
     private PcHeuristicType pcHeuristicType = PcHeuristicType.NONE;
+    private final FasParallelism fasParallelism = new FasParallelism();
 
     /**
      * Constructs a CPC algorithm that uses the given independence test as oracle. This does not make a copy of the
@@ -134,6 +135,27 @@ public final class PcCommon implements IGraphSearch {
         this.fasType = fasType;
     }
 
+    /**
+     * Sets whether the edges at each depth of the adjacency search should be tested in parallel. This gives the
+     * same result as the stable adjacency search. Default is false.
+     *
+     * @param parallelized True iff the case.
+     * @see Fas#setParallelized(boolean)
+     */
+    public void setParallelized(boolean parallelized) {
+        this.fasParallelism.setParallelized(parallelized);
+    }
+
+    /**
+     * Sets the number of threads to use for the parallel adjacency search.
+     *
+     * @param numThreads This number; must be at least 1.
+     * @see Fas#setNumThreads(int)
+     */
+    public void setNumThreads(int numThreads) {
+        this.fasParallelism.setNumThreads(numThreads);
+    }
+
     /**
      * @param pcHeuristic Which PC heuristic to use (see Causation, Prediction and Search). Default is
      *                    PcHeuristicType.NONE.
@@ -190,6 +212,7 @@ public final class PcCommon implements IGraphSearch {
         if (this.fasType == FasType.REGULAR) {
             fas = new Fas(getIndependenceTest());
             fas.setPcHeuristicType(this.pcHeuristicType);
+            fas.setStable(false);
         } else {
             fas = new Fas(getIndependenceTest());
             fas.setPcHeuristicType(this.pcHeuristicType);
@@ -199,6 +222,7 @@ public final class PcCommon implements IGraphSearch {
         fas.setKnowledge(getKnowledge());
         fas.setDepth(getDepth());
         fas.setVerbose(this.verbose);
+        this.fasParallelism.configure(fas);
 
         // Note that we are ignoring the sepset map returned by this method
         // on purpose; it is not used in this search.
@@ -39,6 +39,8 @@ public class TeyssierScorer {
     private final Map<Object, Map<Node, Integer>> bookmarkedOrderHashes = new HashMap<>();
     private final Map<Object, Double> bookmarkedRunningScores = new HashMap<>();
     private final Map<Node, GrowShrinkTree> trees = new HashMap<>();
+    // The store the trees come from, or null if the score is not used.
+    private GrowShrinkTreeStore store;
     private Knowledge knowledge = new Knowledge();
     private boolean useScore;
     private boolean useRaskuttiUhler = false;
@@ -54,13 +56,24 @@ public class TeyssierScorer {
      * @see Score
      */
     public TeyssierScorer(IndependenceTest test, Score score) {
+        this(test, score, null);
+    }
+
+    /**
+     * Constructor that takes both a test or a score, and a store of grow-shrink trees for the score, which may be
+     * shared with other scorers and searches using the same score.
+     *
+     * @param test  The test.
+     * @param score The score
+     * @param store The store, or null if this scorer should make its own.
+     * @see GrowShrinkTreeStore
+     */
+    public TeyssierScorer(IndependenceTest test, Score score, GrowShrinkTreeStore store) {
         if (test == null && score == null) throw new IllegalArgumentException("Required: test or score");
         NodeEqualityMode.setEqualityMode(NodeEqualityMode.Type.OBJECT);
 
         this.variables = score.getVariables();
         this.pi = new ArrayList<>(this.variables);
-        Map<Node, Integer> variablesHash = new HashMap<>();
-        nodesHash(variablesHash, this.variables);
         nodesHash(this.orderHash, this.pi);
 
         this.test = test;
@@ -68,12 +81,37 @@ public class TeyssierScorer {
 
         setUseScore(true);
         if (this.useScore) {
-            for (Node node : this.variables) {
-                this.trees.put(node, new GrowShrinkTree(score, variablesHash, node));
+            if (store == null) {
+                store = new GrowShrinkTreeStore(score);
+            } else if (store.getScore() != score) {
+                throw new IllegalArgumentException("The grow-shrink tree store was constructed for a different score.");
             }
+
+            this.store = store;
+            this.trees.putAll(store.getTrees());
         }
     }
 
+    /**
+     * Constructs a scorer with the same test, score, knowledge and settings as the given scorer, sharing its
+     * grow-shrink trees, so that local scores found by either are available to both. Each scorer keeps its own
+     * permutation and bookmarks, so the two may be used from different threads.
+     *
+     * @param scorer The scorer whose trees are to be shared.
+     */
+    public TeyssierScorer(TeyssierScorer scorer) {
+        this.variables = scorer.variables;
+        this.pi = new ArrayList<>(scorer.pi);
+        nodesHash(this.orderHash, this.pi);
+        this.test = scorer.test;
+        this.score = scorer.score;
+        this.store = scorer.store;
+        this.trees.putAll(scorer.trees);
+        this.knowledge = scorer.knowledge;
+        this.useScore = scorer.useScore;
+        this.useRaskuttiUhler = scorer.useRaskuttiUhler;
+    }
+
     /**
      * @param useScore True if the score should be used; false if the test should be used.
      */
@@ -87,17 +125,7 @@ public class TeyssierScorer {
      */
     public void setKnowledge(Knowledge knowledge) {
         this.knowledge = knowledge;
-
-        for (Node node : this.variables) {
-            List<Node> required = new ArrayList<>();
-            List<Node> forbidden = new ArrayList<>();
-            for (Node parent : this.variables) {
-                if (knowledge.isRequired(parent.getName(), node.getName())) required.add(parent);
-                if (knowledge.isForbidden(parent.getName(), node.getName())) forbidden.add(parent);
-            }
-            if (required.isEmpty() && forbidden.isEmpty()) continue;
-            this.trees.get(node).setKnowledge(required, forbidden);
-        }
+        if (this.store != null) this.trees.putAll(this.store.getTrees(knowledge));
     }
 
     /**
@@ -325,7 +353,7 @@ public class TeyssierScorer {
      * @return This graph.
      */
     public Graph getGraph(boolean cpDag) {
-        Graph graph = new EdgeListGraph(this.variables);
+        Graph graph = new IndexedGraph(this.variables);
         for (Node a : this.variables) {
             for (Node b : getParents(a)) {
                 graph.addDirectedEdge(b, a);
@@ -338,7 +366,7 @@ public class TeyssierScorer {
             rules.orientImplied(graph);
         }
 
-        return graph;
+        return new EdgeListGraph(graph);
     }
 
     /**
@@ -24,6 +24,7 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.NumberFormatUtil;
 import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.Vector;
 import edu.cmu.tetrad.util.dist.Distribution;
@@ -36,8 +37,12 @@ import org.apache.commons.math3.distribution.UniformRealDistribution;
 import org.apache.commons.math3.random.Well1024a;
 import org.apache.commons.math3.util.FastMath;
 
-import java.io.PrintStream;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.RecursiveTask;
 
 import static org.apache.commons.math3.util.FastMath.abs;
@@ -53,6 +58,9 @@ public final class LargeScaleSimulation {
 
     static final long serialVersionUID = 23L;
 
+    // The budget, in doubles, for the values of one chunk of rows simulated to a file.
+    private static final int CHUNK_BUDGET = 1 << 20;
+
     private int[][] parents;
     private double[][] coefs;
     private double[] errorVars;
@@ -199,6 +207,83 @@ public final class LargeScaleSimulation {
         return new BoxDataSet(new VerticalDoubleDataBox(all), this.variableNodes);
     }
 
+    /**
+     * Simulates data as simulateDataRecursive does, but writes it to a delimited text file as it is made, so that data
+     * sets much larger than memory can be made. The rows are simulated in parallel in chunks whose size depends only on
+     * the number of variables; each chunk draws its errors from its own generator, seeded from the seed of this
+     * simulation and the index of the chunk, so the file is the same for a given seed whatever the number of threads.
+     * Only a few chunks per thread are held in memory at once. The model must be acyclic.
+     *
+     * @param sampleSize The number of rows to simulate.
+     * @param file       The file to write. It is replaced if it exists.
+     * @param delimiter  The character separating values, usually '\t' or ','.
+     * @throws IOException If the file cannot be written, or InterruptedIOException if the thread is interrupted.
+     * @see #setSeed(long)
+     */
+    public void simulateDataRecursive(int sampleSize, File file, char delimiter) throws IOException {
+        NumberFormat nf = NumberFormatUtil.getInstance().getNumberFormat();
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (int j = 0; j < this.variableNodes.size(); j++) {
+                if (j > 0) out.write(delimiter);
+                out.write(this.variableNodes.get(j).getName());
+            }
+
+            out.write("\n");
+
+            simulateInChunks(sampleSize, (fromRow, columns) -> {
+                NumberFormat _nf = (NumberFormat) nf.clone();
+                StringBuilder buf = new StringBuilder();
+
+                for (int i = 0; i < columns[0].length; i++) {
+                    for (int j = 0; j < columns.length; j++) {
+                        if (j > 0) buf.append(delimiter);
+                        buf.append(_nf.format(columns[j][i]));
+                    }
+
+                    buf.append("\n");
+                }
+
+                return buf.toString();
+            }, out::write);
+        }
+    }
+
+    /**
+     * Simulates data as simulateDataRecursive does, but writes it to a file in Tetrad's binary columnar format as it is
+     * made, so that data sets much larger than memory can be made and then searched through a MappedDataBox. Chunks
+     * are simulated in parallel and reproducibly, as in simulateDataRecursive(int, File, char), and each writes its
+     * rows straight into the mapped file. The model must be acyclic.
+     *
+     * @param sampleSize The number of rows to simulate.
+     * @param file       The file to write. It is replaced if it exists.
+     * @return A data set over the file, mapped read-only.
+     * @throws IOException If the file cannot be written, or InterruptedIOException if the thread is interrupted.
+     * @see MappedDataBox
+     */
+    public DataSet simulateDataRecursiveColumnar(int sampleSize, File file) throws IOException {
+        List<Node> continuousVars = new ArrayList<>();
+
+        for (Node node : getVariableNodes()) {
+            ContinuousVariable var = new ContinuousVariable(node.getName());
+            var.setNodeType(node.getNodeType());
+            continuousVars.add(var);
+        }
+
+        MappedDataBox box = MappedDataBox.create(file, continuousVars, sampleSize);
+
+        simulateInChunks(sampleSize, (fromRow, columns) -> {
+            for (int j = 0; j < columns.length; j++) {
+                box.setDoubles(j, fromRow, columns[j], columns[j].length);
+            }
+
+            return null;
+        }, result -> {
+        });
+
+        return MappedDataBox.loadDataSet(file);
+    }
+
     /**
      * Simulates data using the model X = (I - B)Y^-1 * e. Errors are uncorrelated.
      *
@@ -407,6 +492,82 @@ public final class LargeScaleSimulation {
         return saveLatentVars ? boxDataSet : DataUtils.restrictToMeasured(boxDataSet);
     }
 
+    // Simulates the rows in chunks, a batch of chunks at a time, each chunk in parallel. Each chunk's values, by
+    // column, are passed to the handler in the thread that simulated them, and the handler's results are passed to
+    // the sink in the order of the rows.
+    private void simulateInChunks(int sampleSize, ChunkHandler handler, ChunkSink sink) throws IOException {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be >= 1: " + sampleSize);
+        }
+
+        if (this.tierIndices == null) {
+            this.tierIndices = new int[this.variableNodes.size()];
+            for (int j = 0; j < this.variableNodes.size(); j++) {
+                this.tierIndices[j] = j;
+            }
+        }
+
+        int numVars = this.variableNodes.size();
+        setupModel(numVars);
+
+        long seed = ++this.seed;
+
+        // A multiple of 64 rows, so that chunks written to a columnar file do not share words of its bitmaps.
+        int chunkRows = FastMath.min(1 << 14, LargeScaleSimulation.CHUNK_BUDGET / FastMath.max(1, numVars));
+        chunkRows = FastMath.max(64, chunkRows & ~63);
+        int numChunks = (int) ((sampleSize + (long) chunkRows - 1) / chunkRows);
+        int batchSize = 2 * ForkJoinPoolInstance.getInstance().getParallelism();
+
+        for (int first = 0; first < numChunks; first += batchSize) {
+            List<Callable<String>> tasks = new ArrayList<>();
+
+            for (int chunk = first; chunk < FastMath.min(numChunks, first + batchSize); chunk++) {
+                int fromRow = chunk * chunkRows;
+                int numRows = FastMath.min(chunkRows, sampleSize - fromRow);
+                int[] generatorSeed = {(int) seed, (int) (seed >>> 32), chunk};
+
+                tasks.add(() -> {
+                    double[][] columns = new double[numVars][numRows];
+                    simulateChunk(new NormalDistribution(new Well1024a(generatorSeed), 0, 1), columns);
+                    return handler.handle(fromRow, columns);
+                });
+            }
+
+            List<String> results;
+
+            try {
+                results = ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+            } catch (CancellationException e) {
+                throw new InterruptedIOException("Interrupted while simulating data.");
+            }
+
+            for (String result : results) {
+                sink.accept(result);
+            }
+
+            if (this.verbose) {
+                System.out.println("Simulated " + FastMath.min(sampleSize, (long) (first + batchSize) * chunkRows) + " rows");
+            }
+        }
+    }
+
+    // Fills the given columns with rows simulated recursively, as simulateDataRecursive does.
+    private void simulateChunk(NormalDistribution normal, double[][] columns) {
+        for (int i = 0; i < columns[0].length; i++) {
+            for (int col : this.tierIndices) {
+                double value = normal.sample() * sqrt(this.errorVars[col]);
+
+                for (int j = 0; j < this.parents[col].length; j++) {
+                    value += columns[this.parents[col][j]][i] * this.coefs[col][j];
+                }
+
+                value += this.means[col];
+
+                columns[col][i] = value;
+            }
+        }
+    }
+
     private void setupModel(int size) {
         if (this.alreadySetUp) {
             return;
@@ -802,4 +963,23 @@ public final class LargeScaleSimulation {
     public void setSelfLoopCoef(double selfLoopCoef) {
         this.selfLoopCoef = selfLoopCoef;
     }
+
+    /**
+     * Sets the seed from which the errors of the next simulation are drawn; each simulation advances it.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // Turns the values of a chunk of rows, by column, into what is passed on to a ChunkSink.
+    private interface ChunkHandler {
+        String handle(int fromRow, double[][] columns) throws IOException;
+    }
+
+    // Takes the results of ChunkHandler in the order of the rows.
+    private interface ChunkSink {
+        void accept(String result) throws IOException;
+    }
 }
@@ -1113,6 +1113,13 @@ public final class SemIm implements Im, ISemIm {
         this.scoreType = scoreType;
     }
 
+    /**
+     * @return the fitting function minimized by getScore(), Fml or Fgls.
+     */
+    public ScoreType getScoreType() {
+        return this.scoreType;
+    }
+
     private DataSet simulateTimeSeries(int sampleSize, boolean latentDataSaved) {
         SemGraph semGraph = new SemGraph(this.semPm.getGraph());
         semGraph.setShowErrorTerms(true);
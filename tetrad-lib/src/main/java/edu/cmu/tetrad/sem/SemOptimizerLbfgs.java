@@ -0,0 +1,453 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.SemGraph;
+import edu.cmu.tetrad.util.Matrix;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Optimizes a SEM by minimizing its fitting function (Fml or Fgls, whichever the SemIm's score type is) with L-BFGS,
+ * using the analytic gradient of the fitting function with respect to the free edge coefficients and error
+ * covariances.
+ * <p>
+ * With B the matrix of edge coefficients, Omega the error covariance matrix and A = (I - B')^-1, the implied
+ * covariance matrix over all variables is Sigma = A Omega A'. If dF = tr(W dSigma) for the measured part of Sigma
+ * (W = Sigma^-1 - Sigma^-1 S Sigma^-1 for Fml, S^-1 Sigma S^-1 - S^-1 for Fgls) and W is padded with zeros for the
+ * latent variables, then dF/dB = 2 Sigma W A and dF/dOmega = A' W A, counted twice for off-diagonal covariances. One
+ * evaluation of the function and its gradient therefore costs a few matrix products, where derivative-free
+ * optimizers such as SemOptimizerPowell need a number of evaluations per step that grows with the number of free
+ * parameters. Cyclic models, latent variables and fixed parameters are all handled.
+ * <p>
+ * As with SemOptimizerPowell, points where a free variance is not positive or where Sigma is not positive definite
+ * are rejected; the line search backs off from them. The first run starts from the SemIm's current parameter values;
+ * each restart starts from random values.
+ */
+public class SemOptimizerLbfgs implements SemOptimizer {
+    static final long serialVersionUID = 23L;
+
+    // The number of correction pairs kept to approximate the inverse Hessian.
+    private static final int MEMORY = 10;
+
+    // The maximum number of iterations per run.
+    private static final int MAX_ITERATIONS = 10000;
+
+    // The maximum number of reductions of the step in one line search.
+    private static final int MAX_BACKTRACKS = 60;
+
+    // The sufficient decrease constant of the Armijo condition.
+    private static final double ARMIJO = 1e-4;
+
+    // A run stops when no component of the gradient is larger than this...
+    private static final double GRADIENT_TOLERANCE = 1e-8;
+
+    // ...or when a step decreases the fitting function by less than this, relative to its value.
+    private static final double FUNCTION_TOLERANCE = 1e-14;
+
+    private int numRestarts;
+
+    //=========================CONSTRUCTORS============================//
+
+    /**
+     * Blank constructor.
+     */
+    public SemOptimizerLbfgs() {
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static SemOptimizerLbfgs serializableInstance() {
+        return new SemOptimizerLbfgs();
+    }
+
+    //=========================PUBLIC METHODS==========================//
+
+    public void optimize(SemIm semIm) {
+        if (semIm.getSampleCovar() == null) {
+            throw new NullPointerException("Sample covar has not been set.");
+        }
+
+        FittingFunction function = new FittingFunction(semIm);
+        List<Parameter> freeParameters = semIm.getFreeParameters();
+
+        double min = Double.POSITIVE_INFINITY;
+        double[] point = null;
+
+        for (int count = 0; count < this.numRestarts + 1; count++) {
+            double[] start = count == 0 ? semIm.getFreeParamValues() : randomStart(freeParameters);
+
+            if (Double.isInfinite(function.value(start, null))) {
+                if (count == 0) start = randomStart(freeParameters);
+                if (!makeFeasible(function, freeParameters, start)) continue;
+            }
+
+            double[] x = minimize(function, start);
+            double f = function.value(x, null);
+
+            if (f < min) {
+                min = f;
+                point = x;
+            }
+        }
+
+        if (point == null) {
+            throw new IllegalStateException("The fitting function could not be evaluated at any starting point.");
+        }
+
+        semIm.setFreeParamValues(point);
+    }
+
+    public String toString() {
+        return "Sem Optimizer L-BFGS";
+    }
+
+    @Override
+    public void setNumRestarts(int numRestarts) {
+        this.numRestarts = numRestarts;
+    }
+
+    @Override
+    public int getNumRestarts() {
+        return this.numRestarts;
+    }
+
+    //=========================PRIVATE METHODS==========================//
+
+    // Random starting values, drawn as in SemOptimizerPowell.
+    private static double[] randomStart(List<Parameter> freeParameters) {
+        double[] p = new double[freeParameters.size()];
+
+        for (int i = 0; i < freeParameters.size(); i++) {
+            if (freeParameters.get(i).getType() == ParamType.VAR) {
+                p[i] = RandomUtil.getInstance().nextUniform(0, 1);
+            } else {
+                p[i] = RandomUtil.getInstance().nextUniform(-1, 1);
+            }
+        }
+
+        return p;
+    }
+
+    // Shrinks the error covariances of the given point toward zero until the fitting function can be evaluated there.
+    // Returns false if it never can be.
+    private static boolean makeFeasible(FittingFunction function, List<Parameter> freeParameters, double[] p) {
+        for (int i = 0; i < p.length; i++) {
+            if (freeParameters.get(i).getType() == ParamType.VAR && !(p[i] > 0)) {
+                p[i] = 1.0;
+            }
+        }
+
+        for (int k = 0; k < 30; k++) {
+            if (!Double.isInfinite(function.value(p, null))) return true;
+
+            for (int i = 0; i < p.length; i++) {
+                if (freeParameters.get(i).getType() == ParamType.COVAR) {
+                    p[i] *= 0.5;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // Minimizes the fitting function with L-BFGS and a backtracking line search, starting from a point at which the
+    // function can be evaluated.
+    private static double[] minimize(FittingFunction function, double[] start) {
+        int n = start.length;
+        double[] x = start.clone();
+        double[] g = new double[n];
+        double fx = function.value(x, g);
+
+        Deque<double[]> s = new ArrayDeque<>();
+        Deque<double[]> y = new ArrayDeque<>();
+
+        for (int iteration = 0; iteration < SemOptimizerLbfgs.MAX_ITERATIONS; iteration++) {
+            if (maxAbs(g) <= SemOptimizerLbfgs.GRADIENT_TOLERANCE) break;
+
+            double[] d = direction(g, s, y);
+            double slope = dot(g, d);
+
+            if (!(slope < 0)) {
+                s.clear();
+                y.clear();
+                d = direction(g, s, y);
+                slope = dot(g, d);
+            }
+
+            // Without curvature information the scale of the steepest descent direction is unknown, so the first
+            // step is kept to unit length.
+            double step = s.isEmpty() ? FastMath.min(1.0, 1.0 / FastMath.sqrt(dot(g, g))) : 1.0;
+
+            double[] xNew = new double[n];
+            double[] gNew = new double[n];
+            double fNew = Double.POSITIVE_INFINITY;
+            boolean accepted = false;
+
+            for (int k = 0; k < SemOptimizerLbfgs.MAX_BACKTRACKS; k++) {
+                for (int i = 0; i < n; i++) xNew[i] = x[i] + step * d[i];
+                fNew = function.value(xNew, gNew);
+
+                if (fNew <= fx + SemOptimizerLbfgs.ARMIJO * step * slope) {
+                    accepted = true;
+                    break;
+                }
+
+                // The minimizer of the quadratic through f(x), the slope at x and f(x + step d), kept within
+                // [0.1, 0.5] times the step; a step to an infeasible point is halved.
+                if (Double.isInfinite(fNew)) {
+                    step *= 0.5;
+                } else {
+                    double t = -slope * step * step / (2.0 * (fNew - fx - slope * step));
+                    step = FastMath.max(0.1 * step, FastMath.min(0.5 * step, t));
+                }
+            }
+
+            if (!accepted) {
+                if (s.isEmpty()) break;
+
+                // The curvature information has led astray; start over from steepest descent.
+                s.clear();
+                y.clear();
+                continue;
+            }
+
+            double[] sk = new double[n];
+            double[] yk = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                sk[i] = xNew[i] - x[i];
+                yk[i] = gNew[i] - g[i];
+            }
+
+            // Pairs without positive curvature would make the approximate inverse Hessian indefinite.
+            if (dot(sk, yk) > 1e-10 * FastMath.sqrt(dot(sk, sk) * dot(yk, yk))) {
+                s.addLast(sk);
+                y.addLast(yk);
+
+                if (s.size() > SemOptimizerLbfgs.MEMORY) {
+                    s.removeFirst();
+                    y.removeFirst();
+                }
+            }
+
+            boolean converged = fx - fNew <= SemOptimizerLbfgs.FUNCTION_TOLERANCE * FastMath.max(1.0, FastMath.abs(fx));
+
+            x = xNew;
+            g = gNew;
+            fx = fNew;
+
+            if (converged) break;
+        }
+
+        return x;
+    }
+
+    // The L-BFGS search direction, -H g, by the two-loop recursion over the stored pairs, oldest first.
+    private static double[] direction(double[] g, Deque<double[]> s, Deque<double[]> y) {
+        int m = s.size();
+        double[] q = new double[g.length];
+        for (int i = 0; i < g.length; i++) q[i] = -g[i];
+
+        double[][] _s = s.toArray(new double[0][]);
+        double[][] _y = y.toArray(new double[0][]);
+        double[] alpha = new double[m];
+        double[] rho = new double[m];
+
+        for (int k = m - 1; k >= 0; k--) {
+            rho[k] = 1.0 / dot(_y[k], _s[k]);
+            alpha[k] = rho[k] * dot(_s[k], q);
+            for (int i = 0; i < q.length; i++) q[i] -= alpha[k] * _y[k][i];
+        }
+
+        if (m > 0) {
+            double gamma = dot(_s[m - 1], _y[m - 1]) / dot(_y[m - 1], _y[m - 1]);
+            for (int i = 0; i < q.length; i++) q[i] *= gamma;
+        }
+
+        for (int k = 0; k < m; k++) {
+            double beta = rho[k] * dot(_y[k], q);
+            for (int i = 0; i < q.length; i++) q[i] += (alpha[k] - beta) * _s[k][i];
+        }
+
+        return q;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    private static double maxAbs(double[] a) {
+        double max = 0.0;
+        for (double v : a) max = FastMath.max(max, FastMath.abs(v));
+        return max;
+    }
+
+    /**
+     * The fitting function of a SemIm and its gradient, as functions of the free parameter values in the order of
+     * getFreeParameters(). Fixed parameters keep the values they have in the SemIm.
+     */
+    private static final class FittingFunction {
+        private final ScoreType scoreType;
+        private final ParamType[] types;
+
+        // The indices in getVariableNodes() of the two nodes of each free parameter.
+        private final int[] rows;
+        private final int[] cols;
+
+        // The indices in getVariableNodes() of the measured variables, in the order of the sample covariance matrix.
+        private final int[] measured;
+        private final int[] all;
+
+        // The edge coefficients and error covariances; the entries for free parameters are overwritten on each call.
+        private final Matrix edgeCoef;
+        private final Matrix errCovar;
+
+        private final Matrix sampleCovar;
+        private final Matrix sampleCovarInv;
+        private final double logDetSampleCovar;
+
+        private FittingFunction(SemIm semIm) {
+            List<Node> variableNodes = semIm.getVariableNodes();
+            List<Node> measuredNodes = semIm.getMeasuredNodes();
+            List<Parameter> freeParameters = semIm.getFreeParameters();
+            SemGraph graph = semIm.getSemPm().getGraph();
+
+            this.scoreType = semIm.getScoreType();
+            this.types = new ParamType[freeParameters.size()];
+            this.rows = new int[freeParameters.size()];
+            this.cols = new int[freeParameters.size()];
+
+            for (int k = 0; k < freeParameters.size(); k++) {
+                Parameter parameter = freeParameters.get(k);
+                this.types[k] = parameter.getType();
+                this.rows[k] = variableNodes.indexOf(graph.getVarNode(parameter.getNodeA()));
+                this.cols[k] = variableNodes.indexOf(graph.getVarNode(parameter.getNodeB()));
+            }
+
+            this.measured = new int[measuredNodes.size()];
+            for (int i = 0; i < measuredNodes.size(); i++) this.measured[i] = variableNodes.indexOf(measuredNodes.get(i));
+
+            this.all = new int[variableNodes.size()];
+            for (int i = 0; i < variableNodes.size(); i++) this.all[i] = i;
+
+            this.edgeCoef = semIm.getEdgeCoef();
+            this.errCovar = semIm.getErrCovar();
+            this.sampleCovar = semIm.getSampleCovar();
+            this.sampleCovarInv = this.scoreType == ScoreType.Fgls ? this.sampleCovar.inverse() : null;
+            this.logDetSampleCovar = FastMath.log(this.sampleCovar.det());
+        }
+
+        /**
+         * Returns the value of the fitting function at the given parameter values, or positive infinity if a free
+         * variance is not positive or the implied covariance matrix is not positive definite. If the gradient array is
+         * not null, the gradient is stored in it.
+         */
+        private double value(double[] parameters, double[] gradient) {
+            for (int k = 0; k < parameters.length; k++) {
+                if (Double.isNaN(parameters[k]) || Double.isInfinite(parameters[k])) return Double.POSITIVE_INFINITY;
+                if (this.types[k] == ParamType.VAR && parameters[k] <= 0.0) return Double.POSITIVE_INFINITY;
+            }
+
+            for (int k = 0; k < parameters.length; k++) {
+                if (this.types[k] == ParamType.COEF) {
+                    this.edgeCoef.set(this.rows[k], this.cols[k], parameters[k]);
+                } else {
+                    this.errCovar.set(this.rows[k], this.cols[k], parameters[k]);
+                    this.errCovar.set(this.cols[k], this.rows[k], parameters[k]);
+                }
+            }
+
+            int p = this.measured.length;
+            Matrix a;
+            Matrix sigmaAll;
+            Matrix sigma;
+            double f;
+            Matrix w;
+
+            try {
+                a = Matrix.identity(this.all.length).minus(this.edgeCoef.transpose()).inverse();
+                sigmaAll = a.times(this.errCovar).times(a.transpose());
+                sigma = sigmaAll.getSelection(this.measured, this.measured);
+
+                if (this.scoreType == ScoreType.Fgls) {
+                    Matrix diff = Matrix.identity(p).minus(sigma.times(this.sampleCovarInv));
+                    f = 0.5 * diff.times(diff).trace();
+
+                    if (gradient != null) {
+                        w = this.sampleCovarInv.times(sigma).times(this.sampleCovarInv).minus(this.sampleCovarInv);
+                    } else {
+                        w = null;
+                    }
+                } else {
+                    double det = sigma.det();
+                    if (!(det > 0)) return Double.POSITIVE_INFINITY;
+
+                    Matrix sigmaInv = sigma.inverse();
+                    f = FastMath.log(det) + this.sampleCovar.times(sigmaInv).trace() - this.logDetSampleCovar - p;
+
+                    if (gradient != null) {
+                        w = sigmaInv.minus(sigmaInv.times(this.sampleCovar).times(sigmaInv));
+                    } else {
+                        w = null;
+                    }
+                }
+            } catch (Exception e) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            if (Double.isNaN(f) || Double.isInfinite(f)) return Double.POSITIVE_INFINITY;
+
+            if (gradient != null) {
+
+                // Only the rows of A for measured variables meet the nonzero part of W.
+                Matrix aMeasured = a.getSelection(this.measured, this.all);
+                Matrix wa = w.times(aMeasured);
+                Matrix coefGradient = sigmaAll.getSelection(this.all, this.measured).times(wa);
+                Matrix covarGradient = aMeasured.transpose().times(wa);
+
+                for (int k = 0; k < parameters.length; k++) {
+                    int i = this.rows[k];
+                    int j = this.cols[k];
+
+                    if (this.types[k] == ParamType.COEF) {
+                        gradient[k] = 2.0 * coefGradient.get(i, j);
+                    } else if (this.types[k] == ParamType.VAR) {
+                        gradient[k] = covarGradient.get(i, i);
+                    } else {
+                        gradient[k] = 2.0 * covarGradient.get(i, j);
+                    }
+                }
+            }
+
+            return f;
+        }
+    }
+}
@@ -18,6 +18,8 @@
  */
 package edu.cmu.tetrad.stat;
 
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
@@ -48,10 +50,9 @@ public class RealVarianceVectorForkJoin implements RealVariance {
     public double[] compute(boolean biasCorrected) {
         double[] means = new double[this.numOfCols];
 
-        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
         pool.invoke(new MeanAction(this.data, means, 0, this.numOfCols - 1));
         pool.invoke(new VarianceAction(this.data, means, biasCorrected, 0, this.numOfCols - 1));
-        pool.shutdown();
 
         return means;
     }
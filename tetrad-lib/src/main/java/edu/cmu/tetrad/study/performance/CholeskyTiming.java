@@ -0,0 +1,114 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.study.performance;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.score.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+
+/**
+ * Compares the time taken by the Cholesky and inverse paths for the residual variance in SemBicScore, over random
+ * child and parent sets of up to the given size drawn from a simulated covariance matrix (default 100 variables,
+ * 200 edges, sample size 1000, 20000 calls, up to 9 parents).
+ *
+ * @see SemBicScore#getVarRyCholesky
+ * @see SemBicScore#getVarRyInverse
+ */
+public class CholeskyTiming {
+
+    public static void main(String... args) {
+        int numVars = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int numCalls = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        int maxParents = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+
+        RandomUtil.getInstance().setSeed(29348239L);
+        Graph dag = RandomGraph.randomDag(numVars, 0, numEdges, 10, 10, 10, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        ICovarianceMatrix cov = new CovarianceMatrix(data);
+
+        int[] children = new int[numCalls];
+        int[][] parentSets = new int[numCalls][];
+
+        for (int t = 0; t < numCalls; t++) {
+            int[] vars = randomVars(numVars, t % (maxParents + 1) + 1);
+            children[t] = vars[0];
+            parentSets[t] = new int[vars.length - 1];
+            System.arraycopy(vars, 1, parentSets[t], 0, vars.length - 1);
+        }
+
+        for (int rep = 0; rep < 3; rep++) {
+            long start = System.nanoTime();
+            double sum1 = 0.0;
+
+            for (int t = 0; t < numCalls; t++) {
+                sum1 += SemBicScore.getVarRyCholesky(children[t], parentSets[t], cov);
+            }
+
+            long cholesky = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double sum2 = 0.0;
+
+            for (int t = 0; t < numCalls; t++) {
+                sum2 += SemBicScore.getVarRyInverse(children[t], parentSets[t], null, cov, false);
+            }
+
+            long inverse = System.nanoTime() - start;
+
+            if (Math.abs(sum1 - sum2) > 1e-6 * Math.abs(sum2)) {
+                throw new IllegalStateException("The paths answered differently: " + sum1 + " vs " + sum2);
+            }
+
+            System.out.println("Cholesky: " + cholesky / 1000000L + " ms, inverse: " + inverse / 1000000L + " ms");
+        }
+    }
+
+    // Returns size distinct random variables.
+    private static int[] randomVars(int numVars, int size) {
+        int[] vars = new int[size];
+
+        for (int j = 0; j < size; j++) {
+            boolean seen;
+
+            do {
+                vars[j] = RandomUtil.getInstance().nextInt(numVars);
+                seen = false;
+
+                for (int m = 0; m < j; m++) {
+                    if (vars[m] == vars[j]) {
+                        seen = true;
+                        break;
+                    }
+                }
+            } while (seen);
+        }
+
+        return vars;
+    }
+}
@@ -0,0 +1,86 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.study.performance;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.List;
+
+/**
+ * Compares the time taken by the adjacency, endpoint and collider queries made in orientation on EdgeListGraph and
+ * IndexedGraph, for a random graph of the given number of nodes and edges (default 5000 and 10000).
+ *
+ * @see IndexedGraph
+ */
+public class IndexedGraphTiming {
+
+    public static void main(String... args) {
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        RandomUtil.getInstance().setSeed(58392834L);
+        Graph graph1 = new EdgeListGraph(RandomGraph.randomGraph(numNodes, 0, numEdges, 100, 100, 100, false));
+
+        for (int rep = 0; rep < 3; rep++) {
+            long start = System.nanoTime();
+            IndexedGraph graph2 = new IndexedGraph(graph1);
+            long convert = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int count1 = countQueries(graph1);
+            long edgeList = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int count2 = countQueries(graph2);
+            long indexed = System.nanoTime() - start;
+
+            if (count1 != count2) {
+                throw new IllegalStateException("The graphs answered differently: " + count1 + " vs " + count2);
+            }
+
+            System.out.println("EdgeListGraph: " + edgeList / 1000000L + " ms, IndexedGraph: "
+                    + indexed / 1000000L + " ms, conversion: " + convert / 1000000L + " ms");
+        }
+    }
+
+    private static int countQueries(Graph graph) {
+        int count = 0;
+
+        for (Node b : graph.getNodes()) {
+            List<Node> adj = graph.getAdjacentNodes(b);
+            count += graph.getParents(b).size();
+
+            for (Node a : adj) {
+                if (graph.getEndpoint(a, b) == Endpoint.ARROW) count++;
+
+                for (Node c : adj) {
+                    if (a == c) continue;
+                    if (graph.isAdjacentTo(a, c)) count++;
+                    if (graph.isDefCollider(a, b, c)) count++;
+                }
+            }
+        }
+
+        return count;
+    }
+}
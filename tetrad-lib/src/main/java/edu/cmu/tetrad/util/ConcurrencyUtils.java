@@ -2,7 +2,6 @@ package edu.cmu.tetrad.util;
 
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ForkJoinPool;
 
 public class ConcurrencyUtils {
     public static void runCallables(List<Callable<Boolean>> tasks, boolean parallelized) {
@@ -17,8 +16,7 @@ public class ConcurrencyUtils {
                 }
             }
         } else {
-            ForkJoinPool pool = ForkJoinPool.commonPool();
-            pool.invokeAll(tasks);
+            ForkJoinPoolInstance.getInstance().invokeAll(tasks);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package edu.cmu.tetrad.util;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.graph.Edge.Property;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+
+import java.util.*;
+
+/**
+ * Tallies the edge types of a stream of graphs over the same variables, such as the graphs found on resamples of a
+ * data set, so that each graph can be discarded as soon as it has been added. The graph returned by getGraph() is the
+ * one GraphSampling.createGraphWithHighProbabilityEdges would return for the list of added graphs, ordered by their
+ * indices, but only the counts for each adjacent pair are kept, so memory grows with the number of distinct edges
+ * rather than with the number of graphs.
+ * <p>
+ * Graphs may be added from several threads at once and in any order.
+ *
+ * @see GraphSampling
+ */
+public final class EdgeTypeProbabilityAccumulator {
+
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    // The counts for each pair of variables, by the pair's names in alphabetical order.
+    private final Map<List<String>, Frequencies> frequencies = new HashMap<>();
+
+    // The nodes of the graph with the lowest index.
+    private List<Node> nodes = null;
+
+    // The index of the graph the nodes were taken from.
+    private int nodesIndex = Integer.MAX_VALUE;
+
+    // The number of graphs added.
+    private int numGraphs = 0;
+
+    // One more than the highest index added.
+    private int nextIndex = 0;
+
+    /**
+     * Constructs an empty accumulator.
+     */
+    public EdgeTypeProbabilityAccumulator() {
+    }
+
+    /**
+     * Adds a graph, which is given PAG colorings as GraphSampling does. The index fixes the graph's place in the
+     * list the result corresponds to; indices should be distinct.
+     *
+     * @param index The index of the graph.
+     * @param graph The graph. Null graphs are ignored.
+     */
+    public synchronized void add(int index, Graph graph) {
+        if (graph == null) return;
+
+        GraphUtils.addPagColoring(graph);
+
+        if (index < this.nodesIndex) {
+            this.nodes = new ArrayList<>(graph.getNodes());
+            this.nodesIndex = index;
+        }
+
+        for (Edge edge : graph.getEdges()) {
+            String name1 = edge.getNode1().getName();
+            String name2 = edge.getNode2().getName();
+            boolean forward = name1.compareTo(name2) <= 0;
+
+            List<String> key = forward ? Arrays.asList(name1, name2) : Arrays.asList(name2, name1);
+            Frequencies f = this.frequencies.computeIfAbsent(key, k -> new Frequencies());
+
+            if (index < f.firstIndex) {
+                f.firstIndex = index;
+                f.firstForward = forward;
+            }
+
+            Node first = forward ? edge.getNode1() : edge.getNode2();
+            Node second = forward ? edge.getNode2() : edge.getNode1();
+            int type = GraphSampling.getEdgeType(edge, first, second).ordinal();
+
+            f.counts[type]++;
+
+            if (index >= f.lastIndex[type]) {
+                f.lastIndex[type] = index;
+                f.properties.put(EDGE_TYPES[type], edge.getProperties());
+            }
+        }
+
+        this.numGraphs++;
+        this.nextIndex = Math.max(this.nextIndex, index + 1);
+    }
+
+    /**
+     * Adds a graph after all those added so far.
+     *
+     * @param graph The graph. Null graphs are ignored.
+     */
+    public synchronized void add(Graph graph) {
+        add(this.nextIndex, graph);
+    }
+
+    /**
+     * Returns the number of graphs added.
+     *
+     * @return This number.
+     */
+    public synchronized int getNumGraphs() {
+        return this.numGraphs;
+    }
+
+    /**
+     * Returns the number of pairs of variables adjacent in at least one of the graphs.
+     *
+     * @return This number.
+     */
+    public synchronized int getNumPairs() {
+        return this.frequencies.size();
+    }
+
+    /**
+     * Returns a graph with, for each pair of variables adjacent in some added graph, the edge of the type with the
+     * highest frequency, annotated with the frequencies of all the edge types for the pair as EdgeTypeProbabilities.
+     *
+     * @return This graph, which is empty if no graphs were added.
+     */
+    public synchronized Graph getGraph() {
+        if (this.numGraphs == 0) {
+            return new EdgeListGraph();
+        }
+
+        Graph graph = GraphSampling.createNewGraph(this.nodes);
+
+        List<String[]> pairs = new ArrayList<>();
+
+        for (Map.Entry<List<String>, Frequencies> entry : this.frequencies.entrySet()) {
+            List<String> key = entry.getKey();
+            boolean forward = entry.getValue().firstForward;
+            pairs.add(forward ? new String[]{key.get(0), key.get(1)} : new String[]{key.get(1), key.get(0)});
+        }
+
+        pairs.sort(Comparator.<String[], String>comparing(pair -> pair[0]).thenComparing(pair -> pair[1]));
+
+        for (String[] pair : pairs) {
+            boolean forward = pair[0].compareTo(pair[1]) <= 0;
+            Frequencies f = this.frequencies.get(forward ? Arrays.asList(pair[0], pair[1]) : Arrays.asList(pair[1], pair[0]));
+
+            List<EdgeTypeProbability> edgeTypeProbabilities = new ArrayList<>();
+            int numEdges = 0;
+
+            for (EdgeType edgeType : EDGE_TYPES) {
+                int count = f.counts[edgeType.ordinal()];
+                if (count == 0) continue;
+                numEdges += count;
+
+                EdgeType oriented = forward ? edgeType : GraphSampling.getReversed(edgeType);
+                double probability = ((double) count) / this.numGraphs;
+                edgeTypeProbabilities.add(new EdgeTypeProbability(oriented, new ArrayList<>(f.properties.get(edgeType)), probability));
+            }
+
+            int numOfNullEdges = this.numGraphs - numEdges;
+
+            if (numOfNullEdges > 0) {
+                edgeTypeProbabilities.add(new EdgeTypeProbability(EdgeType.nil, ((double) numOfNullEdges) / this.numGraphs));
+            }
+
+            GraphSampling.addHighestProbabilityEdge(graph, pair[0], pair[1],
+                    GraphSampling.sortByProbability(edgeTypeProbabilities));
+        }
+
+        GraphSampling.setEdgeProbabilitiesOfNonNullEdges(graph);
+        return graph;
+    }
+
+    // The counts of the edge types for one pair of variables, relative to the pair's names in alphabetical order.
+    private static final class Frequencies {
+        private final int[] counts = new int[EDGE_TYPES.length];
+        private final int[] lastIndex = new int[EDGE_TYPES.length];
+        private final Map<EdgeType, List<Property>> properties = new EnumMap<>(EdgeType.class);
+        private int firstIndex = Integer.MAX_VALUE;
+        private boolean firstForward = true;
+
+        private Frequencies() {
+            Arrays.fill(this.lastIndex, Integer.MIN_VALUE);
+        }
+    }
+}
@@ -21,25 +21,233 @@
 
 package edu.cmu.tetrad.util;
 
-import java.util.concurrent.ForkJoinPool;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
 /**
- * Static instance of a ForkJoinPool. Not sure this is necessary. Created by josephramsey on 2/7/15.
+ * <p>The execution context for parallel code in Tetrad. Searches, simulations and resampling should get their pool
+ * from getPool() rather than using ForkJoinPool.commonPool() or making pools of their own, so that several searches
+ * running in one JVM share a single, sized set of threads.</p>
+ *
+ * <p>The pool returned by getPool() depends on the calling thread. If a scope is open on the thread (see
+ * withParallelism), the pool of the innermost one is returned, even if the thread is itself a worker of some pool.
+ * Otherwise, code already running in a pool gets that pool back, so nested parallel code (a parallel search inside a
+ * parallel resampling run, say) shares its threads rather than multiplying them; and failing that the shared pool is
+ * returned. The shared pool's parallelism is the number of available processors, unless the system property
+ * "tetrad.parallelism" says otherwise; it can be changed with setParallelism.</p>
+ *
+ * <p>invokeAll runs a list of tasks in the pool and waits for them. If the waiting thread is interrupted, tasks not
+ * yet started are cancelled and running tasks are interrupted, so that tasks that check for interruption stop
+ * promptly, and a CancellationException is thrown, so that callers never see the results of a partial run.</p>
+ *
+ * @author josephramsey
  */
 public class ForkJoinPoolInstance {
     private static final ForkJoinPoolInstance INSTANCE = new ForkJoinPoolInstance();
-    private final ForkJoinPool pool = ForkJoinPool.commonPool();
 
-    private ForkJoinPoolInstance() {
+    // The pools of the open scopes on each thread, innermost last.
+    private static final ThreadLocal<List<ForkJoinPool>> SCOPES = ThreadLocal.withInitial(ArrayList::new);
+
+    // The shared pool.
+    private volatile ForkJoinPool pool;
 
+    private ForkJoinPoolInstance() {
+        this.pool = new ForkJoinPool(defaultParallelism());
     }
 
     public static ForkJoinPoolInstance getInstance() {
         return ForkJoinPoolInstance.INSTANCE;
     }
 
+    /**
+     * Returns the pool parallel code called from the current thread should use.
+     *
+     * @return This pool.
+     */
     public ForkJoinPool getPool() {
+        List<ForkJoinPool> scopes = SCOPES.get();
+        if (!scopes.isEmpty()) return scopes.get(scopes.size() - 1);
+
+        ForkJoinPool current = ForkJoinTask.getPool();
+        if (current != null) return current;
+
         return this.pool;
     }
-}
 
+    /**
+     * Returns the parallelism of the pool returned by getPool().
+     *
+     * @return This parallelism.
+     */
+    public int getParallelism() {
+        return getPool().getParallelism();
+    }
+
+    /**
+     * Replaces the shared pool with one of the given parallelism. Tasks already submitted to the old pool are run to
+     * completion.
+     *
+     * @param parallelism The number of threads.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        if (parallelism == this.pool.getParallelism()) return;
+
+        ForkJoinPool old = this.pool;
+        this.pool = new ForkJoinPool(parallelism);
+        old.shutdown();
+    }
+
+    /**
+     * Opens a scope in which getPool() on the current thread, and in tasks run from it, returns a pool of at most the
+     * given parallelism. The scope should be closed, in a finally block or try-with-resources statement, on the thread
+     * that opened it. If the pool that would otherwise be used is already no larger, it is used; otherwise a pool is
+     * made for the scope and shut down when the scope is closed.
+     *
+     * @param parallelism The maximum number of threads.
+     * @return The scope.
+     */
+    public Scope withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+
+        ForkJoinPool outer = getPool();
+
+        if (outer.getParallelism() <= parallelism) {
+            return new Scope(outer, false);
+        } else {
+            return new Scope(new ForkJoinPool(parallelism), true);
+        }
+    }
+
+    /**
+     * Runs the given tasks in the pool returned by getPool() and waits for them to finish. If the calling thread is
+     * interrupted while waiting, the tasks are cancelled as described above, the interrupt status is set again, and
+     * a CancellationException is thrown.
+     *
+     * @param tasks The tasks.
+     * @param <T>   The type of the results.
+     * @return The results, in the order of the tasks.
+     * @throws CancellationException If the calling thread is interrupted while waiting.
+     * @throws RuntimeException      If a task throws an exception; the exception is the cause.
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        ForkJoinPool pool = getPool();
+        List<CancellableTask<T>> cancellable = new ArrayList<>();
+        List<Future<T>> futures = new ArrayList<>();
+
+        for (Callable<T> task : tasks) {
+            CancellableTask<T> _task = new CancellableTask<>(task);
+            cancellable.add(_task);
+            futures.add(pool.submit(_task));
+        }
+
+        List<T> results = new ArrayList<>();
+
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            for (CancellableTask<T> task : cancellable) task.cancel();
+            for (Future<T> future : futures) future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for " + tasks.size() + " tasks.");
+        } catch (ExecutionException e) {
+            for (CancellableTask<T> task : cancellable) task.cancel();
+            throw new RuntimeException(e.getCause());
+        }
+
+        return results;
+    }
+
+    private static int defaultParallelism() {
+        String property = System.getProperty("tetrad.parallelism");
+
+        if (property != null) {
+            try {
+                int parallelism = Integer.parseInt(property.trim());
+                if (parallelism > 0) return parallelism;
+            } catch (NumberFormatException e) {
+                // Fall through to the number of processors.
+            }
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * A scope opened by withParallelism.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final ForkJoinPool pool;
+        private final boolean owned;
+        private final Thread thread;
+
+        private Scope(ForkJoinPool pool, boolean owned) {
+            this.pool = pool;
+            this.owned = owned;
+            this.thread = Thread.currentThread();
+            SCOPES.get().add(pool);
+        }
+
+        /**
+         * Returns the pool of this scope.
+         *
+         * @return This pool.
+         */
+        public ForkJoinPool getPool() {
+            return this.pool;
+        }
+
+        /**
+         * Closes the scope, shutting down its pool if it made one.
+         */
+        @Override
+        public void close() {
+            if (Thread.currentThread() != this.thread) {
+                throw new IllegalStateException("A scope must be closed by the thread that opened it.");
+            }
+
+            List<ForkJoinPool> scopes = SCOPES.get();
+            scopes.remove(scopes.lastIndexOf(this.pool));
+            if (this.owned) this.pool.shutdownNow();
+        }
+    }
+
+    // Records the thread running a task so that the task can be interrupted if the caller is.
+    private static final class CancellableTask<T> implements Callable<T> {
+        private final Callable<T> task;
+        private Thread runner = null;
+        private boolean cancelled = false;
+
+        private CancellableTask(Callable<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            synchronized (this) {
+                if (this.cancelled) return null;
+                this.runner = Thread.currentThread();
+            }
+
+            try {
+                return this.task.call();
+            } finally {
+                synchronized (this) {
+                    this.runner = null;
+
+                    // Clears the interrupt meant for this task, so that it does not reach the next task run by this
+                    // thread.
+                    if (this.cancelled) Thread.interrupted();
+                }
+            }
+        }
+
+        private synchronized void cancel() {
+            this.cancelled = true;
+            if (this.runner != null) this.runner.interrupt();
+        }
+    }
+}
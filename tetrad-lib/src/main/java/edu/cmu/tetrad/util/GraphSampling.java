@@ -101,29 +101,37 @@ public final class GraphSampling {
             String node2 = nodePair.getNode2();
 
             List<EdgeTypeProbability> edgeTypeProbabilities = getEdgeTypeProbabilities(node1, node2, graphs);
-            EdgeTypeProbability highestEdgeTypeProbability = getHighestEdgeTypeProbability(edgeTypeProbabilities);
-            Edge highestProbEdge = createEdge(highestEdgeTypeProbability, graph.getNode(node1), graph.getNode(node2));
-            if (highestProbEdge != null) {
-                // copy over edge-type probabilities
-                if (node1.equals(highestProbEdge.getNode1().getName()) && node2.equals(highestProbEdge.getNode2().getName())) {
-                    edgeTypeProbabilities.forEach(highestProbEdge::addEdgeTypeProbability);
-                } else {
-                    // reverse the edge type if the nodes of the edge does not line up with the input nodes
-                    edgeTypeProbabilities.forEach(etp -> {
-                        etp.setEdgeType(getReversed(etp.getEdgeType()));
-                        highestProbEdge.addEdgeTypeProbability(etp);
-                    });
-                }
-
-                graph.addEdge(highestProbEdge);
-            }
+            addHighestProbabilityEdge(graph, node1, node2, edgeTypeProbabilities);
         }
 
         setEdgeProbabilitiesOfNonNullEdges(graph);
         return graph;
     }
 
-    private static void setEdgeProbabilitiesOfNonNullEdges(Graph graph) {
+    /**
+     * Adds to the graph the edge between the named nodes with the edge type of the highest probability, annotated
+     * with all the edge-type probabilities. The edge types are given with respect to node1 and node2.
+     */
+    static void addHighestProbabilityEdge(Graph graph, String node1, String node2, List<EdgeTypeProbability> edgeTypeProbabilities) {
+        EdgeTypeProbability highestEdgeTypeProbability = getHighestEdgeTypeProbability(edgeTypeProbabilities);
+        Edge highestProbEdge = createEdge(highestEdgeTypeProbability, graph.getNode(node1), graph.getNode(node2));
+        if (highestProbEdge != null) {
+            // copy over edge-type probabilities
+            if (node1.equals(highestProbEdge.getNode1().getName()) && node2.equals(highestProbEdge.getNode2().getName())) {
+                edgeTypeProbabilities.forEach(highestProbEdge::addEdgeTypeProbability);
+            } else {
+                // reverse the edge type if the nodes of the edge does not line up with the input nodes
+                edgeTypeProbabilities.forEach(etp -> {
+                    etp.setEdgeType(getReversed(etp.getEdgeType()));
+                    highestProbEdge.addEdgeTypeProbability(etp);
+                });
+            }
+
+            graph.addEdge(highestProbEdge);
+        }
+    }
+
+    static void setEdgeProbabilitiesOfNonNullEdges(Graph graph) {
         graph.getEdges().forEach(edge -> {
             List<EdgeTypeProbability> etps = edge.getEdgeTypeProbabilities();
             if (!(etps == null && etps.isEmpty())) {
@@ -258,6 +266,13 @@ public final class GraphSampling {
             edgeTypeProbabilities.add(new EdgeTypeProbability(EdgeTypeProbability.EdgeType.nil, ((double) numOfNullEdges) / graphs.size()));
         }
 
+        return sortByProbability(edgeTypeProbabilities);
+    }
+
+    /**
+     * Returns the edge-type probabilities sorted by probability in descending order.
+     */
+    static List<EdgeTypeProbability> sortByProbability(List<EdgeTypeProbability> edgeTypeProbabilities) {
         // sort by edge probabilities in descending order
         EdgeTypeProbability[] etps = edgeTypeProbabilities.stream().toArray(EdgeTypeProbability[]::new);
         Arrays.sort(etps, (etp1, etp2) -> {
@@ -273,7 +288,7 @@ public final class GraphSampling {
         return Arrays.asList(etps);
     }
 
-    private static EdgeType getReversed(EdgeType edgeType) {
+    static EdgeType getReversed(EdgeType edgeType) {
         switch (edgeType) {
             case ac:
                 return EdgeType.ca;
@@ -288,7 +303,7 @@ public final class GraphSampling {
         }
     }
 
-    private static EdgeType getEdgeType(Edge edge, Node node1, Node node2) {
+    static EdgeType getEdgeType(Edge edge, Node node1, Node node2) {
         Endpoint node1Endpoint = edge.getProximalEndpoint(node1);
         Endpoint node2Endpoint = edge.getProximalEndpoint(node2);
 
@@ -325,7 +340,7 @@ public final class GraphSampling {
         return new TreeSet<>(nodePairs);
     }
 
-    private static Graph createNewGraph(List<Node> graphNodes) {
+    static Graph createNewGraph(List<Node> graphNodes) {
         Node[] nodes = graphNodes.stream().toArray(Node[]::new);
         Arrays.sort(nodes);
 
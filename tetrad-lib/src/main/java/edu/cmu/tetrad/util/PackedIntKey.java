@@ -0,0 +1,61 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>A cache key made of a packed int array, such as a node index followed by its sorted parent indices, with the
+ * hash code calculated once. Equality is by the contents of the array. Callers should put the indices in a canonical
+ * order before packing them, so that equal sets give equal keys.</p>
+ *
+ * <p>The array is not copied; it must not be changed once the key is made.</p>
+ *
+ * @see StripedLruCache
+ */
+public final class PackedIntKey {
+    private final int[] packed;
+    private final int hash;
+
+    /**
+     * Constructs a key for the given packed indices.
+     *
+     * @param packed The packed indices; not copied.
+     */
+    public PackedIntKey(int[] packed) {
+        this.packed = packed;
+        this.hash = Arrays.hashCode(packed);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PackedIntKey)) return false;
+        PackedIntKey key = (PackedIntKey) o;
+        return this.hash == key.hash && Arrays.equals(this.packed, key.packed);
+    }
+}
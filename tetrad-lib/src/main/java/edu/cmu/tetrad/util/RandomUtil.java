@@ -27,6 +27,7 @@ import org.apache.commons.math3.random.SynchronizedRandomGenerator;
 import org.apache.commons.math3.random.Well44497b;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a common random number generator to be used throughout Tetrad, to avoid problems that happen when random
@@ -48,7 +49,7 @@ public class RandomUtil {
     /**
      * The singleton instance.
      */
-    private static final Map<Thread, RandomUtil> randomUtils = new HashMap<>();
+    private static final Map<Thread, RandomUtil> randomUtils = new ConcurrentHashMap<>();
     private static final int SHUFFLE_THRESHOLD = 5;
     private RandomGenerator randomGenerator;
 
@@ -65,11 +66,7 @@ public class RandomUtil {
      * @return the singleton instance of this class.
      */
     public static RandomUtil getInstance() {
-        if (!randomUtils.containsKey(Thread.currentThread())) {
-//            System.out.println("new thread");
-            randomUtils.put(Thread.currentThread(), new RandomUtil());
-        }
-        return randomUtils.get(Thread.currentThread());
+        return randomUtils.computeIfAbsent(Thread.currentThread(), thread -> new RandomUtil());
     }
 
     /**
@@ -0,0 +1,209 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A bounded cache that may be shared by many threads. The cache is divided into a number of stripes, each guarded
+ * by its own lock and each holding an access-ordered map that evicts its least recently used entry when full, so that
+ * threads working on different keys seldom contend and the cache never grows beyond its maximum size. Counts of hits,
+ * misses and evictions are kept.</p>
+ *
+ * <p>Keys should have well-distributed hash codes, since the stripe for a key is chosen from the low bits of its hash
+ * code.</p>
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class StripedLruCache<K, V> {
+
+    // The stripes of the cache; the number of stripes is a power of two.
+    private final Stripe[] stripes;
+    // The number of cache hits.
+    private final AtomicLong hits = new AtomicLong();
+    // The number of cache misses.
+    private final AtomicLong misses = new AtomicLong();
+    // The number of entries evicted from the cache.
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a cache.
+     *
+     * @param maxSize    The maximum number of entries to keep.
+     * @param numStripes The number of independently locked stripes to divide the cache into; rounded up to a power of
+     *                   two.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int maxSize, int numStripes) {
+        if (maxSize < 1) throw new IllegalArgumentException("Max size must be at least 1: " + maxSize);
+        if (numStripes < 1) throw new IllegalArgumentException("Number of stripes must be at least 1: " + numStripes);
+
+        int n = 1;
+        while (n < numStripes) n <<= 1;
+
+        this.stripes = (Stripe[]) new StripedLruCache.Stripe[n];
+        int stripeSize = Math.max(1, maxSize / n);
+
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    /**
+     * Returns the value for the given key, or null if it is not in the cache, counting a hit or a miss.
+     *
+     * @param key The key.
+     * @return The value, or null.
+     */
+    public V get(K key) {
+        Stripe stripe = stripe(key);
+        V value;
+
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+
+        if (value != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+
+        return value;
+    }
+
+    /**
+     * Puts a value in the cache, evicting the least recently used entry in its stripe if the stripe is full.
+     *
+     * @param key   The key.
+     * @param value The value; must not be null.
+     */
+    public void put(K key, V value) {
+        if (value == null) throw new NullPointerException("Value must not be null.");
+        Stripe stripe = stripe(key);
+
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Returns the number of entries currently in the cache.
+     *
+     * @return This number.
+     */
+    public int size() {
+        int size = 0;
+
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Empties the cache and resets the counts.
+     */
+    public void clear() {
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+
+        this.hits.set(0);
+        this.misses.set(0);
+        this.evictions.set(0);
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return This number.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that found no value.
+     *
+     * @return This number.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the cache within its maximum size.
+     *
+     * @return This number.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the fraction of lookups that found a value, or 0 if there have been none.
+     *
+     * @return This fraction.
+     */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + this.misses.get();
+        return total == 0 ? 0.0 : hits / (double) total;
+    }
+
+    private Stripe stripe(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return this.stripes[h & (this.stripes.length - 1)];
+    }
+
+    /**
+     * One stripe of the cache. Must be accessed while holding its lock.
+     */
+    private final class Stripe extends LinkedHashMap<K, V> {
+        private final int maxSize;
+
+        Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > this.maxSize) {
+                StripedLruCache.this.evictions.incrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
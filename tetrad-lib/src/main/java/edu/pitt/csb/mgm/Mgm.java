@@ -84,6 +84,12 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
     //parameter weights
     private DoubleMatrix1D weights;
 
+    //array-based objective used when parallelized, null otherwise
+    private ParallelMgmObjective parallelObjective;
+
+    //time in milliseconds of each iteration of the last learning run
+    private long[] iterationTimes = new long[0];
+
     public Mgm(DoubleMatrix2D x, DoubleMatrix2D y, List<Node> variables, int[] l, double[] lambda) {
 
         if (l.length != y.columns())
@@ -409,6 +415,10 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
      * @return
      */
     public double smoothValue(DoubleMatrix1D parIn) {
+        if (this.parallelObjective != null) {
+            return this.parallelObjective.smooth(parIn.toArray(), null);
+        }
+
         //work with copy
         MGMParams par = new MGMParams(parIn, this.p, this.lsum);
 
@@ -494,6 +504,13 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
      * @return
      */
     public double smooth(DoubleMatrix1D parIn, DoubleMatrix1D gradOutVec) {
+        if (this.parallelObjective != null) {
+            double[] grad = gradOutVec.toArray();
+            double value = this.parallelObjective.smooth(parIn.toArray(), grad);
+            gradOutVec.assign(grad);
+            return value;
+        }
+
         //work with copy
         MGMParams par = new MGMParams(parIn, this.p, this.lsum);
         MGMParams gradOut = new MGMParams();
@@ -749,6 +766,12 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
      * @return
      */
     public DoubleMatrix1D smoothGradient(DoubleMatrix1D parIn) {
+        if (this.parallelObjective != null) {
+            double[] grad = new double[parIn.size()];
+            this.parallelObjective.gradient(parIn.toArray(), grad);
+            return this.factory1D.make(grad);
+        }
+
         int n = this.xDat.rows();
         MGMParams grad = new MGMParams();
 
@@ -902,6 +925,11 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
         if (t <= 0)
             throw new IllegalArgumentException("t must be positive: " + t);
 
+        if (this.parallelObjective != null) {
+            double[] out = new double[X.size()];
+            this.parallelObjective.nonSmooth(t, X.toArray(), out);
+            return this.factory1D.make(out);
+        }
 
         DoubleMatrix1D tlam = this.lambda.copy().assign(Functions.mult(t));
 
@@ -1016,6 +1044,12 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
      * @return value of penalty term
      */
     public double nonSmooth(double t, DoubleMatrix1D X, DoubleMatrix1D pX) {
+        if (this.parallelObjective != null) {
+            double[] out = new double[X.size()];
+            double value = this.parallelObjective.nonSmooth(t, X.toArray(), out);
+            pX.assign(out);
+            return value;
+        }
 
         //System.out.println("PROX with t = " + t);
         final double nonSmooth = 0;
@@ -1146,6 +1180,7 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
     public void learn(double epsilon, int iterLimit) {
         ProximalGradient pg = new ProximalGradient();
         setParams(new MGMParams(pg.learnBackTrack(this, this.params.toMatrix1D(), epsilon, iterLimit), this.p, this.lsum));
+        this.iterationTimes = pg.getIterationTimes();
     }
 
     /**
@@ -1157,6 +1192,7 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
     public void learnEdges(int iterLimit) {
         ProximalGradient pg = new ProximalGradient(.5, .9, true);
         setParams(new MGMParams(pg.learnBackTrack(this, this.params.toMatrix1D(), 0.0, iterLimit), this.p, this.lsum));
+        this.iterationTimes = pg.getIterationTimes();
     }
 
     /**
@@ -1170,6 +1206,7 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
         ProximalGradient pg = new ProximalGradient(.5, .9, true);
         pg.setEdgeChangeTol(edgeChangeTol);
         setParams(new MGMParams(pg.learnBackTrack(this, this.params.toMatrix1D(), 0.0, iterLimit), this.p, this.lsum));
+        this.iterationTimes = pg.getIterationTimes();
     }
 
     /**
@@ -1323,6 +1360,28 @@ public class Mgm extends ConvexProximal implements IGraphSearch {
         return this.elapsedTime;
     }
 
+    /**
+     * Return the time of each iteration of the last learning run, in milliseconds.
+     *
+     * @return
+     */
+    public long[] getIterationTimes() {
+        return this.iterationTimes.clone();
+    }
+
+    /**
+     * Sets whether the pseudolikelihood, its gradient and the proximal operator should be computed by
+     * ParallelMgmObjective, which works on plain arrays, skips zero parameter blocks, uses the discrete levels directly
+     * in place of the dummy matrix and computes the products one column at a time in parallel. The results are the
+     * same up to rounding, so search gives the same graph, but much faster for large models. The default is false.
+     *
+     * @param parallelized True to use ParallelMgmObjective.
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelObjective = parallelized ? new ParallelMgmObjective(this.xDat.toArray(), this.yDat.toArray(),
+                this.l, this.weights.toArray(), this.lambda.toArray()) : null;
+    }
+
 
     /*
      * PRIVATE UTILS
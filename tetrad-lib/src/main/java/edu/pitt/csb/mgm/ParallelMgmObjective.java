@@ -0,0 +1,632 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.pitt.csb.mgm;
+
+import cern.colt.matrix.DoubleFactory2D;
+import cern.colt.matrix.linalg.Algebra;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The pseudolikelihood and penalty of Mgm, with their gradient and proximal operator, computed on plain arrays in the
+ * parameter vector layout of Mgm.MGMParams.toMatrix1D. This gives the same values as the Colt implementations in Mgm
+ * up to rounding, but much faster, for three reasons:
+ * <ul>
+ *     <li>The linear predictors X * beta, D * theta, X * theta' and D * phi are computed only over the nonzero
+ *     parameter blocks, so their cost shrinks as the estimate becomes sparse.</li>
+ *     <li>The dummy matrix D is never formed; a product with D or D' adds up the rows or columns picked out by the
+ *     levels of the discrete variables, which costs q rather than the total number of levels per row.</li>
+ *     <li>The products are computed one column at a time in parallel, on column-major data so that each is a pass over
+ *     contiguous arrays.</li>
+ * </ul>
+ * The proximal operator also skips parameter blocks that are already zero, which the group soft-threshold leaves at
+ * zero, saving most of the singular value decompositions for the discrete-discrete blocks.
+ *
+ * @see Mgm#setParallelized(boolean)
+ */
+final class ParallelMgmObjective {
+
+    // The number of samples, continuous variables, discrete variables and discrete levels in all.
+    private final int n;
+    private final int p;
+    private final int q;
+    private final int lsum;
+
+    // The number of levels of each discrete variable, and their cumulative sums.
+    private final int[] l;
+    private final int[] lcumsum;
+
+    // The discrete variable of each level.
+    private final int[] varOf;
+
+    // The continuous data, by column.
+    private final double[][] x;
+
+    // The discrete data, by column, as zero-based levels.
+    private final int[][] y;
+
+    // The parameter weights, continuous variables first, and the penalties for cc, cd and dd edges.
+    private final double[] weights;
+    private final double[] lambda;
+
+    // The offsets of the parameter blocks in the parameter vector.
+    private final int betadOffset;
+    private final int thetaOffset;
+    private final int phiOffset;
+    private final int alpha1Offset;
+    private final int alpha2Offset;
+
+    /**
+     * Constructs the objective for the given data, which should already be prepared as in Mgm.
+     *
+     * @param xDat    The z-scored continuous data, n x p.
+     * @param yDat    The discrete data as one-based levels, n x q.
+     * @param l       The number of levels of each discrete variable.
+     * @param weights The parameter weights, continuous variables first.
+     * @param lambda  The penalties for cc, cd and dd edges.
+     */
+    ParallelMgmObjective(double[][] xDat, double[][] yDat, int[] l, double[] weights, double[] lambda) {
+        this.n = xDat.length;
+        this.p = this.n == 0 ? 0 : xDat[0].length;
+        this.q = l.length;
+        this.l = l.clone();
+        this.lcumsum = new int[this.q + 1];
+
+        for (int r = 0; r < this.q; r++) {
+            this.lcumsum[r + 1] = this.lcumsum[r] + l[r];
+        }
+
+        this.lsum = this.lcumsum[this.q];
+        this.varOf = new int[this.lsum];
+
+        for (int r = 0; r < this.q; r++) {
+            Arrays.fill(this.varOf, this.lcumsum[r], this.lcumsum[r + 1], r);
+        }
+
+        this.x = new double[this.p][this.n];
+        this.y = new int[this.q][this.n];
+
+        for (int k = 0; k < this.n; k++) {
+            for (int s = 0; s < this.p; s++) {
+                this.x[s][k] = xDat[k][s];
+            }
+
+            for (int r = 0; r < this.q; r++) {
+                this.y[r][k] = (int) yDat[k][r] - 1;
+            }
+        }
+
+        this.weights = weights.clone();
+        this.lambda = lambda.clone();
+
+        this.betadOffset = this.p * this.p;
+        this.thetaOffset = this.betadOffset + this.p;
+        this.phiOffset = this.thetaOffset + this.p * this.lsum;
+        this.alpha1Offset = this.phiOffset + this.lsum * this.lsum;
+        this.alpha2Offset = this.alpha1Offset + this.p;
+    }
+
+    /**
+     * Returns the negative log pseudolikelihood over n, as Mgm.smooth does, and optionally its gradient.
+     *
+     * @param par  The parameter vector.
+     * @param grad An array for the gradient, which is left as is if the value is infinite, or null if the gradient is
+     *             not needed.
+     * @return The value, which is infinite if some betad is negative.
+     */
+    double smooth(double[] par, double[] grad) {
+        for (int s = 0; s < this.p; s++) {
+            if (par[this.betadOffset + s] < 0) return Double.POSITIVE_INFINITY;
+        }
+
+        return evaluate(par, grad, true);
+    }
+
+    /**
+     * Calculates the gradient of the negative log pseudolikelihood over n, as Mgm.smoothGradient does.
+     *
+     * @param par  The parameter vector.
+     * @param grad An array for the gradient.
+     */
+    void gradient(double[] par, double[] grad) {
+        evaluate(par, grad, false);
+    }
+
+    /**
+     * Applies the proximal operator of the penalty, as Mgm.nonSmooth does.
+     *
+     * @param t   The proximal operator parameter, which should be positive.
+     * @param par The parameter vector.
+     * @param out An array for the result of the operator.
+     * @return The penalty at the result.
+     */
+    double nonSmooth(double t, double[] par, double[] out) {
+        System.arraycopy(par, 0, out, 0, par.length);
+
+        double tlam0 = this.lambda[0] * t;
+        double tlam1 = this.lambda[1] * t;
+        double tlam2 = this.lambda[2] * t;
+
+        double betaNorms = 0;
+
+        for (int j = 0; j < this.p; j++) {
+            for (int i = 0; i < this.p; i++) {
+                int index = j * this.p + i;
+                double v = out[index];
+                if (v == 0) continue;
+
+                double w = this.weights[i] * this.weights[j];
+                v *= FastMath.max(0, 1 - tlam0 * w / FastMath.abs(v));
+                out[index] = v;
+                betaNorms += FastMath.abs(w * v);
+            }
+        }
+
+        double thetaNorms = 0;
+
+        for (int s = 0; s < this.p; s++) {
+            for (int r = 0; r < this.q; r++) {
+                int from = this.thetaOffset + s * this.lsum + this.lcumsum[r];
+                int to = from + this.l[r];
+
+                double norm = FastMath.sqrt(sumOfSquares(out, from, to));
+                if (norm == 0) continue;
+
+                double w = this.weights[s] * this.weights[this.p + r];
+                double scale = FastMath.max(0, 1 - tlam1 * w / norm);
+
+                for (int i = from; i < to; i++) {
+                    out[i] *= scale;
+                }
+
+                thetaNorms += w * FastMath.sqrt(sumOfSquares(out, from, to));
+            }
+        }
+
+        double phiNorms = 0;
+        Algebra alg = new Algebra();
+
+        for (int r = 0; r < this.q; r++) {
+            for (int r2 = r + 1; r2 < this.q; r2++) {
+                double[][] block = new double[this.l[r]][this.l[r2]];
+                boolean zero = true;
+
+                for (int a = 0; a < this.l[r]; a++) {
+                    for (int b = 0; b < this.l[r2]; b++) {
+                        block[a][b] = out[phiIndex(this.lcumsum[r] + a, this.lcumsum[r2] + b)];
+                        if (block[a][b] != 0) zero = false;
+                    }
+                }
+
+                if (zero) continue;
+
+                // As in Mgm.norm2, the spectral norm, found by SVD, which needs rows >= columns.
+                double norm = this.l[r] < this.l[r2]
+                        ? alg.norm2(alg.transpose(DoubleFactory2D.dense.make(block)))
+                        : alg.norm2(DoubleFactory2D.dense.make(block));
+
+                double w = this.weights[this.p + r] * this.weights[this.p + r2];
+                double scale = FastMath.max(0, 1 - tlam2 * w / norm);
+                double sumOfSquares = 0;
+
+                for (int a = 0; a < this.l[r]; a++) {
+                    for (int b = 0; b < this.l[r2]; b++) {
+                        int index = phiIndex(this.lcumsum[r] + a, this.lcumsum[r2] + b);
+                        out[index] *= scale;
+                        sumOfSquares += out[index] * out[index];
+                    }
+                }
+
+                phiNorms += w * FastMath.sqrt(sumOfSquares);
+            }
+        }
+
+        return this.lambda[0] * betaNorms + this.lambda[1] * thetaNorms + this.lambda[2] * phiNorms;
+    }
+
+    // Calculates the value and, if grad is not null, the gradient. See Mgm.smooth for the formulas.
+    private double evaluate(double[] par, double[] grad, boolean withValue) {
+        final int n = this.n;
+        final int p = this.p;
+        final int lsum = this.lsum;
+
+        // The symmetrized beta, by column, and the rows of the nonzero entries in each column.
+        double[][] beta = new double[p][p];
+        int[][] activeBeta = new int[p][];
+
+        for (int s = 0; s < p; s++) {
+            int[] active = new int[p];
+            int count = 0;
+
+            for (int j = 0; j < p; j++) {
+                if (j == s) continue;
+                double v = par[FastMath.max(j, s) * p + FastMath.min(j, s)];
+
+                if (v != 0) {
+                    beta[s][j] = v;
+                    active[count++] = j;
+                }
+            }
+
+            activeBeta[s] = Arrays.copyOf(active, count);
+        }
+
+        // The discrete variables with nonzero theta blocks in each column of theta, and the continuous variables with
+        // nonzero theta entries in each row.
+        int[][] activeThetaBlocks = new int[p][];
+        int[][] activeThetaRow = new int[lsum][];
+
+        for (int s = 0; s < p; s++) {
+            int[] active = new int[this.q];
+            int count = 0;
+
+            for (int r = 0; r < this.q; r++) {
+                int from = this.thetaOffset + s * lsum + this.lcumsum[r];
+
+                if (sumOfSquares(par, from, from + this.l[r]) != 0) {
+                    active[count++] = r;
+                }
+            }
+
+            activeThetaBlocks[s] = Arrays.copyOf(active, count);
+        }
+
+        for (int c = 0; c < lsum; c++) {
+            int[] active = new int[p];
+            int count = 0;
+
+            for (int s = 0; s < p; s++) {
+                if (par[this.thetaOffset + s * lsum + c] != 0) {
+                    active[count++] = s;
+                }
+            }
+
+            activeThetaRow[c] = Arrays.copyOf(active, count);
+        }
+
+        // The symmetrized phi, by column, with the diagonal blocks zero, and the discrete variables with nonzero
+        // blocks in each column.
+        double[][] phi = new double[lsum][lsum];
+        int[][] activePhiBlocks = new int[lsum][];
+
+        for (int c = 0; c < lsum; c++) {
+            int[] active = new int[this.q];
+            int count = 0;
+
+            for (int r = 0; r < this.q; r++) {
+                if (r == this.varOf[c]) continue;
+                boolean zero = true;
+
+                for (int a = this.lcumsum[r]; a < this.lcumsum[r + 1]; a++) {
+                    double v = par[phiIndex(FastMath.min(a, c), FastMath.max(a, c))];
+                    phi[c][a] = v;
+                    if (v != 0) zero = false;
+                }
+
+                if (!zero) active[count++] = r;
+            }
+
+            activePhiBlocks[c] = Arrays.copyOf(active, count);
+        }
+
+        // lin = Xbeta + Dtheta, and res = Xbeta - X + e * alpha1' + Dtheta, by column.
+        double[][] lin = new double[p][];
+        double[][] res = new double[p][];
+        double[] sumsOfSquares = new double[p];
+
+        forEach(p, s -> {
+            double[] _lin = new double[n];
+
+            for (int j : activeBeta[s]) {
+                double b = beta[s][j];
+                double[] xj = this.x[j];
+
+                for (int k = 0; k < n; k++) {
+                    _lin[k] += xj[k] * b;
+                }
+            }
+
+            for (int r : activeThetaBlocks[s]) {
+                int base = this.thetaOffset + s * lsum + this.lcumsum[r];
+                int[] yr = this.y[r];
+
+                for (int k = 0; k < n; k++) {
+                    _lin[k] += par[base + yr[k]];
+                }
+            }
+
+            double betad = par[this.betadOffset + s];
+            double alpha1 = par[this.alpha1Offset + s];
+            double[] xs = this.x[s];
+            double[] _res = new double[n];
+            double sum = 0;
+
+            for (int k = 0; k < n; k++) {
+                _lin[k] /= betad;
+                _res[k] = _lin[k] - xs[k] + alpha1;
+                sum += _res[k] * _res[k];
+            }
+
+            lin[s] = _lin;
+            res[s] = _res;
+            sumsOfSquares[s] = sum;
+        });
+
+        // wxprod = X * theta' + D * phi + e * alpha2', by column.
+        double[][] wx = new double[lsum][];
+
+        forEach(lsum, c -> {
+            double[] _wx = new double[n];
+
+            for (int s : activeThetaRow[c]) {
+                double t = par[this.thetaOffset + s * lsum + c];
+                double[] xs = this.x[s];
+
+                for (int k = 0; k < n; k++) {
+                    _wx[k] += xs[k] * t;
+                }
+            }
+
+            double[] phic = phi[c];
+
+            for (int r : activePhiBlocks[c]) {
+                int base = this.lcumsum[r];
+                int[] yr = this.y[r];
+
+                for (int k = 0; k < n; k++) {
+                    _wx[k] += phic[base + yr[k]];
+                }
+            }
+
+            double alpha2 = par[this.alpha2Offset + c];
+
+            for (int k = 0; k < n; k++) {
+                _wx[k] += alpha2;
+            }
+
+            wx[c] = _wx;
+        });
+
+        // The categorical loss for each discrete variable; for the gradient, wx is replaced by the softmax of each
+        // block minus the indicators of the observed levels.
+        double[] catLosses = new double[this.q];
+        boolean withGradient = grad != null;
+
+        forEach(this.q, r -> {
+            int from = this.lcumsum[r];
+            int[] yr = this.y[r];
+            double loss = 0;
+
+            for (int k = 0; k < n; k++) {
+                double max = Double.NEGATIVE_INFINITY;
+
+                for (int c = from; c < from + this.l[r]; c++) {
+                    max = FastMath.max(max, wx[c][k]);
+                }
+
+                double sum = 0;
+
+                for (int c = from; c < from + this.l[r]; c++) {
+                    sum += FastMath.exp(wx[c][k] - max);
+                }
+
+                double logSum = FastMath.log(sum) + max;
+                loss += logSum - wx[from + yr[k]][k];
+
+                if (withGradient) {
+                    for (int c = from; c < from + this.l[r]; c++) {
+                        wx[c][k] = FastMath.exp(wx[c][k] - logSum);
+                    }
+
+                    wx[from + yr[k]][k] -= 1;
+                }
+            }
+
+            catLosses[r] = loss;
+        });
+
+        double value = Double.NaN;
+
+        if (withValue) {
+            double sqloss = 0;
+
+            for (int s = 0; s < p; s++) {
+                double betad = par[this.betadOffset + s];
+                sqloss += -n / 2.0 * FastMath.log(betad) + .5 * betad * sumsOfSquares[s];
+            }
+
+            double catloss = 0;
+
+            for (int r = 0; r < this.q; r++) {
+                catloss += catLosses[r];
+            }
+
+            value = (sqloss + catloss) / ((double) n);
+        }
+
+        if (!withGradient) return value;
+
+        // X' * res and the theta gradient, by column of res.
+        double[][] xRes = new double[p][];
+        double[][] gradTheta = new double[p][];
+        double[] gradAlpha1 = new double[p];
+        double[] gradBetad = new double[p];
+
+        forEach(p, s -> {
+            double[] _res = res[s];
+            double[] _xRes = new double[p];
+
+            for (int i = 0; i < p; i++) {
+                _xRes[i] = dot(this.x[i], _res);
+            }
+
+            double[] _gradTheta = levelSums(_res);
+            double[] xs = this.x[s];
+
+            for (int c = 0; c < lsum; c++) {
+                _gradTheta[c] += dot(xs, wx[c]);
+            }
+
+            double sum = 0;
+
+            for (int k = 0; k < n; k++) {
+                sum += _res[k];
+            }
+
+            double betad = par[this.betadOffset + s];
+
+            xRes[s] = _xRes;
+            gradTheta[s] = _gradTheta;
+            gradAlpha1[s] = betad * sum;
+            gradBetad[s] = -n / (2.0 * betad) + sumsOfSquares[s] / 2.0 - dot(_res, lin[s]);
+        });
+
+        // D' * wxprod and the alpha2 gradient, by column of wxprod.
+        double[][] dWx = new double[lsum][];
+        double[] gradAlpha2 = new double[lsum];
+
+        forEach(lsum, c -> {
+            double[] _wx = wx[c];
+            double sum = 0;
+
+            for (int k = 0; k < n; k++) {
+                sum += _wx[k];
+            }
+
+            dWx[c] = levelSums(_wx);
+            gradAlpha2[c] = sum;
+        });
+
+        Arrays.fill(grad, 0.0);
+
+        for (int j = 0; j < p; j++) {
+            for (int i = 0; i < j; i++) {
+                grad[j * p + i] = (xRes[j][i] + xRes[i][j]) / n;
+            }
+        }
+
+        for (int s = 0; s < p; s++) {
+            grad[this.betadOffset + s] = gradBetad[s] / n;
+            grad[this.alpha1Offset + s] = gradAlpha1[s] / n;
+
+            for (int c = 0; c < lsum; c++) {
+                grad[this.thetaOffset + s * lsum + c] = gradTheta[s][c] / n;
+            }
+        }
+
+        for (int d = 0; d < lsum; d++) {
+            for (int c = 0; c < d; c++) {
+                if (this.varOf[c] == this.varOf[d]) continue;
+                grad[phiIndex(c, d)] = (dWx[d][c] + dWx[c][d]) / n;
+            }
+
+            grad[this.alpha2Offset + d] = gradAlpha2[d] / n;
+        }
+
+        return value;
+    }
+
+    // The index of phi(row, column) in the parameter vector.
+    private int phiIndex(int row, int column) {
+        return this.phiOffset + column * this.lsum + row;
+    }
+
+    // D' * v: the sums of v over the samples at each level of each discrete variable.
+    private double[] levelSums(double[] v) {
+        double[] sums = new double[this.lsum];
+
+        for (int r = 0; r < this.q; r++) {
+            int base = this.lcumsum[r];
+            int[] yr = this.y[r];
+
+            for (int k = 0; k < this.n; k++) {
+                sums[base + yr[k]] += v[k];
+            }
+        }
+
+        return sums;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+
+        for (int k = 0; k < a.length; k++) {
+            sum += a[k] * b[k];
+        }
+
+        return sum;
+    }
+
+    private static double sumOfSquares(double[] v, int from, int to) {
+        double sum = 0;
+
+        for (int i = from; i < to; i++) {
+            sum += v[i] * v[i];
+        }
+
+        return sum;
+    }
+
+    // Runs the body for each index in [0, count), in parallel.
+    private static void forEach(int count, IndexBody body) {
+        if (count == 0) return;
+        int chunk = FastMath.max(1, count / (4 * ForkJoinPoolInstance.getInstance().getParallelism()));
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new IndexAction(0, count, chunk, body));
+    }
+
+    private interface IndexBody {
+        void apply(int index);
+    }
+
+    // Runs the body for each index in [from, to), splitting the range in halves down to chunks of the given size.
+    private static final class IndexAction extends RecursiveAction {
+        private static final long serialVersionUID = 23L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final IndexBody body;
+
+        IndexAction(int from, int to, int chunk, IndexBody body) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.chunk) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.body.apply(i);
+                }
+            } else {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new IndexAction(this.from, mid, this.chunk, this.body),
+                        new IndexAction(mid, this.to, this.chunk, this.body));
+            }
+        }
+    }
+}
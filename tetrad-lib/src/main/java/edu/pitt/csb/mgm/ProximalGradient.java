@@ -25,8 +25,12 @@ import cern.colt.matrix.DoubleFactory1D;
 import cern.colt.matrix.DoubleMatrix1D;
 import cern.colt.matrix.linalg.Algebra;
 import cern.jet.math.Functions;
+import edu.cmu.tetrad.util.MillisecondTimes;
 import org.apache.commons.math3.util.FastMath;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Implementation of Nesterov's 83 method as described in Beck and Teboulle, 2009 aka Fast Iterative Shrinkage
  * Thresholding Algorithm
@@ -45,6 +49,7 @@ public class ProximalGradient {
 
     private final boolean edgeConverge; //if this is true we look to stop optimization when the edge predictions stop changing
     private int noEdgeChangeTol = 3; //number of iterations in a row with no edge changes before we break
+    private final List<Long> iterationTimes = new ArrayList<>(); //time in milliseconds of each iteration of the last run
 
 
     /**
@@ -104,12 +109,14 @@ public class ProximalGradient {
 
         boolean backtrackSwitch = true;
         double dx;
+        this.iterationTimes.clear();
         double Fx = Double.POSITIVE_INFINITY;
         double Gx = Double.POSITIVE_INFINITY;
         double Fy;
         double obj;
 
         while (true) {
+            long iterStart = MillisecondTimes.wallTimeMillis();
             Lold = L;
             L = L * this.alpha;
             thetaOld = theta;
@@ -173,6 +180,8 @@ public class ProximalGradient {
 
             }
 
+            this.iterationTimes.add(MillisecondTimes.wallTimeMillis() - iterStart);
+
             int diffEdges = 0;
             for (int i = 0; i < X.size(); i++) {
                 double a = X.get(i);
@@ -230,7 +239,8 @@ public class ProximalGradient {
             int printIter = 100;
             if (iterCount % printIter == 0) {
                 System.out.println("Iter: " + iterCount + " |dx|/|x|: " + dx + " normX: " + ProximalGradient.norm2(X) + " nll: " +
-                        Fx + " reg: " + Gx + " DiffEdges: " + diffEdges + " L: " + L);
+                        Fx + " reg: " + Gx + " DiffEdges: " + diffEdges + " L: " + L + " Time: " +
+                        this.iterationTimes.get(this.iterationTimes.size() - 1) + " ms");
                 //System.out.println("Iter: " + iterCount + " |dx|/|x|: " + dx + " nll: " + negLogLikelihood(params) + " reg: " + regTerm(params));
             }
 
@@ -243,6 +253,18 @@ public class ProximalGradient {
         return X;
     }
 
+    /**
+     * Returns the time of each iteration of the last run of learnBackTrack, in milliseconds, counting the evaluations
+     * of the objective, its gradient and the proximal operator in the backtracking line search.
+     */
+    public long[] getIterationTimes() {
+        long[] times = new long[this.iterationTimes.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = this.iterationTimes.get(i);
+        }
+        return times;
+    }
+
     public static double norm2(DoubleMatrix1D vec) {
         //return FastMath.sqrt(vec.copy().assign(Functions.pow(2)).zSum());
         return FastMath.sqrt(new Algebra().norm2(vec));
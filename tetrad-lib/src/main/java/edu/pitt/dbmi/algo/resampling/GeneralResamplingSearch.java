@@ -8,6 +8,8 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.Knowledge;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.util.EdgeTypeProbabilityAccumulator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.algo.resampling.task.GeneralResamplingSearchRunnable;
@@ -20,9 +22,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.Future;
 
 /**
  * Sep 7, 2018 1:38:50 PM
@@ -33,7 +32,6 @@ public class GeneralResamplingSearch {
 
     private final int numberResampling;
     private final List<Graph> graphs = Collections.synchronizedList(new ArrayList<>());
-    private final ForkJoinPool pool;
     private Algorithm algorithm;
     private MultiDataSetAlgorithm multiDataSetAlgorithm;
     private double percentResampleSize = 100.;
@@ -41,6 +39,8 @@ public class GeneralResamplingSearch {
     private boolean runParallel;
     private boolean addOriginalDataset;
     private boolean verbose;
+    private boolean streaming;
+    private EdgeTypeProbabilityAccumulator accumulator = new EdgeTypeProbabilityAccumulator();
     private DataSet data;
 
     private List<DataSet> dataSets;
@@ -63,13 +63,11 @@ public class GeneralResamplingSearch {
 
     public GeneralResamplingSearch(DataSet data, int numberResampling) {
         this.data = data;
-        this.pool = ForkJoinPool.commonPool();
         this.numberResampling = numberResampling;
     }
 
     public GeneralResamplingSearch(List<DataSet> dataSets, int numberResampling) {
         this.dataSets = dataSets;
-        this.pool = ForkJoinPool.commonPool();
         this.numberResampling = numberResampling;
     }
 
@@ -103,6 +101,28 @@ public class GeneralResamplingSearch {
         this.verbose = verbose;
     }
 
+    /**
+     * Sets whether the resampled graphs should be streamed. If so, each graph is added to an
+     * EdgeTypeProbabilityAccumulator as soon as it is found and then dropped, search() returns an empty list, and the
+     * edge-type frequencies are read from getAccumulator(). This keeps one set of counts per adjacent pair instead of
+     * every resampled graph. False by default.
+     *
+     * @param streaming True if the graphs should be streamed.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Returns the accumulator the graphs of the last search were added to, if they were streamed.
+     *
+     * @return This accumulator.
+     * @see #setStreaming(boolean)
+     */
+    public EdgeTypeProbabilityAccumulator getAccumulator() {
+        return this.accumulator;
+    }
+
     public void setData(DataSet data) {
         this.data = data;
     }
@@ -141,6 +161,7 @@ public class GeneralResamplingSearch {
     public List<Graph> search() {
 
         this.graphs.clear();
+        this.accumulator = new EdgeTypeProbabilityAccumulator();
         this.parameters.set("numberResampling", 0); // This needs to be set to zero to not loop indefinitely
 
         List<Callable<Graph>> tasks = new ArrayList<>();
@@ -212,33 +233,41 @@ public class GeneralResamplingSearch {
             }
         }
 
+        // Unless the graphs are streamed, they are kept in the order of the tasks.
+        Graph[] found = new Graph[tasks.size()];
+        List<Callable<Boolean>> searches = new ArrayList<>();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            int index = i;
+            Callable<Graph> task = tasks.get(i);
+
+            searches.add(() -> {
+                Graph graph = task.call();
+                if (graph == null) return false;
+
+                if (this.streaming) {
+                    this.accumulator.add(index, graph);
+                } else {
+                    found[index] = graph;
+                }
+
+                return true;
+            });
+        }
+
         int numNoGraph = 0;
 
         if (this.runParallel) {
-            List<Future<Graph>> futures = this.pool.invokeAll(tasks);
-            for (Future<Graph> future : futures) {
-                Graph graph;
-                try {
-                    graph = future.get();
-
-                    if (graph == null) {
-                        numNograph++;
-                    } else {
-                        this.graphs.add(graph);
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
+            for (Boolean _found : ForkJoinPoolInstance.getInstance().invokeAll(searches)) {
+                if (!_found) {
+                    numNoGraph++;
                 }
             }
         } else {
-            for (Callable<Graph> callable : tasks) {
+            for (Callable<Boolean> callable : searches) {
                 try {
-                    Graph graph = callable.call();
-
-                    if (graph == null) {
+                    if (!callable.call()) {
                         numNoGraph++;
-                    } else {
-                        this.graphs.add(graph);
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -246,6 +275,12 @@ public class GeneralResamplingSearch {
             }
         }
 
+        for (Graph graph : found) {
+            if (graph != null) {
+                this.graphs.add(graph);
+            }
+        }
+
         this.parameters.set("numberResampling", this.numberResampling);
         this.numNograph = numNoGraph;
 
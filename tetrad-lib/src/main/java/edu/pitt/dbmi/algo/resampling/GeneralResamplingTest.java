@@ -30,6 +30,7 @@ public class GeneralResamplingTest {
     private MultiDataSetAlgorithm multiDataSetAlgorithm;
     private List<Graph> graphs = new ArrayList<>();
     private boolean verbose;
+    private boolean streaming;
     /**
      * Specification of forbidden and required edges.
      */
@@ -226,6 +227,17 @@ public class GeneralResamplingTest {
         this.verbose = verbose;
     }
 
+    /**
+     * Sets whether the resampled graphs should be streamed into edge-type frequencies instead of being kept. The
+     * resulting graph is the same, but getGraphs() then returns an empty list.
+     *
+     * @param streaming True if the graphs should be streamed.
+     * @see GeneralResamplingSearch#setStreaming(boolean)
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * @return the output stream that output (except for log output) should be sent to.
      */
@@ -277,6 +289,7 @@ public class GeneralResamplingTest {
         boolean runParallel = true;
         this.resamplingSearch.setRunParallel(runParallel);
         this.resamplingSearch.setVerbose(this.verbose);
+        this.resamplingSearch.setStreaming(this.streaming);
         this.resamplingSearch.setParameters(this.parameters);
         this.resamplingSearch.setScoreWrapper(scoreWrapper);
 
@@ -303,7 +316,8 @@ public class GeneralResamplingTest {
                 "Bootstrapping: Number of searches that didn't return a graph = " + numNoGraphs);
 
         if (this.verbose) {
-            this.out.println("Resampling number is : " + this.graphs.size());
+            int numGraphs = this.streaming ? this.resamplingSearch.getAccumulator().getNumGraphs() : this.graphs.size();
+            this.out.println("Resampling number is : " + numGraphs);
         }
         stop = MillisecondTimes.timeMillis();
         if (this.verbose) {
@@ -311,7 +325,9 @@ public class GeneralResamplingTest {
         }
 
         start = MillisecondTimes.timeMillis();
-        Graph graph = GraphSampling.createGraphWithHighProbabilityEdges(this.graphs);
+        Graph graph = this.streaming
+                ? this.resamplingSearch.getAccumulator().getGraph()
+                : GraphSampling.createGraphWithHighProbabilityEdges(this.graphs);
         stop = MillisecondTimes.timeMillis();
 
 //        if (this.verbose) {
@@ -27,7 +27,10 @@ import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.Vector;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -247,9 +250,49 @@ public final class TestBoxDataSet {
             fail("Missing row in permutation.");
         }
     }
-}
 
+    @Test
+    public void testMappedColumnarData() throws IOException {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X1"));
+        variables.add(new DiscreteVariable("X2", Arrays.asList("lo", "mid", "hi")));
+        variables.add(new ContinuousVariable("X3"));
+
+        final int rows = 200;
+        DataSet dataSet = new BoxDataSet(new MixedDataBox(variables, rows), variables);
+        RandomUtil randomUtil = RandomUtil.getInstance();
 
+        for (int i = 0; i < rows; i++) {
+            dataSet.setDouble(i, 0, i % 7 == 0 ? Double.NaN : randomUtil.nextNormal(0, 1));
+            dataSet.setInt(i, 1, i % 11 == 0 ? -99 : randomUtil.nextInt(3));
+            dataSet.setDouble(i, 2, randomUtil.nextDouble());
+        }
+
+        File file = File.createTempFile("tetrad", ".tcb");
+        file.deleteOnExit();
 
+        DataWriter.writeColumnarData(dataSet, file);
+        DataSet mapped = MappedDataBox.loadDataSet(file);
 
+        assertEquals(rows, mapped.getNumRows());
+        assertEquals(dataSet.getVariableNames(), mapped.getVariableNames());
+        assertEquals(Arrays.asList("lo", "mid", "hi"), ((DiscreteVariable) mapped.getVariable(1)).getCategories());
 
+        for (int i = 0; i < rows; i++) {
+            assertEquals(dataSet.getDouble(i, 0), mapped.getDouble(i, 0), 0.0);
+            assertEquals(dataSet.getInt(i, 1), mapped.getInt(i, 1));
+            assertEquals(dataSet.getDouble(i, 2), mapped.getDouble(i, 2), 0.0);
+        }
+
+        DataSet copy = mapped.copy();
+        assertTrue(((BoxDataSet) copy).getDataBox() instanceof MixedDataBox);
+        assertEquals(dataSet.getInt(5, 1), copy.getInt(5, 1));
+
+        try {
+            ((BoxDataSet) mapped).getDataBox().set(0, 0, 1.0);
+            fail("A mapped data set should be read-only by default.");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,76 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.test.CachingIndependenceTest;
+import edu.cmu.tetrad.search.test.IndTestFisherZ;
+import edu.cmu.tetrad.search.test.IndependenceResult;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the caching independence test wrapper.
+ */
+public final class TestCachingIndependenceTest {
+
+    @Test
+    public void testSameResults() {
+        RandomUtil.getInstance().setSeed(3823823L);
+
+        Graph graph = RandomGraph.randomDag(10, 0, 15, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        DataSet data = im.simulateData(500, false);
+
+        IndTestFisherZ test = new IndTestFisherZ(data, 0.05);
+        CachingIndependenceTest cachingTest = new CachingIndependenceTest(test);
+
+        List<Node> nodes = data.getVariables();
+        Node x = nodes.get(0);
+        Node y = nodes.get(1);
+        Set<Node> z = new HashSet<>(Arrays.asList(nodes.get(2), nodes.get(3)));
+
+        IndependenceResult result1 = cachingTest.checkIndependence(x, y, z);
+        IndependenceResult result2 = cachingTest.checkIndependence(y, x, z);
+
+        assertEquals(test.checkIndependence(x, y, z).getPValue(), result1.getPValue(), 1e-10);
+        assertEquals(result1.getPValue(), result2.getPValue(), 0.0);
+        assertEquals(y, result2.getFact().getX());
+        assertEquals(1, cachingTest.getHits());
+        assertEquals(1, cachingTest.getMisses());
+
+        cachingTest.setAlpha(0.01);
+        assertEquals(0, cachingTest.size());
+    }
+}
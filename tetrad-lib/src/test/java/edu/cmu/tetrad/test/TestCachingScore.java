@@ -0,0 +1,143 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.score.CachingScore;
+import edu.cmu.tetrad.search.score.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the caching score wrapper.
+ */
+public final class TestCachingScore {
+
+    @Test
+    public void testSameScores() {
+        RandomUtil.getInstance().setSeed(492834923L);
+
+        Graph dag = RandomGraph.randomDag(10, 0, 15, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(500, false);
+
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+        CachingScore cachingScore = new CachingScore(score);
+
+        assertEquals(score.localScore(0, 1, 2), cachingScore.localScore(0, 1, 2), 1e-10);
+        assertEquals(0, cachingScore.getHits());
+        assertEquals(1, cachingScore.getMisses());
+
+        // The order of the parents should not matter.
+        assertEquals(score.localScore(0, 1, 2), cachingScore.localScore(0, 2, 1), 1e-10);
+        assertEquals(1, cachingScore.getHits());
+
+        assertEquals(score.localScoreDiff(3, 0, new int[]{1, 2}),
+                cachingScore.localScoreDiff(3, 0, new int[]{1, 2}), 1e-10);
+        assertEquals(2, cachingScore.getHits());
+        assertEquals(2, cachingScore.getMisses());
+
+        assertEquals(score.localScore(4), cachingScore.localScore(4), 1e-10);
+        assertEquals(score.localScore(4, 5), cachingScore.localScore(4, 5), 1e-10);
+        assertEquals(4, cachingScore.size());
+    }
+
+    @Test
+    public void testEviction() {
+        RandomUtil.getInstance().setSeed(492834923L);
+
+        Graph dag = RandomGraph.randomDag(10, 0, 15, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(500, false);
+
+        CachingScore cachingScore = new CachingScore(new SemBicScore(new CovarianceMatrix(data)), 8, 2);
+
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                if (i != j) cachingScore.localScore(i, j);
+            }
+        }
+
+        assertTrue(cachingScore.size() <= 8);
+        assertEquals(90, cachingScore.getMisses());
+        assertEquals(90 - cachingScore.size(), cachingScore.getEvictions());
+    }
+
+    @Test
+    public void testDelegatesFastPaths() {
+        RandomUtil.getInstance().setSeed(492834923L);
+
+        Graph dag = RandomGraph.randomDag(10, 0, 15, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(500, false);
+
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+        CachingScore cachingScore = new CachingScore(score);
+
+        assertEquals(score.supportsIncrementalLocalScore(), cachingScore.supportsIncrementalLocalScore());
+        assertTrue(cachingScore.supportsIncrementalLocalScore());
+        assertEquals(score.localScore(0, 1, 2), cachingScore.incrementalLocalScore(0, 1, 2).getScore(), 1e-10);
+
+        int[] xs = {1, 2, 3, 4};
+        double[] expected = score.localScoreDiffs(xs, 0);
+        double[] diffs = cachingScore.localScoreDiffs(xs, 0);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(expected[i], diffs[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void testNandyDiffsAgree() {
+        RandomUtil.getInstance().setSeed(492834923L);
+
+        Graph dag = RandomGraph.randomDag(10, 0, 15, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(500, false);
+
+        SemBicScore score = new SemBicScore(data);
+        score.setRuleType(SemBicScore.RuleType.NANDY);
+        CachingScore cachingScore = new CachingScore(score);
+
+        assertFalse(cachingScore.isDifferenceOfLocalScores());
+
+        int[] xs = {1, 2, 3, 4};
+        double[] diffs = cachingScore.localScoreDiffs(xs, 0);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(score.localScoreDiff(xs[i], 0), cachingScore.localScoreDiff(xs[i], 0), 1e-10);
+            assertEquals(diffs[i], cachingScore.localScoreDiff(xs[i], 0), 1e-10);
+        }
+
+        assertEquals(score.localScoreDiff(3, 0, new int[]{1, 2}),
+                cachingScore.localScoreDiff(3, 0, new int[]{1, 2}), 1e-10);
+    }
+}
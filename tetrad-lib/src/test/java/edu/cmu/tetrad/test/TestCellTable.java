@@ -33,6 +33,7 @@ import static org.junit.Assert.assertEquals;
 
 public final class TestCellTable {
     private CellTable table;
+    private DataSet dataSet;
     private final int[] dims = {2, 2, 2, 2};
 
     private final int[][] data = {{1, 1, 1, 0}, {0, 0, 1, 0},
@@ -309,6 +310,7 @@ public final class TestCellTable {
         int[] indices = {0, 1, 2, 3};
 
         this.table.addToTable(dataSet, indices);
+        this.dataSet = dataSet;
     }
 
     @Test
@@ -405,6 +407,33 @@ public final class TestCellTable {
         }
     }
 
+    @Test
+    public void testContingencyCounter() {
+        setUp();
+
+        ContingencyCounter counter = new ContingencyCounter(this.dataSet);
+
+        int[][] varSets = {{}, {2}, {0, 3}, {3, 0}, {1, 2, 0}, {2, 0, 3, 1}};
+
+        for (int[] vars : varSets) {
+            ContingencyCounter.Table counts = counter.count(vars);
+            assertEquals(1 << vars.length, counts.getNumCells());
+            assertEquals(this.data.length, counts.getTotal());
+
+            // The first variable varies slowest; the other variables are
+            // marginalized out of the cell table.
+            for (int cell = 0; cell < counts.getNumCells(); cell++) {
+                int[] testCell = {-1, -1, -1, -1};
+
+                for (int t = vars.length - 1, c = cell; t >= 0; t--, c /= 2) {
+                    testCell[vars[t]] = c % 2;
+                }
+
+                assertEquals(this.table.calcMargin(testCell), counts.getCount(cell));
+            }
+        }
+    }
+
     private static int[] pickRandomCell() {
 
         int[] cell = new int[4];
@@ -0,0 +1,133 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.score.ConditionalGaussianLikelihood;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.util.FastMath;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the conditional Gaussian likelihood and its cached partitions.
+ */
+public final class TestConditionalGaussianLikelihood {
+
+    @Test
+    public void testConditionalGaussianLikelihood() {
+        RandomUtil.getInstance().setSeed(49382L);
+
+        List<Node> vars = new ArrayList<>();
+        vars.add(new ContinuousVariable("X"));
+        vars.add(new DiscreteVariable("A", 3));
+        vars.add(new DiscreteVariable("B", 2));
+
+        int n = 500;
+        DataSet data = new BoxDataSet(new MixedDataBox(vars, n), vars);
+
+        for (int i = 0; i < n; i++) {
+            int a = RandomUtil.getInstance().nextInt(3);
+            data.setInt(i, 1, a);
+            data.setInt(i, 2, RandomUtil.getInstance().nextInt(2));
+            data.setDouble(i, 0, (a + 1) * RandomUtil.getInstance().nextNormal(0, 1) + a);
+        }
+
+        // For a continuous child of one discrete parent, the likelihood is the sum over the cells of the parent of
+        // a times the Gaussian likelihood of one record with the cell's variance, where a is the size of the cell.
+        double expected = 0.0;
+
+        for (int a = 0; a < 3; a++) {
+            List<Double> cell = new ArrayList<>();
+
+            for (int i = 0; i < n; i++) {
+                if (data.getInt(i, 1) == a) cell.add(data.getDouble(i, 0));
+            }
+
+            double mean = cell.stream().mapToDouble(d -> d).average().orElse(Double.NaN);
+            double variance = cell.stream().mapToDouble(d -> (d - mean) * (d - mean)).sum() / (cell.size() - 1);
+            expected += cell.size() * (-0.5 * FastMath.log(variance) - 0.5 * (1 + FastMath.log(2.0 * FastMath.PI)));
+        }
+
+        ConditionalGaussianLikelihood likelihood = new ConditionalGaussianLikelihood(data);
+
+        ConditionalGaussianLikelihood.Ret ret = likelihood.getLikelihood(0, new int[]{1});
+        assertEquals(expected, ret.getLik(), 1e-8);
+        assertEquals(3, ret.getDof());
+
+        // The cached partitions give the same answers, whatever the order of the parents.
+        assertEquals(ret.getLik(), likelihood.getLikelihood(0, new int[]{1}).getLik(), 0.0);
+        assertEquals(likelihood.getLikelihood(0, new int[]{1, 2}).getLik(),
+                likelihood.getLikelihood(0, new int[]{2, 1}).getLik(), 1e-10);
+
+        // Restricting the rows to all the rows gives the same answer.
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) rows.add(i);
+        likelihood.setRows(rows);
+        assertEquals(ret.getLik(), likelihood.getLikelihood(0, new int[]{1}).getLik(), 1e-10);
+    }
+
+    /**
+     * Rows that are as many as the rows of the data, but not all of them, must not be scored from the cached
+     * partitions of all the rows.
+     */
+    @Test
+    public void testRowsOfFullLength() {
+        RandomUtil.getInstance().setSeed(49382L);
+
+        List<Node> vars = new ArrayList<>();
+        vars.add(new ContinuousVariable("X"));
+        vars.add(new DiscreteVariable("A", 3));
+
+        int n = 200;
+        DataSet data = new BoxDataSet(new MixedDataBox(vars, n), vars);
+
+        for (int i = 0; i < n; i++) {
+            int a = RandomUtil.getInstance().nextInt(3);
+            data.setInt(i, 1, a);
+            data.setDouble(i, 0, (a + 1) * RandomUtil.getInstance().nextNormal(0, 1) + a);
+        }
+
+        ConditionalGaussianLikelihood likelihood = new ConditionalGaussianLikelihood(data);
+        likelihood.getLikelihood(0, new int[]{1});
+
+        // The first half of the rows, each twice.
+        List<Integer> rows = new ArrayList<>();
+        int[] _rows = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            rows.add(i / 2);
+            _rows[i] = i / 2;
+        }
+
+        likelihood.setRows(rows);
+
+        ConditionalGaussianLikelihood expected = new ConditionalGaussianLikelihood(data.subsetRows(_rows));
+        assertEquals(expected.getLikelihood(0, new int[]{1}).getLik(),
+                likelihood.getLikelihood(0, new int[]{1}).getLik(), 1e-8);
+    }
+}
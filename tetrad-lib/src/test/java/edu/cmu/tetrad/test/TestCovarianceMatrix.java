@@ -84,9 +84,134 @@ public final class TestCovarianceMatrix {
         assertEquals(-.051, c2.getValue(0, 1), 0.001);
         assertEquals(-.609, c3.getValue(0, 1), 0.001);
     }
-}
 
+    /**
+     * Tests that accumulating covariances one row at a time, in blocks of various sizes, gives the same matrix as
+     * calculating them from the whole data set.
+     */
+    @Test
+    public void testAccumulator() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 13; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet dataSet = new BoxDataSet(new DoubleDataBox(1000, variables.size()), variables);
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            for (int j = 0; j < dataSet.getNumColumns(); j++) {
+                dataSet.setDouble(i, j, 1000 + j * RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        ICovarianceMatrix expected = new CovarianceMatrix(dataSet);
+        double[][] data = dataSet.getDoubleData().toArray();
+
+        for (int blockSize : new int[]{1, 7, 100, 5000}) {
+            CovarianceAccumulator accumulator = new CovarianceAccumulator(variables, blockSize);
+
+            for (double[] row : data) {
+                accumulator.addRow(row);
+            }
+
+            ICovarianceMatrix actual = accumulator.getCovarianceMatrix();
+            assertEquals(expected.getSampleSize(), actual.getSampleSize());
+
+            for (int i = 0; i < variables.size(); i++) {
+                for (int j = 0; j < variables.size(); j++) {
+                    assertEquals(expected.getValue(i, j), actual.getValue(i, j), 1e-8);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a bootstrap sample viewing the rows of the data has the covariance matrix of a copy of those rows, and
+     * that setting a value in it leaves the data unchanged.
+     */
+    @Test
+    public void testBootstrapView() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 8; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet dataSet = new BoxDataSet(new VerticalDoubleDataBox(500, variables.size()), variables);
 
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            for (int j = 0; j < dataSet.getNumColumns(); j++) {
+                dataSet.setDouble(i, j, 1000 + j * RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        DataSet sample = DataUtils.getBootstrapSample(dataSet, 300);
+        DataSet copy = new BoxDataSet(new VerticalDoubleDataBox(sample.getDoubleData().transpose().toArray()), variables);
+
+        ICovarianceMatrix expected = new CovarianceMatrix(copy);
+        ICovarianceMatrix actual = new CovarianceMatrix(sample);
+        assertEquals(expected.getSampleSize(), actual.getSampleSize());
+
+        for (int i = 0; i < variables.size(); i++) {
+            for (int j = 0; j < variables.size(); j++) {
+                assertEquals(expected.getValue(i, j), actual.getValue(i, j), 1e-8);
+            }
+        }
+
+        double[][] before = dataSet.getDoubleData().toArray();
+        sample.setDouble(0, 0, -1);
+
+        assertEquals(-1, sample.getDouble(0, 0), 0.0);
+        assertEquals(copy.getDouble(1, 0), sample.getDouble(1, 0), 0.0);
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            assertEquals(before[i][0], dataSet.getDouble(i, 0), 0.0);
+        }
+    }
+
+    /**
+     * Tests that bootstrap samples taken after a value of the data is changed see the change, though the means of the
+     * data are kept between samples.
+     */
+    @Test
+    public void testBootstrapViewAfterChange() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 4; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet dataSet = new BoxDataSet(new VerticalDoubleDataBox(200, variables.size()), variables);
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            for (int j = 0; j < dataSet.getNumColumns(); j++) {
+                dataSet.setDouble(i, j, RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        new CovarianceMatrix(DataUtils.getBootstrapSample(dataSet, 200));
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            dataSet.setDouble(i, 2, 1e6 + dataSet.getDouble(i, 2));
+        }
 
+        DataSet sample = DataUtils.getBootstrapSample(dataSet, 200);
+        DataSet copy = new BoxDataSet(new VerticalDoubleDataBox(sample.getDoubleData().transpose().toArray()), variables);
 
+        ICovarianceMatrix expected = new CovarianceMatrix(copy);
+        ICovarianceMatrix actual = new CovarianceMatrix(sample);
 
+        for (int i = 0; i < variables.size(); i++) {
+            for (int j = 0; j < variables.size(); j++) {
+                assertEquals(expected.getValue(i, j), actual.getValue(i, j), 1e-6);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.score.DegenerateGaussianBicScore;
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.score.DegenerateGaussianScore;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the degenerate Gaussian score.
+ */
+public final class TestDegenerateGaussianScore {
+
+    /**
+     * Calculating the covariances from the mixed data gives the scores of the embedded data, in less memory.
+     */
+    @Test
+    public void testSufficientStatistics() {
+        DataSet data = mixedData();
+
+        DegenerateGaussianScore embedded = new DegenerateGaussianScore(data, false);
+        DegenerateGaussianScore sufficient = new DegenerateGaussianScore(data, true);
+
+        assertEquals(2 + 3 + 2, sufficient.getNumEmbeddedColumns());
+        assertTrue(sufficient.getMemoryUsed() < embedded.getMemoryUsed());
+
+        int[][] parentSets = {{}, {0}, {2}, {3}, {0, 2}, {2, 3}, {0, 1, 3}};
+
+        for (int[] parents : parentSets) {
+            for (int i = 0; i < 4; i++) {
+                if (Arrays.binarySearch(parents, i) >= 0) continue;
+                assertEquals(embedded.localScore(i, parents), sufficient.localScore(i, parents), 1e-8);
+            }
+        }
+    }
+
+    /**
+     * The algcomparison wrapper builds the embedded data unless the parameter says otherwise.
+     */
+    @Test
+    public void testWrapperMode() {
+        DataSet data = mixedData();
+        Parameters parameters = new Parameters();
+
+        DegenerateGaussianScore score = (DegenerateGaussianScore) new DegenerateGaussianBicScore().getScore(data, parameters);
+        assertEquals(new DegenerateGaussianScore(data, false).getMemoryUsed(), score.getMemoryUsed());
+
+        parameters.set(Params.DG_USE_SUFFICIENT_STATISTICS, true);
+        score = (DegenerateGaussianScore) new DegenerateGaussianBicScore().getScore(data, parameters);
+        assertEquals(new DegenerateGaussianScore(data, true).getMemoryUsed(), score.getMemoryUsed());
+    }
+
+    private static DataSet mixedData() {
+        RandomUtil.getInstance().setSeed(29483L);
+
+        List<Node> vars = new ArrayList<>();
+        vars.add(new ContinuousVariable("X1"));
+        vars.add(new ContinuousVariable("X2"));
+        vars.add(new DiscreteVariable("A", 4));
+        vars.add(new DiscreteVariable("B", 3));
+
+        int n = 300;
+        DataSet data = new BoxDataSet(new MixedDataBox(vars, n), vars);
+
+        for (int i = 0; i < n; i++) {
+            int a = RandomUtil.getInstance().nextInt(4);
+            int b = RandomUtil.getInstance().nextDouble() < 0.5 ? a % 3 : RandomUtil.getInstance().nextInt(3);
+            double x1 = a + RandomUtil.getInstance().nextNormal(0, 1);
+            data.setInt(i, 2, a);
+            data.setInt(i, 3, b);
+            data.setDouble(i, 0, x1);
+            data.setDouble(i, 1, 0.5 * x1 - b + RandomUtil.getInstance().nextNormal(0, 1));
+        }
+
+        return data;
+    }
+}
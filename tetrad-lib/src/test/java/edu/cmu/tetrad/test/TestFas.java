@@ -22,14 +22,19 @@
 package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.RandomGraph;
 import edu.cmu.tetrad.search.Fas;
 import edu.cmu.tetrad.search.Pc;
+import edu.cmu.tetrad.search.test.IndTestFisherZ;
 import edu.cmu.tetrad.search.test.MsepTest;
 import edu.cmu.tetrad.search.test.IndependenceTest;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -62,6 +67,35 @@ public class TestFas {
 
         assertEquals(fasGraph, GraphUtils.undirectedGraph(pcGraph));
     }
+
+    @Test
+    public void testParallelSameAsStable() {
+        RandomUtil.getInstance().setSeed(3823823L);
+
+        Graph graph = RandomGraph.randomDag(30, 0, 45, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        DataSet data = im.simulateData(500, false);
+
+        IndependenceTest test = new IndTestFisherZ(data, 0.05);
+
+        Fas fas1 = new Fas(test);
+        fas1.setStable(true);
+        Graph stableGraph = fas1.search();
+
+        Fas fas2 = new Fas(test);
+        fas2.setParallelized(true);
+        fas2.setNumThreads(4);
+        Graph parallelGraph = fas2.search();
+
+        assertEquals(stableGraph, parallelGraph);
+
+        for (Node x : graph.getNodes()) {
+            for (Node y : graph.getNodes()) {
+                if (x == y) continue;
+                assertEquals(fas1.getSepsets().get(x, y), fas2.getSepsets().get(x, y));
+            }
+        }
+    }
 }
 
 
@@ -0,0 +1,257 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ForkJoinPoolInstance.
+ */
+public final class TestForkJoinPoolInstance {
+
+    /**
+     * Parallel code must not shut down the shared pool, so covariances can be computed any number of times.
+     */
+    @Test
+    public void testBackToBackCovariances() {
+        DataSet dataSet = randomData(200, 20);
+
+        CovarianceMatrix c1 = new CovarianceMatrix(dataSet);
+        CovarianceMatrix c2 = new CovarianceMatrix(dataSet);
+
+        assertFalse(ForkJoinPoolInstance.getInstance().getPool().isShutdown());
+
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                assertEquals(c1.getValue(i, j), c2.getValue(i, j), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testInvokeAll() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            int _i = i;
+            tasks.add(() -> _i * _i);
+        }
+
+        List<Integer> results = ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+
+        assertEquals(50, results.size());
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void testInvokeAllException() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> 1);
+        tasks.add(() -> {
+            throw new IllegalStateException("Task failed");
+        });
+
+        try {
+            ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+            fail("Expected an exception.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Interrupting the thread waiting in invokeAll interrupts the running tasks, throws a CancellationException, and
+     * leaves the waiting thread's interrupt status set.
+     */
+    @Test
+    public void testInvokeAllCancellation() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger interruptedTasks = new AtomicInteger();
+        AtomicBoolean callerInterrupted = new AtomicBoolean();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            tasks.add(() -> {
+                started.countDown();
+
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interruptedTasks.incrementAndGet();
+                    throw e;
+                }
+
+                return 1;
+            });
+        }
+
+        Thread caller = new Thread(() -> {
+            try {
+                ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+            } catch (CancellationException e) {
+                cancelled.set(true);
+            }
+
+            callerInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+
+        caller.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(10000);
+
+        assertFalse(caller.isAlive());
+        assertTrue(cancelled.get());
+        assertTrue(callerInterrupted.get());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (interruptedTasks.get() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(interruptedTasks.get() > 0);
+    }
+
+    @Test
+    public void testScope() {
+        ForkJoinPoolInstance instance = ForkJoinPoolInstance.getInstance();
+        int parallelism = instance.getParallelism();
+
+        try {
+            instance.setParallelism(4);
+            ForkJoinPool scopePool;
+
+            try (ForkJoinPoolInstance.Scope scope = instance.withParallelism(2)) {
+                scopePool = scope.getPool();
+                assertSame(scopePool, instance.getPool());
+                assertEquals(2, instance.getParallelism());
+
+                // Tasks run in the scope's pool see that pool.
+                List<Callable<ForkJoinPool>> tasks = new ArrayList<>();
+                tasks.add(() -> ForkJoinPoolInstance.getInstance().getPool());
+                assertSame(scopePool, instance.invokeAll(tasks).get(0));
+
+                // A scope asking for more threads than the enclosing one gets the enclosing pool.
+                try (ForkJoinPoolInstance.Scope inner = instance.withParallelism(3)) {
+                    assertSame(scopePool, inner.getPool());
+                }
+
+                assertSame(scopePool, instance.getPool());
+            }
+
+            assertTrue(scopePool.isShutdown());
+            assertEquals(4, instance.getParallelism());
+            assertFalse(instance.getPool().isShutdown());
+        } finally {
+            instance.setParallelism(parallelism);
+        }
+    }
+
+    /**
+     * A scope opened by a task running in a pool applies to that task, rather than being passed over for the pool the
+     * task runs in.
+     */
+    @Test
+    public void testScopeInWorker() {
+        ForkJoinPoolInstance instance = ForkJoinPoolInstance.getInstance();
+        int parallelism = instance.getParallelism();
+
+        try {
+            instance.setParallelism(4);
+
+            List<Callable<Integer>> tasks = new ArrayList<>();
+
+            tasks.add(() -> {
+                try (ForkJoinPoolInstance.Scope scope = instance.withParallelism(1)) {
+                    assertSame(scope.getPool(), instance.getPool());
+                    return instance.getParallelism();
+                }
+            });
+
+            assertEquals(1, (int) instance.invokeAll(tasks).get(0));
+        } finally {
+            instance.setParallelism(parallelism);
+        }
+    }
+
+    /**
+     * Resizing replaces the shared pool; later parallel code uses the new pool.
+     */
+    @Test
+    public void testSetParallelism() {
+        ForkJoinPoolInstance instance = ForkJoinPoolInstance.getInstance();
+        int parallelism = instance.getParallelism();
+        DataSet dataSet = randomData(100, 10);
+
+        try {
+            CovarianceMatrix c1 = new CovarianceMatrix(dataSet);
+
+            instance.setParallelism(parallelism + 1);
+            assertEquals(parallelism + 1, instance.getParallelism());
+            assertFalse(instance.getPool().isShutdown());
+
+            CovarianceMatrix c2 = new CovarianceMatrix(dataSet);
+            assertEquals(c1.getValue(3, 4), c2.getValue(3, 4), 1e-12);
+        } finally {
+            instance.setParallelism(parallelism);
+        }
+
+        assertEquals(parallelism, instance.getParallelism());
+    }
+
+    private static DataSet randomData(int sampleSize, int numVars) {
+        RandomUtil.getInstance().setSeed(39482934L);
+        List<Node> variables = new ArrayList<>();
+
+        for (int j = 0; j < numVars; j++) {
+            variables.add(new ContinuousVariable("X" + j));
+        }
+
+        DataSet dataSet = new BoxDataSet(new DoubleDataBox(sampleSize, numVars), variables);
+
+        for (int i = 0; i < sampleSize; i++) {
+            for (int j = 0; j < numVars; j++) {
+                dataSet.setDouble(i, j, RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        return dataSet;
+    }
+}
@@ -34,11 +34,11 @@ import edu.cmu.tetrad.bayes.MlBayesIm;
 import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
-import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.utils.GraphSearchUtils;
 import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.EdgeTypeProbabilityAccumulator;
+import edu.cmu.tetrad.util.GraphSampling;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.cmu.tetrad.util.RandomUtil;
@@ -49,6 +49,9 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
 /**
  * Aug 17, 2017 2:28:48 PM
  *
@@ -114,6 +117,37 @@ public class TestGeneralResamplingTest {
         TestGeneralResamplingTest.printEdgeTypeConfusionMatrix(edgeAr);
     }
 
+    @Test
+    public void testStreamedEdgeProbabilities() {
+        RandomUtil.getInstance().setSeed(492834L);
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) nodes.add(new ContinuousVariable("X" + (i + 1)));
+
+        List<Graph> graphs = new ArrayList<>();
+        EdgeTypeProbabilityAccumulator accumulator = new EdgeTypeProbabilityAccumulator();
+
+        for (int i = 0; i < 20; i++) {
+            Graph graph = RandomGraph.randomGraph(nodes, 0, 12, 30, 15, 15, false);
+            graphs.add(new EdgeListGraph(graph));
+            accumulator.add(19 - i, new EdgeListGraph(graph));
+        }
+
+        Graph expected = GraphSampling.createGraphWithHighProbabilityEdges(graphs);
+        Graph streamed = accumulator.getGraph();
+
+        assertEquals(20, accumulator.getNumGraphs());
+        assertEquals(expected.getNumEdges(), streamed.getNumEdges());
+
+        for (Edge edge : expected.getEdges()) {
+            Edge _edge = streamed.getEdge(streamed.getNode(edge.getNode1().getName()),
+                    streamed.getNode(edge.getNode2().getName()));
+            assertNotNull(_edge);
+            assertEquals(edge.getProbability(), _edge.getProbability(), 1e-12);
+            assertEquals(edge.getEdgeTypeProbabilities().size(), _edge.getEdgeTypeProbabilities().size());
+        }
+    }
+
     @Ignore
     @Test
     public void testFGESd() {
@@ -266,6 +266,59 @@ public final class TestGraph {
     }
 
 
+    /**
+     * MsepEngine should agree with Paths on m-connection, one fact at a time and in batch, for DAGs and for graphs
+     * with arbitrary endpoints.
+     */
+    @Test
+    public void testMsepEngine() {
+        RandomUtil.getInstance().setSeed(38293482L);
+        Endpoint[] endpoints = {Endpoint.TAIL, Endpoint.ARROW, Endpoint.CIRCLE};
+
+        for (int trial = 0; trial < 20; trial++) {
+            Graph graph = RandomGraph.randomGraph(15, 0, 25, 100, 100, 100, false);
+
+            if (trial % 2 == 1) {
+                for (Edge edge : graph.getEdges()) {
+                    graph.removeEdge(edge);
+                    graph.addEdge(new Edge(edge.getNode1(), edge.getNode2(),
+                            endpoints[RandomUtil.getInstance().nextInt(3)],
+                            endpoints[RandomUtil.getInstance().nextInt(3)]));
+                }
+            }
+
+            List<Node> nodes = graph.getNodes();
+            MsepEngine engine = new MsepEngine(graph);
+            List<IndependenceFact> facts = new ArrayList<>();
+            List<Boolean> separated = new ArrayList<>();
+
+            for (int i = 0; i < 100; i++) {
+                Node x = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                Node y = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                Set<Node> z = new HashSet<>();
+                int size = RandomUtil.getInstance().nextInt(4);
+
+                for (int j = 0; j < size; j++) {
+                    z.add(nodes.get(RandomUtil.getInstance().nextInt(nodes.size())));
+                }
+
+                boolean connected = graph.paths().isMConnectedTo(x, y, z);
+                assertEquals(connected, engine.isMConnectedTo(x, y, z));
+                assertEquals(graph.paths().getMConnectedVars(x, z), engine.getMConnectedVars(x, z));
+                assertEquals(x == y || graph.paths().existsDirectedPathFromTo(x, y), engine.isAncestorOf(x, y));
+
+                facts.add(new IndependenceFact(x, y, z));
+                separated.add(!connected);
+            }
+
+            boolean[] batch = engine.isMSeparated(facts);
+
+            for (int i = 0; i < facts.size(); i++) {
+                assertEquals(separated.get(i), batch[i]);
+            }
+        }
+    }
+
     private void checkCopy(Graph graph) {
         Graph graph2 = new EdgeListGraph(graph);
         assertEquals(graph, graph2);
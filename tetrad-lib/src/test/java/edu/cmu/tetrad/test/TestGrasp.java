@@ -42,10 +42,12 @@ import edu.cmu.tetrad.bayes.BayesIm;
 import edu.cmu.tetrad.bayes.BayesPm;
 import edu.cmu.tetrad.bayes.MlBayesIm;
 import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.IndependenceFacts;
 import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.PermutationSearch;
 import edu.cmu.tetrad.search.score.DegenerateGaussianScore;
 import edu.cmu.tetrad.search.score.GraphScore;
 import edu.cmu.tetrad.search.score.Score;
@@ -74,6 +76,7 @@ import java.text.NumberFormat;
 import java.util.*;
 
 import static edu.cmu.tetrad.util.RandomUtil.shuffle;
+import static org.junit.Assert.assertEquals;
 
 
 /**
@@ -231,6 +234,39 @@ public final class TestGrasp {
 
     }
 
+    /**
+     * With the same seed, running the starts concurrently should give the same graph as running them one after
+     * another.
+     */
+    @Test
+    public void testParallelSameAsSerial() {
+        RandomUtil.getInstance().setSeed(38492834L);
+        Graph dag = RandomGraph.randomGraph(20, 0, 40, 100, 100, 100, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+
+        Graph[] grasp = new Graph[2];
+        Graph[] boss = new Graph[2];
+
+        for (int i = 0; i < 2; i++) {
+            RandomUtil.getInstance().setSeed(29348239L);
+            edu.cmu.tetrad.search.Grasp search = new edu.cmu.tetrad.search.Grasp(score);
+            search.setNumStarts(4);
+            search.setParallelized(i == 1);
+            search.bestOrder(score.getVariables());
+            grasp[i] = search.getGraph(true);
+
+            RandomUtil.getInstance().setSeed(29348239L);
+            edu.cmu.tetrad.search.Boss suborderSearch = new edu.cmu.tetrad.search.Boss(score);
+            suborderSearch.setNumStarts(4);
+            suborderSearch.setParallelized(i == 1);
+            boss[i] = new PermutationSearch(suborderSearch).search();
+        }
+
+        assertEquals(grasp[0], grasp[1]);
+        assertEquals(boss[0], boss[1]);
+    }
+
     //    @Test
     public void allPaperRuns() {
         Parameters params = new Parameters();
@@ -0,0 +1,133 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.Knowledge;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.Boss;
+import edu.cmu.tetrad.search.PermutationSearch;
+import edu.cmu.tetrad.search.score.SemBicScore;
+import edu.cmu.tetrad.search.utils.GrowShrinkTree;
+import edu.cmu.tetrad.search.utils.GrowShrinkTreeStore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests sharing and pruning of the trees in a GrowShrinkTreeStore.
+ */
+public class TestGrowShrinkTreeStore {
+
+    @Test
+    public void testSameKnowledgeShares() {
+        SemBicScore score = score();
+        GrowShrinkTreeStore store = new GrowShrinkTreeStore(score);
+
+        Graph first = search(score, store, new Knowledge());
+        long numNodes = store.getNumNodes();
+        Graph second = search(score, store, new Knowledge());
+
+        assertEquals(first, second);
+        assertEquals(numNodes, store.getNumNodes());
+        assertEquals(score.getVariables().size(), store.getNumTrees());
+    }
+
+    @Test
+    public void testDifferentKnowledgeDoesNotClear() {
+        SemBicScore score = score();
+        GrowShrinkTreeStore store = new GrowShrinkTreeStore(score);
+
+        search(score, store, new Knowledge());
+        Map<Node, GrowShrinkTree> trees = store.getTrees();
+        Map<Node, Long> sizes = new HashMap<>();
+        for (Node node : trees.keySet()) sizes.put(node, trees.get(node).getNumNodes());
+
+        Knowledge knowledge = new Knowledge();
+        knowledge.setForbidden("X1", "X2");
+        Graph shared = search(score, store, knowledge);
+        Graph unshared = search(score, new GrowShrinkTreeStore(score), knowledge);
+
+        assertEquals(unshared, shared);
+        assertEquals(score.getVariables().size() + 1, store.getNumTrees());
+
+        for (Node node : trees.keySet()) {
+            assertSame(trees.get(node), store.getTree(node));
+            assertTrue(trees.get(node).getNumNodes() >= sizes.get(node));
+        }
+
+        Node x2 = score.getVariable("X2");
+        assertNotSame(store.getTree(x2), store.getTrees(knowledge).get(x2));
+        assertTrue(store.getTrees(knowledge).get(x2).isForbidden(score.getVariable("X1")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStoredTreeKnowledgeIsFixed() {
+        SemBicScore score = score();
+        GrowShrinkTreeStore store = new GrowShrinkTreeStore(score);
+        Node x1 = score.getVariable("X1");
+        store.getTree(score.getVariable("X2")).setKnowledge(Collections.emptyList(),
+                Collections.singletonList(x1));
+    }
+
+    @Test
+    public void testEviction() {
+        SemBicScore score = score();
+
+        GrowShrinkTreeStore unlimited = new GrowShrinkTreeStore(score);
+        Graph expected = search(score, unlimited, new Knowledge());
+
+        GrowShrinkTreeStore limited = new GrowShrinkTreeStore(score, unlimited.getNumNodes() / 10);
+        Graph graph = search(score, limited, new Knowledge());
+
+        assertEquals(expected, graph);
+        assertEquals(0, unlimited.getNumEvictions());
+        assertTrue(limited.getNumEvictions() > 0);
+        assertTrue(limited.getNumNodes() < unlimited.getNumNodes());
+    }
+
+    private static SemBicScore score() {
+        RandomUtil.getInstance().setSeed(48293492L);
+        Graph dag = RandomGraph.randomGraph(15, 0, 30, 100, 100, 100, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        return new SemBicScore(new CovarianceMatrix(data));
+    }
+
+    private static Graph search(SemBicScore score, GrowShrinkTreeStore store, Knowledge knowledge) {
+        RandomUtil.getInstance().setSeed(29348239L);
+        Boss suborderSearch = new Boss(score);
+        suborderSearch.setNumStarts(3);
+        PermutationSearch search = new PermutationSearch(suborderSearch, store);
+        search.setKnowledge(knowledge);
+        return search.search();
+    }
+}
@@ -27,7 +27,9 @@ import edu.cmu.tetrad.graph.Node;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -60,6 +62,41 @@ public class TestIndependenceFact {
 
         assertTrue(facts.contains(fact2));
     }
-}
 
+    @Test
+    public void testHashCode() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        Node w = new GraphNode("W");
+        Node v = new GraphNode("V");
+
+        IndependenceFact fact1 = new IndependenceFact(x, y, w, v);
+        IndependenceFact fact2 = new IndependenceFact(y, x, v, w);
+
+        assertEquals(fact1, fact2);
+        assertEquals(fact1.hashCode(), fact2.hashCode());
+
+        Set<IndependenceFact> facts = new HashSet<>();
+        facts.add(fact1);
+
+        assertTrue(facts.contains(fact2));
+        assertFalse(facts.contains(new IndependenceFact(x, y, w)));
+    }
 
+    @Test
+    public void testZIsCopied() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        Node w = new GraphNode("W");
+
+        Set<Node> z = new HashSet<>();
+        z.add(w);
+
+        IndependenceFact fact = new IndependenceFact(x, y, z);
+        int hash = fact.hashCode();
+        z.clear();
+
+        assertEquals(hash, fact.hashCode());
+        assertEquals(new IndependenceFact(x, y, w), fact);
+    }
+}
@@ -0,0 +1,189 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.utils.MeekRules;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests IndexedGraph against EdgeListGraph.
+ */
+public final class TestIndexedGraph {
+
+    /**
+     * A random sequence of edge additions, removals and endpoint changes should leave the two graphs answering every
+     * query the same way.
+     */
+    @Test
+    public void testSameAsEdgeListGraph() {
+        RandomUtil.getInstance().setSeed(28394829L);
+        Endpoint[] endpoints = {Endpoint.TAIL, Endpoint.ARROW, Endpoint.CIRCLE};
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) nodes.add(new GraphNode("X" + (i + 1)));
+
+        for (int trial = 0; trial < 20; trial++) {
+            Graph graph1 = new EdgeListGraph(nodes);
+            Graph graph2 = new IndexedGraph(nodes);
+
+            for (int step = 0; step < 200; step++) {
+                Node x = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                Node y = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                if (x == y) continue;
+
+                int op = RandomUtil.getInstance().nextInt(3);
+
+                if (op == 0 && !graph1.isAdjacentTo(x, y)) {
+                    Edge edge = new Edge(x, y, endpoints[RandomUtil.getInstance().nextInt(3)],
+                            endpoints[RandomUtil.getInstance().nextInt(3)]);
+                    graph1.addEdge(edge);
+                    graph2.addEdge(edge);
+                } else if (op == 1) {
+                    assertEquals(graph1.removeEdge(x, y), graph2.removeEdge(x, y));
+                } else if (op == 2 && graph1.isAdjacentTo(x, y)) {
+                    Endpoint endpoint = endpoints[RandomUtil.getInstance().nextInt(3)];
+                    graph1.setEndpoint(x, y, endpoint);
+                    graph2.setEndpoint(x, y, endpoint);
+                }
+
+                assertSameQueries(graph1, graph2, nodes);
+            }
+
+            assertEquals(graph1, graph2);
+            assertEquals(graph1, new EdgeListGraph(graph2));
+            assertEquals(graph2, new IndexedGraph(graph1));
+        }
+    }
+
+    /**
+     * Removing a node renumbers the remaining nodes; queries should be unaffected.
+     */
+    @Test
+    public void testRemoveNode() {
+        RandomUtil.getInstance().setSeed(38492834L);
+        Graph graph1 = RandomGraph.randomGraph(20, 0, 40, 100, 100, 100, false);
+        Graph graph2 = new IndexedGraph(graph1);
+
+        Node node = graph1.getNodes().get(7);
+        graph1.removeNode(node);
+        graph2.removeNode(node);
+
+        assertTrue(!graph2.containsNode(node));
+        assertSameQueries(graph1, graph2, graph1.getNodes());
+        assertEquals(graph1, graph2);
+    }
+
+    /**
+     * The Meek rules should give the same CPDAG on either graph.
+     */
+    @Test
+    public void testMeekRules() {
+        RandomUtil.getInstance().setSeed(48293482L);
+
+        for (int i = 0; i < 10; i++) {
+            Graph dag = RandomGraph.randomGraph(50, 0, 100, 100, 100, 100, false);
+            Graph graph1 = new EdgeListGraph(dag);
+            Graph graph2 = new IndexedGraph(dag);
+
+            new MeekRules().orientImplied(graph1);
+            new MeekRules().orientImplied(graph2);
+
+            assertEquals(graph1, graph2);
+        }
+    }
+
+    /**
+     * More than one edge between a pair of nodes is rejected, and edges are copied so that changing an edge of the
+     * source graph in place does not reach the copy.
+     */
+    @Test
+    public void testEdgesRejectedAndCopied() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(x);
+        nodes.add(y);
+
+        Graph graph1 = new EdgeListGraph(nodes);
+        graph1.addDirectedEdge(x, y);
+        graph1.addDirectedEdge(y, x);
+
+        try {
+            new IndexedGraph(graph1);
+            fail("Expected more than one edge between X and Y to be rejected.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        graph1.removeEdge(Edges.directedEdge(y, x));
+        Graph graph2 = new IndexedGraph(graph1);
+
+        graph1.getEdge(x, y).setEndpoint2(Endpoint.CIRCLE);
+
+        assertEquals(Endpoint.ARROW, graph2.getEndpoint(x, y));
+        assertEquals(Edges.directedEdge(x, y), graph2.getEdge(x, y));
+    }
+
+    private static void assertSameQueries(Graph graph1, Graph graph2, List<Node> nodes) {
+        assertEquals(graph1.getEdges(), graph2.getEdges());
+        assertEquals(graph1.getNumEdges(), graph2.getNumEdges());
+
+        for (Node x : nodes) {
+            assertEquals(new HashSet<>(graph1.getAdjacentNodes(x)), new HashSet<>(graph2.getAdjacentNodes(x)));
+            assertEquals(new HashSet<>(graph1.getParents(x)), new HashSet<>(graph2.getParents(x)));
+            assertEquals(new HashSet<>(graph1.getChildren(x)), new HashSet<>(graph2.getChildren(x)));
+            assertEquals(new HashSet<>(graph1.getEdges(x)), new HashSet<>(graph2.getEdges(x)));
+
+            for (Endpoint endpoint : Endpoint.values()) {
+                assertEquals(new HashSet<>(graph1.getNodesInTo(x, endpoint)),
+                        new HashSet<>(graph2.getNodesInTo(x, endpoint)));
+                assertEquals(new HashSet<>(graph1.getNodesOutTo(x, endpoint)),
+                        new HashSet<>(graph2.getNodesOutTo(x, endpoint)));
+            }
+
+            for (Node y : nodes) {
+                if (x == y) continue;
+                assertEquals(graph1.isAdjacentTo(x, y), graph2.isAdjacentTo(x, y));
+                assertEquals(graph1.getEndpoint(x, y), graph2.getEndpoint(x, y));
+                assertTrue(Objects.equals(graph1.getEdge(x, y), graph2.getEdge(x, y)));
+                assertEquals(graph1.isParentOf(x, y), graph2.isParentOf(x, y));
+
+                for (Node z : nodes) {
+                    if (z == x || z == y) continue;
+                    assertEquals(graph1.isDefCollider(x, y, z), graph2.isDefCollider(x, y, z));
+                    assertEquals(graph1.isDefNoncollider(x, y, z), graph2.isDefNoncollider(x, y, z));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.test.Kci;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the random Fourier feature mode of KCI.
+ */
+public final class TestKci {
+
+    /**
+     * Under independence, the p-values of the low-rank test should be roughly uniform.
+     */
+    @Test
+    public void testLowRankCalibration() {
+        RandomUtil.getInstance().setSeed(48239482L);
+
+        int numPairs = 100;
+        DataSet data = independentData(200, 2 * numPairs);
+
+        Kci kci = new Kci(data, 0.05);
+        kci.setApproximate(true);
+        kci.setNumFeatures(100);
+
+        List<Node> nodes = data.getVariables();
+        int rejections = 0;
+        double sum = 0.0;
+
+        for (int i = 0; i < numPairs; i++) {
+            double p = kci.checkIndependence(nodes.get(2 * i), nodes.get(2 * i + 1), Collections.emptySet())
+                    .getPValue();
+            if (p < 0.05) rejections++;
+            sum += p;
+        }
+
+        assertTrue(rejections <= 12);
+        assertEquals(0.5, sum / numPairs, 0.1);
+    }
+
+    /**
+     * With enough features, the low-rank test should give about the same p-values as the exact test.
+     */
+    @Test
+    public void testLowRankAgreesWithExact() {
+        RandomUtil.getInstance().setSeed(48239482L);
+
+        int n = 150;
+        DataSet data = independentData(n, 4);
+        List<Node> nodes = data.getVariables();
+
+        // X2 depends on X0 nonlinearly; X3 depends on X0 only through X1.
+        for (int i = 0; i < n; i++) {
+            double x0 = data.getDouble(i, 0);
+            data.setDouble(i, 1, x0 * x0 + 0.5 * data.getDouble(i, 1));
+            data.setDouble(i, 3, data.getDouble(i, 1) + 0.5 * data.getDouble(i, 3));
+        }
+
+        Kci exact = new Kci(data, 0.05);
+        exact.setApproximate(true);
+
+        Kci lowRank = new Kci(data, 0.05);
+        lowRank.setApproximate(true);
+        lowRank.setNumFeatures(800);
+
+        Node x0 = nodes.get(0);
+        Node x1 = nodes.get(1);
+        Node x2 = nodes.get(2);
+        Node x3 = nodes.get(3);
+
+        assertAgree(exact, lowRank, x0, x1, Collections.emptySet());
+        assertAgree(exact, lowRank, x0, x2, Collections.emptySet());
+        assertAgree(exact, lowRank, x0, x3, Collections.singleton(x1));
+        assertAgree(exact, lowRank, x1, x3, Collections.singleton(x2));
+    }
+
+    /**
+     * The random features are drawn from a generator seeded from RandomUtil, so the low-rank test repeats under the
+     * same seed and changes with it.
+     */
+    @Test
+    public void testLowRankFollowsSeed() {
+        RandomUtil.getInstance().setSeed(48239482L);
+        DataSet data = independentData(300, 3);
+        List<Node> nodes = data.getVariables();
+
+        double[] p = new double[3];
+        long[] seeds = {2938492L, 2938492L, 7728394L};
+
+        for (int i = 0; i < 3; i++) {
+            RandomUtil.getInstance().setSeed(seeds[i]);
+            Kci kci = new Kci(data, 0.05);
+            kci.setApproximate(true);
+            kci.setNumFeatures(50);
+            p[i] = kci.checkIndependence(nodes.get(0), nodes.get(1), Collections.singleton(nodes.get(2))).getPValue();
+        }
+
+        assertEquals(p[0], p[1], 0.0);
+        assertNotEquals(p[0], p[2], 0.0);
+    }
+
+    private static void assertAgree(Kci exact, Kci lowRank, Node x, Node y, Set<Node> z) {
+        double p1 = exact.checkIndependence(x, y, z).getPValue();
+        double p2 = lowRank.checkIndependence(x, y, z).getPValue();
+        assertEquals(p1, p2, 0.05);
+    }
+
+    private static DataSet independentData(int sampleSize, int numVars) {
+        List<Node> variables = new ArrayList<>();
+
+        for (int j = 0; j < numVars; j++) {
+            variables.add(new ContinuousVariable("X" + j));
+        }
+
+        DataSet data = new BoxDataSet(new DoubleDataBox(sampleSize, numVars), variables);
+
+        for (int i = 0; i < sampleSize; i++) {
+            for (int j = 0; j < numVars; j++) {
+                data.setDouble(i, j, RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        return data;
+    }
+}
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -163,9 +164,62 @@ public final class TestKnowledge {
             assertTrue(knowledge.isForbidden("X11", "X22"));
         }
     }
-}
 
+    @Test
+    public void testEditsAfterQueries() {
+        List<String> vars = new ArrayList<>();
 
+        for (int i = 0; i < 200; i++) {
+            vars.add("X" + i);
+        }
 
+        Knowledge knowledge = new Knowledge(vars);
 
+        for (int i = 0; i < 200; i++) {
+            knowledge.addToTier(i / 50, "X" + i);
+        }
+
+        assertTrue(knowledge.isForbidden("X60", "X10"));
+        assertFalse(knowledge.isForbidden("X10", "X160"));
+        assertFalse(knowledge.isForbidden("X10", "X20"));
+        assertEquals(1, knowledge.isInWhichTier(new ContinuousVariable("X60")));
+
+        knowledge.setOnlyCanCauseNextTier(0, true);
+        assertTrue(knowledge.isForbidden("X10", "X160"));
+        assertFalse(knowledge.isForbidden("X10", "X60"));
+
+        knowledge.setTierForbiddenWithin(0, true);
+        assertTrue(knowledge.isForbidden("X10", "X20"));
+        assertTrue(knowledge.isForbiddenByTiers("X10", "X20"));
 
+        knowledge.setRequired("X60", "X10");
+        assertTrue(knowledge.isRequired("X60", "X10"));
+        assertFalse(knowledge.isForbidden("X60", "X10"));
+
+        knowledge.removeRequired("X60", "X10");
+        assertTrue(knowledge.isForbidden("X60", "X10"));
+
+        knowledge.removeFromTiers("X60");
+        assertFalse(knowledge.isForbidden("X60", "X10"));
+        assertEquals(-1, knowledge.isInWhichTier(new ContinuousVariable("X60")));
+
+        knowledge.setForbidden("X60", "X61");
+        assertTrue(knowledge.isForbidden("X60", "X61"));
+        assertFalse(knowledge.isForbidden("X61", "X60"));
+
+        knowledge.removeForbidden("X60", "X61");
+        assertFalse(knowledge.isForbidden("X60", "X61"));
+
+        knowledge.addVariable("Y");
+        knowledge.addToTier(3, "Y");
+        assertTrue(knowledge.isForbidden("Y", "X10"));
+
+        Knowledge copy = knowledge.copy();
+        assertTrue(copy.isForbidden("Y", "X10"));
+        assertTrue(copy.isForbidden("X10", "X20"));
+
+        knowledge.clear();
+        assertFalse(knowledge.isForbidden("Y", "X10"));
+        assertTrue(copy.isForbidden("Y", "X10"));
+    }
+}
@@ -27,8 +27,12 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.RandomGraph;
 import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -54,6 +58,51 @@ public class TestLargeSemSimulator {
 
         assertEquals(1000, dataset.getNumRows());
     }
+
+    @Test
+    public void testSimulateToFile() throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) nodes.add(new ContinuousVariable("X" + i));
+
+        Graph graph = RandomGraph.randomGraph(nodes, 0, 10, 5, 5, 5, false);
+        LargeScaleSimulation simulator = new LargeScaleSimulation(graph);
+
+        File columnar1 = File.createTempFile("simulation", ".tcb");
+        File columnar2 = File.createTempFile("simulation", ".tcb");
+        File text = File.createTempFile("simulation", ".txt");
+
+        try {
+            simulator.setSeed(42L);
+            DataSet data1;
+
+            try (ForkJoinPoolInstance.Scope ignored = ForkJoinPoolInstance.getInstance().withParallelism(1)) {
+                data1 = simulator.simulateDataRecursiveColumnar(5000, columnar1);
+            }
+
+            simulator.setSeed(42L);
+            DataSet data2 = simulator.simulateDataRecursiveColumnar(5000, columnar2);
+
+            assertEquals(5000, data1.getNumRows());
+            assertEquals(10, data1.getNumColumns());
+
+            for (int i = 0; i < data1.getNumRows(); i++) {
+                for (int j = 0; j < data1.getNumColumns(); j++) {
+                    assertEquals(data1.getDouble(i, j), data2.getDouble(i, j), 0.0);
+                }
+            }
+
+            simulator.setSeed(42L);
+            simulator.simulateDataRecursive(5000, text, '\t');
+            List<String> lines = Files.readAllLines(text.toPath());
+
+            assertEquals(5001, lines.size());
+            assertEquals(data1.getDouble(4999, 9), Double.parseDouble(lines.get(5000).split("\t")[9]), 1e-3);
+        } finally {
+            columnar1.delete();
+            columnar2.delete();
+            text.delete();
+        }
+    }
 }
 
 
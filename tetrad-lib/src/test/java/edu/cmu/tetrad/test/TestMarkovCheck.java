@@ -0,0 +1,104 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.MarkovCheck;
+import edu.cmu.tetrad.search.test.IndTestFisherZ;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the streaming Markov check against the one that keeps its results.
+ */
+public final class TestMarkovCheck {
+
+    /**
+     * Without early stopping, the streaming check checks the same facts, so it gives the same fractions dependent and,
+     * up to the binning of the p-values, the same Kolmogorov-Smirnov p-values.
+     */
+    @Test
+    public void testStreamingAgrees() {
+        RandomUtil.getInstance().setSeed(38429384L);
+        Graph dag = RandomGraph.randomGraph(10, 0, 15, 100, 100, 100, false);
+        IndTestFisherZ test = new IndTestFisherZ(new SemIm(new SemPm(dag)).simulateData(500, false), 0.05);
+
+        MarkovCheck check = new MarkovCheck(dag, test);
+        check.generateResults();
+
+        MarkovCheck streaming = new MarkovCheck(dag, test);
+        streaming.generateResultsStreaming();
+
+        for (boolean indep : new boolean[]{true, false}) {
+            assertEquals(check.getResults(indep).size(), streaming.getNumChecked(indep));
+            assertFalse(streaming.isStoppedEarly(indep));
+            assertEquals(check.getFractionDependent(indep), streaming.getFractionDependent(indep), 1e-12);
+            assertEquals(check.getKsPValue(indep), streaming.getKsPValue(indep), 0.01);
+            assertEquals(streaming.getNumChecked(indep), Arrays.stream(streaming.getPValueCounts(indep, 100)).sum());
+        }
+    }
+
+    /**
+     * With early stopping, checking stops once the p-values of the facts implied by the graph are seen to be uniform
+     * and those of the other facts are seen not to be.
+     */
+    @Test
+    public void testEarlyStopping() {
+        RandomUtil.getInstance().setSeed(38429384L);
+        Graph dag = RandomGraph.randomGraph(50, 0, 100, 100, 100, 100, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        IndTestFisherZ test = new IndTestFisherZ(data, 0.05);
+
+        MarkovCheck check = new MarkovCheck(dag, test);
+        check.generateResultsStreaming();
+        long total = check.getNumChecked(true) + check.getNumChecked(false);
+
+        check.setEarlyStopping(0.05, 0.2);
+        check.generateResultsStreaming();
+
+        assertTrue(check.isStoppedEarly(true));
+        assertTrue(check.isStoppedEarly(false));
+        assertTrue(check.getNumChecked(true) + check.getNumChecked(false) < total);
+    }
+
+    /**
+     * The p-value histograms can only be merged into numbers of bins that divide the number kept.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPValueCountsBins() {
+        RandomUtil.getInstance().setSeed(38429384L);
+        Graph dag = RandomGraph.randomGraph(5, 0, 5, 100, 100, 100, false);
+        MarkovCheck check = new MarkovCheck(dag, new IndTestFisherZ(new SemIm(new SemPm(dag)).simulateData(100, false), 0.05));
+        check.generateResultsStreaming();
+
+        assertEquals(10, check.getPValueCounts(true, 10).length);
+        check.getPValueCounts(true, 3);
+    }
+}
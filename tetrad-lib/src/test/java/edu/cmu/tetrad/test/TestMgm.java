@@ -0,0 +1,77 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.graph.RandomForward;
+import edu.cmu.tetrad.algcomparison.simulation.LeeHastieSimulation;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.csb.mgm.Mgm;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests MGM.
+ */
+public final class TestMgm {
+
+    /**
+     * The parallel objective gives the same graph as the serial one.
+     */
+    @Test
+    public void testParallelSameAsSerial() {
+        Parameters parameters = new Parameters();
+        parameters.set(Params.NUM_MEASURES, 12);
+        parameters.set(Params.AVG_DEGREE, 2);
+        parameters.set(Params.SAMPLE_SIZE, 500);
+        parameters.set(Params.PERCENT_DISCRETE, 50);
+        parameters.set(Params.NUM_CATEGORIES, 3);
+        parameters.set(Params.DATA_TYPE, "mixed");
+        parameters.set(Params.NUM_RUNS, 1);
+        parameters.set(Params.RANDOMIZE_COLUMNS, false);
+
+        double[] lambda = {0.1, 0.1, 0.1};
+
+        for (long seed : new long[]{49283492L, 3928493L, 293849234L}) {
+            RandomUtil.getInstance().setSeed(seed);
+            LeeHastieSimulation simulation = new LeeHastieSimulation(new RandomForward());
+            simulation.createData(parameters, true);
+            DataSet data = (DataSet) simulation.getDataModel(0);
+
+            Set<Edge> serial = new HashSet<>(new Mgm(data, lambda).search().getEdges());
+            assertFalse(serial.isEmpty());
+
+            Mgm parallel = new Mgm(data, lambda);
+            parallel.setParallelized(true);
+
+            assertEquals(serial, new HashSet<>(parallel.search().getEdges()));
+        }
+    }
+}
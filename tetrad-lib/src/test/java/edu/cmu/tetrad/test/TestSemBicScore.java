@@ -0,0 +1,176 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015, 2022 by Peter Spirtes, Richard        //
+// Scheines, Joseph Ramsey, and Clark Glymour.                               //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.RandomGraph;
+import edu.cmu.tetrad.search.score.IncrementalLocalScore;
+import edu.cmu.tetrad.search.score.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the SEM BIC score.
+ */
+public final class TestSemBicScore {
+
+    /**
+     * The Cholesky path for the residual variance should agree with the inverse path.
+     */
+    @Test
+    public void testCholeskyAgreesWithInverse() {
+        RandomUtil.getInstance().setSeed(29348239L);
+
+        ICovarianceMatrix cov = simulateCov(30, 45, 1000);
+
+        for (int t = 0; t < 200; t++) {
+            int[] parents = randomParents(30, t % 12);
+            double v1 = SemBicScore.getVarRyCholesky(parents[0], tail(parents), cov);
+            double v2 = SemBicScore.getVarRyInverse(parents[0], tail(parents), null, cov, false);
+
+            assertEquals(v2, v1, 1e-10);
+        }
+    }
+
+    /**
+     * Local scores, which use the Cholesky path, should agree with BIC scores calculated from the inverse path.
+     */
+    @Test
+    public void testCholeskyLocalScore() {
+        RandomUtil.getInstance().setSeed(29348239L);
+
+        ICovarianceMatrix cov = simulateCov(30, 45, 1000);
+        SemBicScore score = new SemBicScore(cov);
+        int n = cov.getSampleSize();
+
+        for (int t = 0; t < 200; t++) {
+            int[] parents = randomParents(30, t % 12);
+            int[] z = tail(parents);
+
+            double varRy = SemBicScore.getVarRyInverse(parents[0], z, null, cov, false);
+            double expected = -(n / 2.0) * Math.log(varRy) - score.getPenaltyDiscount() * (z.length / 2.0) * Math.log(n);
+
+            assertEquals(expected, score.localScore(parents[0], z), 1e-8);
+        }
+    }
+
+    /**
+     * Adding and removing parents one at a time should give the same scores as scoring from scratch.
+     */
+    @Test
+    public void testIncrementalLocalScore() {
+        RandomUtil.getInstance().setSeed(29348239L);
+
+        SemBicScore score = new SemBicScore(simulateCov(30, 60, 1000));
+        IncrementalLocalScore incremental = score.incrementalLocalScore(0, 3, 7);
+        assertEquals(score.localScore(0, 3, 7), incremental.getScore(), 1e-8);
+
+        for (int x = 1; x < 30; x++) {
+            if (x == 3 || x == 7) continue;
+            int[] parents = incremental.getParents();
+            assertEquals(score.localScore(0, append(parents, x)), incremental.scoreWithParent(x), 1e-8);
+            assertTrue(incremental.addParent(x));
+            assertEquals(score.localScore(0, incremental.getParents()), incremental.getScore(), 1e-8);
+        }
+
+        for (int y : new int[]{5, 3, 29, 1, 17, 28, 2}) {
+            double withoutY = incremental.scoreWithoutParent(y);
+            incremental.removeParent(y);
+            assertEquals(score.localScore(0, incremental.getParents()), withoutY, 1e-8);
+            assertEquals(withoutY, incremental.getScore(), 1e-10);
+        }
+
+        assertEquals(22, incremental.getParents().length);
+    }
+
+    /**
+     * The score differences for all candidate parents at once should agree with those for one parent at a time, under
+     * either rule.
+     */
+    @Test
+    public void testLocalScoreDiffs() {
+        RandomUtil.getInstance().setSeed(29348239L);
+
+        SemBicScore score = new SemBicScore(simulateCov(30, 45, 1000));
+        int[] xs = new int[29];
+        for (int x = 1; x < 30; x++) xs[x - 1] = x;
+
+        for (SemBicScore.RuleType ruleType : SemBicScore.RuleType.values()) {
+            score.setRuleType(ruleType);
+            double[] diffs = score.localScoreDiffs(xs, 0);
+
+            for (int i = 0; i < xs.length; i++) {
+                assertEquals(score.localScoreDiff(xs[i], 0), diffs[i], 1e-8);
+            }
+        }
+    }
+
+    private static int[] append(int[] a, int x) {
+        int[] b = new int[a.length + 1];
+        System.arraycopy(a, 0, b, 0, a.length);
+        b[a.length] = x;
+        return b;
+    }
+
+    private static ICovarianceMatrix simulateCov(int numNodes, int numEdges, int sampleSize) {
+        Graph dag = RandomGraph.randomDag(numNodes, 0, numEdges, 10, 10, 10, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(sampleSize, false);
+        return new CovarianceMatrix(data);
+    }
+
+    // A random set of size + 1 distinct variables.
+    private static int[] randomParents(int numVars, int size) {
+        int[] parents = new int[size + 1];
+
+        for (int j = 0; j < parents.length; j++) {
+            int p;
+
+            do {
+                p = RandomUtil.getInstance().nextInt(numVars);
+            } while (contains(parents, j, p));
+
+            parents[j] = p;
+        }
+
+        return parents;
+    }
+
+    private static boolean contains(int[] a, int n, int p) {
+        for (int j = 0; j < n; j++) if (a[j] == p) return true;
+        return false;
+    }
+
+    private static int[] tail(int[] a) {
+        int[] tail = new int[a.length - 1];
+        System.arraycopy(a, 1, tail, 0, tail.length);
+        return tail;
+    }
+}
@@ -26,11 +26,14 @@ import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.sem.*;
 import edu.cmu.tetrad.util.Matrix;
 import edu.cmu.tetrad.util.MatrixUtils;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertTrue;
+
 /**
  * Tests the MeasurementSimulator class using diagnostics devised by Richard Scheines. The diagnostics are described in
  * the Javadocs, below.
@@ -185,6 +188,30 @@ public class TestSemEstimator {
         opt.optimize(im2);
     }
 
+    @Test
+    public void testOptimizerLbfgs() {
+        RandomUtil.getInstance().setSeed(29384829L);
+
+        Graph graph = constructGraph1();
+        graph.addBidirectedEdge(graph.getNode("X2"), graph.getNode("X5"));
+        SemPm pm = new SemPm(graph);
+        ICovarianceMatrix covMatrix = constructCovMatrix1();
+
+        for (ScoreType scoreType : new ScoreType[]{ScoreType.Fml, ScoreType.Fgls}) {
+            SemEstimator powell = new SemEstimator(covMatrix, pm, new SemOptimizerPowell());
+            powell.setScoreType(scoreType);
+            powell.setNumRestarts(2);
+            double powellScore = powell.estimate().getScore();
+
+            SemEstimator lbfgs = new SemEstimator(covMatrix, pm, new SemOptimizerLbfgs());
+            lbfgs.setScoreType(scoreType);
+            lbfgs.setNumRestarts(2);
+            double lbfgsScore = lbfgs.estimate().getScore();
+
+            assertTrue(lbfgsScore <= powellScore + 1e-6);
+        }
+    }
+
     private ICovarianceMatrix constructCovMatrix2() {
         String[] vars = {"X1", "X2", "X3", "X4", "X5", "X6"};
 